@@ -40,6 +40,7 @@ object LogicalPlanConverter {
     case p: SingleRow => singleRowAsCodeGenPlan(p)
     case p: AllNodesScan => allNodesScanAsCodeGenPlan(p)
     case p: NodeByLabelScan => nodeByLabelScanAsCodeGenPlan(p)
+    case p: NodeByLabelsScan => nodeByLabelsScanAsCodeGenPlan(p)
     case p: NodeIndexSeek => nodeIndexSeekAsCodeGenPlan(p)
     case p: NodeByIdSeek => nodeByIdSeekAsCodeGenPlan(p)
     case p: NodeUniqueIndexSeek => nodeUniqueIndexSeekAsCodeGen(p)
@@ -138,6 +139,24 @@ object LogicalPlanConverter {
     }
   }
 
+  // Scans the first label and checks the others for each node, the same as a label scan followed by a selection
+  private def nodeByLabelsScanAsCodeGenPlan(nodeByLabelsScan: NodeByLabelsScan) = new CodeGenPlan with LeafCodeGenPlan {
+    override val logicalPlan: LogicalPlan = nodeByLabelsScan
+
+    override def produce(context: CodeGenContext): (Option[JoinTableMethod], List[Instruction]) = {
+      val nodeVar = Variable(context.namer.newVarName(), CodeGenType.primitiveNode)
+      val labelVar = context.namer.newVarName()
+      context.addVariable(nodeByLabelsScan.idName.name, nodeVar)
+      val (methodHandle, actions :: tl) = context.popParent().consume(context, this)
+      val opName = context.registerOperator(logicalPlan)
+      val firstLabel :: otherLabels = nodeByLabelsScan.labels.toList
+      val filtered = otherLabels.reverse.foldLeft[Instruction](actions) {
+        case (acc, label) => If(HasLabel(nodeVar, context.namer.newVarName(), label.name).asPredicate, acc)
+      }
+      (methodHandle, WhileLoop(nodeVar, ScanForLabel(opName, firstLabel.name, labelVar), filtered) :: tl)
+    }
+  }
+
   private type IndexSeekFun = (String, String, CodeGenExpression, Variable, Instruction) => Instruction
 
   // Used by both nodeIndexSeekAsCodeGenPlan and nodeUniqueIndexSeekAsCodeGenPlan
@@ -45,6 +45,8 @@ case class CheckForLoadCsvAndMatchOnLargeLabel(planContext: PlanContext, nonInde
       }
       case NodeByLabelScanPipe(_, label) if cardinality(label.getOptId(planContext)) > threshold =>
         acc => (LargeLabelFound, Some(identity))
+      case NodeByLabelsScanPipe(_, labels) if labels.forall(label => cardinality(label.getOptId(planContext)) > threshold) =>
+        acc => (LargeLabelFound, Some(identity))
       case NodeStartPipe(_, _, NodeByLabelEntityProducer(_, id), _) if cardinality(id) > threshold =>
         acc => (LargeLabelFound, Some(identity))
     }
@@ -193,6 +193,9 @@ case class ActualPipeBuilder(monitors: Monitors, recurse: LogicalPlan => Pipe, r
       case NodeByLabelScan(IdName(ident), label, _) =>
         NodeByLabelScanPipe(ident, LazyLabel(label))(id = id)
 
+      case NodeByLabelsScan(IdName(ident), labels, _, _) =>
+        NodeByLabelsScanPipe(ident, labels.map(LazyLabel(_)))(id = id)
+
       case NodeByIdSeek(IdName(ident), nodeIdExpr, _) =>
         NodeByIdSeekPipe(ident, nodeIdExpr.asCommandSeekArgs)(id = id)
 
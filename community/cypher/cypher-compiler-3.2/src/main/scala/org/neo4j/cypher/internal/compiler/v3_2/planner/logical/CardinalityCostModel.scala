@@ -29,6 +29,8 @@ object CardinalityCostModel extends CostModel {
   private val PROBE_BUILD_COST: CostPerRow = 3.1
   private val PROBE_SEARCH_COST: CostPerRow = 2.4
   private val EAGERNESS_MULTIPLIER: Multiplier = 2.0
+  // Label scan entries are intersected a node id range at a time, cheaper per node than producing it as a row
+  private val INTERSECTED_LABEL_SCAN_COST: CostPerRow = 0.5
 
   private def costPerRow(plan: LogicalPlan): CostPerRow = plan match {
     /*
@@ -112,6 +114,10 @@ object CardinalityCostModel extends CostModel {
         // the rCost has already been multiplied by the lhs cardinality
         lCost + rCost
 
+      // Reads the label scans of all labels to the end, not only the nodes having all of them
+      case scan: NodeByLabelsScan =>
+        scan.scannedCardinality * INTERSECTED_LABEL_SCAN_COST
+
       case HashJoin(lhs, rhs) =>
         val lCost = apply(lhs, input)
         val rCost = apply(rhs, input)
@@ -55,6 +55,9 @@ case class LogicalPlan2PlanDescription(idMap: Map[LogicalPlan, Id], readOnly: Bo
       case NodeByLabelScan(_, label, _) =>
         PlanDescriptionImpl(id, "NodeByLabelScan", NoChildren, Seq(LabelName(label.name)), variables)
 
+      case NodeByLabelsScan(_, labels, _, _) =>
+        PlanDescriptionImpl(id, "NodeByLabelsScan", NoChildren, labels.map(label => LabelName(label.name)), variables)
+
       case NodeByIdSeek(_, _, _) =>
         PlanDescriptionImpl(id, "NodeByIdSeek", NoChildren, Seq(), variables)
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_2.planner.logical.plans
+
+import org.neo4j.cypher.internal.compiler.v3_2.planner.{CardinalityEstimation, PlannerQuery}
+import org.neo4j.cypher.internal.frontend.v3_2.ast.LabelName
+import org.neo4j.cypher.internal.ir.v3_2.{Cardinality, IdName}
+
+/*
+Produces the nodes that have all of the given labels, by intersecting the label scans of all of them,
+rather than scanning one of the labels and filtering on the others. The label scans of all labels are read
+to the end, so scannedCardinality is the sum of the cardinalities of the single label scans.
+ */
+case class NodeByLabelsScan(idName: IdName, labels: Seq[LabelName], argumentIds: Set[IdName], scannedCardinality: Cardinality)
+                           (val solved: PlannerQuery with CardinalityEstimation)
+  extends NodeLogicalLeafPlan {
+
+  def availableSymbols: Set[IdName] = argumentIds + idName
+}
@@ -167,6 +167,25 @@ case class LogicalPlanProducer(cardinalityModel: CardinalityModel) extends ListS
     NodeByLabelScan(idName, label, argumentIds)(solved)
   }
 
+  def planNodeByLabelsScan(idName: IdName, labels: Seq[LabelName], solvedPredicates: Seq[Expression],
+                           argumentIds: Set[IdName])
+                          (implicit context: LogicalPlanningContext): LogicalPlan = {
+    val solved = RegularPlannerQuery(queryGraph = QueryGraph.empty
+      .addPatternNodes(idName)
+      .addPredicates(solvedPredicates: _*)
+      .addArgumentIds(argumentIds.toIndexedSeq)
+    )
+    val scannedCardinality = labels.map { label =>
+      val singleLabel = RegularPlannerQuery(queryGraph = QueryGraph.empty
+        .addPatternNodes(idName)
+        .addPredicates(HasLabels(Variable(idName.name)(label.position), Seq(label))(label.position))
+        .addArgumentIds(argumentIds.toIndexedSeq)
+      )
+      cardinalityModel(singleLabel, context.input, context.semanticTable)
+    }.foldLeft(Cardinality.EMPTY)(_ + _)
+    NodeByLabelsScan(idName, labels, argumentIds, scannedCardinality)(solved)
+  }
+
   def planNodeIndexSeek(idName: IdName,
                         label: ast.LabelToken,
                         propertyKey: ast.PropertyKeyToken,
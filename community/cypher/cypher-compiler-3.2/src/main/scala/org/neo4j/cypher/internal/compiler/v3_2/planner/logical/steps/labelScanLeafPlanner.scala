@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v3_2.planner.logical.steps
 
 import org.neo4j.cypher.internal.compiler.v3_2.planner.QueryGraph
+import org.neo4j.cypher.internal.compiler.v3_2.planner.logical.plans.LogicalPlan
 import org.neo4j.cypher.internal.compiler.v3_2.planner.logical.{LeafPlanFromExpression, LeafPlanner, LeafPlansForVariable, LogicalPlanningContext}
 import org.neo4j.cypher.internal.frontend.v3_2.ast.{Expression, HasLabels, UsingScanHint, Variable}
 import org.neo4j.cypher.internal.ir.v3_2.IdName
@@ -45,5 +46,29 @@ object labelScanLeafPlanner extends LeafPlanner with LeafPlanFromExpression {
   }
 
   override def apply(qg: QueryGraph)(implicit context: LogicalPlanningContext) =
-    qg.selections.flatPredicates.flatMap(e => producePlanFor(e, qg).toSeq.flatMap(_.plans))
+    qg.selections.flatPredicates.flatMap(e => producePlanFor(e, qg).toSeq.flatMap(_.plans)) ++ multiLabelPlans(qg)
+
+  /*
+  Nodes with more than one label predicate can also be found by intersecting the label scans of all their labels,
+  unless the query explicitly asks for scanning a single label.
+   */
+  private def multiLabelPlans(qg: QueryGraph)(implicit context: LogicalPlanningContext): Seq[LogicalPlan] = {
+    val labelPredicates = qg.selections.flatPredicates.collect {
+      case labelPredicate@HasLabels(Variable(varName), _) if qg.patternNodes(IdName(varName)) && !qg.argumentIds(IdName(varName)) =>
+        varName -> labelPredicate
+    }
+    labelPredicates.groupBy(_._1).toSeq.flatMap {
+      case (varName, predicates) =>
+        val solvedPredicates = predicates.map(_._2)
+        val labels = solvedPredicates.flatMap(_.labels).distinct.sortBy(_.name)
+        val hinted = qg.hints.exists {
+          case UsingScanHint(Variable(`varName`), _) => true
+          case _ => false
+        }
+        if (labels.size > 1 && !hinted)
+          Some(context.logicalPlanProducer.planNodeByLabelsScan(IdName(varName), labels, solvedPredicates, qg.argumentIds))
+        else
+          None
+    }
+  }
 }
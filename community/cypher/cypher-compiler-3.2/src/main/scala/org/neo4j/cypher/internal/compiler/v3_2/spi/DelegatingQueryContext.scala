@@ -107,6 +107,8 @@ class DelegatingQueryContext(val inner: QueryContext) extends QueryContext {
 
   override def getNodesByLabel(id: Int): Iterator[Node] = manyDbHits(inner.getNodesByLabel(id))
 
+  override def getNodesByLabels(ids: Seq[Int]): Iterator[Node] = manyDbHits(inner.getNodesByLabels(ids))
+
   override def getOrCreateFromSchemaState[K, V](key: K, creator: => V): V =
     singleDbHit(inner.getOrCreateFromSchemaState(key, creator))
 
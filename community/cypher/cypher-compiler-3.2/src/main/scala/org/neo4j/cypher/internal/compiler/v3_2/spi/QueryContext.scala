@@ -101,6 +101,8 @@ trait QueryContext extends TokenContext {
 
   def getNodesByLabel(id: Int): Iterator[Node]
 
+  def getNodesByLabels(ids: Seq[Int]): Iterator[Node]
+
   def getOrCreateFromSchemaState[K, V](key: K, creator: => V): V
 
   def createUniqueConstraint(labelId: Int, propertyKeyId: Int): IdempotentResult[UniquenessConstraint]
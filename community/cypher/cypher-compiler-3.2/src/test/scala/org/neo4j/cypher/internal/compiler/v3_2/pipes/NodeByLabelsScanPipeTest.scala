@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_2.pipes
+
+import org.neo4j.cypher.internal.frontend.v3_2.ast.LabelName
+import org.neo4j.cypher.internal.compiler.v3_2.spi.QueryContext
+import org.neo4j.cypher.internal.frontend.v3_2.{SemanticTable, LabelId}
+import org.neo4j.cypher.internal.frontend.v3_2.test_helpers.CypherFunSuite
+import org.neo4j.graphdb.Node
+
+class NodeByLabelsScanPipeTest extends CypherFunSuite {
+
+  implicit val monitor = mock[PipeMonitor]
+  import org.mockito.Mockito.when
+
+  test("should scan nodes having all labels") {
+    // given
+    val nodes = List(mock[Node], mock[Node])
+    val queryState = QueryStateHelper.emptyWith(
+      query = when(mock[QueryContext].getNodesByLabels(Seq(12, 13))).thenReturn(nodes.iterator).getMock[QueryContext]
+    )
+
+    implicit val table = new SemanticTable()
+    table.resolvedLabelIds.put("Foo", LabelId(12))
+    table.resolvedLabelIds.put("Bar", LabelId(13))
+
+    // when
+    val result = NodeByLabelsScanPipe("a", Seq(LazyLabel(LabelName("Foo")(null)), LazyLabel(LabelName("Bar")(null))))().createResults(queryState)
+
+    // then
+    result.map(_("a")).toList should equal(nodes)
+  }
+
+  test("should not scan when one of the labels does not exist") {
+    // given
+    val query = mock[QueryContext]
+    when(query.getOptLabelId("Bar")).thenReturn(None)
+    val queryState = QueryStateHelper.emptyWith(query = query)
+
+    implicit val table = new SemanticTable()
+    table.resolvedLabelIds.put("Foo", LabelId(12))
+
+    // when
+    val result = NodeByLabelsScanPipe("a", Seq(LazyLabel(LabelName("Foo")(null)), LazyLabel("Bar")))().createResults(queryState)
+
+    // then
+    result.toList shouldBe empty
+  }
+}
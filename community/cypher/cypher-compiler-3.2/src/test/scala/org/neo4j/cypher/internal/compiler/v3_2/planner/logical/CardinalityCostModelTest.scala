@@ -25,7 +25,7 @@ import org.neo4j.cypher.internal.compiler.v3_2.planner.logical.plans._
 import org.neo4j.cypher.internal.frontend.v3_2.SemanticDirection
 import org.neo4j.cypher.internal.frontend.v3_2.ast.{HasLabels, LabelName}
 import org.neo4j.cypher.internal.frontend.v3_2.test_helpers.CypherFunSuite
-import org.neo4j.cypher.internal.ir.v3_2.{Cost, LazyMode}
+import org.neo4j.cypher.internal.ir.v3_2.{Cardinality, Cost, LazyMode}
 
 class CardinalityCostModelTest extends CypherFunSuite with LogicalPlanningTestSupport {
 
@@ -43,6 +43,18 @@ class CardinalityCostModelTest extends CypherFunSuite with LogicalPlanningTestSu
     CardinalityCostModel(plan, QueryGraphSolverInput.empty) should equal(Cost(231))
   }
 
+  test("multi label scan should cost all scanned labels, not only the nodes having all of them") {
+    val scanRareAndFilter =
+      Selection(List(HasLabels(varFor("a"), Seq(LabelName("Common") _)) _),
+        NodeByLabelScan("a", lblName("Rare"), Set.empty)(solvedWithEstimation(10.0))
+      )(solvedWithEstimation(5.0))
+    val intersectBoth =
+      NodeByLabelsScan("a", Seq(lblName("Common"), lblName("Rare")), Set.empty, Cardinality(10010.0))(solvedWithEstimation(5.0))
+
+    CardinalityCostModel(scanRareAndFilter, QueryGraphSolverInput.empty) should be <
+      CardinalityCostModel(intersectBoth, QueryGraphSolverInput.empty)
+  }
+
   test("should introduce increase cost when estimating an eager operator and lazyness is preferred") {
     val plan = NodeHashJoin(Set("a"),
       NodeByLabelScan("a", lblName("A"), Set.empty)(solvedWithEstimation(10.0)),
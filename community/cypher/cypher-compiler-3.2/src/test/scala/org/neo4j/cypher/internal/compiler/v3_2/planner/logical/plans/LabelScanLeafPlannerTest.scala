@@ -100,4 +100,37 @@ class LabelScanLeafPlannerTest extends CypherFunSuite with LogicalPlanningTestSu
     resultPlans should equal(
       Seq(NodeByLabelScan(idName, lblName("Awesome"), Set.empty)(solved)))
   }
+
+  test("label scan over all labels when a node has several label predicates") {
+    // given
+    val idName = IdName("n")
+    val hasAwesome = HasLabels(Variable("n")_, Seq(LabelName("Awesome")_))_
+    val hasBrilliant = HasLabels(Variable("n")_, Seq(LabelName("Brilliant")_))_
+    val qg = QueryGraph(
+      selections = Selections(Set(Predicate(Set(idName), hasAwesome), Predicate(Set(idName), hasBrilliant))),
+      patternNodes = Set(idName))
+
+    val factory = newMockedMetricsFactory
+    when(factory.newCostModel()).thenReturn((plan: LogicalPlan, input: QueryGraphSolverInput) => plan match {
+      case _: NodeByLabelsScan => Cost(1)
+      case _                   => Cost(Double.MaxValue)
+    })
+
+    val semanticTable = newMockedSemanticTable
+    when(semanticTable.resolvedLabelIds).thenReturn(mutable.Map.empty[String, LabelId])
+
+    implicit val context = newMockedLogicalPlanningContext(
+      semanticTable = semanticTable,
+      planContext = newMockedPlanContext,
+      metrics = factory.newMetrics(statistics)
+    )
+
+    // when
+    val resultPlans = labelScanLeafPlanner(qg)
+
+    // then
+    resultPlans.collect {
+      case NodeByLabelsScan(name, labels, argumentIds, _) => (name, labels, argumentIds)
+    } should equal(Seq((idName, Seq(lblName("Awesome"), lblName("Brilliant")), Set.empty)))
+  }
 }
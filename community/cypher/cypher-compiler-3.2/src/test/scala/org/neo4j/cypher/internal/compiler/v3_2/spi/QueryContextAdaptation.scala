@@ -120,6 +120,8 @@ trait QueryContextAdaptation {
 
   override def getNodesByLabel(id: Int): scala.Iterator[Node] = ???
 
+  override def getNodesByLabels(ids: Seq[Int]): scala.Iterator[Node] = ???
+
   override def lockingUniqueIndexSeek(index: IndexDescriptor, value: Any): Option[Node] = ???
 
   override def callReadOnlyProcedure(name: QualifiedName, args: Seq[Any], allowed: Array[String]): scala.Iterator[Array[AnyRef]] = ???
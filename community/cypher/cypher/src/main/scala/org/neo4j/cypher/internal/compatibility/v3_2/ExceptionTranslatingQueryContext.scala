@@ -102,6 +102,9 @@ class ExceptionTranslatingQueryContext(val inner: QueryContext) extends QueryCon
   override def getNodesByLabel(id: Int): Iterator[Node] =
     translateException(inner.getNodesByLabel(id))
 
+  override def getNodesByLabels(ids: Seq[Int]): Iterator[Node] =
+    translateException(inner.getNodesByLabels(ids))
+
   override def nodeGetDegree(node: Long, dir: SemanticDirection): Int =
     translateException(inner.nodeGetDegree(node, dir))
 
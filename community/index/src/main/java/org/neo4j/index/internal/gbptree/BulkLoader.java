@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Builds the contents of an empty {@link GBPTree} from key/value pairs {@link #add(Object, Object) added} in
+ * strictly ascending key order. The tree is built bottom-up, with fully packed leaves and internal nodes,
+ * and becomes visible as a whole when the bulk loader is {@link #close() closed}, typically using
+ * try-with-resource clause, after having been marked {@link #success() successful}. A bulk loader closed without
+ * being marked successful, e.g. because adding the keys failed half way, frees the nodes it built and leaves
+ * the tree empty.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+public interface BulkLoader<KEY,VALUE> extends Closeable
+{
+    /**
+     * Adds a key/value pair to the tree being built. The {@code key} must be greater than all previously added keys.
+     * The {@code key} and {@code value} instances are copied and may be reused by the caller after this call.
+     *
+     * @param key key to add.
+     * @param value value to associate with the key.
+     * @throws IOException on index access error.
+     * @throws IllegalArgumentException if {@code key} isn't greater than the previously added key.
+     */
+    void add( KEY key, VALUE value ) throws IOException;
+
+    /**
+     * Marks the bulk load as successful, i.e. all keys have been added, so that the built tree is made visible
+     * when this bulk loader is {@link #close() closed}.
+     */
+    void success();
+}
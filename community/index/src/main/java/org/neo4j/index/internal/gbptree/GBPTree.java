@@ -26,9 +26,15 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
@@ -75,6 +81,13 @@ import static org.neo4j.index.internal.gbptree.PageCursorUtil.checkOutOfBounds;
  * A single writer w/ multiple concurrent readers is supported. Assuming usage adheres to this
  * constraint neither writer nor readers are blocking. Readers are virtually garbage-free.
  * <p>
+ * Alternatively multiple {@link #concurrentWriter() concurrent writers} can modify the tree at the same time.
+ * Concurrent writers descend the tree optimistically, assuming that their change can be made in the leaf alone.
+ * Leaves are locked, internal nodes are not, and a change which would cause a split or require a new
+ * generation of a node is instead made while all other concurrent writers are blocked, just like a change
+ * made by the single writer. Writers in disjoint key ranges will therefore only block each other on those,
+ * rather rare, structural changes.
+ * <p>
  * An reader of GB+Tree is a {@link SeekCursor} that returns result as it finds them.
  * As the cursor move over keys/values, returned results are considered "behind" it
  * and likewise keys not yet returned "in front of".
@@ -133,6 +146,11 @@ public class GBPTree<KEY,VALUE> implements Closeable
      */
     static final int FORMAT_VERSION = 1;
 
+    /**
+     * Number of locks in {@link #leafLocks}. Must be a power of two.
+     */
+    private static final int LEAF_LOCK_STRIPES = 128;
+
     /**
      * For monitoring {@link GBPTree}.
      */
@@ -192,9 +210,35 @@ public class GBPTree<KEY,VALUE> implements Closeable
      * Check-pointing flushes updates to stable storage.
      * There's a critical section in check-pointing where, in order to guarantee a consistent check-pointed state
      * on stable storage, no writes are allowed to happen.
-     * For this reason both writer and check-pointing acquires this lock.
+     * For this reason both the single writer and check-pointing acquires the write lock of this lock.
+     * {@link ConcurrentWriter Concurrent writers} acquire the read lock, which they share amongst each other.
+     */
+    private final ReadWriteLock writerCheckpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * Coordinates {@link ConcurrentWriter concurrent writers}. Changes which can be made in a leaf alone are
+     * made while holding the read lock of this lock, together with the lock of the leaf from {@link #leafLocks}.
+     * Changes to the structure of the tree, i.e. splits, new generations of nodes and new roots,
+     * are made while holding the write lock.
+     */
+    private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+    /**
+     * Incremented, while holding the write lock of {@link #structureLock}, for every change made by a
+     * {@link ConcurrentWriter} which may have changed the structure of the tree. A concurrent writer which
+     * hasn't seen the current version cannot trust the path down the tree that it remembers since its last change.
+     */
+    private volatile long structureVersion;
+
+    /**
+     * Striped locks for leaves modified by {@link ConcurrentWriter concurrent writers}, selected by leaf id.
+     */
+    private final Lock[] leafLocks = new Lock[LEAF_LOCK_STRIPES];
+
+    /**
+     * {@link ConcurrentWriter Concurrent writers} which have been closed and can be handed out again.
      */
-    private final Lock writerCheckpointMutex = new ReentrantLock();
+    private final Queue<ConcurrentWriter> concurrentWriters = new ConcurrentLinkedQueue<>();
 
     /**
      * Currently an index only supports one concurrent writer and so this boolean will act as
@@ -283,6 +327,10 @@ public class GBPTree<KEY,VALUE> implements Closeable
         this.bTreeNode = new TreeNode<>( pageSize, layout );
         this.freeList = new FreeListIdProvider( pagedFile, pageSize, rootId, FreeListIdProvider.NO_MONITOR );
         this.writer = new SingleWriter( new InternalTreeLogic<>( freeList, bTreeNode, layout ) );
+        for ( int i = 0; i < leafLocks.length; i++ )
+        {
+            leafLocks[i] = new ReentrantLock();
+        }
 
         try
         {
@@ -557,6 +605,76 @@ public class GBPTree<KEY,VALUE> implements Closeable
                 stableGeneration, unstableGeneration, generationSupplier, rootCatchup, rootGen );
     }
 
+    /**
+     * Seeks hits in this tree, given a key range, just like {@link #seek(Object, Object)}, but with the range
+     * split into partitions, i.e. consecutive sub ranges, so that the partitions can be seeked in parallel.
+     * Partitions are made up from separator keys in the internal nodes of the tree and will therefore have
+     * about the same number of hits each, at least as long as there are enough keys in the range.
+     * <p>
+     * Hits of each returned {@link RawCursor} are in ascending order and the cursors are ordered by their
+     * sub ranges, so reading each of them after the other yields the same hits as a single {@link #seek(Object,
+     * Object) seek} over the whole range. Each cursor must be closed and only be used by one thread at a time.
+     *
+     * @param fromInclusive lower bound of the range to seek (inclusive).
+     * @param toExclusive higher bound of the range to seek (exclusive), must not be smaller than
+     * {@code fromInclusive} since only forward seeks are supported.
+     * @param desiredNumberOfPartitions number of partitions to split the range into. Fewer partitions are returned
+     * if the tree doesn't have enough keys in the range.
+     * @return {@link RawCursor cursors}, one for each partition, in ascending order of their sub ranges.
+     * @throws IOException on error reading from index.
+     */
+    public List<RawCursor<Hit<KEY,VALUE>,IOException>> partitionedSeek( KEY fromInclusive, KEY toExclusive,
+            int desiredNumberOfPartitions ) throws IOException
+    {
+        if ( layout.compare( fromInclusive, toExclusive ) > 0 )
+        {
+            throw new IllegalArgumentException( "Partitioned seek only supports forward seeks, but got range " +
+                    fromInclusive + " - " + toExclusive );
+        }
+        if ( desiredNumberOfPartitions < 1 )
+        {
+            throw new IllegalArgumentException( "Need at least one partition, but got " + desiredNumberOfPartitions );
+        }
+
+        long generation = this.generation;
+        List<KEY> splitKeys;
+        try ( PageCursor cursor = pagedFile.io( 0L /*ignored*/, PagedFile.PF_SHARED_READ_LOCK ) )
+        {
+            root.goTo( cursor );
+            splitKeys = new SeekPartitioner<>( bTreeNode, layout, stableGeneration( generation ),
+                    unstableGeneration( generation ) )
+                    .splitKeys( cursor, fromInclusive, toExclusive, desiredNumberOfPartitions );
+        }
+
+        List<RawCursor<Hit<KEY,VALUE>,IOException>> partitions = new ArrayList<>( splitKeys.size() + 1 );
+        try
+        {
+            KEY partitionFrom = fromInclusive;
+            for ( KEY splitKey : splitKeys )
+            {
+                partitions.add( seek( partitionFrom, splitKey ) );
+                partitionFrom = splitKey;
+            }
+            partitions.add( seek( partitionFrom, toExclusive ) );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            for ( RawCursor<Hit<KEY,VALUE>,IOException> partition : partitions )
+            {
+                try
+                {
+                    partition.close();
+                }
+                catch ( IOException closeException )
+                {
+                    e.addSuppressed( closeException );
+                }
+            }
+            throw e;
+        }
+        return partitions;
+    }
+
     /**
      * Checkpoints and flushes any pending changes to storage. After a successful call to this method
      * the data is durable and safe. {@link #writer() Changes} made after this call and until crashing or
@@ -571,9 +689,9 @@ public class GBPTree<KEY,VALUE> implements Closeable
         // blocked while we do this
         pagedFile.flushAndForce( ioLimiter );
 
-        // Block writers, or if there's a current writer then wait for it to complete and then block
+        // Block writers, or if there are current writers then wait for them to complete and then block
         // From this point and till the lock is released we know that the tree won't change.
-        writerCheckpointMutex.lock();
+        writerCheckpointLock.writeLock().lock();
         try
         {
             // Flush dirty pages since that last flush above. This should be a very small set of pages
@@ -597,7 +715,7 @@ public class GBPTree<KEY,VALUE> implements Closeable
         {
             // Unblock writers, any writes after this point and up until the next checkpoint will have
             // the new unstable generation.
-            writerCheckpointMutex.unlock();
+            writerCheckpointLock.writeLock().unlock();
         }
     }
 
@@ -632,7 +750,7 @@ public class GBPTree<KEY,VALUE> implements Closeable
                     "acquired writer is closed" );
         }
 
-        writerCheckpointMutex.lock();
+        writerCheckpointLock.writeLock().lock();
         boolean success = false;
         try
         {
@@ -649,9 +767,144 @@ public class GBPTree<KEY,VALUE> implements Closeable
         }
     }
 
+    /**
+     * Returns a {@link BulkLoader} able to build the contents of this index, which must be empty, from keys added
+     * in strictly ascending order. This is much faster than inserting the keys one by one using a {@link #writer()}
+     * and produces fully packed tree nodes. The added keys become visible to readers when the bulk loader is
+     * {@link BulkLoader#close() closed}, typically by using try-with-resource clause, after having been marked
+     * {@link BulkLoader#success() successful}. Otherwise the built nodes are freed and the tree stays empty.
+     * <p>
+     * Like the {@link #writer() single writer}, the bulk loader excludes all other writers and
+     * {@link #checkpoint(IOLimiter) check-pointing} until it's closed.
+     *
+     * @return a {@link BulkLoader} for this index.
+     * @throws IOException on error accessing the index.
+     * @throws IllegalStateException if the index isn't empty, or if the single writer is currently acquired.
+     */
+    public BulkLoader<KEY,VALUE> bulkLoader() throws IOException
+    {
+        Writer<KEY,VALUE> singleWriter = writer();
+        boolean success = false;
+        try
+        {
+            // The single writer has its cursor pinned to the root, and no one else can change the tree right now
+            PageCursor rootCursor = this.writer.cursor;
+            if ( !TreeNode.isLeaf( rootCursor ) || bTreeNode.keyCount( rootCursor ) != 0 )
+            {
+                throw new IllegalStateException( "Only an empty tree can be bulk loaded, but " + this +
+                        " isn't empty" );
+            }
+
+            long generation = this.generation;
+            long stableGeneration = stableGeneration( generation );
+            long unstableGeneration = unstableGeneration( generation );
+            TreeBulkLoader<KEY,VALUE> treeBulkLoader = new TreeBulkLoader<>( pagedFile, bTreeNode, layout, freeList,
+                    stableGeneration, unstableGeneration );
+            BulkLoader<KEY,VALUE> bulkLoader = new BulkLoader<KEY,VALUE>()
+            {
+                private boolean success;
+
+                @Override
+                public void add( KEY key, VALUE value ) throws IOException
+                {
+                    treeBulkLoader.add( key, value );
+                }
+
+                @Override
+                public void success()
+                {
+                    success = true;
+                }
+
+                @Override
+                public void close() throws IOException
+                {
+                    boolean published = false;
+                    try
+                    {
+                        if ( success )
+                        {
+                            long newRootId = treeBulkLoader.finish();
+                            published = true;
+                            if ( TreeNode.isNode( newRootId ) )
+                            {
+                                long oldRootId = root.id();
+                                setRoot( newRootId, unstableGeneration );
+                                freeList.releaseId( stableGeneration, unstableGeneration, oldRootId );
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        try
+                        {
+                            if ( !published )
+                            {
+                                // Keep the old, empty, root and give back the nodes of the partially built tree
+                                treeBulkLoader.abort();
+                            }
+                        }
+                        finally
+                        {
+                            singleWriter.close();
+                        }
+                    }
+                }
+            };
+            success = true;
+            return bulkLoader;
+        }
+        finally
+        {
+            if ( !success )
+            {
+                singleWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Writer} able to modify the index concurrently with other writers returned from this method,
+     * i.e. insert and remove keys/values. Writers modifying keys in disjoint key ranges, more precisely in
+     * different leaves, will generally not block each other. After usage the returned writer must be closed,
+     * typically by using try-with-resource clause, and it must not be used by multiple threads at the same time.
+     * <p>
+     * Concurrent writers are mutually exclusive with the {@link #writer() single writer} and, like it,
+     * with {@link #checkpoint(IOLimiter) check-pointing}.
+     *
+     * @return a {@link Writer} for this index. The returned writer must be {@link Writer#close() closed}
+     * before the next {@link #checkpoint(IOLimiter)} can complete.
+     * @throws IOException on error accessing the index.
+     */
+    public Writer<KEY,VALUE> concurrentWriter() throws IOException
+    {
+        ConcurrentWriter concurrentWriter = concurrentWriters.poll();
+        if ( concurrentWriter == null )
+        {
+            concurrentWriter = new ConcurrentWriter( new InternalTreeLogic<>( freeList, bTreeNode, layout ) );
+        }
+
+        writerCheckpointLock.readLock().lock();
+        boolean success = false;
+        try
+        {
+            concurrentWriter.take();
+            success = true;
+            return concurrentWriter;
+        }
+        finally
+        {
+            if ( !success )
+            {
+                writerCheckpointLock.readLock().unlock();
+                concurrentWriters.offer( concurrentWriter );
+            }
+        }
+    }
+
     private void releaseWriter()
     {
-        writerCheckpointMutex.unlock();
+        writerCheckpointLock.writeLock().unlock();
         if ( !writerTaken.compareAndSet( true, false ) )
         {
             throw new IllegalStateException( "Tried to give back the writer of " + this +
@@ -728,14 +981,14 @@ public class GBPTree<KEY,VALUE> implements Closeable
 
     private class SingleWriter implements Writer<KEY,VALUE>
     {
-        private final InternalTreeLogic<KEY,VALUE> treeLogic;
-        private final StructurePropagation<KEY> structurePropagation;
-        private PageCursor cursor;
+        final InternalTreeLogic<KEY,VALUE> treeLogic;
+        final StructurePropagation<KEY> structurePropagation;
+        PageCursor cursor;
 
         // Writer can't live past a checkpoint because of the mutex with checkpoint,
         // therefore safe to locally cache these generation fields from the volatile generation in the tree
-        private long stableGeneration;
-        private long unstableGeneration;
+        long stableGeneration;
+        long unstableGeneration;
 
         SingleWriter( InternalTreeLogic<KEY,VALUE> treeLogic )
         {
@@ -819,4 +1072,155 @@ public class GBPTree<KEY,VALUE> implements Closeable
             releaseWriter();
         }
     }
+
+    /**
+     * {@link Writer} handed out by {@link #concurrentWriter()}. Each change starts out optimistically holding
+     * the read lock of {@link #structureLock}, moving down to the leaf where the change belongs and locking it.
+     * If the change can be made in that leaf alone, i.e. the leaf is of the unstable generation and an
+     * insertion wouldn't overflow it, the change is made right there. Otherwise the change is made again from
+     * the root, exactly like the single writer would have made it, holding the write lock of {@link #structureLock}.
+     * <p>
+     * Internal nodes are only ever changed holding the write lock, so they can be read without locks
+     * while holding the read lock. A leaf cannot be split or copied to a new generation while holding the read lock,
+     * so the leaf a writer has locked is guaranteed to stay the right leaf for its key.
+     */
+    private class ConcurrentWriter extends SingleWriter
+    {
+        // The structureVersion when this writer last moved down the tree, or -1 to always start from the root.
+        private long seenStructureVersion;
+
+        ConcurrentWriter( InternalTreeLogic<KEY,VALUE> treeLogic )
+        {
+            super( treeLogic );
+        }
+
+        @Override
+        void take() throws IOException
+        {
+            super.take();
+            seenStructureVersion = -1;
+        }
+
+        @Override
+        public void merge( KEY key, VALUE value, ValueMerger<VALUE> valueMerger ) throws IOException
+        {
+            structureLock.readLock().lock();
+            try
+            {
+                Lock leafLock = moveToAndLockLeaf( key );
+                try
+                {
+                    if ( treeLogic.canChangeLeafInPlace( cursor, key, true, unstableGeneration ) )
+                    {
+                        treeLogic.insertInLeaf( cursor, structurePropagation, key, value, valueMerger,
+                                stableGeneration, unstableGeneration );
+                        checkOutOfBounds( cursor );
+                        return;
+                    }
+                }
+                finally
+                {
+                    leafLock.unlock();
+                }
+            }
+            finally
+            {
+                structureLock.readLock().unlock();
+            }
+
+            structureLock.writeLock().lock();
+            try
+            {
+                moveToRoot();
+                super.merge( key, value, valueMerger );
+                seenStructureVersion = ++structureVersion;
+            }
+            finally
+            {
+                structureLock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public VALUE remove( KEY key ) throws IOException
+        {
+            structureLock.readLock().lock();
+            try
+            {
+                Lock leafLock = moveToAndLockLeaf( key );
+                try
+                {
+                    if ( treeLogic.canChangeLeafInPlace( cursor, key, false, unstableGeneration ) )
+                    {
+                        VALUE result = layout.newValue();
+                        boolean removed = treeLogic.removeFromLeaf( cursor, structurePropagation, key, result,
+                                stableGeneration, unstableGeneration );
+                        checkOutOfBounds( cursor );
+                        return removed ? result : null;
+                    }
+                }
+                finally
+                {
+                    leafLock.unlock();
+                }
+            }
+            finally
+            {
+                structureLock.readLock().unlock();
+            }
+
+            structureLock.writeLock().lock();
+            try
+            {
+                moveToRoot();
+                VALUE result = super.remove( key );
+                seenStructureVersion = ++structureVersion;
+                return result;
+            }
+            finally
+            {
+                structureLock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Moves the cursor to the leaf where {@code key} belongs, either from where this writer made its last
+         * change or, if the structure of the tree may have changed since then, from the root. Must be called
+         * holding the read lock of {@link #structureLock}.
+         *
+         * @return the locked lock of the leaf the cursor was moved to. The caller must unlock it.
+         */
+        private Lock moveToAndLockLeaf( KEY key ) throws IOException
+        {
+            if ( seenStructureVersion != structureVersion )
+            {
+                moveToRoot();
+                seenStructureVersion = structureVersion;
+            }
+            treeLogic.moveToCorrectLeaf( cursor, key, stableGeneration, unstableGeneration );
+            Lock leafLock = leafLocks[(int) (cursor.getCurrentPageId() & (LEAF_LOCK_STRIPES - 1))];
+            leafLock.lock();
+            return leafLock;
+        }
+
+        private void moveToRoot() throws IOException
+        {
+            root.goTo( cursor );
+            treeLogic.initialize( cursor );
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if ( cursor == null )
+            {
+                return;
+            }
+
+            cursor.close();
+            cursor = null;
+            writerCheckpointLock.readLock().unlock();
+            concurrentWriters.offer( this );
+        }
+    }
 }
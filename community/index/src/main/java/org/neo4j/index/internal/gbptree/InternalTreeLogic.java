@@ -80,6 +80,8 @@ class InternalTreeLogic<KEY,VALUE>
     private final KEY primKeyPlaceHolder;
     private final KEY readKey;
     private final VALUE readValue;
+    // Scratch buffer for defragmenting leaves when splitting them, allocated on first split
+    private byte[] defragmentScratch;
 
     /**
      * Current path down the tree
@@ -239,7 +241,7 @@ class InternalTreeLogic<KEY,VALUE>
      * @param unstableGeneration unstable generation.
      * @throws IOException on {@link PageCursor} error.
      */
-    private void moveToCorrectLeaf( PageCursor cursor, KEY key, long stableGeneration, long unstableGeneration )
+    void moveToCorrectLeaf( PageCursor cursor, KEY key, long stableGeneration, long unstableGeneration )
             throws IOException
     {
         int previousLevel = currentLevel;
@@ -371,6 +373,41 @@ class InternalTreeLogic<KEY,VALUE>
         }
     }
 
+    /**
+     * Returns whether or not {@code key} can be inserted into, merged into or removed from the leaf which
+     * {@code cursor} is pinned to, without changing the structure of the tree. This is the case if the leaf
+     * is of {@code unstableGeneration}, so that no new version of it needs to be created, and, for insertions,
+     * the leaf either has room for another key or already contains {@code key}, so that it won't be split.
+     * <p>
+     * If this method returns {@code true} then {@link #insertInLeaf(PageCursor, StructurePropagation, Object, Object,
+     * ValueMerger, long, long)} or {@link #removeFromLeaf(PageCursor, StructurePropagation, Object, Object, long,
+     * long)} can be called directly on the leaf and will not report any structure changes.
+     *
+     * @param cursor {@link PageCursor} pinned to the leaf where {@code key} belongs.
+     * @param key key to be inserted, merged or removed.
+     * @param insertion {@code true} if the change is an insertion or merge, {@code false} if it's a removal.
+     * @param unstableGeneration unstable generation, i.e. generation which is under development right now.
+     * @return whether or not the change can be made in the leaf alone.
+     */
+    boolean canChangeLeafInPlace( PageCursor cursor, KEY key, boolean insertion, long unstableGeneration )
+    {
+        if ( bTreeNode.gen( cursor ) != unstableGeneration )
+        {
+            return false;
+        }
+        if ( !insertion )
+        {
+            return true;
+        }
+        int keyCount = bTreeNode.keyCount( cursor );
+        if ( bTreeNode.leafHasSpaceForAnyValue( cursor, keyCount, key ) )
+        {
+            return true;
+        }
+        // Merging into an existing key needs no more space, unless the merged value can grow
+        return !bTreeNode.valuesCanChangeSize() && isHit( search( cursor, key, readKey, keyCount ) );
+    }
+
     private int search( PageCursor cursor, KEY key, KEY readKey, int keyCount )
     {
         int searchResult = KeySearch.search( cursor, bTreeNode, key, readKey, keyCount );
@@ -598,7 +635,7 @@ class InternalTreeLogic<KEY,VALUE>
      * @param valueMerger {@link ValueMerger} for deciding what to do with existing keys
      * @throws IOException on cursor failure
      */
-    private void insertInLeaf( PageCursor cursor, StructurePropagation<KEY> structurePropagation,
+    void insertInLeaf( PageCursor cursor, StructurePropagation<KEY> structurePropagation,
             KEY key, VALUE value, ValueMerger<VALUE> valueMerger,
             long stableGeneration, long unstableGeneration ) throws IOException
     {
@@ -610,22 +647,34 @@ class InternalTreeLogic<KEY,VALUE>
             // this key already exists, what shall we do? ask the valueMerger
             bTreeNode.valueAt( cursor, readValue, pos );
             VALUE mergedValue = valueMerger.merge( readValue, value );
-            if ( mergedValue != null )
+            if ( mergedValue == null )
             {
-                createUnstableVersionIfNeeded( cursor, structurePropagation, stableGeneration, unstableGeneration );
-                // simple, just write the merged value right in there
-                bTreeNode.setValueAt( cursor, mergedValue, pos );
+                return; // No split has occurred
             }
-            return; // No split has occurred
-        }
 
-        createUnstableVersionIfNeeded( cursor, structurePropagation, stableGeneration, unstableGeneration );
+            createUnstableVersionIfNeeded( cursor, structurePropagation, stableGeneration, unstableGeneration );
+            // simple, just write the merged value right in there
+            if ( bTreeNode.setValueAt( cursor, mergedValue, pos ) )
+            {
+                return; // No split has occurred
+            }
+
+            // The merged value has a different size than the existing one, replace the whole entry
+            bTreeNode.removeKeyAt( cursor, pos, keyCount );
+            bTreeNode.removeValueAt( cursor, pos, keyCount );
+            keyCount--;
+            bTreeNode.setKeyCount( cursor, keyCount );
+            value = mergedValue;
+        }
+        else
+        {
+            createUnstableVersionIfNeeded( cursor, structurePropagation, stableGeneration, unstableGeneration );
+        }
 
-        if ( keyCount < bTreeNode.leafMaxKeyCount() )
+        if ( bTreeNode.leafHasSpaceFor( cursor, keyCount, key, value ) )
         {
             // No overflow, insert key and value
-            bTreeNode.insertKeyAt( cursor, key, pos, keyCount );
-            bTreeNode.insertValueAt( cursor, value, pos, keyCount );
+            bTreeNode.insertKeyValueAt( cursor, key, value, pos, keyCount );
             bTreeNode.setKeyCount( cursor, keyCount + 1 );
 
             return; // No split has occurred
@@ -711,7 +760,7 @@ class InternalTreeLogic<KEY,VALUE>
         // Position where newKey / newValue is to be inserted
         int pos = positionOf( search( cursor, newKey, readKey, keyCount ) );
         int keyCountAfterInsert = keyCount + 1;
-        int middlePos = middle( keyCountAfterInsert );
+        int middlePos = bTreeNode.leafSplitMiddle( cursor, keyCount, pos, newKey, newValue );
 
         // allKeysIncludingNewKey should now contain all keys in sorted order and
         // allValuesIncludingNewValue should now contain all values in same order as corresponding keys
@@ -748,7 +797,7 @@ class InternalTreeLogic<KEY,VALUE>
                 // before _,_,_,_,_,_,_,_,_,_
                 // insert _,_,_,X,_,_,_,_,_,_,_
                 // middle           ^
-                copyKeysAndValues( cursor, middlePos - 1, rightCursor, 0, rightKeyCount );
+                bTreeNode.copyKeysAndValues( cursor, middlePos - 1, rightCursor, 0, rightKeyCount );
             }
             else
             {
@@ -761,15 +810,14 @@ class InternalTreeLogic<KEY,VALUE>
                 if ( countBeforePos > 0 )
                 {
                     // first copy
-                    copyKeysAndValues( cursor, middlePos, rightCursor, 0, countBeforePos );
+                    bTreeNode.copyKeysAndValues( cursor, middlePos, rightCursor, 0, countBeforePos );
                 }
-                bTreeNode.insertKeyAt( rightCursor, newKey, countBeforePos, countBeforePos );
-                bTreeNode.insertValueAt( rightCursor, newValue, countBeforePos, countBeforePos );
+                bTreeNode.insertKeyValueAt( rightCursor, newKey, newValue, countBeforePos, countBeforePos );
                 int countAfterPos = keyCount - pos;
                 if ( countAfterPos > 0 )
                 {
                     // second copy
-                    copyKeysAndValues( cursor, pos, rightCursor, countBeforePos + 1, countAfterPos );
+                    bTreeNode.copyKeysAndValues( cursor, pos, rightCursor, countBeforePos + 1, countAfterPos );
                 }
             }
             bTreeNode.setKeyCount( rightCursor, rightKeyCount );
@@ -786,24 +834,21 @@ class InternalTreeLogic<KEY,VALUE>
         }
 
         // Update left child
+        // Keys and values which now live in the right node may still occupy space in left node.
+        if ( defragmentScratch == null )
+        {
+            defragmentScratch = bTreeNode.newDefragmentScratch();
+        }
+        bTreeNode.defragmentLeaf( cursor, pos < middlePos ? middlePos - 1 : middlePos, defragmentScratch );
         // If pos < middle. Write shifted values to left node. Else, don't write anything.
         if ( pos < middlePos )
         {
-            bTreeNode.insertKeyAt( cursor, newKey, pos, middlePos - 1 );
-            bTreeNode.insertValueAt( cursor, newValue, pos, middlePos - 1 );
+            bTreeNode.insertKeyValueAt( cursor, newKey, newValue, pos, middlePos - 1 );
         }
         bTreeNode.setKeyCount( cursor, middlePos );
         bTreeNode.setRightSibling( cursor, newRight, stableGeneration, unstableGeneration );
     }
 
-    private void copyKeysAndValues( PageCursor cursor, int fromPos, PageCursor rightCursor, int toPos, int count )
-    {
-        cursor.copyTo( bTreeNode.keyOffset( fromPos ), rightCursor, bTreeNode.keyOffset( toPos ),
-                count * bTreeNode.keySize() );
-        cursor.copyTo( bTreeNode.valueOffset( fromPos ), rightCursor, bTreeNode.valueOffset( toPos ),
-                count * bTreeNode.valueSize() );
-    }
-
     /**
      * Remove given {@code key} and associated value from tree if it exists. The removed value will be stored in
      * provided {@code into} which will be returned for convenience.
@@ -875,7 +920,7 @@ class InternalTreeLogic<KEY,VALUE>
      * @return {@code true} if key was removed, otherwise {@code false}.
      * @throws IOException on cursor failure
      */
-    private boolean removeFromLeaf( PageCursor cursor, StructurePropagation<KEY> structurePropagation,
+    boolean removeFromLeaf( PageCursor cursor, StructurePropagation<KEY> structurePropagation,
             KEY key, VALUE into, long stableGeneration, long unstableGeneration ) throws IOException
     {
         int keyCount = bTreeNode.keyCount( cursor );
@@ -892,8 +937,8 @@ class InternalTreeLogic<KEY,VALUE>
         // Remove key/value
         createUnstableVersionIfNeeded( cursor, structurePropagation, stableGeneration, unstableGeneration );
 
-        bTreeNode.removeKeyAt( cursor, pos, keyCount );
         bTreeNode.valueAt( cursor, into, pos );
+        bTreeNode.removeKeyAt( cursor, pos, keyCount );
         bTreeNode.removeValueAt( cursor, pos, keyCount );
 
         // Decrease key count
@@ -58,15 +58,54 @@ public interface Layout<KEY, VALUE> extends Comparator<KEY>
     VALUE newValue();
 
     /**
-     * @return size, in bytes, of a key.
+     * @return size, in bytes, of a key. For layouts which aren't {@link #fixedSize() fixed size} this is
+     * the maximum size of a key.
      */
     int keySize();
 
     /**
-     * @return size, in bytes, of a value.
+     * @param key key to get size of.
+     * @return size, in bytes, of the given {@code key}, i.e. how many bytes {@link #writeKey(PageCursor, Object)}
+     * will write for it. Must not be more than {@link #keySize()}.
+     */
+    default int keySize( KEY key )
+    {
+        return keySize();
+    }
+
+    /**
+     * Whether or not all keys and values have the same size, {@link #keySize()} and {@link #valueSize()}.
+     * Keys and values of layouts which aren't fixed size only occupy {@link #keySize(Object)} and
+     * {@link #valueSize(Object)} bytes in leaves, which means more keys per leaf for layouts with keys and values
+     * which are typically much smaller than their maximum size. {@link #writeKey(PageCursor, Object)},
+     * {@link #readKey(PageCursor, Object)}, {@link #writeValue(PageCursor, Object)} and
+     * {@link #readValue(PageCursor, Object)} must then be able to do their thing by themselves,
+     * e.g. by writing any length of variable size data into the key or value.
+     *
+     * @return {@code true} if all keys are of size {@link #keySize()} and all values of size {@link #valueSize()},
+     * otherwise {@code false}.
+     */
+    default boolean fixedSize()
+    {
+        return true;
+    }
+
+    /**
+     * @return size, in bytes, of a value. For layouts which aren't {@link #fixedSize() fixed size} this is
+     * the maximum size of a value.
      */
     int valueSize();
 
+    /**
+     * @param value value to get size of.
+     * @return size, in bytes, of the given {@code value}, i.e. how many bytes
+     * {@link #writeValue(PageCursor, Object)} will write for it. Must not be more than {@link #valueSize()}.
+     */
+    default int valueSize( VALUE value )
+    {
+        return valueSize();
+    }
+
     /**
      * Writes contents of {@code key} into {@code cursor} at its current offset.
      *
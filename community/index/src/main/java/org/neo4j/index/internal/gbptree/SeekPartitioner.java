@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static org.neo4j.index.internal.gbptree.KeySearch.positionOf;
+import static org.neo4j.index.internal.gbptree.PageCursorUtil.checkOutOfBounds;
+
+/**
+ * Splits a key range into sub ranges, partitions, holding roughly the same number of keys each.
+ * Used by {@link GBPTree#partitionedSeek(Object, Object, int)}.
+ * <p>
+ * Separator keys are read from internal nodes, one level at a time from the root and downwards, until a level
+ * has enough keys within the range to make the desired number of partitions, or the level above leaves is read.
+ * Since a separator key of an internal node splits the tree below it, keys picked evenly from a level are
+ * boundaries of partitions of about the same size.
+ * <p>
+ * Reading is done without blocking writers and so the read separator keys may be outdated by the time
+ * seeks are made, which is fine since partitioning is best effort. Whichever keys are read, they are only
+ * used as boundaries between consecutive sub ranges which together cover the whole range and so the combined
+ * result of all partitions is the same as that of a single seek over the whole range.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+class SeekPartitioner<KEY,VALUE>
+{
+    private final TreeNode<KEY,VALUE> bTreeNode;
+    private final Layout<KEY,VALUE> layout;
+    private final long stableGeneration;
+    private final long unstableGeneration;
+    private final KEY readKey;
+
+    SeekPartitioner( TreeNode<KEY,VALUE> bTreeNode, Layout<KEY,VALUE> layout,
+            long stableGeneration, long unstableGeneration )
+    {
+        this.bTreeNode = bTreeNode;
+        this.layout = layout;
+        this.stableGeneration = stableGeneration;
+        this.unstableGeneration = unstableGeneration;
+        this.readKey = layout.newKey();
+    }
+
+    /**
+     * Reads keys which splits the range {@code fromInclusive} - {@code toExclusive} into partitions.
+     *
+     * @param cursor {@link PageCursor} placed at the root of the tree.
+     * @param fromInclusive lower bound of the range to split (inclusive).
+     * @param toExclusive higher bound of the range to split (exclusive).
+     * @param desiredNumberOfPartitions number of partitions to split range into, if there are enough keys.
+     * @return distinct keys in ascending order, all within the range but not equal to {@code fromInclusive},
+     * at most {@code desiredNumberOfPartitions - 1} of them.
+     * @throws IOException on {@link PageCursor} error.
+     */
+    List<KEY> splitKeys( PageCursor cursor, KEY fromInclusive, KEY toExclusive, int desiredNumberOfPartitions )
+            throws IOException
+    {
+        List<KEY> keysInRange = new ArrayList<>();
+        List<KEY> levelKeys = new ArrayList<>();
+        while ( keysInRange.size() + 1 < desiredNumberOfPartitions )
+        {
+            long firstChildInRange = readLevel( cursor, fromInclusive, toExclusive, levelKeys );
+            if ( levelKeys.size() > keysInRange.size() )
+            {
+                List<KEY> swap = keysInRange;
+                keysInRange = levelKeys;
+                levelKeys = swap;
+            }
+            levelKeys.clear();
+            if ( !isTreeNode( firstChildInRange ) )
+            {
+                break;
+            }
+            bTreeNode.goTo( cursor, "child", firstChildInRange );
+        }
+        return pickEvenly( keysInRange, desiredNumberOfPartitions - 1 );
+    }
+
+    /**
+     * Reads keys within the range from the internal nodes on the level which {@code cursor} is placed at,
+     * starting at the current node and following right siblings until reaching the end of the range or level.
+     *
+     * @return the child to follow from the current node to get to the next level, or {@link TreeNode#NO_NODE_FLAG}
+     * if the current node is a leaf or reading it failed.
+     */
+    private long readLevel( PageCursor cursor, KEY fromInclusive, KEY toExclusive, List<KEY> into )
+            throws IOException
+    {
+        long firstChildInRange = TreeNode.NO_NODE_FLAG;
+        boolean firstNode = true;
+        while ( true )
+        {
+            int sizeBefore = into.size();
+            boolean internal;
+            int keyCount;
+            long child;
+            long rightSibling;
+            do
+            {
+                // Everything read in a previous attempt may be inconsistent, so start over from scratch
+                truncate( into, sizeBefore );
+                internal = TreeNode.isInternal( cursor );
+                keyCount = bTreeNode.keyCount( cursor );
+                child = TreeNode.NO_NODE_FLAG;
+                rightSibling = TreeNode.NO_NODE_FLAG;
+                if ( !internal || keyCount < 0 || keyCount > bTreeNode.internalMaxKeyCount() )
+                {
+                    continue;
+                }
+
+                if ( firstNode )
+                {
+                    int searchResult = KeySearch.search( cursor, bTreeNode, fromInclusive, readKey, keyCount );
+                    if ( KeySearch.isSuccess( searchResult ) )
+                    {
+                        child = bTreeNode.childAt( cursor, positionOf( searchResult ),
+                                stableGeneration, unstableGeneration );
+                    }
+                }
+                boolean endOfRange = false;
+                for ( int pos = 0; pos < keyCount && !endOfRange; pos++ )
+                {
+                    bTreeNode.keyAt( cursor, readKey, pos );
+                    if ( layout.compare( readKey, toExclusive ) >= 0 )
+                    {
+                        endOfRange = true;
+                    }
+                    else if ( layout.compare( readKey, fromInclusive ) > 0 )
+                    {
+                        into.add( layout.copyKey( readKey, layout.newKey() ) );
+                    }
+                }
+                if ( !endOfRange )
+                {
+                    rightSibling = bTreeNode.rightSibling( cursor, stableGeneration, unstableGeneration );
+                }
+            }
+            while ( cursor.shouldRetry() );
+            checkOutOfBounds( cursor );
+
+            if ( !internal )
+            {
+                return TreeNode.NO_NODE_FLAG;
+            }
+            if ( firstNode )
+            {
+                firstChildInRange = child;
+                firstNode = false;
+            }
+            if ( !isTreeNode( rightSibling ) || !ascending( into, sizeBefore ) )
+            {
+                // End of range or level, or what was read doesn't add up which may be due to concurrent changes,
+                // either way the keys read so far are good enough
+                truncate( into, ascending( into, sizeBefore ) ? into.size() : sizeBefore );
+                return firstChildInRange;
+            }
+            bTreeNode.goTo( cursor, "right sibling", rightSibling );
+        }
+    }
+
+    private boolean ascending( List<KEY> keys, int from )
+    {
+        for ( int i = Math.max( from, 1 ); i < keys.size(); i++ )
+        {
+            if ( layout.compare( keys.get( i - 1 ), keys.get( i ) ) >= 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTreeNode( long readResult )
+    {
+        return GenSafePointerPair.isSuccess( readResult ) &&
+                GenSafePointerPair.pointer( readResult ) >= IdSpace.MIN_TREE_NODE_ID;
+    }
+
+    private static <T> void truncate( List<T> list, int size )
+    {
+        while ( list.size() > size )
+        {
+            list.remove( list.size() - 1 );
+        }
+    }
+
+    private static <T> List<T> pickEvenly( List<T> keys, int count )
+    {
+        if ( keys.size() <= count )
+        {
+            return keys;
+        }
+        List<T> picked = new ArrayList<>( count );
+        for ( int i = 1; i <= count; i++ )
+        {
+            picked.add( keys.get( (int) ((long) i * (keys.size() + 1) / (count + 1)) - 1 ) );
+        }
+        return picked;
+    }
+}
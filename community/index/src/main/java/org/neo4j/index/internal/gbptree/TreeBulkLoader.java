@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+
+import static org.neo4j.index.internal.gbptree.PageCursorUtil.checkOutOfBounds;
+import static org.neo4j.index.internal.gbptree.PageCursorUtil.goTo;
+
+/**
+ * Bottom-up construction of a tree from keys in strictly ascending order, as opposed to inserting them one by one
+ * through {@link InternalTreeLogic}, which descends from the root for every key and leaves split nodes half full.
+ * <p>
+ * Each level of the tree has one node under construction, where keys are appended. When a node is full a new node
+ * is started as its right sibling, and the first key of the new node is appended to the level above, together
+ * with the new node as its right child. The level above is created once the level below starts its second node,
+ * at which point the first node of the level below becomes the leftmost child of the new level.
+ * <p>
+ * The nodes are all created in the unstable generation and are unreachable from the current root until the caller
+ * {@link #finish() finishes} the construction and makes the returned node the new root. A crash before the next
+ * checkpoint will therefore leave the tree as it was before the bulk load started. A construction that isn't
+ * finished is {@link #abort() aborted}, which releases all the nodes created so far.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+class TreeBulkLoader<KEY,VALUE>
+{
+    private final PagedFile pagedFile;
+    private final TreeNode<KEY,VALUE> bTreeNode;
+    private final Layout<KEY,VALUE> layout;
+    private final IdProvider idProvider;
+    private final long stableGeneration;
+    private final long unstableGeneration;
+    private final KEY previousKey;
+    private boolean hasPreviousKey;
+
+    /**
+     * Node under construction on each level of the tree, where level 0 is the leaves.
+     */
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * Ids of all nodes created so far, for releasing them if the construction is {@link #abort() aborted}.
+     */
+    private long[] createdNodeIds = new long[16];
+    private int createdNodeCount;
+
+    private class Level
+    {
+        private final PageCursor cursor;
+        private final boolean leaf;
+        private final long firstNodeId;
+        private int keyCount;
+
+        Level( boolean leaf ) throws IOException
+        {
+            this.leaf = leaf;
+            this.firstNodeId = acquireNewId();
+            this.cursor = pagedFile.io( firstNodeId, PagedFile.PF_SHARED_WRITE_LOCK );
+            goTo( cursor, "first node in bulk load", firstNodeId );
+            initializeNode( this );
+        }
+    }
+
+    TreeBulkLoader( PagedFile pagedFile, TreeNode<KEY,VALUE> bTreeNode, Layout<KEY,VALUE> layout,
+            IdProvider idProvider, long stableGeneration, long unstableGeneration )
+    {
+        this.pagedFile = pagedFile;
+        this.bTreeNode = bTreeNode;
+        this.layout = layout;
+        this.idProvider = idProvider;
+        this.stableGeneration = stableGeneration;
+        this.unstableGeneration = unstableGeneration;
+        this.previousKey = layout.newKey();
+    }
+
+    /**
+     * Appends {@code key} and {@code value} to the leaf under construction, starting a new leaf if it's full.
+     *
+     * @param key key to append, must be greater than the previously appended key.
+     * @param value value to associate with {@code key}.
+     * @throws IOException on {@link PageCursor} error.
+     */
+    void add( KEY key, VALUE value ) throws IOException
+    {
+        if ( hasPreviousKey && layout.compare( previousKey, key ) >= 0 )
+        {
+            throw new IllegalArgumentException( "Bulk loaded keys must be added in strictly ascending order, but " +
+                    key + " was added after " + previousKey );
+        }
+
+        if ( levels.isEmpty() )
+        {
+            levels.add( new Level( true ) );
+        }
+        Level leaves = levels.get( 0 );
+        if ( !bTreeNode.leafHasSpaceFor( leaves.cursor, leaves.keyCount, key, value ) )
+        {
+            long newLeafId = startNewNode( leaves );
+            addToLevel( 1, key, newLeafId );
+        }
+
+        int pos = leaves.keyCount;
+        bTreeNode.insertKeyValueAt( leaves.cursor, key, value, pos, pos );
+        leaves.keyCount++;
+
+        layout.copyKey( key, previousKey );
+        hasPreviousKey = true;
+    }
+
+    /**
+     * Appends {@code key} and its right child {@code childId} to the internal node under construction on
+     * level {@code levelIndex}, creating the level if needed.
+     */
+    private void addToLevel( int levelIndex, KEY key, long childId ) throws IOException
+    {
+        if ( levelIndex == levels.size() )
+        {
+            Level level = new Level( false );
+            bTreeNode.setChildAt( level.cursor, levels.get( levelIndex - 1 ).firstNodeId, 0,
+                    stableGeneration, unstableGeneration );
+            levels.add( level );
+        }
+
+        Level level = levels.get( levelIndex );
+        if ( level.keyCount == bTreeNode.internalMaxKeyCount() )
+        {
+            // The key becomes the separator between the full node and the new node, on the level above
+            long newNodeId = startNewNode( level );
+            bTreeNode.setChildAt( level.cursor, childId, 0, stableGeneration, unstableGeneration );
+            addToLevel( levelIndex + 1, key, newNodeId );
+            return;
+        }
+
+        int pos = level.keyCount;
+        bTreeNode.insertKeyAt( level.cursor, key, pos, pos );
+        bTreeNode.setChildAt( level.cursor, childId, pos + 1, stableGeneration, unstableGeneration );
+        level.keyCount++;
+    }
+
+    /**
+     * Completes the node under construction on the given level and moves its cursor to a new node,
+     * linked in as the right sibling of the completed node.
+     *
+     * @return id of the new node.
+     */
+    private long startNewNode( Level level ) throws IOException
+    {
+        long newNodeId = acquireNewId();
+        PageCursor cursor = level.cursor;
+        long previousNodeId = cursor.getCurrentPageId();
+        bTreeNode.setKeyCount( cursor, level.keyCount );
+        bTreeNode.setRightSibling( cursor, newNodeId, stableGeneration, unstableGeneration );
+        checkOutOfBounds( cursor );
+
+        goTo( cursor, "new node in bulk load", newNodeId );
+        initializeNode( level );
+        bTreeNode.setLeftSibling( cursor, previousNodeId, stableGeneration, unstableGeneration );
+        level.keyCount = 0;
+        return newNodeId;
+    }
+
+    private long acquireNewId() throws IOException
+    {
+        long id = idProvider.acquireNewId( stableGeneration, unstableGeneration );
+        if ( createdNodeCount == createdNodeIds.length )
+        {
+            createdNodeIds = Arrays.copyOf( createdNodeIds, createdNodeCount * 2 );
+        }
+        createdNodeIds[createdNodeCount++] = id;
+        return id;
+    }
+
+    private void initializeNode( Level level )
+    {
+        if ( level.leaf )
+        {
+            bTreeNode.initializeLeaf( level.cursor, stableGeneration, unstableGeneration );
+        }
+        else
+        {
+            bTreeNode.initializeInternal( level.cursor, stableGeneration, unstableGeneration );
+        }
+    }
+
+    /**
+     * Completes the nodes under construction on all levels.
+     *
+     * @return id of the root of the constructed tree, i.e. the only node on the top level, or
+     * {@link TreeNode#NO_NODE_FLAG} if nothing was added.
+     * @throws IOException on {@link PageCursor} error.
+     */
+    long finish() throws IOException
+    {
+        long rootId = TreeNode.NO_NODE_FLAG;
+        for ( Level level : levels )
+        {
+            bTreeNode.setKeyCount( level.cursor, level.keyCount );
+            checkOutOfBounds( level.cursor );
+            rootId = level.cursor.getCurrentPageId();
+        }
+        close();
+        return rootId;
+    }
+
+    /**
+     * Abandons the construction, closing the cursors of all levels and releasing all nodes created so far.
+     * The constructed nodes must not have been made reachable from the root.
+     *
+     * @throws IOException on error releasing the nodes.
+     */
+    void abort() throws IOException
+    {
+        close();
+        for ( int i = 0; i < createdNodeCount; i++ )
+        {
+            idProvider.releaseId( stableGeneration, unstableGeneration, createdNodeIds[i] );
+        }
+        createdNodeCount = 0;
+    }
+
+    /**
+     * Closes the cursors of all levels, without completing the nodes under construction.
+     */
+    void close()
+    {
+        for ( Level level : levels )
+        {
+            level.cursor.close();
+        }
+        levels.clear();
+    }
+}
@@ -60,6 +60,21 @@ import static org.neo4j.index.internal.gbptree.GenSafePointerPair.read;
  * <p>
  * Calc offset for value i
  * HEADER_LENGTH + SIZE_KEY * MAX_KEY_COUNT_LEAF + i * SIZE_VALUE
+ * <p>
+ * Layouts which are not {@link Layout#fixedSize() fixed size} have their leaves laid out as slotted pages instead,
+ * so that each key and value only occupies as many bytes as it needs. Internal nodes use the fixed size design,
+ * with {@link Layout#keySize()} as slot size.
+ *
+ * <pre>
+ * [                            HEADER   82B                        ][ALLOCOFFSET]|[  OFFSETS  ]|      |[  ENTRIES   ]
+ * [NODETYPE][TYPE][GEN][KEYCOUNT][RIGHTSIBLING][LEFTSIBLING][NEWGEN][ALLOCOFFSET]|[[OFF][OFF]..]|##...#|[[ENTRY]...]
+ *                                                                    82
+ * </pre>
+ * Offsets are kept in key order, one unsigned short per key, each pointing to its entry. Entries are allocated
+ * from the end of the page towards the offsets, ALLOCOFFSET is the offset of the most recently allocated entry.
+ * An entry is [KEYLENGTH][VALUELENGTH][KEY][VALUE]. Entries are kept compact, i.e. removing a key moves the entries
+ * allocated after it to close the gap, so that the free space of a leaf is always the gap between
+ * offsets and entries. A value which changes size is written by replacing its whole entry.
  *
  * @param <KEY> type of key
  * @param <VALUE> type of value
@@ -80,6 +95,16 @@ class TreeNode<KEY,VALUE>
     static final int BYTE_POS_NEWGEN = BYTE_POS_LEFTSIBLING + SIZE_PAGE_REFERENCE;
     static final int HEADER_LENGTH = BYTE_POS_NEWGEN + SIZE_PAGE_REFERENCE;
 
+    // Dynamic size leaves only
+    static final int BYTE_POS_ALLOCOFFSET = HEADER_LENGTH;
+    static final int DYNAMIC_LEAF_HEADER_LENGTH = BYTE_POS_ALLOCOFFSET + Integer.BYTES;
+    static final int SIZE_OFFSET = Short.BYTES;
+    static final int SIZE_KEY_LENGTH = Short.BYTES;
+    static final int SIZE_VALUE_LENGTH = Short.BYTES;
+    static final int SIZE_ENTRY_HEADER = SIZE_KEY_LENGTH + SIZE_VALUE_LENGTH;
+    static final int MAX_DYNAMIC_PAGE_SIZE = 1 << Short.SIZE;
+    private static final int MIN_DYNAMIC_LEAF_MAX_SIZE_KEY_COUNT = 3;
+
     private static final byte LEAF_FLAG = 1;
     static final byte INTERNAL_FLAG = 0;
     static final long NO_NODE_FLAG = 0;
@@ -91,6 +116,7 @@ class TreeNode<KEY,VALUE>
 
     private final int keySize;
     private final int valueSize;
+    private final boolean dynamicLeaves;
 
     TreeNode( int pageSize, Layout<KEY,VALUE> layout )
     {
@@ -98,9 +124,33 @@ class TreeNode<KEY,VALUE>
         this.layout = layout;
         this.keySize = layout.keySize();
         this.valueSize = layout.valueSize();
+        this.dynamicLeaves = !layout.fixedSize();
         this.internalMaxKeyCount = Math.floorDiv( pageSize - (HEADER_LENGTH + SIZE_PAGE_REFERENCE),
                 keySize + SIZE_PAGE_REFERENCE);
-        this.leafMaxKeyCount = Math.floorDiv( pageSize - HEADER_LENGTH, keySize + valueSize );
+        if ( dynamicLeaves )
+        {
+            if ( pageSize > MAX_DYNAMIC_PAGE_SIZE )
+            {
+                throw new MetadataMismatchException( "For layout " + layout + " a page size of " + pageSize +
+                        " is too big, dynamic size leaves support page sizes up to " + MAX_DYNAMIC_PAGE_SIZE );
+            }
+            // Upper bound, reached if all keys and values are empty
+            this.leafMaxKeyCount = Math.floorDiv( pageSize - DYNAMIC_LEAF_HEADER_LENGTH,
+                    SIZE_OFFSET + entrySize( 0, 0 ) );
+            // A split leaf must fit its half of the entries, which can be up to one entry more than half a leaf
+            int maxSizeKeyCount = Math.floorDiv( pageSize - DYNAMIC_LEAF_HEADER_LENGTH,
+                    SIZE_OFFSET + entrySize( keySize, valueSize ) );
+            if ( maxSizeKeyCount < MIN_DYNAMIC_LEAF_MAX_SIZE_KEY_COUNT )
+            {
+                throw new MetadataMismatchException( "For layout " + layout + " a page size of " + pageSize +
+                        " would only fit " + maxSizeKeyCount + " leaf keys of maximum size, minimum is " +
+                        MIN_DYNAMIC_LEAF_MAX_SIZE_KEY_COUNT );
+            }
+        }
+        else
+        {
+            this.leafMaxKeyCount = Math.floorDiv( pageSize - HEADER_LENGTH, keySize + valueSize );
+        }
 
         if ( internalMaxKeyCount < 2 )
         {
@@ -133,6 +183,10 @@ class TreeNode<KEY,VALUE>
     void initializeLeaf( PageCursor cursor, long stableGeneration, long unstableGeneration )
     {
         initialize( cursor, LEAF_FLAG, stableGeneration, unstableGeneration );
+        if ( dynamicLeaves )
+        {
+            setAllocOffset( cursor, pageSize );
+        }
     }
 
     void initializeInternal( PageCursor cursor, long stableGeneration, long unstableGeneration )
@@ -230,21 +284,70 @@ class TreeNode<KEY,VALUE>
 
     KEY keyAt( PageCursor cursor, KEY into, int pos )
     {
-        cursor.setOffset( keyOffset( pos ) );
+        if ( isDynamicLeaf( cursor ) )
+        {
+            cursor.setOffset( entryOffset( cursor, pos ) + SIZE_ENTRY_HEADER );
+        }
+        else
+        {
+            cursor.setOffset( keyOffset( pos ) );
+        }
         layout.readKey( cursor, into );
         return into;
     }
 
+    /**
+     * Inserts {@code key} at {@code pos} in an internal node or fixed size leaf. Keys and values are inserted into
+     * leaves using {@link #insertKeyValueAt(PageCursor, Object, Object, int, int)}.
+     */
     void insertKeyAt( PageCursor cursor, KEY key, int pos, int keyCount )
     {
+        assert !isDynamicLeaf( cursor ) : "Dynamic size leaf entries are inserted with their value";
         insertSlotAt( cursor, pos, keyCount, keyOffset( 0 ), keySize );
         cursor.setOffset( keyOffset( pos ) );
         layout.writeKey( cursor, key );
     }
 
+    /**
+     * Inserts {@code key} and {@code value} at {@code pos} in a leaf.
+     */
+    void insertKeyValueAt( PageCursor cursor, KEY key, VALUE value, int pos, int keyCount )
+    {
+        if ( dynamicLeaves )
+        {
+            int keyLength = layout.keySize( key );
+            int valueLength = layout.valueSize( value );
+            int entryOffset = allocOffset( cursor ) - entrySize( keyLength, valueLength );
+            setAllocOffset( cursor, entryOffset );
+            insertSlotAt( cursor, pos, keyCount, offsetOffset( 0 ), SIZE_OFFSET );
+            cursor.putShort( offsetOffset( pos ), (short) entryOffset );
+            cursor.putShort( entryOffset, (short) keyLength );
+            cursor.putShort( entryOffset + SIZE_KEY_LENGTH, (short) valueLength );
+            cursor.setOffset( entryOffset + SIZE_ENTRY_HEADER );
+            layout.writeKey( cursor, key );
+            layout.writeValue( cursor, value );
+        }
+        else
+        {
+            insertKeyAt( cursor, key, pos, keyCount );
+            insertValueAt( cursor, value, pos, keyCount );
+        }
+    }
+
+    /**
+     * Removes key at {@code pos}. In dynamic size leaves this removes the whole entry, so any value to be kept
+     * must be read before this call.
+     */
     void removeKeyAt( PageCursor cursor, int pos, int keyCount )
     {
-        removeSlotAt( cursor, pos, keyCount, keyOffset( 0 ), keySize );
+        if ( isDynamicLeaf( cursor ) )
+        {
+            removeEntryAt( cursor, pos, keyCount );
+        }
+        else
+        {
+            removeSlotAt( cursor, pos, keyCount, keyOffset( 0 ), keySize );
+        }
     }
 
     private void removeSlotAt( PageCursor cursor, int pos, int keyCount, int baseOffset, int itemSize )
@@ -271,26 +374,239 @@ class TreeNode<KEY,VALUE>
 
     VALUE valueAt( PageCursor cursor, VALUE value, int pos )
     {
-        cursor.setOffset( valueOffset( pos ) );
+        cursor.setOffset( leafValueOffset( cursor, pos ) );
         layout.readValue( cursor, value );
         return value;
     }
 
+    /**
+     * Inserts {@code value} at {@code pos} in a fixed size leaf. Keys and values are inserted into dynamic size
+     * leaves using {@link #insertKeyValueAt(PageCursor, Object, Object, int, int)}.
+     */
     void insertValueAt( PageCursor cursor, VALUE value, int pos, int keyCount )
     {
+        assert !dynamicLeaves : "Dynamic size leaf entries are inserted with their key";
         insertSlotAt( cursor, pos, keyCount, valueOffset( 0 ), valueSize );
         setValueAt( cursor, value, pos );
     }
 
     void removeValueAt( PageCursor cursor, int pos, int keyCount )
     {
-        removeSlotAt( cursor, pos, keyCount, valueOffset( 0 ), valueSize );
+        if ( !dynamicLeaves )
+        {
+            removeSlotAt( cursor, pos, keyCount, valueOffset( 0 ), valueSize );
+        }
+        // else the whole entry was already removed when removing the key
     }
 
-    void setValueAt( PageCursor cursor, VALUE value, int pos )
+    /**
+     * Overwrites the value at {@code pos}. In dynamic size leaves this can only be done if the new value has
+     * the same size as the existing one, otherwise the whole entry must be removed and inserted again.
+     *
+     * @return {@code true} if the value was written, or {@code false} if it was of a different size than
+     * the existing value and so nothing was written.
+     */
+    boolean setValueAt( PageCursor cursor, VALUE value, int pos )
     {
-        cursor.setOffset( valueOffset( pos ) );
+        if ( dynamicLeaves )
+        {
+            int entryOffset = entryOffset( cursor, pos );
+            if ( layout.valueSize( value ) != valueLength( cursor, entryOffset ) )
+            {
+                return false;
+            }
+        }
+        cursor.setOffset( leafValueOffset( cursor, pos ) );
         layout.writeValue( cursor, value );
+        return true;
+    }
+
+    private int leafValueOffset( PageCursor cursor, int pos )
+    {
+        if ( dynamicLeaves )
+        {
+            int entryOffset = entryOffset( cursor, pos );
+            return entryOffset + SIZE_ENTRY_HEADER + keyLength( cursor, entryOffset );
+        }
+        return valueOffset( pos );
+    }
+
+    /**
+     * @param cursor {@link PageCursor} pinned to the leaf to insert into.
+     * @param keyCount number of keys in the leaf.
+     * @param key key to be inserted.
+     * @param value value to be inserted.
+     * @return whether or not {@code key} and {@code value} can be inserted in the leaf without splitting it.
+     */
+    boolean leafHasSpaceFor( PageCursor cursor, int keyCount, KEY key, VALUE value )
+    {
+        if ( dynamicLeaves )
+        {
+            int freeSpace = allocOffset( cursor ) - offsetOffset( keyCount );
+            return freeSpace >= SIZE_OFFSET + entrySize( layout.keySize( key ), layout.valueSize( value ) );
+        }
+        return keyCount < leafMaxKeyCount;
+    }
+
+    /**
+     * Like {@link #leafHasSpaceFor(PageCursor, int, Object, Object)}, but for a value of any size, i.e. assuming
+     * that the value has the maximum size {@link Layout#valueSize()}.
+     */
+    boolean leafHasSpaceForAnyValue( PageCursor cursor, int keyCount, KEY key )
+    {
+        if ( dynamicLeaves )
+        {
+            int freeSpace = allocOffset( cursor ) - offsetOffset( keyCount );
+            return freeSpace >= SIZE_OFFSET + entrySize( layout.keySize( key ), valueSize );
+        }
+        return keyCount < leafMaxKeyCount;
+    }
+
+    /**
+     * @return whether or not values in leaves can change size when overwritten, see
+     * {@link #setValueAt(PageCursor, Object, int)}.
+     */
+    boolean valuesCanChangeSize()
+    {
+        return dynamicLeaves;
+    }
+
+    /**
+     * Decides how to split a full leaf which {@code newKey} is about to be inserted into. The keys
+     * at positions before the returned middle position, counting {@code newKey} at {@code pos}, go into the left leaf
+     * and the rest into the right. Fixed size leaves are split in the middle, whereas dynamic size leaves are split
+     * so that the two leaves will use roughly the same amount of space.
+     *
+     * @param cursor {@link PageCursor} pinned to the full leaf.
+     * @param keyCount number of keys in the leaf, not counting {@code newKey}.
+     * @param pos position where {@code newKey} is to be inserted.
+     * @param newKey key to be inserted.
+     * @param newValue value to be inserted.
+     * @return number of keys to keep in the left leaf, at least 1 and at most {@code keyCount}.
+     */
+    int leafSplitMiddle( PageCursor cursor, int keyCount, int pos, KEY newKey, VALUE newValue )
+    {
+        if ( !dynamicLeaves )
+        {
+            return (keyCount + 1) / 2;
+        }
+
+        int newKeySpace = SIZE_OFFSET + entrySize( layout.keySize( newKey ), layout.valueSize( newValue ) );
+        int totalSpace = newKeySpace + keyCount * SIZE_OFFSET + pageSize - allocOffset( cursor );
+        int middle = 1;
+        int leftSpace = leafSpaceAfterInsert( cursor, 0, pos, newKeySpace );
+        while ( middle < keyCount )
+        {
+            int space = leafSpaceAfterInsert( cursor, middle, pos, newKeySpace );
+            if ( leftSpace + space > totalSpace / 2 )
+            {
+                break;
+            }
+            leftSpace += space;
+            middle++;
+        }
+        return middle;
+    }
+
+    private int leafSpaceAfterInsert( PageCursor cursor, int posAfterInsert, int insertPos, int newKeySpace )
+    {
+        if ( posAfterInsert == insertPos )
+        {
+            return newKeySpace;
+        }
+        int pos = posAfterInsert < insertPos ? posAfterInsert : posAfterInsert - 1;
+        return SIZE_OFFSET + entrySize( cursor, entryOffset( cursor, pos ) );
+    }
+
+    /**
+     * Copies {@code count} keys and values starting at {@code fromPos} in the leaf {@code cursor} is pinned to,
+     * into positions starting at {@code toPos} in the leaf {@code targetCursor} is pinned to. Keys and values in
+     * the target leaf from {@code toPos} and onwards are overwritten.
+     */
+    void copyKeysAndValues( PageCursor cursor, int fromPos, PageCursor targetCursor, int toPos, int count )
+    {
+        if ( dynamicLeaves )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                int sourceOffset = entryOffset( cursor, fromPos + i );
+                int entrySize = entrySize( cursor, sourceOffset );
+                int targetOffset = allocOffset( targetCursor ) - entrySize;
+                cursor.copyTo( sourceOffset, targetCursor, targetOffset, entrySize );
+                setAllocOffset( targetCursor, targetOffset );
+                targetCursor.putShort( offsetOffset( toPos + i ), (short) targetOffset );
+            }
+        }
+        else
+        {
+            cursor.copyTo( keyOffset( fromPos ), targetCursor, keyOffset( toPos ), count * keySize );
+            cursor.copyTo( valueOffset( fromPos ), targetCursor, valueOffset( toPos ), count * valueSize );
+        }
+    }
+
+    /**
+     * Gets rid of space occupied by keys and values past {@code keyCount} in a leaf, which is what is left behind
+     * when reducing the key count of a leaf. Only needed for dynamic size leaves.
+     *
+     * @param cursor {@link PageCursor} pinned to the leaf.
+     * @param keyCount number of keys in the leaf to keep.
+     * @param entries scratch buffer from {@link #newDefragmentScratch()}, owned by the calling writer.
+     */
+    void defragmentLeaf( PageCursor cursor, int keyCount, byte[] entries )
+    {
+        if ( !dynamicLeaves )
+        {
+            return;
+        }
+
+        int allocOffset = pageSize;
+        for ( int pos = 0; pos < keyCount; pos++ )
+        {
+            int entryOffset = entryOffset( cursor, pos );
+            int entrySize = entrySize( cursor, entryOffset );
+            allocOffset -= entrySize;
+            cursor.setOffset( entryOffset );
+            cursor.getBytes( entries, allocOffset, entrySize );
+            cursor.putShort( offsetOffset( pos ), (short) allocOffset );
+        }
+        cursor.setOffset( allocOffset );
+        cursor.putBytes( entries, allocOffset, pageSize - allocOffset );
+        setAllocOffset( cursor, allocOffset );
+    }
+
+    /**
+     * @return a new scratch buffer for {@link #defragmentLeaf(PageCursor, int, byte[])}. A writer allocates one
+     * and reuses it for all its leaf splits, since this {@link TreeNode} is shared between writers.
+     */
+    byte[] newDefragmentScratch()
+    {
+        return new byte[dynamicLeaves ? pageSize : 0];
+    }
+
+    private void removeEntryAt( PageCursor cursor, int pos, int keyCount )
+    {
+        int entryOffset = entryOffset( cursor, pos );
+        int entrySize = entrySize( cursor, entryOffset );
+        removeSlotAt( cursor, pos, keyCount, offsetOffset( 0 ), SIZE_OFFSET );
+
+        // Close the gap by moving entries allocated after the removed one towards the end of the page,
+        // in chunks no bigger than the gap so that source and target never overlap
+        int allocOffset = allocOffset( cursor );
+        for ( int end = entryOffset; end > allocOffset; )
+        {
+            int chunk = Math.min( entrySize, end - allocOffset );
+            end -= chunk;
+            cursor.copyTo( end, cursor, end + entrySize, chunk );
+        }
+        setAllocOffset( cursor, allocOffset + entrySize );
+        for ( int i = 0; i < keyCount - 1; i++ )
+        {
+            int offset = entryOffset( cursor, i );
+            if ( offset < entryOffset )
+            {
+                cursor.putShort( offsetOffset( i ), (short) (offset + entrySize) );
+            }
+        }
     }
 
     long childAt( PageCursor cursor, int pos, long stableGeneration, long unstableGeneration )
@@ -344,6 +660,51 @@ class TreeNode<KEY,VALUE>
         return HEADER_LENGTH + internalMaxKeyCount * keySize + pos * SIZE_PAGE_REFERENCE;
     }
 
+    private boolean isDynamicLeaf( PageCursor cursor )
+    {
+        return dynamicLeaves && isLeaf( cursor );
+    }
+
+    private static int offsetOffset( int pos )
+    {
+        return DYNAMIC_LEAF_HEADER_LENGTH + pos * SIZE_OFFSET;
+    }
+
+    private static int entryOffset( PageCursor cursor, int pos )
+    {
+        return cursor.getShort( offsetOffset( pos ) ) & 0xFFFF;
+    }
+
+    private static int keyLength( PageCursor cursor, int entryOffset )
+    {
+        return cursor.getShort( entryOffset ) & 0xFFFF;
+    }
+
+    private static int valueLength( PageCursor cursor, int entryOffset )
+    {
+        return cursor.getShort( entryOffset + SIZE_KEY_LENGTH ) & 0xFFFF;
+    }
+
+    private static int entrySize( int keyLength, int valueLength )
+    {
+        return SIZE_ENTRY_HEADER + keyLength + valueLength;
+    }
+
+    private static int entrySize( PageCursor cursor, int entryOffset )
+    {
+        return entrySize( keyLength( cursor, entryOffset ), valueLength( cursor, entryOffset ) );
+    }
+
+    private static int allocOffset( PageCursor cursor )
+    {
+        return cursor.getInt( BYTE_POS_ALLOCOFFSET );
+    }
+
+    private static void setAllocOffset( PageCursor cursor, int allocOffset )
+    {
+        cursor.putInt( BYTE_POS_ALLOCOFFSET, allocOffset );
+    }
+
     static boolean isNode( long node )
     {
         return GenSafePointerPair.pointer( node ) != NO_NODE_FLAG;
@@ -379,6 +740,7 @@ class TreeNode<KEY,VALUE>
     public String toString()
     {
         return "TreeNode[pageSize:" + pageSize + ", internalMax:" + internalMaxKeyCount +
-                ", leafMax:" + leafMaxKeyCount + ", keySize:" + keySize + ", valueSize:" + valueSize + "]";
+                ", leafMax:" + leafMaxKeyCount + ", keySize:" + keySize + ", valueSize:" + valueSize +
+                ", dynamicLeaves:" + dynamicLeaves + "]";
     }
 }
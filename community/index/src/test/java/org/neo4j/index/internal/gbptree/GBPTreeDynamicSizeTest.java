@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+import org.apache.commons.lang3.mutable.MutableObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.RandomRule;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.rules.RuleChain.outerRule;
+
+import static org.neo4j.index.internal.gbptree.GBPTree.NO_MONITOR;
+import static org.neo4j.test.Randoms.CSA_LETTERS_AND_DIGITS;
+import static org.neo4j.test.rule.PageCacheRule.config;
+
+public class GBPTreeDynamicSizeTest
+{
+    private static final int PAGE_SIZE = 512;
+    private static final int MAX_STRING_BYTES = 100;
+
+    private final DefaultFileSystemRule fs = new DefaultFileSystemRule();
+    private final TestDirectory directory = TestDirectory.testDirectory( getClass(), fs.get() );
+    private final PageCacheRule pageCacheRule = new PageCacheRule( config().withAccessChecks( true ) );
+    private final RandomRule random = new RandomRule();
+
+    @Rule
+    public final RuleChain rules = outerRule( fs ).around( directory ).around( pageCacheRule ).around( random );
+
+    private final Layout<MutableObject<String>,MutableLong> layout = new SimpleStringLayout( MAX_STRING_BYTES );
+    private GBPTree<MutableObject<String>,MutableLong> index;
+
+    private GBPTree<MutableObject<String>,MutableLong> createIndex( int pageSize ) throws IOException
+    {
+        PageCache pageCache = pageCacheRule.getPageCache( fs.get(), config().withPageSize( pageSize ) );
+        File indexFile = directory.file( "index" );
+        return index = new GBPTree<>( pageCache, indexFile, layout, 0, NO_MONITOR );
+    }
+
+    @After
+    public void closeIndex() throws IOException
+    {
+        if ( index != null )
+        {
+            assertTrue( index.consistencyCheck() );
+            index.close();
+        }
+    }
+
+    @Test
+    public void shouldFitMoreSmallKeysInLeafThanMaxSizeKeys() throws Exception
+    {
+        // GIVEN
+        TreeNode<MutableObject<String>,MutableLong> node = new TreeNode<>( PAGE_SIZE, layout );
+        PageAwareByteArrayCursor cursor = new PageAwareByteArrayCursor( PAGE_SIZE );
+        cursor.next();
+        node.initializeLeaf( cursor, 1, 2 );
+        MutableLong value = new MutableLong();
+
+        // WHEN
+        int keyCount = 0;
+        MutableObject<String> key = new MutableObject<>();
+        while ( true )
+        {
+            key.setValue( String.format( "%04d", keyCount ) );
+            value.setValue( keyCount );
+            if ( !node.leafHasSpaceFor( cursor, keyCount, key, value ) )
+            {
+                break;
+            }
+            node.insertKeyValueAt( cursor, key, value, keyCount, keyCount );
+            keyCount++;
+        }
+        node.setKeyCount( cursor, keyCount );
+
+        // THEN
+        int maxSizeKeyCount = (PAGE_SIZE - TreeNode.HEADER_LENGTH) / (layout.keySize() + layout.valueSize());
+        assertTrue( keyCount + " small keys should be more than " + maxSizeKeyCount + " max size keys",
+                keyCount > maxSizeKeyCount * 3 );
+        for ( int pos = 0; pos < keyCount; pos++ )
+        {
+            assertEquals( String.format( "%04d", pos ), node.keyAt( cursor, key, pos ).getValue() );
+            assertEquals( pos, node.valueAt( cursor, value, pos ).longValue() );
+        }
+    }
+
+    @Test
+    public void shouldReclaimSpaceOfRemovedKeys() throws Exception
+    {
+        // GIVEN
+        TreeNode<MutableObject<String>,MutableLong> node = new TreeNode<>( PAGE_SIZE, layout );
+        PageAwareByteArrayCursor cursor = new PageAwareByteArrayCursor( PAGE_SIZE );
+        cursor.next();
+        node.initializeLeaf( cursor, 1, 2 );
+        MutableObject<String> key = new MutableObject<>();
+        MutableLong value = new MutableLong();
+        int keyCount = 0;
+        while ( node.leafHasSpaceFor( cursor, keyCount, key( keyCount, key ), value ) )
+        {
+            value.setValue( keyCount );
+            node.insertKeyValueAt( cursor, key, value, keyCount, keyCount );
+            keyCount++;
+        }
+
+        // WHEN removing a key in the middle
+        int removedPos = keyCount / 2;
+        node.removeKeyAt( cursor, removedPos, keyCount );
+        node.removeValueAt( cursor, removedPos, keyCount );
+        keyCount--;
+
+        // THEN the remaining keys are intact and the space is reusable
+        for ( int pos = 0; pos < keyCount; pos++ )
+        {
+            int expected = pos < removedPos ? pos : pos + 1;
+            String expectedKey = key( expected, new MutableObject<>() ).getValue();
+            assertEquals( expectedKey, node.keyAt( cursor, key, pos ).getValue() );
+            assertEquals( expected, node.valueAt( cursor, value, pos ).longValue() );
+        }
+        assertTrue( node.leafHasSpaceFor( cursor, keyCount, key( removedPos, key ), value ) );
+    }
+
+    @Test
+    public void shouldPutAndRemoveRandomVariableSizeKeys() throws Exception
+    {
+        // GIVEN
+        createIndex( PAGE_SIZE );
+        TreeMap<String,Long> expected = new TreeMap<>();
+        MutableObject<String> key = new MutableObject<>();
+        MutableLong value = new MutableLong();
+
+        // WHEN
+        for ( int round = 0; round < 10; round++ )
+        {
+            try ( Writer<MutableObject<String>,MutableLong> writer = index.writer() )
+            {
+                for ( int i = 0; i < 1_000; i++ )
+                {
+                    String string = random.string( 0, MAX_STRING_BYTES, CSA_LETTERS_AND_DIGITS );
+                    key.setValue( string );
+                    if ( random.nextInt( 3 ) == 0 && !expected.isEmpty() )
+                    {
+                        String existing = expected.ceilingKey( string );
+                        key.setValue( existing != null ? existing : expected.firstKey() );
+                        assertEquals( expected.remove( key.getValue() ).longValue(),
+                                writer.remove( key ).longValue() );
+                    }
+                    else
+                    {
+                        value.setValue( random.nextLong() );
+                        writer.put( key, value );
+                        expected.put( string, value.longValue() );
+                    }
+                }
+            }
+            index.checkpoint( IOLimiter.unlimited() );
+
+            // THEN
+            assertSeek( expected, "", "\uFFFF" );
+            String first = random.string( 0, 5, CSA_LETTERS_AND_DIGITS );
+            String second = random.string( 0, 5, CSA_LETTERS_AND_DIGITS );
+            boolean ordered = first.compareTo( second ) <= 0;
+            assertSeek( expected, ordered ? first : second, ordered ? second : first );
+        }
+    }
+
+    @Test
+    public void shouldOverwriteValuesWithValuesOfDifferentSize() throws Exception
+    {
+        // GIVEN
+        createIndex( PAGE_SIZE );
+        TreeMap<String,Long> expected = new TreeMap<>();
+        MutableObject<String> key = new MutableObject<>();
+        MutableLong value = new MutableLong();
+
+        // WHEN
+        for ( int round = 0; round < 10; round++ )
+        {
+            try ( Writer<MutableObject<String>,MutableLong> writer =
+                    round % 2 == 0 ? index.writer() : index.concurrentWriter() )
+            {
+                for ( int i = 0; i < 1_000; i++ )
+                {
+                    // Few distinct keys so that most puts overwrite a value, of a random number of bytes
+                    key.setValue( random.string( 1, 2, CSA_LETTERS_AND_DIGITS ) );
+                    value.setValue( random.nextLong() >>> random.nextInt( Long.SIZE ) );
+                    writer.merge( key, value, ValueMergers.overwrite() );
+                    expected.put( key.getValue(), value.longValue() );
+                }
+            }
+
+            // THEN
+            assertSeek( expected, "", "\uFFFF" );
+        }
+    }
+
+    @Test
+    public void shouldBulkLoadVariableSizeKeys() throws Exception
+    {
+        // GIVEN
+        createIndex( PAGE_SIZE );
+        TreeMap<String,Long> expected = new TreeMap<>();
+        for ( int i = 0; i < 5_000; i++ )
+        {
+            expected.put( random.string( 0, MAX_STRING_BYTES, CSA_LETTERS_AND_DIGITS ), (long) i );
+        }
+
+        // WHEN
+        try ( BulkLoader<MutableObject<String>,MutableLong> bulkLoader = index.bulkLoader() )
+        {
+            for ( Map.Entry<String,Long> entry : expected.entrySet() )
+            {
+                bulkLoader.add( new MutableObject<>( entry.getKey() ), new MutableLong( entry.getValue() ) );
+            }
+            bulkLoader.success();
+        }
+
+        // THEN
+        assertSeek( expected, "", "\uFFFF" );
+    }
+
+    @Test
+    public void shouldNotAcceptPageSizeFittingTooFewMaxSizeKeys() throws Exception
+    {
+        try
+        {
+            new TreeNode<>( 256, layout );
+            fail( "Should have failed" );
+        }
+        catch ( MetadataMismatchException e )
+        {
+            // THEN good
+        }
+    }
+
+    private static MutableObject<String> key( int i, MutableObject<String> into )
+    {
+        into.setValue( String.format( "%0" + (1 + i % 20) + "d", i ) );
+        return into;
+    }
+
+    private void assertSeek( TreeMap<String,Long> expected, String from, String to ) throws IOException
+    {
+        Iterator<Map.Entry<String,Long>> expectedHits = expected.subMap( from, to ).entrySet().iterator();
+        try ( RawCursor<Hit<MutableObject<String>,MutableLong>,IOException> cursor =
+                index.seek( new MutableObject<>( from ), new MutableObject<>( to ) ) )
+        {
+            while ( cursor.next() )
+            {
+                assertTrue( expectedHits.hasNext() );
+                Map.Entry<String,Long> expectedHit = expectedHits.next();
+                assertEquals( expectedHit.getKey(), cursor.get().key().getValue() );
+                assertEquals( expectedHit.getValue().longValue(), cursor.get().value().longValue() );
+            }
+        }
+        assertFalse( expectedHits.hasNext() );
+    }
+}
@@ -494,6 +494,34 @@ public class GBPTreeTest
         checkpointer.join();
     }
 
+    @Test
+    public void checkPointShouldWaitForConcurrentWriters() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 1024 );
+
+        // WHEN
+        Barrier.Control barrier = new Barrier.Control();
+        Thread writerThread = new Thread( throwing( () ->
+        {
+            try ( Writer<MutableLong,MutableLong> writer = index.concurrentWriter() )
+            {
+                writer.put( new MutableLong( 1 ), new MutableLong( 1 ) );
+                barrier.reached();
+            }
+        } ) );
+        writerThread.start();
+        barrier.awaitUninterruptibly();
+        Thread checkpointer = new Thread( throwing( () -> index.checkpoint( IOLimiter.unlimited() ) ) );
+        checkpointer.start();
+        checkpointer.join( 200 );
+        assertTrue( checkpointer.isAlive() );
+
+        // THEN
+        barrier.release();
+        checkpointer.join();
+    }
+
     /* Insertion and read tests */
 
     @Test
@@ -571,6 +599,340 @@ public class GBPTreeTest
         }
     }
 
+    @Test
+    public void shouldSeeInsertionsAndRemovalsFromConcurrentWriters() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        int threads = 4;
+        int countPerThread = 2_000;
+
+        // WHEN each thread inserts keys in its own key range, with checkpoints and removals in between
+        List<Thread> writerThreads = new ArrayList<>();
+        for ( int t = 0; t < threads; t++ )
+        {
+            long base = t * (long) countPerThread;
+            writerThreads.add( new Thread( throwing( () ->
+            {
+                for ( int i = 0; i < countPerThread; i++ )
+                {
+                    try ( Writer<MutableLong,MutableLong> writer = index.concurrentWriter() )
+                    {
+                        writer.put( new MutableLong( base + i ), new MutableLong( base + i ) );
+                        if ( i % 3 == 0 )
+                        {
+                            assertEquals( base + i, writer.remove( new MutableLong( base + i ) ).longValue() );
+                        }
+                    }
+                    if ( i % 500 == 0 )
+                    {
+                        index.checkpoint( IOLimiter.unlimited() );
+                    }
+                }
+            } ) ) );
+        }
+        for ( Thread writerThread : writerThreads )
+        {
+            writerThread.start();
+        }
+        for ( Thread writerThread : writerThreads )
+        {
+            writerThread.join();
+        }
+
+        // THEN
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                      index.seek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ) ) )
+        {
+            for ( long key = 0; key < threads * (long) countPerThread; key++ )
+            {
+                if ( key % countPerThread % 3 != 0 )
+                {
+                    assertTrue( cursor.next() );
+                    assertEquals( key, cursor.get().key().longValue() );
+                    assertEquals( key, cursor.get().value().longValue() );
+                }
+            }
+            assertFalse( cursor.next() );
+        }
+    }
+
+    @Test
+    public void shouldSeeInsertionsAndRemovalsFromConcurrentWritersReusedAcrossSplits() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        int threads = 4;
+        int countPerThread = 5_000;
+
+        // WHEN each thread keeps its writer open while inserting keys interleaved with the keys of the other
+        // threads, so that leaves are split under the path each writer remembers from its previous change
+        List<Thread> writerThreads = new ArrayList<>();
+        for ( int t = 0; t < threads; t++ )
+        {
+            int thread = t;
+            writerThreads.add( new Thread( throwing( () ->
+            {
+                try ( Writer<MutableLong,MutableLong> writer = index.concurrentWriter() )
+                {
+                    for ( int i = 0; i < countPerThread; i++ )
+                    {
+                        long key = i * (long) threads + thread;
+                        writer.put( new MutableLong( key ), new MutableLong( key ) );
+                        if ( i % 3 == 0 )
+                        {
+                            assertEquals( key, writer.remove( new MutableLong( key ) ).longValue() );
+                        }
+                    }
+                }
+            } ) ) );
+        }
+        for ( Thread writerThread : writerThreads )
+        {
+            writerThread.start();
+        }
+        for ( Thread writerThread : writerThreads )
+        {
+            writerThread.join();
+        }
+
+        // THEN
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                      index.seek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ) ) )
+        {
+            for ( long key = 0; key < threads * (long) countPerThread; key++ )
+            {
+                if ( key / threads % 3 != 0 )
+                {
+                    assertTrue( cursor.next() );
+                    assertEquals( key, cursor.get().key().longValue() );
+                    assertEquals( key, cursor.get().value().longValue() );
+                }
+            }
+            assertFalse( cursor.next() );
+        }
+    }
+
+    /* Bulk load tests */
+
+    @Test
+    public void shouldSeeBulkLoadedKeysAndAcceptFurtherChanges() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        int count = 10_000;
+
+        // WHEN
+        try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader() )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                bulkLoader.add( new MutableLong( i * 2 ), new MutableLong( i ) );
+            }
+            bulkLoader.success();
+        }
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                writer.put( new MutableLong( i * 2 + 1 ), new MutableLong( i ) );
+            }
+        }
+        index.checkpoint( IOLimiter.unlimited() );
+
+        // THEN
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                      index.seek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ) ) )
+        {
+            for ( int i = 0; i < count * 2; i++ )
+            {
+                assertTrue( cursor.next() );
+                assertEquals( i, cursor.get().key().longValue() );
+                assertEquals( i / 2, cursor.get().value().longValue() );
+            }
+            assertFalse( cursor.next() );
+        }
+    }
+
+    @Test
+    public void shouldNotBulkLoadKeysOutOfOrder() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader() )
+        {
+            bulkLoader.add( new MutableLong( 10 ), new MutableLong( 10 ) );
+
+            // WHEN
+            try
+            {
+                bulkLoader.add( new MutableLong( 10 ), new MutableLong( 10 ) );
+                fail( "Should have failed" );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // THEN good
+            }
+        }
+    }
+
+    @Test
+    public void shouldLeaveTreeEmptyWhenBulkLoaderIsClosedWithoutSuccess() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        int count = 10_000;
+
+        // WHEN
+        try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader() )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                bulkLoader.add( new MutableLong( i ), new MutableLong( i ) );
+            }
+        }
+
+        // THEN
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                      index.seek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ) ) )
+        {
+            assertFalse( cursor.next() );
+        }
+
+        // and WHEN
+        try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader() )
+        {
+            bulkLoader.add( new MutableLong( 1 ), new MutableLong( 1 ) );
+            bulkLoader.success();
+        }
+
+        // THEN
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                      index.seek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ) ) )
+        {
+            assertTrue( cursor.next() );
+            assertEquals( 1, cursor.get().key().longValue() );
+            assertFalse( cursor.next() );
+        }
+    }
+
+    @Test
+    public void shouldNotBulkLoadNonEmptyTree() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            writer.put( new MutableLong( 1 ), new MutableLong( 1 ) );
+        }
+
+        // WHEN
+        try
+        {
+            index.bulkLoader();
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // THEN good
+            assertThat( e.getMessage(), containsString( "empty" ) );
+        }
+        index.writer().close();
+    }
+
+    /* Partitioned seek tests */
+
+    @Test
+    public void shouldPartitionSeekIntoDesiredNumberOfPartitionsCoveringWholeRange() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        int count = 10_000;
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                writer.put( new MutableLong( i ), new MutableLong( i ) );
+            }
+        }
+
+        // WHEN
+        int from = 1_000;
+        int to = 9_000;
+        int desiredNumberOfPartitions = 8;
+        List<RawCursor<Hit<MutableLong,MutableLong>,IOException>> partitions =
+                index.partitionedSeek( new MutableLong( from ), new MutableLong( to ), desiredNumberOfPartitions );
+
+        // THEN
+        assertEquals( desiredNumberOfPartitions, partitions.size() );
+        long expected = from;
+        int rangeSize = to - from;
+        for ( RawCursor<Hit<MutableLong,MutableLong>,IOException> partition : partitions )
+        {
+            int partitionSize = 0;
+            try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor = partition )
+            {
+                while ( cursor.next() )
+                {
+                    assertEquals( expected++, cursor.get().key().longValue() );
+                    partitionSize++;
+                }
+            }
+            assertTrue( "Unbalanced partition of size " + partitionSize,
+                    partitionSize > rangeSize / desiredNumberOfPartitions / 4 &&
+                    partitionSize < rangeSize / desiredNumberOfPartitions * 4 );
+        }
+        assertEquals( to, expected );
+    }
+
+    @Test
+    public void shouldPartitionSeekIntoFewerPartitionsIfNotEnoughKeys() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            for ( int i = 0; i < 5; i++ )
+            {
+                writer.put( new MutableLong( i ), new MutableLong( i ) );
+            }
+        }
+
+        // WHEN
+        List<RawCursor<Hit<MutableLong,MutableLong>,IOException>> partitions =
+                index.partitionedSeek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ), 4 );
+
+        // THEN root is a leaf, so there are no separator keys to partition by
+        assertEquals( 1, partitions.size() );
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor = partitions.get( 0 ) )
+        {
+            for ( int i = 0; i < 5; i++ )
+            {
+                assertTrue( cursor.next() );
+                assertEquals( i, cursor.get().key().longValue() );
+            }
+            assertFalse( cursor.next() );
+        }
+    }
+
+    @Test
+    public void shouldNotPartitionSeekBackwards() throws Exception
+    {
+        // GIVEN
+        index = createIndex( 256 );
+
+        // WHEN
+        try
+        {
+            index.partitionedSeek( new MutableLong( 10 ), new MutableLong( 0 ), 2 );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // THEN good
+        }
+    }
+
     private static class CheckpointControlledMonitor implements Monitor
     {
         private final Barrier.Control barrier = new Barrier.Control();
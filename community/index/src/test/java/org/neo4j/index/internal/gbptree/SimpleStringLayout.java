@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+import org.apache.commons.lang3.mutable.MutableObject;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Layout with variable size {@link String} keys, as length-prefixed UTF-8, and variable size {@code long} values,
+ * as length-prefixed little endian bytes without the high zero bytes.
+ */
+class SimpleStringLayout extends Layout.Adapter<MutableObject<String>,MutableLong>
+{
+    private final int maxStringBytes;
+
+    SimpleStringLayout( int maxStringBytes )
+    {
+        this.maxStringBytes = maxStringBytes;
+    }
+
+    @Override
+    public int compare( MutableObject<String> o1, MutableObject<String> o2 )
+    {
+        return o1.getValue().compareTo( o2.getValue() );
+    }
+
+    @Override
+    public MutableObject<String> newKey()
+    {
+        return new MutableObject<>( "" );
+    }
+
+    @Override
+    public MutableObject<String> copyKey( MutableObject<String> key, MutableObject<String> into )
+    {
+        into.setValue( key.getValue() );
+        return into;
+    }
+
+    @Override
+    public MutableLong newValue()
+    {
+        return new MutableLong();
+    }
+
+    @Override
+    public int keySize()
+    {
+        return Short.BYTES + maxStringBytes;
+    }
+
+    @Override
+    public int keySize( MutableObject<String> key )
+    {
+        return Short.BYTES + key.getValue().getBytes( UTF_8 ).length;
+    }
+
+    @Override
+    public boolean fixedSize()
+    {
+        return false;
+    }
+
+    @Override
+    public int valueSize()
+    {
+        return Byte.BYTES + Long.BYTES;
+    }
+
+    @Override
+    public int valueSize( MutableLong value )
+    {
+        return Byte.BYTES + significantBytes( value.longValue() );
+    }
+
+    private static int significantBytes( long value )
+    {
+        return (Long.SIZE - Long.numberOfLeadingZeros( value ) + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    @Override
+    public void writeKey( PageCursor cursor, MutableObject<String> key )
+    {
+        byte[] bytes = key.getValue().getBytes( UTF_8 );
+        cursor.putShort( (short) bytes.length );
+        cursor.putBytes( bytes );
+    }
+
+    @Override
+    public void writeValue( PageCursor cursor, MutableLong value )
+    {
+        long longValue = value.longValue();
+        int length = significantBytes( longValue );
+        cursor.putByte( (byte) length );
+        for ( int i = 0; i < length; i++ )
+        {
+            cursor.putByte( (byte) (longValue >>> (i * Byte.SIZE)) );
+        }
+    }
+
+    @Override
+    public void readKey( PageCursor cursor, MutableObject<String> into )
+    {
+        // Inconsistent reads may read garbage length, they will be retried anyway
+        int length = Math.min( cursor.getShort() & 0xFFFF, maxStringBytes );
+        byte[] bytes = new byte[length];
+        cursor.getBytes( bytes );
+        into.setValue( new String( bytes, UTF_8 ) );
+    }
+
+    @Override
+    public void readValue( PageCursor cursor, MutableLong into )
+    {
+        // Inconsistent reads may read garbage length, they will be retried anyway
+        int length = Math.min( cursor.getByte() & 0xFF, Long.BYTES );
+        long value = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            value |= (cursor.getByte() & 0xFFL) << (i * Byte.SIZE);
+        }
+        into.setValue( value );
+    }
+
+    @Override
+    public long identifier()
+    {
+        return Layout.namedIdentifier( "SSL", maxStringBytes );
+    }
+
+    @Override
+    public int majorVersion()
+    {
+        return 0;
+    }
+
+    @Override
+    public int minorVersion()
+    {
+        return 0;
+    }
+}
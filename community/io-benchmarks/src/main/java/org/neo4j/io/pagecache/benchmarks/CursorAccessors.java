@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Measures the primitive accessors of a {@link PageCursor} that stays pinned on a single page, which is dominated by
+ * the bounds checking and the unsafe memory access.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class CursorAccessors
+{
+    private static final int RECORDS = PageCacheState.PAGE_SIZE / Long.BYTES;
+
+    @State( Scope.Thread )
+    public static class PinnedCursor
+    {
+        PageCursor cursor;
+        byte[] bytes = new byte[Long.BYTES * 4];
+
+        @Setup( Level.Iteration )
+        public void pin( PageCacheState state ) throws IOException
+        {
+            cursor = state.pagedFile.io( 0, PF_SHARED_WRITE_LOCK );
+            cursor.next();
+        }
+
+        @TearDown( Level.Iteration )
+        public void unpin()
+        {
+            cursor.close();
+        }
+    }
+
+    @Benchmark
+    public void getLongs( PinnedCursor pinned, Blackhole blackhole )
+    {
+        PageCursor cursor = pinned.cursor;
+        cursor.setOffset( 0 );
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            blackhole.consume( cursor.getLong() );
+        }
+    }
+
+    @Benchmark
+    public void getLongsAtOffset( PinnedCursor pinned, Blackhole blackhole )
+    {
+        PageCursor cursor = pinned.cursor;
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            blackhole.consume( cursor.getLong( i * Long.BYTES ) );
+        }
+    }
+
+    @Benchmark
+    public void putLongs( PinnedCursor pinned )
+    {
+        PageCursor cursor = pinned.cursor;
+        cursor.setOffset( 0 );
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            cursor.putLong( i );
+        }
+    }
+
+    @Benchmark
+    public void getInts( PinnedCursor pinned, Blackhole blackhole )
+    {
+        PageCursor cursor = pinned.cursor;
+        cursor.setOffset( 0 );
+        for ( int i = 0; i < RECORDS * 2; i++ )
+        {
+            blackhole.consume( cursor.getInt() );
+        }
+    }
+
+    @Benchmark
+    public void getBytes( PinnedCursor pinned, Blackhole blackhole )
+    {
+        PageCursor cursor = pinned.cursor;
+        byte[] bytes = pinned.bytes;
+        cursor.setOffset( 0 );
+        for ( int i = 0; i < PageCacheState.PAGE_SIZE / bytes.length; i++ )
+        {
+            cursor.getBytes( bytes );
+            blackhole.consume( bytes );
+        }
+    }
+
+    @Benchmark
+    public void getByteAtOffset( PinnedCursor pinned, Blackhole blackhole )
+    {
+        PageCursor cursor = pinned.cursor;
+        for ( int i = 0; i < PageCacheState.PAGE_SIZE; i += 7 )
+        {
+            blackhole.consume( cursor.getByte( i ) );
+        }
+    }
+}
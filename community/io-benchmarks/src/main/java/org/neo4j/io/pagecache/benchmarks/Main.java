@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the page cache benchmarks once for each of a range of thread counts, and writes the results of each run to
+ * a {@code page-cache-<threads>-threads.json} file in the working directory. Run it from the benchmark jar like
+ * this:
+ * <pre><code>
+ *     java -cp benchmarks.jar org.neo4j.io.pagecache.benchmarks.Main [include regex] [thread count...]
+ * </code></pre>
+ * The include regex defaults to all the benchmarks in this package, and the thread counts default to 1, 2, 4 and 8.
+ * The thread count overrides the {@code @Threads} annotations of the benchmarks, like the one on
+ * {@link EvictionUnderContention}. For the group benchmarks, like the contended ones, it is rounded up to a whole
+ * number of groups, so each run uses at least one full group with the thread ratio of its {@code @GroupThreads}
+ * annotations.
+ * <p>
+ * Use {@code java -jar benchmarks.jar -h} for all the options of the standard JMH runner, which can also run the
+ * benchmarks with a single thread count, e.g. with {@code -t 4 -p cacheToDatasetRatio=0.1}.
+ */
+public class Main
+{
+    public static void main( String[] args ) throws RunnerException
+    {
+        String include = args.length > 0 ? args[0] : Main.class.getPackage().getName() + ".*";
+        int[] threadCounts = args.length > 1 ? new int[args.length - 1] : new int[]{1, 2, 4, 8};
+        for ( int i = 1; i < args.length; i++ )
+        {
+            threadCounts[i - 1] = Integer.parseInt( args[i] );
+        }
+
+        for ( int threads : threadCounts )
+        {
+            Options options = new OptionsBuilder()
+                    .include( include )
+                    .threads( threads )
+                    .resultFormat( ResultFormatType.JSON )
+                    .result( "page-cache-" + threads + "-threads.json" )
+                    .build();
+            new Runner( options ).run();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Measures optimistic reads, that is, reading a page and validating the read with
+ * {@link PageCursor#shouldRetry()}, both on their own and while writers are concurrently modifying a small set of hot
+ * pages, which forces the readers to retry.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class OptimisticRead
+{
+    @State( Scope.Benchmark )
+    public static class HotPages extends PageCacheState
+    {
+        /**
+         * The number of pages, at the start of the file, that the readers and writers focus on.
+         */
+        @Param( {"1", "64"} )
+        public int hotPages;
+    }
+
+    @State( Scope.Thread )
+    public static class ReaderCursor
+    {
+        PageCursor cursor;
+
+        @Setup( Level.Iteration )
+        public void openCursor( HotPages state ) throws IOException
+        {
+            cursor = state.pagedFile.io( 0, PF_SHARED_READ_LOCK );
+        }
+
+        @TearDown( Level.Iteration )
+        public void closeCursor()
+        {
+            cursor.close();
+        }
+    }
+
+    @Benchmark
+    public long uncontendedRead( HotPages state, ReaderCursor reader ) throws IOException
+    {
+        return read( state, reader.cursor );
+    }
+
+    @Benchmark
+    @Group( "contended" )
+    @GroupThreads( 3 )
+    public long contendedRead( HotPages state, ReaderCursor reader ) throws IOException
+    {
+        return read( state, reader.cursor );
+    }
+
+    @Benchmark
+    @Group( "contended" )
+    @GroupThreads( 1 )
+    public void contendedWrite( HotPages state ) throws IOException
+    {
+        // The write cursor is closed after every write, so that the write lock of the page is released and the
+        // readers get to complete their reads in between writes.
+        ThreadLocalRandom rng = ThreadLocalRandom.current();
+        try ( PageCursor cursor = state.pagedFile.io( rng.nextInt( state.hotPages ), PF_SHARED_WRITE_LOCK ) )
+        {
+            cursor.next();
+            cursor.putLong( rng.nextInt( PageCacheState.PAGE_SIZE / Long.BYTES ) * Long.BYTES, rng.nextLong() );
+        }
+    }
+
+    private static long read( HotPages state, PageCursor cursor ) throws IOException
+    {
+        ThreadLocalRandom rng = ThreadLocalRandom.current();
+        int offset = rng.nextInt( PageCacheState.PAGE_SIZE / Long.BYTES ) * Long.BYTES;
+        cursor.next( rng.nextInt( state.hotPages ) );
+        long value;
+        do
+        {
+            value = cursor.getLong( offset );
+        }
+        while ( cursor.shouldRetry() );
+        return value;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PageSwapperFactory;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo4j.io.pagecache.impl.muninn.EvictionPolicy;
+import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Shared benchmark state of a {@link MuninnPageCache} with a single mapped file, whose size relative to the page
+ * cache is given by the {@link #cacheToDatasetRatio} parameter. A ratio of 1.0 or more means the whole file fits in
+ * the cache, and the benchmarks will mostly measure pinning, while smaller ratios force page faults and eviction.
+ */
+@State( Scope.Benchmark )
+public class PageCacheState
+{
+    public static final int PAGE_SIZE = 8192;
+
+    @Param( {"1.0", "0.5", "0.1"} )
+    public double cacheToDatasetRatio;
+
+    @Param( {"16384"} )
+    public int filePages;
+
+    @Param( {"CLOCK", "SCAN_RESISTANT"} )
+    public EvictionPolicy evictionPolicy;
+
+    public FileSystemAbstraction fs;
+    public File directory;
+    public File file;
+    public MuninnPageCache pageCache;
+    public PagedFile pagedFile;
+
+    @Setup( Level.Trial )
+    public void setUp() throws IOException
+    {
+        fs = new DefaultFileSystemAbstraction();
+        directory = Files.createTempDirectory( getClass().getSimpleName() ).toFile();
+        file = new File( directory, "benchmark.db" );
+        pageCache = createPageCache( swapperFactory(), cachePages() );
+        pagedFile = pageCache.map( file, PAGE_SIZE, StandardOpenOption.CREATE );
+        fill( pagedFile, filePages );
+        pagedFile.flushAndForce();
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() throws IOException
+    {
+        pagedFile.close();
+        pageCache.close();
+        FileUtils.deleteRecursively( directory );
+    }
+
+    /**
+     * The number of pages in the page cache. Always leaves room for the pages that the page cache keeps free, and
+     * the pages pinned by the benchmark threads, even at the lowest ratios.
+     */
+    public int cachePages()
+    {
+        return Math.max( 128, (int) (filePages * cacheToDatasetRatio) );
+    }
+
+    protected PageSwapperFactory swapperFactory()
+    {
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        return swapperFactory;
+    }
+
+    protected MuninnPageCache createPageCache( PageSwapperFactory swapperFactory, int maxPages )
+    {
+        return new MuninnPageCache( swapperFactory, maxPages, PAGE_SIZE, PageCacheTracer.NULL, evictionPolicy );
+    }
+
+    /**
+     * Writes the given number of pages to the paged file, with the file page id in every long of the page, such that
+     * the benchmarks read real data rather than pages of zeros.
+     */
+    static void fill( PagedFile pagedFile, int pages ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int pageId = 0; pageId < pages; pageId++ )
+            {
+                cursor.next( pageId );
+                for ( int offset = 0; offset < PAGE_SIZE; offset += Long.BYTES )
+                {
+                    cursor.putLong( offset, pageId );
+                }
+            }
+        }
+    }
+}
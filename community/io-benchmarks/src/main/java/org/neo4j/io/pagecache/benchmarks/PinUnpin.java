@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Measures the cost of pinning and unpinning random pages with read and write cursors. When the
+ * {@link PageCacheState#cacheToDatasetRatio} is below one, this also includes the cost of page faults.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class PinUnpin
+{
+    @Benchmark
+    public long pinUnpinRead( PageCacheState state ) throws IOException
+    {
+        long pageId = ThreadLocalRandom.current().nextInt( state.filePages );
+        try ( PageCursor cursor = state.pagedFile.io( pageId, PF_SHARED_READ_LOCK ) )
+        {
+            cursor.next();
+            return cursor.getCurrentPageId();
+        }
+    }
+
+    @Benchmark
+    public long pinUnpinWrite( PageCacheState state ) throws IOException
+    {
+        long pageId = ThreadLocalRandom.current().nextInt( state.filePages );
+        try ( PageCursor cursor = state.pagedFile.io( pageId, PF_SHARED_WRITE_LOCK ) )
+        {
+            cursor.next();
+            return cursor.getCurrentPageId();
+        }
+    }
+}
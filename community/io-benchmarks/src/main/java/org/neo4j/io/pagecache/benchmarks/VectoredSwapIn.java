@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.pagecache.Page;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.PageSwapperFactory;
+import org.neo4j.io.pagecache.impl.CompressingPageSwapperFactory;
+import org.neo4j.io.pagecache.impl.MemoryMappedPageSwapperFactory;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo4j.unsafe.impl.internal.dragons.MemoryManager;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * Measures swapping pages in from a file with each of the page swapper implementations, one page at a time and with
+ * vectored reads of {@link #vectorLength} pages. The compressed swapper reads one compressed slot per page, so
+ * comparing it with the other swappers shows its read amplification, or the lack thereof.
+ * <p>
+ * The benchmark reads through the page swappers directly, so the operating system page cache is the only cache in
+ * play. Drop it between runs to measure the device.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class VectoredSwapIn
+{
+    private static final int PAGE_SIZE = PageCacheState.PAGE_SIZE;
+
+    @State( Scope.Benchmark )
+    public static class SwapperState
+    {
+        @Param( {"single", "mmap", "compressed"} )
+        public String swapper;
+
+        @Param( {"1", "8", "32"} )
+        public int vectorLength;
+
+        @Param( {"16384"} )
+        public int filePages;
+
+        FileSystemAbstraction fs;
+        File directory;
+        PageSwapperFactory swapperFactory;
+        PageSwapper pageSwapper;
+        MemoryManager memoryManager;
+
+        @Setup( Level.Trial )
+        public void setUp() throws IOException
+        {
+            fs = new DefaultFileSystemAbstraction();
+            directory = Files.createTempDirectory( getClass().getSimpleName() ).toFile();
+            File file = new File( directory, "swap-in.db" );
+            swapperFactory = createSwapperFactory( swapper, file.getName() );
+            swapperFactory.setFileSystemAbstraction( fs );
+            memoryManager = new MemoryManager( (long) PAGE_SIZE * (vectorLength + 1) * 64,
+                    swapperFactory.getRequiredBufferAlignment() );
+            pageSwapper = swapperFactory.createPageSwapper( file, PAGE_SIZE, ( pageId, page ) -> {}, true );
+
+            Page page = allocatePage();
+            for ( long pageId = 0; pageId < filePages; pageId++ )
+            {
+                for ( int offset = 0; offset < PAGE_SIZE; offset += Long.BYTES )
+                {
+                    // Half of every page is random and the rest is a repeating pattern, to give the compressing
+                    // swapper some, but not unrealistically much, redundancy to work with.
+                    long value = offset < PAGE_SIZE / 2 ? ThreadLocalRandom.current().nextLong() : pageId;
+                    UnsafeUtil.putLong( page.address() + offset, value );
+                }
+                pageSwapper.write( pageId, page );
+            }
+            pageSwapper.force();
+        }
+
+        @TearDown( Level.Trial )
+        public void tearDown() throws IOException
+        {
+            pageSwapper.close();
+            swapperFactory.close();
+            FileUtils.deleteRecursively( directory );
+        }
+
+        Page allocatePage()
+        {
+            long address = memoryManager.allocateAligned( PAGE_SIZE );
+            return new Page()
+            {
+                @Override
+                public int size()
+                {
+                    return PAGE_SIZE;
+                }
+
+                @Override
+                public long address()
+                {
+                    return address;
+                }
+            };
+        }
+
+        private static PageSwapperFactory createSwapperFactory( String swapper, String fileName )
+        {
+            switch ( swapper )
+            {
+            case "single":
+                return new SingleFilePageSwapperFactory();
+            case "mmap":
+                return new MemoryMappedPageSwapperFactory();
+            case "compressed":
+                return new CompressingPageSwapperFactory(
+                        new SingleFilePageSwapperFactory(), Collections.singleton( fileName ) );
+            default:
+                throw new IllegalArgumentException( "Unknown page swapper: " + swapper );
+            }
+        }
+    }
+
+    @State( Scope.Thread )
+    public static class Buffers
+    {
+        Page[] pages;
+
+        @Setup( Level.Trial )
+        public void allocate( SwapperState state )
+        {
+            pages = new Page[state.vectorLength];
+            for ( int i = 0; i < pages.length; i++ )
+            {
+                pages[i] = state.allocatePage();
+            }
+        }
+    }
+
+    @Benchmark
+    public long pageAtATime( SwapperState state, Buffers buffers ) throws IOException
+    {
+        Page[] pages = buffers.pages;
+        long startPageId = randomStartPageId( state );
+        long bytesRead = 0;
+        for ( int i = 0; i < pages.length; i++ )
+        {
+            bytesRead += state.pageSwapper.read( startPageId + i, pages[i] );
+        }
+        return bytesRead;
+    }
+
+    @Benchmark
+    public long vectored( SwapperState state, Buffers buffers ) throws IOException
+    {
+        Page[] pages = buffers.pages;
+        return state.pageSwapper.read( randomStartPageId( state ), pages, 0, pages.length );
+    }
+
+    private static long randomStartPageId( SwapperState state )
+    {
+        return ThreadLocalRandom.current().nextInt( state.filePages - state.vectorLength + 1 );
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache;
+
+import java.io.IOException;
+import java.util.function.LongConsumer;
+
+/**
+ * Implemented by page caches that can tell which pages of their mapped files are currently in memory, and that can
+ * bring given ranges of pages back into memory in bulk. This is used for persisting the hot set of pages, and for
+ * warming the page cache up again after a restart.
+ */
+public interface PageCacheWarmup
+{
+    /**
+     * Visit the ids of the pages of the given file that are currently in memory, in file order.
+     * <p>
+     * This is done without any locking, so pages that are concurrently faulted in or evicted may or may not be
+     * visited.
+     *
+     * @param pagedFile A file mapped by this page cache.
+     * @param visitor The visitor that will be given the file page ids.
+     */
+    void visitResidentPages( PagedFile pagedFile, LongConsumer visitor );
+
+    /**
+     * Fault the given range of pages of the given file into memory, if they are not already in memory. Consecutive
+     * pages are read with vectored reads. Pages beyond the end of the file are ignored.
+     *
+     * @param pagedFile A file mapped by this page cache.
+     * @param startPageId The id of the first page to load.
+     * @param pageCount The number of pages to load.
+     * @return The number of pages that were actually faulted in.
+     * @throws IOException If reading the pages failed.
+     */
+    long loadPages( PagedFile pagedFile, long startPageId, long pageCount ) throws IOException;
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache;
+
+import java.io.File;
+import java.nio.file.OpenOption;
+
+/**
+ * An {@link OpenOption} for {@link PageCache#map(File, int, OpenOption...)}, that reserves a share of the pages in
+ * the page cache for the mapped file. The pages of the file will not be evicted as long as the file has no more pages
+ * in memory than its reservation, so other files with heavy workloads cannot push the pages of this file out of the
+ * cache.
+ * <p>
+ * Mapping an already mapped file with a reservation will raise the reservation of the existing mapping, if the new
+ * reservation is larger. The reservation is released when the last mapping of the file is closed.
+ */
+public final class PageReservation implements OpenOption
+{
+    private final double ratio;
+
+    private PageReservation( double ratio )
+    {
+        this.ratio = ratio;
+    }
+
+    /**
+     * Reserve the given ratio of the pages in the page cache.
+     *
+     * @param ratio the share of the page cache pages to reserve, a number greater than 0 and at most 1.
+     * @return the open option representing the reservation.
+     */
+    public static PageReservation ratio( double ratio )
+    {
+        if ( !(ratio > 0.0 && ratio <= 1.0) )
+        {
+            throw new IllegalArgumentException(
+                    "The reserved ratio of the page cache must be greater than 0 and at most 1, but was " + ratio );
+        }
+        return new PageReservation( ratio );
+    }
+
+    public double ratio()
+    {
+        return ratio;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        return this == o || o instanceof PageReservation && ((PageReservation) o).ratio == ratio;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Double.hashCode( ratio );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PageReservation[" + ratio + "]";
+    }
+}
@@ -0,0 +1,995 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import org.apache.commons.lang3.SystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.pagecache.Page;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PageEvictionCallback;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static java.lang.String.format;
+
+/**
+ * A PageSwapper that stores the pages of a file individually compressed, trading CPU time for disk space and IO
+ * bandwidth. This is intended for large and mostly cold store files, that compress well, such as the dynamic string
+ * store.
+ * <p>
+ * The pages are compressed with {@link Deflater}, and stored in slots in the data file. The slot sizes are powers of
+ * two, starting at {@link #MIN_SLOT_SIZE}, so pages of similar compressed size can reuse each others slots. Pages that
+ * do not compress are stored uncompressed, and pages that contain only zeros take up no space at all. The page
+ * mapping table, which maps file page ids to slots, is kept in memory, at a cost of 12 bytes per file page, and is
+ * kept in a separate mapping file, with the {@link #MAPPING_FILE_SUFFIX}. The mapping file starts with a snapshot of
+ * the whole table, and when the swapper is forced, only the entries of the pages that were written since the last
+ * force are appended to it, as a checksummed delta. Once the deltas take up more space than a new snapshot would,
+ * the mapping file is replaced with a new snapshot instead.
+ * <p>
+ * Pages are never overwritten in place. Written pages always go into free slots, and the slot previously occupied by
+ * the page is only freed once the mapping table that no longer refers to it, has been forced. The data file and the
+ * mapping file therefor always describe the state of the file as of the last {@link #force()}, even after a crash.
+ * <p>
+ * Reading a compressed page means reading its entire slot and inflating it, even if only a single record is needed.
+ * This read amplification, along with the decompression cost, is the price paid for the compression.
+ */
+public class CompressingPageSwapper implements PageSwapper
+{
+    public static final String MAPPING_FILE_SUFFIX = ".cmap";
+    public static final int MIN_SLOT_SIZE = 256;
+
+    private static final long MAPPING_MAGIC = 0x4E4A434D41505331L; // "NJCMAPS1"
+    private static final int MAPPING_HEADER_SIZE = 8 + 4 + 4 + 4 + 8; // magic, page size, page count, free count, end
+    private static final int MAPPING_ENTRY_SIZE = 8 + 4; // slot offset, length
+    private static final int DELTA_MARKER = 0x44454C54; // "DELT"
+    private static final int DELTA_HEADER_SIZE = 4 + 4 + 4 + 4 + 8; // marker, changed, freed, page count, end
+    private static final int DELTA_ENTRY_SIZE = 4 + 8 + 4; // page id, slot offset, length
+    private static final int DELTA_FREED_SLOT_SIZE = 8; // slot
+    private static final int DELTA_CHECKSUM_SIZE = 8;
+    private static final long NO_SLOT = -1;
+    private static final int compressionLevel =
+            FeatureToggles.getInteger( CompressingPageSwapper.class, "compressionLevel", Deflater.BEST_SPEED );
+
+    private static final ThreadLocal<CompressionBuffers> compressionBuffers =
+            ThreadLocal.withInitial( CompressionBuffers::new );
+
+    /**
+     * The per-thread compression state. The deflaters and inflaters are never explicitly ended, but they are only
+     * allocated once per thread that does IO through a compressing swapper.
+     */
+    private static final class CompressionBuffers
+    {
+        private final Deflater deflater = new Deflater( compressionLevel );
+        private final Inflater inflater = new Inflater();
+        private byte[] uncompressed = new byte[0];
+        private byte[] compressed = new byte[0];
+
+        CompressionBuffers ensureCapacity( int filePageSize )
+        {
+            if ( uncompressed.length < filePageSize )
+            {
+                uncompressed = new byte[filePageSize];
+                compressed = new byte[filePageSize];
+            }
+            return this;
+        }
+    }
+
+    private final FileSystemAbstraction fs;
+    private final File file;
+    private final File mappingFile;
+    private final int filePageSize;
+    private final Object forceLock = new Object();
+    private volatile PageEvictionCallback onEviction;
+    private volatile StoreChannel channel;
+    private FileLock fileLock;
+
+    // Guarded by synchronized(this). See tryReopen() and close().
+    private boolean closed;
+    // Guarded by synchronized(this). Used for avoiding rewriting the mapping file when nothing has changed.
+    private long mappingVersion;
+    // Guarded by forceLock.
+    private long forcedMappingVersion;
+    // Guarded by forceLock. The size of the mapping file, which is where the next delta is appended.
+    private long mappingFileSize;
+
+    // The page mapping table. Guarded by synchronized(this).
+    // A length of zero means the page contains only zeros, and a length of filePageSize means it is uncompressed.
+    private long[] slotOffsets = new long[0];
+    private int[] lengths = new int[0];
+    private int pageCount;
+    private long dataEnd;
+    private final Map<Integer,ArrayDeque<Long>> freeSlots = new HashMap<>();
+    // Slots that are no longer referenced by the in-memory mapping, but may still be referenced by the mapping file.
+    private final List<Long> pendingFreeSlots = new ArrayList<>();
+    // The pages whose mapping entries have changed since they were last captured by force(). Guarded by this.
+    private final BitSet dirtyPages = new BitSet();
+
+    public CompressingPageSwapper(
+            File file,
+            FileSystemAbstraction fs,
+            int filePageSize,
+            PageEvictionCallback onEviction ) throws IOException
+    {
+        this.fs = fs;
+        this.file = file;
+        this.mappingFile = mappingFile( file );
+        this.filePageSize = filePageSize;
+        this.onEviction = onEviction;
+        this.channel = fs.open( file, "rw" );
+        try
+        {
+            acquireLock();
+            loadMapping();
+        }
+        catch ( IOException e )
+        {
+            try
+            {
+                channel.close();
+            }
+            catch ( IOException ce )
+            {
+                e.addSuppressed( ce );
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the mapping file that holds the page mapping table of the given compressed file.
+     */
+    public static File mappingFile( File file )
+    {
+        return new File( file.getPath() + MAPPING_FILE_SUFFIX );
+    }
+
+    private void acquireLock() throws IOException
+    {
+        if ( SystemUtils.IS_OS_WINDOWS )
+        {
+            // See SingleFilePageSwapper.acquireLock() for why we don't lock the store files on Windows.
+            return;
+        }
+
+        try
+        {
+            fileLock = channel.tryLock();
+            if ( fileLock == null )
+            {
+                throw new FileLockException( file );
+            }
+        }
+        catch ( OverlappingFileLockException e )
+        {
+            throw new FileLockException( file, e );
+        }
+    }
+
+    private void loadMapping() throws IOException
+    {
+        if ( !fs.fileExists( mappingFile ) )
+        {
+            if ( channel.size() > 0 )
+            {
+                throw new IOException( format(
+                        "Cannot open %s as a compressed file, because it has no page mapping file %s.",
+                        file, mappingFile ) );
+            }
+            return;
+        }
+
+        long fileSize = fs.getFileSize( mappingFile );
+        ByteBuffer buffer = ByteBuffer.allocate( (int) fileSize );
+        try ( StoreChannel mappingChannel = fs.open( mappingFile, "r" ) )
+        {
+            while ( buffer.hasRemaining() && mappingChannel.read( buffer ) != -1 )
+            {
+                // Keep reading until the buffer is full.
+            }
+        }
+        buffer.flip();
+        if ( buffer.remaining() < MAPPING_HEADER_SIZE || buffer.getLong() != MAPPING_MAGIC )
+        {
+            throw new IOException( "Not a compressed page mapping file: " + mappingFile );
+        }
+        int mappedFilePageSize = buffer.getInt();
+        if ( mappedFilePageSize != filePageSize )
+        {
+            throw new IOException( format(
+                    "Cannot open compressed file %s with a file page size of %s, because it was created with a file " +
+                    "page size of %s.", file, filePageSize, mappedFilePageSize ) );
+        }
+        pageCount = buffer.getInt();
+        int freeSlotCount = buffer.getInt();
+        dataEnd = buffer.getLong();
+        slotOffsets = new long[pageCount];
+        lengths = new int[pageCount];
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            slotOffsets[i] = buffer.getLong();
+            lengths[i] = buffer.getInt();
+        }
+        Set<Long> free = new LinkedHashSet<>();
+        for ( int i = 0; i < freeSlotCount; i++ )
+        {
+            long slotOffset = buffer.getLong();
+            free.add( slot( slotOffset, buffer.getInt() ) );
+        }
+        mappingFileSize = buffer.position();
+        while ( applyDelta( buffer, free ) )
+        {
+            mappingFileSize = buffer.position();
+        }
+        if ( mappingFileSize < fileSize )
+        {
+            // The last delta was torn by a crash, before the force that appended it completed. It is cut off, so
+            // the next delta is appended right after the last complete one.
+            try ( StoreChannel mappingChannel = fs.open( mappingFile, "rw" ) )
+            {
+                mappingChannel.truncate( mappingFileSize );
+            }
+        }
+        for ( Long slot : free )
+        {
+            freeSlotsOfSize( slotSizeOf( slot ) ).push( slotOffsetOf( slot ) );
+        }
+    }
+
+    /**
+     * Applies the delta at the position of the given buffer to the mapping table and the given set of free slots.
+     *
+     * @return {@code true} if a complete delta was applied, or {@code false} if there are no more deltas, or the
+     * remaining bytes are not a complete delta, in which case the buffer position is undefined.
+     */
+    private boolean applyDelta( ByteBuffer buffer, Set<Long> free )
+    {
+        int start = buffer.position();
+        if ( buffer.remaining() < DELTA_HEADER_SIZE || buffer.getInt() != DELTA_MARKER )
+        {
+            return false;
+        }
+        int changedCount = buffer.getInt();
+        int freedCount = buffer.getInt();
+        if ( changedCount < 0 || freedCount < 0 ||
+             buffer.limit() - start < deltaSize( (long) changedCount, freedCount ) )
+        {
+            return false;
+        }
+        int checksumOffset = start + (int) deltaSize( changedCount, freedCount ) - DELTA_CHECKSUM_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update( buffer.array(), start, checksumOffset - start );
+        if ( crc.getValue() != buffer.getLong( checksumOffset ) )
+        {
+            return false;
+        }
+
+        int newPageCount = buffer.getInt();
+        if ( newPageCount > slotOffsets.length )
+        {
+            slotOffsets = Arrays.copyOf( slotOffsets, newPageCount );
+            lengths = Arrays.copyOf( lengths, newPageCount );
+        }
+        pageCount = newPageCount;
+        dataEnd = buffer.getLong();
+        for ( int i = 0; i < changedCount; i++ )
+        {
+            int pageIndex = buffer.getInt();
+            long slotOffset = buffer.getLong();
+            int length = buffer.getInt();
+            slotOffsets[pageIndex] = slotOffset;
+            lengths[pageIndex] = length;
+            if ( length > 0 )
+            {
+                // The slot may have been allocated from the free slots since they were written.
+                free.remove( slot( slotOffset, slotSize( length ) ) );
+            }
+        }
+        for ( int i = 0; i < freedCount; i++ )
+        {
+            free.add( buffer.getLong() );
+        }
+        buffer.position( checksumOffset + DELTA_CHECKSUM_SIZE );
+        return true;
+    }
+
+    private static long deltaSize( long changedCount, int freedCount )
+    {
+        return DELTA_HEADER_SIZE + changedCount * DELTA_ENTRY_SIZE + freedCount * (long) DELTA_FREED_SLOT_SIZE +
+               DELTA_CHECKSUM_SIZE;
+    }
+
+    private int freeSlotCount()
+    {
+        int freeSlotCount = pendingFreeSlots.size();
+        for ( ArrayDeque<Long> slots : freeSlots.values() )
+        {
+            freeSlotCount += slots.size();
+        }
+        return freeSlotCount;
+    }
+
+    private long mappingSize()
+    {
+        return MAPPING_HEADER_SIZE + (pageCount + (long) freeSlotCount()) * MAPPING_ENTRY_SIZE;
+    }
+
+    private ByteBuffer serializeMapping()
+    {
+        int freeSlotCount = freeSlotCount();
+        ByteBuffer buffer = ByteBuffer.allocate(
+                MAPPING_HEADER_SIZE + (pageCount + freeSlotCount) * MAPPING_ENTRY_SIZE );
+        buffer.putLong( MAPPING_MAGIC );
+        buffer.putInt( filePageSize );
+        buffer.putInt( pageCount );
+        buffer.putInt( freeSlotCount );
+        buffer.putLong( dataEnd );
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            buffer.putLong( slotOffsets[i] );
+            buffer.putInt( lengths[i] );
+        }
+        for ( Map.Entry<Integer,ArrayDeque<Long>> entry : freeSlots.entrySet() )
+        {
+            for ( Long slotOffset : entry.getValue() )
+            {
+                buffer.putLong( slotOffset );
+                buffer.putInt( entry.getKey() );
+            }
+        }
+        for ( Long slot : pendingFreeSlots )
+        {
+            buffer.putLong( slotOffsetOf( slot ) );
+            buffer.putInt( slotSizeOf( slot ) );
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Serializes the mapping entries of the given pages, and the first given number of pending free slots, which
+     * the mapping no longer refers to, as a delta to append to the mapping file.
+     */
+    private ByteBuffer serializeDelta( BitSet changedPages, int freedCount )
+    {
+        int changedCount = changedPages.cardinality();
+        ByteBuffer buffer = ByteBuffer.allocate( (int) deltaSize( changedCount, freedCount ) );
+        buffer.putInt( DELTA_MARKER );
+        buffer.putInt( changedCount );
+        buffer.putInt( freedCount );
+        buffer.putInt( pageCount );
+        buffer.putLong( dataEnd );
+        for ( int i = changedPages.nextSetBit( 0 ); i >= 0; i = changedPages.nextSetBit( i + 1 ) )
+        {
+            buffer.putInt( i );
+            buffer.putLong( slotOffsets[i] );
+            buffer.putInt( lengths[i] );
+        }
+        for ( int i = 0; i < freedCount; i++ )
+        {
+            buffer.putLong( pendingFreeSlots.get( i ) );
+        }
+        CRC32 crc = new CRC32();
+        crc.update( buffer.array(), 0, buffer.position() );
+        buffer.putLong( crc.getValue() );
+        buffer.flip();
+        return buffer;
+    }
+
+    private void appendToMappingFile( ByteBuffer delta ) throws IOException
+    {
+        // Like writeMappingFile, this cannot be retried, so we don't let interrupts close the channel.
+        boolean interrupted = Thread.interrupted();
+        long size = delta.remaining();
+        try ( StoreChannel mappingChannel = fs.open( mappingFile, "rw" ) )
+        {
+            mappingChannel.writeAll( delta, mappingFileSize );
+            mappingChannel.force( false );
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        mappingFileSize += size;
+    }
+
+    private void writeMappingFile( ByteBuffer mapping ) throws IOException
+    {
+        long size = mapping.remaining();
+        // Writing the mapping file cannot be retried the way our data IO can, so we don't let interrupts close it.
+        boolean interrupted = Thread.interrupted();
+        File tempFile = new File( mappingFile.getPath() + ".tmp" );
+        try ( StoreChannel mappingChannel = fs.open( tempFile, "rw" ) )
+        {
+            mappingChannel.truncate( 0 );
+            mappingChannel.writeAll( mapping, 0 );
+            mappingChannel.force( true );
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        fs.renameFile( tempFile, mappingFile, StandardCopyOption.REPLACE_EXISTING );
+        mappingFileSize = size;
+    }
+
+    private int slotSize( int length )
+    {
+        int size = MIN_SLOT_SIZE;
+        while ( size < length )
+        {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    // Slot offsets are always multiples of MIN_SLOT_SIZE, so the low bits are free to hold the size class of the slot.
+    private static long slot( long slotOffset, int slotSize )
+    {
+        return slotOffset | Integer.numberOfTrailingZeros( slotSize );
+    }
+
+    private static long slotOffsetOf( long slot )
+    {
+        return slot & ~(MIN_SLOT_SIZE - 1);
+    }
+
+    private static int slotSizeOf( long slot )
+    {
+        return 1 << (int) (slot & (MIN_SLOT_SIZE - 1));
+    }
+
+    private ArrayDeque<Long> freeSlotsOfSize( int slotSize )
+    {
+        return freeSlots.computeIfAbsent( slotSize, size -> new ArrayDeque<>() );
+    }
+
+    private synchronized long allocateSlot( int slotSize ) throws ClosedChannelException
+    {
+        checkNotClosed();
+        ArrayDeque<Long> slots = freeSlots.get( slotSize );
+        if ( slots != null && !slots.isEmpty() )
+        {
+            return slots.pop();
+        }
+        long slotOffset = dataEnd;
+        dataEnd += slotSize;
+        return slotOffset;
+    }
+
+    private synchronized void updateMapping( int pageIndex, long slotOffset, int length )
+            throws ClosedChannelException
+    {
+        checkNotClosed();
+        if ( pageIndex >= slotOffsets.length )
+        {
+            int newCapacity = Math.max( pageIndex + 1, slotOffsets.length * 2 );
+            slotOffsets = Arrays.copyOf( slotOffsets, newCapacity );
+            lengths = Arrays.copyOf( lengths, newCapacity );
+        }
+        if ( pageIndex < pageCount && lengths[pageIndex] > 0 )
+        {
+            pendingFreeSlots.add( slot( slotOffsets[pageIndex], slotSize( lengths[pageIndex] ) ) );
+        }
+        slotOffsets[pageIndex] = slotOffset;
+        lengths[pageIndex] = length;
+        pageCount = Math.max( pageCount, pageIndex + 1 );
+        dirtyPages.set( pageIndex );
+        mappingVersion++;
+    }
+
+    private void checkNotClosed() throws ClosedChannelException
+    {
+        if ( closed )
+        {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private void checkFilePageId( long filePageId ) throws IOException
+    {
+        if ( filePageId < 0 || filePageId >= Integer.MAX_VALUE )
+        {
+            throw new IOException( format(
+                    "Page id %s is out of range for compressed file %s.", filePageId, file ) );
+        }
+    }
+
+    private ByteBuffer proxy( Page page ) throws IOException
+    {
+        long address = page.address();
+        try
+        {
+            return UnsafeUtil.newDirectByteBuffer( address, filePageSize );
+        }
+        catch ( Exception e )
+        {
+            throw new IOException( e );
+        }
+    }
+
+    private int compress( CompressionBuffers buffers )
+    {
+        byte[] uncompressed = buffers.uncompressed;
+        int index = 0;
+        while ( index < filePageSize && uncompressed[index] == 0 )
+        {
+            index++;
+        }
+        if ( index == filePageSize )
+        {
+            return 0;
+        }
+
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        deflater.setInput( uncompressed, 0, filePageSize );
+        deflater.finish();
+        int length = deflater.deflate( buffers.compressed, 0, filePageSize );
+        return deflater.finished() && length < filePageSize ? length : filePageSize;
+    }
+
+    private void decompress( CompressionBuffers buffers, int length, long filePageId ) throws IOException
+    {
+        Inflater inflater = buffers.inflater;
+        inflater.reset();
+        inflater.setInput( buffers.compressed, 0, length );
+        try
+        {
+            if ( inflater.inflate( buffers.uncompressed, 0, filePageSize ) == filePageSize && inflater.finished() )
+            {
+                return;
+            }
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( format( "Page %s of compressed file %s is corrupt.", filePageId, file ), e );
+        }
+        throw new IOException( format( "Page %s of compressed file %s is corrupt.", filePageId, file ) );
+    }
+
+    private void readSlot( ByteBuffer buffer, long slotOffset ) throws IOException
+    {
+        int startPosition = buffer.position();
+        try
+        {
+            while ( buffer.hasRemaining() )
+            {
+                if ( channel.read( buffer, slotOffset + buffer.position() - startPosition ) == -1 )
+                {
+                    throw new IOException( format(
+                            "Unexpected end of compressed file %s, at offset %s.", file, slotOffset ) );
+                }
+            }
+        }
+        catch ( ClosedChannelException e )
+        {
+            // AsynchronousCloseException is a subclass of
+            // ClosedChannelException, and ClosedByInterruptException is in
+            // turn a subclass of AsynchronousCloseException.
+            tryReopen( e );
+            boolean interrupted = Thread.interrupted();
+            // Recurse because this is hopefully a very rare occurrence.
+            buffer.position( startPosition );
+            readSlot( buffer, slotOffset );
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void writeSlot( ByteBuffer buffer, long slotOffset ) throws IOException
+    {
+        int startPosition = buffer.position();
+        try
+        {
+            channel.writeAll( buffer, slotOffset );
+        }
+        catch ( ClosedChannelException e )
+        {
+            tryReopen( e );
+            boolean interrupted = Thread.interrupted();
+            buffer.position( startPosition );
+            writeSlot( buffer, slotOffset );
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public long read( long filePageId, Page page ) throws IOException
+    {
+        checkFilePageId( filePageId );
+        long slotOffset;
+        int length;
+        synchronized ( this )
+        {
+            checkNotClosed();
+            if ( filePageId >= pageCount )
+            {
+                UnsafeUtil.setMemory( page.address(), page.size(), MuninnPageCache.ZERO_BYTE );
+                return 0;
+            }
+            slotOffset = slotOffsets[(int) filePageId];
+            length = lengths[(int) filePageId];
+        }
+
+        if ( length == 0 )
+        {
+            UnsafeUtil.setMemory( page.address(), filePageSize, MuninnPageCache.ZERO_BYTE );
+            return filePageSize;
+        }
+        CompressionBuffers buffers = compressionBuffers.get().ensureCapacity( filePageSize );
+        if ( length == filePageSize )
+        {
+            readSlot( ByteBuffer.wrap( buffers.uncompressed, 0, filePageSize ), slotOffset );
+        }
+        else
+        {
+            readSlot( ByteBuffer.wrap( buffers.compressed, 0, length ), slotOffset );
+            decompress( buffers, length, filePageId );
+        }
+        proxy( page ).put( buffers.uncompressed, 0, filePageSize );
+        return filePageSize;
+    }
+
+    @Override
+    public long read( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException
+    {
+        long bytesRead = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            bytesRead += read( startFilePageId + i, pages[arrayOffset + i] );
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public long write( long filePageId, Page page ) throws IOException
+    {
+        checkFilePageId( filePageId );
+        CompressionBuffers buffers = compressionBuffers.get().ensureCapacity( filePageSize );
+        proxy( page ).get( buffers.uncompressed, 0, filePageSize );
+        int length = compress( buffers );
+        long slotOffset = NO_SLOT;
+        if ( length > 0 )
+        {
+            // The slot is not referenced by the mapping until the write has completed, so a concurrent force() will
+            // not make it durable until the data it refers to has been forced as well.
+            slotOffset = allocateSlot( slotSize( length ) );
+            byte[] data = length == filePageSize ? buffers.uncompressed : buffers.compressed;
+            writeSlot( ByteBuffer.wrap( data, 0, length ), slotOffset );
+        }
+        updateMapping( (int) filePageId, slotOffset, length );
+        return filePageSize;
+    }
+
+    @Override
+    public long write( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException
+    {
+        long bytesWritten = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            bytesWritten += write( startFilePageId + i, pages[arrayOffset + i] );
+        }
+        return bytesWritten;
+    }
+
+    @Override
+    public void evicted( long filePageId, Page page )
+    {
+        PageEvictionCallback callback = this.onEviction;
+        if ( callback != null )
+        {
+            callback.onEvict( filePageId, page );
+        }
+    }
+
+    @Override
+    public File file()
+    {
+        return file;
+    }
+
+    /**
+     * Reopens the channel if it has been closed and the close() method on this swapper has not been called, for
+     * instance if the channel has been closed by an interrupt. Otherwise the passed-in exception is re-thrown.
+     *
+     * @see SingleFilePageSwapper
+     */
+    private synchronized void tryReopen( ClosedChannelException closedException ) throws ClosedChannelException
+    {
+        if ( channel.isOpen() )
+        {
+            // Someone got ahead of us, presumably. Nothing to do.
+            return;
+        }
+
+        if ( closed )
+        {
+            // We've been explicitly closed, so we shouldn't reopen the channel.
+            throw closedException;
+        }
+
+        try
+        {
+            channel = fs.open( file, "rw" );
+            // The closing of a FileChannel also releases all associated file locks.
+            acquireLock();
+        }
+        catch ( IOException e )
+        {
+            closedException.addSuppressed( e );
+            throw closedException;
+        }
+    }
+
+    /**
+     * Closes the swapper, after forcing any changes to the mapping table, since the mapping table would otherwise be
+     * lost.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized ( forceLock )
+        {
+            try
+            {
+                if ( hasUnforcedMappingChanges() )
+                {
+                    force();
+                }
+            }
+            finally
+            {
+                synchronized ( this )
+                {
+                    closed = true;
+                    try
+                    {
+                        channel.close();
+                    }
+                    finally
+                    {
+                        // Eagerly relinquish our reference to the onEviction callback. See SingleFilePageSwapper.
+                        onEviction = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized boolean hasUnforcedMappingChanges()
+    {
+        return !closed && mappingVersion != forcedMappingVersion;
+    }
+
+    @Override
+    public void closeAndDelete() throws IOException
+    {
+        synchronized ( forceLock )
+        {
+            synchronized ( this )
+            {
+                // There is no point in forcing the mapping of a file we are about to delete.
+                forcedMappingVersion = mappingVersion;
+            }
+            close();
+            fs.deleteFile( file );
+            fs.deleteFile( mappingFile );
+        }
+    }
+
+    /**
+     * Forces the data file, and then appends and forces the changes to the mapping table, if it has changed. The
+     * mapping is captured before the data file is forced, so it only refers to slots whose writes have been forced.
+     * The whole mapping table is only written when there is no mapping file yet, or when the deltas in the mapping
+     * file would otherwise grow larger than the table itself.
+     */
+    @Override
+    public void force() throws IOException
+    {
+        synchronized ( forceLock )
+        {
+            ByteBuffer mapping = null;
+            boolean delta = false;
+            BitSet changedPages = null;
+            long version;
+            int releasableSlots;
+            synchronized ( this )
+            {
+                version = mappingVersion;
+                releasableSlots = pendingFreeSlots.size();
+                if ( version != forcedMappingVersion )
+                {
+                    changedPages = (BitSet) dirtyPages.clone();
+                    dirtyPages.clear();
+                    long deltaSize = deltaSize( changedPages.cardinality(), releasableSlots );
+                    delta = mappingFileSize > 0 && mappingFileSize + deltaSize <= 2 * mappingSize();
+                    mapping = delta ? serializeDelta( changedPages, releasableSlots ) : serializeMapping();
+                }
+            }
+            try
+            {
+                forceData();
+                if ( mapping == null )
+                {
+                    return;
+                }
+                if ( delta )
+                {
+                    appendToMappingFile( mapping );
+                }
+                else
+                {
+                    writeMappingFile( mapping );
+                }
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                if ( changedPages != null )
+                {
+                    // The next force must include the changes that did not make it into the mapping file.
+                    synchronized ( this )
+                    {
+                        dirtyPages.or( changedPages );
+                    }
+                }
+                throw e;
+            }
+            forcedMappingVersion = version;
+            synchronized ( this )
+            {
+                List<Long> released = pendingFreeSlots.subList( 0, releasableSlots );
+                for ( Long slot : released )
+                {
+                    freeSlotsOfSize( slotSizeOf( slot ) ).push( slotOffsetOf( slot ) );
+                }
+                released.clear();
+            }
+        }
+    }
+
+    private void forceData() throws IOException
+    {
+        try
+        {
+            channel.force( false );
+        }
+        catch ( ClosedChannelException e )
+        {
+            tryReopen( e );
+            boolean interrupted = Thread.interrupted();
+            forceData();
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public synchronized long getLastPageId() throws IOException
+    {
+        return pageCount == 0 ? PageCursor.UNBOUND_PAGE_ID : pageCount - 1;
+    }
+
+    @Override
+    public void truncate() throws IOException
+    {
+        synchronized ( forceLock )
+        {
+            ByteBuffer mapping;
+            synchronized ( this )
+            {
+                slotOffsets = new long[0];
+                lengths = new int[0];
+                pageCount = 0;
+                dataEnd = 0;
+                freeSlots.clear();
+                pendingFreeSlots.clear();
+                dirtyPages.clear();
+                mapping = serializeMapping();
+                forcedMappingVersion = ++mappingVersion;
+            }
+            // The empty mapping must be durable before the data it used to refer to is gone.
+            writeMappingFile( mapping );
+            truncateData();
+        }
+    }
+
+    private void truncateData() throws IOException
+    {
+        try
+        {
+            channel.truncate( 0 );
+        }
+        catch ( ClosedChannelException e )
+        {
+            tryReopen( e );
+            boolean interrupted = Thread.interrupted();
+            truncateData();
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        return file.equals( ((CompressingPageSwapper) o).file );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return file.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompressingPageSwapper{filePageSize=" + filePageSize + ", file=" + file + "}";
+    }
+}
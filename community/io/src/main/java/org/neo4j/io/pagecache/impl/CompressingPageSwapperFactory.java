@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.FileHandle;
+import org.neo4j.io.pagecache.PageEvictionCallback;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.PageSwapperFactory;
+
+/**
+ * A PageSwapperFactory that creates {@link CompressingPageSwapper} instances for files with the configured names, and
+ * delegates everything else to another PageSwapperFactory.
+ * <p>
+ * Only files that are either new, empty, or already compressed, are opened as compressed files. Existing uncompressed
+ * files are left to the delegate, so they keep working as before, and files are never converted in place.
+ * <p>
+ * The page mapping files of compressed files are hidden from {@link #streamFilesRecursive(File)}. Instead, the file
+ * handles of the compressed files move and delete their page mapping files along with their data files.
+ *
+ * @see org.neo4j.io.pagecache.impl.CompressingPageSwapper
+ */
+public class CompressingPageSwapperFactory implements PageSwapperFactory
+{
+    private final PageSwapperFactory delegate;
+    private final Set<String> compressedFileNames;
+    private FileSystemAbstraction fs;
+
+    public CompressingPageSwapperFactory( PageSwapperFactory delegate, Collection<String> compressedFileNames )
+    {
+        this.delegate = delegate;
+        this.compressedFileNames = new HashSet<>( compressedFileNames );
+    }
+
+    @Override
+    public void setFileSystemAbstraction( FileSystemAbstraction fs )
+    {
+        this.fs = fs;
+        delegate.setFileSystemAbstraction( fs );
+    }
+
+    @Override
+    public String implementationName()
+    {
+        return "compressing";
+    }
+
+    @Override
+    public int getCachePageSizeHint()
+    {
+        return delegate.getCachePageSizeHint();
+    }
+
+    @Override
+    public boolean isCachePageSizeHintStrict()
+    {
+        return delegate.isCachePageSizeHintStrict();
+    }
+
+    @Override
+    public long getRequiredBufferAlignment()
+    {
+        return delegate.getRequiredBufferAlignment();
+    }
+
+    @Override
+    public PageSwapper createPageSwapper(
+            File file,
+            int filePageSize,
+            PageEvictionCallback onEviction,
+            boolean createIfNotExist ) throws IOException
+    {
+        if ( compressedFileNames.contains( file.getName() ) )
+        {
+            boolean exists = fs.fileExists( file );
+            if ( fs.fileExists( CompressingPageSwapper.mappingFile( file ) ) ||
+                 (exists && fs.getFileSize( file ) == 0) || (!exists && createIfNotExist) )
+            {
+                if ( !exists )
+                {
+                    fs.create( file ).close();
+                }
+                return new CompressingPageSwapper( file, fs, filePageSize, onEviction );
+            }
+        }
+        return delegate.createPageSwapper( file, filePageSize, onEviction, createIfNotExist );
+    }
+
+    @Override
+    public void syncDevice() throws IOException
+    {
+        delegate.syncDevice();
+    }
+
+    @Override
+    public Stream<FileHandle> streamFilesRecursive( File directory ) throws IOException
+    {
+        return delegate.streamFilesRecursive( directory )
+                       .filter( handle -> !isMappingFile( handle.getFile() ) )
+                       .map( CompressedFileHandle::new );
+    }
+
+    private boolean isMappingFile( File file )
+    {
+        String path = file.getPath();
+        return path.endsWith( CompressingPageSwapper.MAPPING_FILE_SUFFIX ) && fs.fileExists( new File(
+                path.substring( 0, path.length() - CompressingPageSwapper.MAPPING_FILE_SUFFIX.length() ) ) );
+    }
+
+    private class CompressedFileHandle implements FileHandle
+    {
+        private final FileHandle delegate;
+
+        CompressedFileHandle( FileHandle delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public File getFile()
+        {
+            return delegate.getFile();
+        }
+
+        @Override
+        public void rename( File to, CopyOption... options ) throws IOException
+        {
+            File mappingFile = CompressingPageSwapper.mappingFile( getFile() );
+            File targetMappingFile = CompressingPageSwapper.mappingFile( to );
+            if ( fs.fileExists( mappingFile ) )
+            {
+                fs.mkdirs( to.getParentFile() );
+                fs.renameFile( mappingFile, targetMappingFile, options );
+                delegate.rename( to, options );
+            }
+            else
+            {
+                delegate.rename( to, options );
+                // The target may have been a compressed file, that was replaced by an uncompressed one.
+                fs.deleteFile( targetMappingFile );
+            }
+        }
+
+        @Override
+        public void delete() throws IOException
+        {
+            File mappingFile = CompressingPageSwapper.mappingFile( getFile() );
+            delegate.delete();
+            fs.deleteFile( mappingFile );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import sun.nio.ch.DirectBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.fs.StoreFileChannel;
+import org.neo4j.io.fs.StoreFileChannelUnwrapper;
+import org.neo4j.io.pagecache.Page;
+import org.neo4j.io.pagecache.PageEvictionCallback;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * A {@link SingleFilePageSwapper} that serves page faults by copying from read-only memory mapped segments of the
+ * file, instead of issuing a read system call per page fault. This is intended for read-mostly stores, where most of
+ * the file is already in the OS page cache.
+ * <p>
+ * The file is mapped in segments of a whole number of pages. A segment is mapped the first time a page within it is
+ * read, if the file is large enough to contain the whole segment. Pages in the incomplete tail segment of the file
+ * are read through the file channel, as are all reads if the file system does not give us real file channels.
+ * Writes always go through the file channel, which is coherent with the mappings on the platforms we support.
+ * <p>
+ * The mappings are never explicitly unmapped, since a concurrent page fault could then touch unmapped memory.
+ * They are instead released when they are garbage collected, after the swapper has been closed or truncated.
+ */
+public class MemoryMappedPageSwapper extends SingleFilePageSwapper
+{
+    private static final MappedByteBuffer[] NO_SEGMENTS = new MappedByteBuffer[0];
+
+    private final int filePageSize;
+    private final int pagesPerSegment;
+    private final long segmentSize;
+    private final StoreChannel mappingChannel;
+    // The segments are only ever replaced or nulled out, while synchronized on this swapper.
+    private volatile MappedByteBuffer[] segments = NO_SEGMENTS;
+
+    public MemoryMappedPageSwapper(
+            File file,
+            FileSystemAbstraction fs,
+            int filePageSize,
+            PageEvictionCallback onEviction,
+            long maxSegmentSize ) throws IOException
+    {
+        super( file, fs, filePageSize, onEviction );
+        this.filePageSize = filePageSize;
+        this.pagesPerSegment = (int) Math.max( 1, Math.min( maxSegmentSize, Integer.MAX_VALUE ) / filePageSize );
+        this.segmentSize = pagesPerSegment * (long) filePageSize;
+        StoreChannel channel = fs.open( file, "r" );
+        if ( channel.getClass() == StoreFileChannel.class )
+        {
+            mappingChannel = channel;
+        }
+        else
+        {
+            // We cannot map files from this file system, so all reads will go through the file channels instead.
+            channel.close();
+            mappingChannel = null;
+        }
+    }
+
+    @Override
+    public long read( long filePageId, Page page ) throws IOException
+    {
+        MappedByteBuffer segment = segment( filePageId );
+        if ( segment == null )
+        {
+            return super.read( filePageId, page );
+        }
+        long offset = (filePageId % pagesPerSegment) * filePageSize;
+        UnsafeUtil.copyMemory( ((DirectBuffer) segment).address() + offset, page.address(), filePageSize );
+        return filePageSize;
+    }
+
+    @Override
+    public long read( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException
+    {
+        if ( segment( startFilePageId ) == null )
+        {
+            return super.read( startFilePageId, pages, arrayOffset, length );
+        }
+        long bytesRead = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            bytesRead += read( startFilePageId + i, pages[arrayOffset + i] );
+        }
+        return bytesRead;
+    }
+
+    private MappedByteBuffer segment( long filePageId ) throws IOException
+    {
+        if ( mappingChannel == null )
+        {
+            return null;
+        }
+        long segmentId = filePageId / pagesPerSegment;
+        MappedByteBuffer[] segments = this.segments;
+        if ( segmentId < segments.length && segments[(int) segmentId] != null )
+        {
+            return segments[(int) segmentId];
+        }
+        // Only bother mapping the segment if the file looks like it is big enough to contain all of it.
+        long segmentEnd = (segmentId + 1) * segmentSize;
+        if ( segmentId >= Integer.MAX_VALUE || (getLastPageId() + 1) * filePageSize < segmentEnd )
+        {
+            return null;
+        }
+        return mapSegment( (int) segmentId, segmentEnd );
+    }
+
+    private synchronized MappedByteBuffer mapSegment( int segmentId, long segmentEnd ) throws IOException
+    {
+        MappedByteBuffer[] segments = this.segments;
+        if ( segmentId < segments.length && segments[segmentId] != null )
+        {
+            return segments[segmentId];
+        }
+        MappedByteBuffer segment;
+        try
+        {
+            FileChannel channel = StoreFileChannelUnwrapper.unwrap( mappingChannel );
+            if ( channel.size() < segmentEnd )
+            {
+                // The file size we track include writes that are still in flight.
+                return null;
+            }
+            segment = channel.map( FileChannel.MapMode.READ_ONLY, segmentEnd - segmentSize, segmentSize );
+        }
+        catch ( ClosedChannelException e )
+        {
+            // The swapper has been closed, or we got interrupted. Either way, the channel read path knows what to do.
+            return null;
+        }
+        if ( segmentId >= segments.length )
+        {
+            segments = Arrays.copyOf( segments, segmentId + 1 );
+        }
+        else
+        {
+            segments = segments.clone();
+        }
+        segments[segmentId] = segment;
+        this.segments = segments;
+        return segment;
+    }
+
+    @Override
+    public synchronized void truncate() throws IOException
+    {
+        segments = NO_SEGMENTS;
+        super.truncate();
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        segments = NO_SEGMENTS;
+        try
+        {
+            if ( mappingChannel != null )
+            {
+                mappingChannel.close();
+            }
+        }
+        finally
+        {
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageEvictionCallback;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
+
+/**
+ * A factory for MemoryMappedPageSwapper instances.
+ *
+ * @see org.neo4j.io.pagecache.impl.MemoryMappedPageSwapper
+ */
+public class MemoryMappedPageSwapperFactory extends SingleFilePageSwapperFactory
+{
+    private static final long DEFAULT_SEGMENT_SIZE =
+            FeatureToggles.getInteger( MemoryMappedPageSwapperFactory.class, "segmentSizeMiB", 64 ) * 1024L * 1024L;
+
+    private final long segmentSize;
+
+    public MemoryMappedPageSwapperFactory()
+    {
+        this( DEFAULT_SEGMENT_SIZE );
+    }
+
+    public MemoryMappedPageSwapperFactory( long segmentSize )
+    {
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    protected PageSwapper createPageSwapper(
+            File file,
+            FileSystemAbstraction fs,
+            int filePageSize,
+            PageEvictionCallback onEviction ) throws IOException
+    {
+        return new MemoryMappedPageSwapper( file, fs, filePageSize, onEviction, segmentSize );
+    }
+
+    @Override
+    public String implementationName()
+    {
+        return "mmap";
+    }
+}
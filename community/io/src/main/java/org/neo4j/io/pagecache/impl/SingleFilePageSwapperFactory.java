@@ -68,6 +68,19 @@ public class SingleFilePageSwapperFactory implements PageSwapperFactory
                 throw new NoSuchFileException( file.getPath(), null, "Cannot map non-existing file" );
             }
         }
+        return createPageSwapper( file, fs, filePageSize, onEviction );
+    }
+
+    /**
+     * Create the PageSwapper for the given existing file. Sub-classes can override this to provide specialised
+     * PageSwapper implementations, while reusing the rest of this factory.
+     */
+    protected PageSwapper createPageSwapper(
+            File file,
+            FileSystemAbstraction fs,
+            int filePageSize,
+            PageEvictionCallback onEviction ) throws IOException
+    {
         return new SingleFilePageSwapper( file, fs, filePageSize, onEviction );
     }
 
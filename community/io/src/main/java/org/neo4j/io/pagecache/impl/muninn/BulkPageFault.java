@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import java.io.IOException;
+
+import org.neo4j.concurrent.BinaryLatch;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+import org.neo4j.io.pagecache.tracing.PageFaultEvent;
+import org.neo4j.io.pagecache.tracing.PinEvent;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * Faults a range of pages of a file into memory in bulk, on behalf of read-ahead and page cache warmup.
+ * <p>
+ * Pages that are already in memory, or are concurrently being faulted in by other threads, are skipped. The runs of
+ * consecutive pages in between are read with a single vectored read each. The pages are published in the translation
+ * table exactly as if they had been faulted in by a page cursor, except they are only accounted for as faulted, and
+ * not as accessed, by the {@link EvictionPolicy}, such that pages that are faulted in this way but never pinned will
+ * be among the first to be evicted.
+ * <p>
+ * The pages of a run are kept exclusively locked until the whole run has been read in, so the range must be small
+ * compared to the size of the page cache.
+ */
+final class BulkPageFault
+{
+    private final MuninnPagedFile pagedFile;
+    private final PageCacheTracer tracer;
+    private final PageSwapper swapper;
+    private final long startPageId;
+    private final int pageCount;
+    private final MuninnPage[] pages;
+    private final BinaryLatch[] latches;
+    private final PinEvent[] pinEvents;
+    private final PageFaultEvent[] faultEvents;
+    private Object[][] translationTable;
+    private long runStartPageId;
+    private int runLength;
+    private int pagesFaulted;
+
+    /**
+     * @param tracer The tracer to report the faults to. Read-ahead passes {@link PageCacheTracer#NULL}, since its
+     * faults are not pins of any cursor, and the pages are counted as hits when the cursor eventually pins them.
+     */
+    BulkPageFault( MuninnPagedFile pagedFile, long startPageId, int pageCount, PageCacheTracer tracer )
+    {
+        this.pagedFile = pagedFile;
+        this.tracer = tracer;
+        this.swapper = pagedFile.swapper;
+        this.startPageId = startPageId;
+        this.pageCount = pageCount;
+        this.pages = new MuninnPage[pageCount];
+        this.latches = new BinaryLatch[pageCount];
+        this.pinEvents = new PinEvent[pageCount];
+        this.faultEvents = new PageFaultEvent[pageCount];
+    }
+
+    /**
+     * Fault in the pages of the range that are not already in memory. Pages beyond the end of the file are ignored.
+     *
+     * @param evictionPolicy The eviction policy to account the faulted pages to.
+     * @return The number of pages that were faulted in.
+     * @throws IOException If reading the pages failed. The run of pages that failed is released again, but the
+     * runs that were already read in, stay in memory.
+     * @throws IllegalStateException If the file has been unmapped.
+     */
+    int fault( EvictionPolicy evictionPolicy ) throws IOException
+    {
+        // This throws if the file has been unmapped.
+        long lastPageId = pagedFile.getLastPageId();
+        long endPageId = Math.min( startPageId + pageCount, lastPageId + 1 );
+        if ( endPageId <= startPageId )
+        {
+            return 0;
+        }
+        translationTable = pagedFile.translationTable;
+        int maxChunkId = MuninnPagedFile.computeChunkId( endPageId - 1 );
+        if ( translationTable.length <= maxChunkId )
+        {
+            translationTable = pagedFile.expandCapacity( maxChunkId );
+        }
+
+        runStartPageId = startPageId;
+        runLength = 0;
+        try
+        {
+            for ( long filePageId = startPageId; filePageId < endPageId; filePageId++ )
+            {
+                if ( !claimPage( filePageId ) )
+                {
+                    readRun( evictionPolicy );
+                    runStartPageId = filePageId + 1;
+                }
+            }
+            readRun( evictionPolicy );
+        }
+        catch ( Throwable throwable )
+        {
+            abortRun( throwable );
+            throw throwable;
+        }
+        return pagesFaulted;
+    }
+
+    /**
+     * Claim the right to fault in the given file page by putting a latch in its translation table slot, and grab a
+     * free page for it, that will stay exclusively locked until the run of pages has been read in.
+     *
+     * @return {@code false} if the file page is already in memory, or is being faulted in by another thread.
+     */
+    private boolean claimPage( long filePageId ) throws IOException
+    {
+        Object[] chunk = translationTable[MuninnPagedFile.computeChunkId( filePageId )];
+        long chunkOffset = MuninnPagedFile.computeChunkOffset( filePageId );
+        if ( UnsafeUtil.getObjectVolatile( chunk, chunkOffset ) != null )
+        {
+            return false;
+        }
+        BinaryLatch latch = new BinaryLatch();
+        if ( !UnsafeUtil.compareAndSwapObject( chunk, chunkOffset, null, latch ) )
+        {
+            return false;
+        }
+        // From here on, the latch is owned by the run, and will be released by either readRun or abortRun.
+        int index = runLength++;
+        latches[index] = latch;
+        pinEvents[index] = tracer.beginPin( false, filePageId, swapper );
+        faultEvents[index] = pinEvents[index].beginPageFault();
+        MuninnPage page = pagedFile.grabFreeAndExclusivelyLockedPage( faultEvents[index] );
+        pages[index] = page;
+        page.initBuffer();
+        page.prepareFault( swapper, filePageId );
+        return true;
+    }
+
+    private void readRun( EvictionPolicy evictionPolicy ) throws IOException
+    {
+        if ( runLength == 0 )
+        {
+            return;
+        }
+        // Check if we're racing with unmapping. We have the page locks here, so the unmapping would have already
+        // happened. We do this check before the read, because that would otherwise reopen the file channel.
+        pagedFile.getLastPageId();
+        long bytesRead = swapper.read( runStartPageId, pages, 0, runLength );
+        faultEvents[0].addBytesRead( bytesRead );
+
+        for ( int i = 0; i < runLength; i++ )
+        {
+            long filePageId = runStartPageId + i;
+            MuninnPage page = pages[i];
+            page.completeFault( swapper );
+            evictionPolicy.pageFaulted( page );
+            // Put the page in the translation table before we undo the exclusive lock, as we could otherwise race with
+            // eviction, and the onEvict callback expects to find a MuninnPage object in the table.
+            Object[] chunk = translationTable[MuninnPagedFile.computeChunkId( filePageId )];
+            UnsafeUtil.putObjectVolatile( chunk, MuninnPagedFile.computeChunkOffset( filePageId ), page );
+            pagedFile.pageFaulted();
+            page.unlockExclusive();
+            latches[i].release();
+            faultEvents[i].setCachePageId( page.getCachePageId() );
+            faultEvents[i].done();
+            pinEvents[i].done();
+            clear( i );
+        }
+        pagesFaulted += runLength;
+        runLength = 0;
+    }
+
+    private void abortRun( Throwable throwable )
+    {
+        for ( int i = 0; i < runLength; i++ )
+        {
+            long filePageId = runStartPageId + i;
+            if ( pages[i] != null )
+            {
+                // Make sure to unlock the page, so the eviction thread can pick up our trash.
+                pages[i].unlockExclusive();
+            }
+            Object[] chunk = translationTable[MuninnPagedFile.computeChunkId( filePageId )];
+            UnsafeUtil.putObjectVolatile( chunk, MuninnPagedFile.computeChunkOffset( filePageId ), null );
+            latches[i].release();
+            faultEvents[i].done( throwable );
+            pinEvents[i].done();
+            clear( i );
+        }
+        runLength = 0;
+    }
+
+    private void clear( int index )
+    {
+        pages[index] = null;
+        latches[index] = null;
+        pinEvents[index] = null;
+        faultEvents[index] = null;
+    }
+}
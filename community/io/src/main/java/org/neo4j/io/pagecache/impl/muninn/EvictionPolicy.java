@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+/**
+ * The policy that decides how page accesses are accounted for, and which pages the clock sweep of the
+ * {@link MuninnPageCache} may evict.
+ * <p>
+ * All policies keep their state in the usage stamp of the {@link MuninnPage}, and none of them take any locks. The
+ * accounting is intentionally left benignly racy, for performance.
+ */
+public enum EvictionPolicy
+{
+    /**
+     * The classic CLOCK policy. Every pin raises the usage counter of the page, and every pass of the clock arm
+     * lowers it. The page is evicted when its usage counter reaches zero.
+     * <p>
+     * A sequential scan that pins every page many times, e.g. once per record, will raise the usage counters of the
+     * scanned pages as high as those of the truly hot pages, and will therefore flush the working set out of the
+     * cache.
+     */
+    CLOCK
+    {
+        @Override
+        void pageAccessed( MuninnPage page )
+        {
+            page.incrementUsage();
+        }
+
+        @Override
+        void pageFaulted( MuninnPage page )
+        {
+        }
+
+        @Override
+        boolean sweep( MuninnPage page )
+        {
+            return page.decrementUsage();
+        }
+    },
+
+    /**
+     * A scan resistant variant of CLOCK, inspired by 2Q. Pins only raise a referenced bit on the page, and the usage
+     * counter is only raised by the clock arm when it finds the referenced bit raised. This means that all the
+     * accesses to a page within one revolution of the clock arm are considered as one correlated reference, so a scan
+     * will at most give its pages a usage count of one. Pages are only promoted to higher usage counts by being
+     * referenced again in later revolutions of the clock arm, which is what the hot pages are.
+     * <p>
+     * Newly faulted pages start out on probation with a usage counter of zero, so pages that are only touched by a
+     * scan become eligible for eviction after two passes of the clock arm, while hot pages survive up to
+     * {@link MuninnPage#MAX_USAGE_COUNT} passes without being referenced.
+     */
+    SCAN_RESISTANT
+    {
+        @Override
+        void pageAccessed( MuninnPage page )
+        {
+            page.markReferenced();
+        }
+
+        @Override
+        void pageFaulted( MuninnPage page )
+        {
+            page.resetUsage();
+        }
+
+        @Override
+        boolean sweep( MuninnPage page )
+        {
+            return page.promoteOrDecrementUsage();
+        }
+    };
+
+    /**
+     * Called when the given page is pinned by a page cursor, regardless of whether the pin required a page fault.
+     */
+    abstract void pageAccessed( MuninnPage page );
+
+    /**
+     * Called when the given page has been faulted in, while the exclusive lock on the page is still held, and before
+     * the faulting pin calls {@link #pageAccessed(MuninnPage)}.
+     */
+    abstract void pageFaulted( MuninnPage page );
+
+    /**
+     * Called when the clock arm passes over the given loaded page.
+     *
+     * @return {@code true} if the page should now be evicted, if it can be locked.
+     */
+    abstract boolean sweep( MuninnPage page );
+}
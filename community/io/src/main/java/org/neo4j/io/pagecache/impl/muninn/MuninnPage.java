@@ -37,6 +37,12 @@ final class MuninnPage extends SequenceLock implements Page
 {
     private static final long usageStampOffset = UnsafeUtil.getFieldOffset( MuninnPage.class, "usageStamp" );
 
+    // The highest usage count that the scan resistant eviction policy will promote a page to.
+    static final int MAX_USAGE_COUNT = 4;
+    // The bit in the usage stamp that the scan resistant eviction policy uses for marking a page as referenced.
+    private static final byte REFERENCED_BIT = 0x10;
+    private static final byte USAGE_COUNT_MASK = 0x0F;
+
     // The sign bit is used as a dirty flag for the page.
     // The other 7 bits are used as an exponent for computing the cache page size (as a power of two).
     private byte cachePageHeader;
@@ -126,6 +132,48 @@ final class MuninnPage extends SequenceLock implements Page
         return usage == 0;
     }
 
+    /**
+     * Mark the page as referenced since the last pass of the clock arm, for the scan resistant eviction policy.
+     */
+    public void markReferenced()
+    {
+        // This is intentionally left benignly racy for performance.
+        byte usage = getUsageCounter();
+        if ( (usage & REFERENCED_BIT) == 0 ) // avoid cache sloshing by not doing a write if the bit is already raised
+        {
+            UnsafeUtil.putByteVolatile( this, usageStampOffset, (byte) (usage | REFERENCED_BIT) );
+        }
+    }
+
+    /**
+     * Put the page on probation by clearing both its usage count and referenced bit.
+     * NOTE: Should be called under the exclusive page lock.
+     */
+    public void resetUsage()
+    {
+        UnsafeUtil.putByteVolatile( this, usageStampOffset, (byte) 0 );
+    }
+
+    /**
+     * If the page has been referenced since the last pass of the clock arm, then clear the referenced bit and raise
+     * the usage count to at most {@link #MAX_USAGE_COUNT}. Otherwise decrement the usage count.
+     * Returns true if the page was not referenced, and its usage count reaches 0.
+     */
+    public boolean promoteOrDecrementUsage()
+    {
+        // This is intentionally left benignly racy for performance.
+        byte usage = getUsageCounter();
+        int count = usage & USAGE_COUNT_MASK;
+        if ( (usage & REFERENCED_BIT) != 0 )
+        {
+            UnsafeUtil.putByteVolatile( this, usageStampOffset, (byte) Math.min( count + 1, MAX_USAGE_COUNT ) );
+            return false;
+        }
+        count = Math.max( count - 1, 0 );
+        UnsafeUtil.putByteVolatile( this, usageStampOffset, (byte) count );
+        return count == 0;
+    }
+
     private byte getUsageCounter()
     {
         return UnsafeUtil.getByteVolatile( this, usageStampOffset );
@@ -170,6 +218,21 @@ final class MuninnPage extends SequenceLock implements Page
             PageSwapper swapper,
             long filePageId,
             PageFaultEvent faultEvent ) throws IOException
+    {
+        prepareFault( swapper, filePageId );
+        long bytesRead = swapper.read( filePageId, this );
+        faultEvent.addBytesRead( bytesRead );
+        faultEvent.setCachePageId( getCachePageId() );
+        completeFault( swapper );
+    }
+
+    /**
+     * The first half of a page fault, for when the contents of the page is read in separately, e.g. as part of a
+     * vectored read. Must be followed by a call to {@link #completeFault(PageSwapper)} once the read has succeeded.
+     * <p>
+     * NOTE: This method MUST be called while holding the exclusive page lock.
+     */
+    void prepareFault( PageSwapper swapper, long filePageId )
     {
         if ( this.swapper != null || this.filePageId != PageCursor.UNBOUND_PAGE_ID )
         {
@@ -189,9 +252,13 @@ final class MuninnPage extends SequenceLock implements Page
         // the file page, so any subsequent thread that finds the page in their
         // translation table will re-do the page fault.
         this.filePageId = filePageId; // Page now considered isLoaded()
-        long bytesRead = swapper.read( filePageId, this );
-        faultEvent.addBytesRead( bytesRead );
-        faultEvent.setCachePageId( getCachePageId() );
+    }
+
+    /**
+     * NOTE: This method MUST be called while holding the exclusive page lock.
+     */
+    void completeFault( PageSwapper swapper )
+    {
         this.swapper = swapper; // Page now considered isBoundTo( swapper, filePageId )
     }
 
@@ -244,6 +311,11 @@ final class MuninnPage extends SequenceLock implements Page
         return filePageId;
     }
 
+    PageSwapper getSwapper()
+    {
+        return swapper;
+    }
+
     @Override
     public String toString()
     {
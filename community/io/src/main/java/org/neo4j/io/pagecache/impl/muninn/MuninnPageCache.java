@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.nio.file.CopyOption;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -32,17 +33,23 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 
 import org.neo4j.io.pagecache.FileHandle;
 import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PageCacheOpenOptions;
+import org.neo4j.io.pagecache.PageCacheWarmup;
+import org.neo4j.io.pagecache.PageReservation;
+import org.neo4j.io.pagecache.PageSwapper;
 import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.impl.FileIsMappedException;
+import org.neo4j.io.pagecache.monitoring.PageCacheOccupancy;
 import org.neo4j.io.pagecache.tracing.EvictionEvent;
 import org.neo4j.io.pagecache.tracing.EvictionRunEvent;
+import org.neo4j.io.pagecache.tracing.FlushEvent;
 import org.neo4j.io.pagecache.tracing.FlushEventOpportunity;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
@@ -102,7 +109,7 @@ import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
  *     locks to make uncontended reads and writes fast.
  * </p>
  */
-public class MuninnPageCache implements PageCache
+public class MuninnPageCache implements PageCache, PageCacheOccupancy, PageCacheWarmup
 {
     public static final byte ZERO_BYTE =
             (byte) (flag( MuninnPageCache.class, "brandedZeroByte", false ) ? 0x0f : 0);
@@ -118,6 +125,26 @@ public class MuninnPageCache implements PageCache
     private static final int cooperativeEvictionLiveLockThreshold = getInteger(
             MuninnPageCache.class, "cooperativeEvictionLiveLockThreshold", 100 );
 
+    // This is the largest share of the pages in the cache, that can be reserved for specific files through
+    // PageReservation open options. The rest of the pages are always available for eviction, so that page faults
+    // can make progress.
+    private static final double maxReservedRatio = getInteger(
+            MuninnPageCache.class, "maxReservedPercentage", 90 ) / 100.0;
+
+    // This is the number of read-ahead tasks that can be in flight at the same time, across all mapped files.
+    // Read-ahead requests that come in while all these tasks are busy, are simply dropped.
+    private static final int maxConcurrentReadAheadTasks = getInteger(
+            MuninnPageCache.class, "maxConcurrentReadAheadTasks", 4 );
+
+    // This is how often the background page cleaner wakes up to sweep its next batch of pages.
+    private static final long cleanerIntervalMillis = getInteger( MuninnPageCache.class, "cleanerIntervalMillis", 100 );
+
+    // When the background page cleaner sees more than this share of the pages dirty during a pass over the cache, it
+    // will write out every dirty page it visits in the following pass, instead of only the pages that have been dirty
+    // since its previous visit.
+    private static final double cleanerDirtyRatio = getInteger(
+            MuninnPageCache.class, "cleanerDirtyPercentage", 10 ) / 100.0;
+
     // This is a pre-allocated constant, so we can throw it without allocating any objects:
     @SuppressWarnings( "ThrowableInstanceNeverThrown" )
     private static final IOException oomException = new IOException(
@@ -152,7 +179,15 @@ public class MuninnPageCache implements PageCache
     private final int cachePageSize;
     private final int keepFree;
     private final PageCacheTracer tracer;
+    final EvictionPolicy evictionPolicy;
+    private final int flushParallelism;
+    private final long cleanerMaxDirtyAgeMillis;
+    private final MemoryManager memoryManager;
     private final MuninnPage[] pages;
+    // The largest number of pages that can be faulted in by a single BulkPageFault. Since it keeps the pages of a
+    // run exclusively locked until they have all been read in, this is kept to a small fraction of the cache.
+    private final int maxBulkFaultPages;
+    private final AtomicInteger readAheadPermits;
     // All PageCursors are initialised with their pointers pointing to the victim page. This way, we can do branch-free
     // bounds checking of page accesses without fear of segfaulting newly allocated cursors.
     final long victimPage;
@@ -175,6 +210,9 @@ public class MuninnPageCache implements PageCache
     // Linked list of mappings - guarded by synchronized(this)
     private volatile FileMapping mappedFiles;
 
+    // The sum of the page reservations of all mapped files - writes guarded by synchronized(this)
+    private volatile int reservedPages;
+
     // The thread that runs the eviction algorithm. We unpark this when we've run out of
     // free pages to grab.
     private volatile Thread evictionThread;
@@ -186,6 +224,10 @@ public class MuninnPageCache implements PageCache
     private volatile boolean evictorParked;
     private volatile IOException evictorException;
 
+    // The thread that runs the background page cleaner, if any, and the number of pages it has cleaned so far.
+    private volatile Thread cleanerThread;
+    private volatile long cleanedPages;
+
     // Flag for when page cache is closed - writes guarded by synchronized(this), reads can be unsynchronized
     private volatile boolean closed;
 
@@ -200,6 +242,63 @@ public class MuninnPageCache implements PageCache
             int maxPages,
             int cachePageSize,
             PageCacheTracer tracer )
+    {
+        this( swapperFactory, maxPages, cachePageSize, tracer, EvictionPolicy.CLOCK );
+    }
+
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer tracer,
+            EvictionPolicy evictionPolicy )
+    {
+        this( swapperFactory, maxPages, cachePageSize, tracer, evictionPolicy, false );
+    }
+
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer tracer,
+            EvictionPolicy evictionPolicy,
+            boolean hugePageAlignedMemory )
+    {
+        this( swapperFactory, maxPages, cachePageSize, tracer, evictionPolicy, hugePageAlignedMemory, 1 );
+    }
+
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer tracer,
+            EvictionPolicy evictionPolicy,
+            boolean hugePageAlignedMemory,
+            int flushParallelism )
+    {
+        this( swapperFactory, maxPages, cachePageSize, tracer, evictionPolicy, hugePageAlignedMemory,
+                flushParallelism, 0 );
+    }
+
+    /**
+     * @param hugePageAlignedMemory {@code true} if the memory of the cache pages should be allocated in huge page
+     * aligned chunks, so the operating system can back it with transparent huge pages.
+     * @param flushParallelism The number of threads that may flush pages in parallel, when the page cache or a paged
+     * file is flushed and forced.
+     * @param cleanerMaxDirtyAgeMillis The approximate longest time that the background page cleaner will let a page
+     * stay dirty, or zero if the background page cleaner should not run.
+     * @see MemoryManager#MemoryManager(long, long, boolean)
+     * @see #continuouslyCleanPages()
+     */
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer tracer,
+            EvictionPolicy evictionPolicy,
+            boolean hugePageAlignedMemory,
+            int flushParallelism,
+            long cleanerMaxDirtyAgeMillis )
     {
         verifyHacks();
         verifyCachePageSizeIsPowerOfTwo( cachePageSize );
@@ -210,12 +309,17 @@ public class MuninnPageCache implements PageCache
         this.cachePageSize = cachePageSize;
         this.keepFree = Math.min( pagesToKeepFree, maxPages / 2 );
         this.tracer = tracer;
+        this.evictionPolicy = evictionPolicy;
+        this.flushParallelism = Math.max( 1, flushParallelism );
+        this.cleanerMaxDirtyAgeMillis = cleanerMaxDirtyAgeMillis;
         this.pages = new MuninnPage[maxPages];
+        this.maxBulkFaultPages = maxPages / 16;
+        this.readAheadPermits = new AtomicInteger( maxConcurrentReadAheadTasks );
         this.printExceptionsOnClose = true;
 
         long alignment = swapperFactory.getRequiredBufferAlignment();
         long expectedMaxMemory = ((long) maxPages) * cachePageSize; // cast to long prevents overflow
-        MemoryManager memoryManager = new MemoryManager( expectedMaxMemory, alignment );
+        this.memoryManager = new MemoryManager( expectedMaxMemory, alignment, hugePageAlignedMemory );
         this.victimPage = VictimPageReference.getVictimPage( cachePageSize );
         Object pageList = null;
         int pageIndex = maxPages;
@@ -290,6 +394,7 @@ public class MuninnPageCache implements PageCache
         boolean truncateExisting = false;
         boolean deleteOnClose = false;
         boolean anyPageSize = false;
+        int reservation = 0;
         for ( OpenOption option : openOptions )
         {
             if ( option.equals( StandardOpenOption.CREATE ) )
@@ -308,6 +413,10 @@ public class MuninnPageCache implements PageCache
             {
                 anyPageSize = true;
             }
+            else if ( option instanceof PageReservation )
+            {
+                reservation = (int) (((PageReservation) option).ratio() * pages.length);
+            }
             else if ( !ignoredOpenOptions.contains( option ) )
             {
                 throw new UnsupportedOperationException( "Unsupported OpenOption: " + option );
@@ -335,6 +444,7 @@ public class MuninnPageCache implements PageCache
                 {
                     throw new UnsupportedOperationException( "Cannot truncate a file that is already mapped" );
                 }
+                reservePages( pagedFile, file, reservation );
                 pagedFile.incrementRefCount();
                 pagedFile.markDeleteOnClose( deleteOnClose );
                 return pagedFile;
@@ -350,6 +460,7 @@ public class MuninnPageCache implements PageCache
         }
 
         // there was no existing mapping
+        verifyReservation( file, 0, reservation );
         MuninnPagedFile pagedFile = new MuninnPagedFile(
                 file,
                 this,
@@ -358,6 +469,7 @@ public class MuninnPageCache implements PageCache
                 tracer,
                 createIfNotExists,
                 truncateExisting );
+        reservePages( pagedFile, file, reservation );
         pagedFile.incrementRefCount();
         pagedFile.markDeleteOnClose( deleteOnClose );
         current = new FileMapping( file, pagedFile );
@@ -367,6 +479,89 @@ public class MuninnPageCache implements PageCache
         return pagedFile;
     }
 
+    private void verifyReservation( File file, int currentReservation, int reservation )
+    {
+        int additionalPages = reservation - currentReservation;
+        int maxReservedPages = (int) (pages.length * maxReservedRatio);
+        if ( additionalPages > 0 && reservedPages + additionalPages > maxReservedPages )
+        {
+            throw new IllegalArgumentException( String.format(
+                    "Cannot reserve %s pages for file %s, because %s of the %s pages in the page cache are already " +
+                    "reserved, and at most %s pages can be reserved.",
+                    reservation, file, reservedPages, pages.length, maxReservedPages ) );
+        }
+    }
+
+    private void reservePages( MuninnPagedFile pagedFile, File file, int reservation )
+    {
+        int currentReservation = pagedFile.getReservedPages();
+        verifyReservation( file, currentReservation, reservation );
+        if ( reservation > currentReservation )
+        {
+            reservedPages += reservation - currentReservation;
+            pagedFile.setReservedPages( reservation );
+        }
+    }
+
+    @Override
+    public long residentPages( String fileName )
+    {
+        long residentPages = 0;
+        FileMapping current = mappedFiles;
+        while ( current != null )
+        {
+            if ( current.file.getName().equals( fileName ) )
+            {
+                residentPages += current.pagedFile.getResidentPages();
+            }
+            current = current.next;
+        }
+        return residentPages;
+    }
+
+    @Override
+    public long reservedPages( String fileName )
+    {
+        long reservedPages = 0;
+        FileMapping current = mappedFiles;
+        while ( current != null )
+        {
+            if ( current.file.getName().equals( fileName ) )
+            {
+                reservedPages += current.pagedFile.getReservedPages();
+            }
+            current = current.next;
+        }
+        return reservedPages;
+    }
+
+    @Override
+    public long allocatedMemory()
+    {
+        return memoryManager.allocatedMemory();
+    }
+
+    @Override
+    public long dirtyPages()
+    {
+        long dirtyPages = 0;
+        for ( MuninnPage page : pages )
+        {
+            // This is racy, since we don't take any locks, but we are only giving an estimate.
+            if ( page != null && page.isLoaded() && page.isDirty() )
+            {
+                dirtyPages++;
+            }
+        }
+        return dirtyPages;
+    }
+
+    @Override
+    public long cleanedPages()
+    {
+        return cleanedPages;
+    }
+
     @Override
     public synchronized Optional<PagedFile> getExistingMapping( File file ) throws IOException
     {
@@ -465,6 +660,10 @@ public class MuninnPageCache implements PageCache
         try
         {
             backgroundThreadExecutor.execute( new EvictionTask( this ) );
+            if ( cleanerMaxDirtyAgeMillis > 0 )
+            {
+                backgroundThreadExecutor.execute( new CleanerTask( this ) );
+            }
         }
         catch ( Exception e )
         {
@@ -503,6 +702,7 @@ public class MuninnPageCache implements PageCache
                         prev.next = current.next;
                     }
                     tracer.unmappedFile( current.file );
+                    reservedPages -= file.getReservedPages();
                     flushAndCloseWithoutFail( file );
                     break;
                 }
@@ -569,17 +769,29 @@ public class MuninnPageCache implements PageCache
     {
         try ( MajorFlushEvent cacheFlush = tracer.beginCacheFlush() )
         {
-            FlushEventOpportunity flushOpportunity = cacheFlush.flushEventOpportunity();
+            List<MuninnPagedFile> files = new ArrayList<>();
             FileMapping fileMapping = mappedFiles;
             while ( fileMapping != null )
             {
-                fileMapping.pagedFile.flushAndForceInternal( flushOpportunity, false, limiter );
+                files.add( fileMapping.pagedFile );
                 fileMapping = fileMapping.next;
             }
+            flushAndForce( files, cacheFlush.flushEventOpportunity(), limiter );
             syncDevice();
         }
     }
 
+    /**
+     * Flush and force the given files, with up to {@code flushParallelism} threads, but without syncing the device.
+     *
+     * @see ParallelFlush
+     */
+    void flushAndForce( List<MuninnPagedFile> files, FlushEventOpportunity flushOpportunity, IOLimiter limiter )
+            throws IOException
+    {
+        new ParallelFlush( files, flushOpportunity, limiter, flushParallelism ).flush( this, backgroundThreadExecutor );
+    }
+
     void syncDevice() throws IOException
     {
         swapperFactory.syncDevice();
@@ -619,6 +831,8 @@ public class MuninnPageCache implements PageCache
 
         interrupt( evictionThread );
         evictionThread = null;
+        interrupt( cleanerThread );
+        cleanerThread = null;
 
         // Close the page swapper factory last. If this fails then we will still consider ourselves closed.
         swapperFactory.close();
@@ -674,6 +888,58 @@ public class MuninnPageCache implements PageCache
         return pageCacheId;
     }
 
+    /**
+     * Asynchronously fault in the given range of pages of the given file, ahead of a sequential scan.
+     * This is only a hint, and the request is dropped if the page cache is closed, or too busy reading ahead already.
+     */
+    void readAhead( MuninnPagedFile pagedFile, long startPageId, int pageCount )
+    {
+        pageCount = Math.min( pageCount, maxBulkFaultPages );
+        if ( pageCount <= 0 || closed )
+        {
+            return;
+        }
+        if ( readAheadPermits.getAndDecrement() <= 0 )
+        {
+            readAheadCompleted();
+            return;
+        }
+        try
+        {
+            backgroundThreadExecutor.execute( new ReadAheadTask( this, pagedFile, startPageId, pageCount ) );
+        }
+        catch ( RuntimeException e )
+        {
+            readAheadCompleted();
+        }
+    }
+
+    void readAheadCompleted()
+    {
+        readAheadPermits.incrementAndGet();
+    }
+
+    @Override
+    public void visitResidentPages( PagedFile pagedFile, LongConsumer visitor )
+    {
+        ((MuninnPagedFile) pagedFile).visitResidentPages( visitor );
+    }
+
+    @Override
+    public long loadPages( PagedFile pagedFile, long startPageId, long pageCount ) throws IOException
+    {
+        MuninnPagedFile file = (MuninnPagedFile) pagedFile;
+        int maxPagesPerFault = Math.max( 1, maxBulkFaultPages );
+        long endPageId = startPageId + pageCount;
+        long pagesFaulted = 0;
+        for ( long pageId = startPageId; pageId < endPageId; pageId += maxPagesPerFault )
+        {
+            int count = (int) Math.min( maxPagesPerFault, endPageId - pageId );
+            pagesFaulted += new BulkPageFault( file, pageId, count, file.tracer ).fault( evictionPolicy );
+        }
+        return pagesFaulted;
+    }
+
     MuninnPage grabFreeAndExclusivelyLockedPage( PageFaultEvent faultEvent ) throws IOException
     {
         // Review the comment on the freelist field before making changes to
@@ -764,7 +1030,7 @@ public class MuninnPageCache implements PageCache
                         "The PageCache has been shut down" );
             }
 
-            if ( page.isLoaded() && page.decrementUsage() )
+            if ( page.isLoaded() && evictionPolicy.sweep( page ) && !isProtectedByReservation( page ) )
             {
                 if ( page.tryExclusiveLock() )
                 {
@@ -838,8 +1104,8 @@ public class MuninnPageCache implements PageCache
     }
 
     /**
-     * Scan through all the pages, one by one, and decrement their usage stamps.
-     * If a usage reaches zero, we try-write-locking it, and if we get that lock,
+     * Scan through all the pages, one by one, and let the {@link EvictionPolicy} sweep their usage stamps.
+     * If the policy says a page can go, we try-write-locking it, and if we get that lock,
      * we evict the page. If we don't, we move on to the next page.
      * Once we have enough free pages, we park our thread. Page-faulting will
      * unpark our thread as needed.
@@ -909,7 +1175,7 @@ public class MuninnPageCache implements PageCache
                 return 0;
             }
 
-            if ( page.isLoaded() && page.decrementUsage() )
+            if ( page.isLoaded() && evictionPolicy.sweep( page ) && !isProtectedByReservation( page ) )
             {
                 if ( page.tryExclusiveLock() )
                 {
@@ -961,6 +1227,164 @@ public class MuninnPageCache implements PageCache
         return clockArm;
     }
 
+    /**
+     * Trickle dirty pages out to storage in the background, so check points and evictions find fewer dirty pages to
+     * flush. The cleaner sweeps through the pages at a steady pace, such that each pass over the cache takes half of
+     * the max dirty age. A page that is found dirty in two consecutive passes is written out, which bounds how long a
+     * page stays dirty to about the max dirty age. If more than the {@code cleanerDirtyPercentage} of the pages were
+     * dirty in the last pass, then every dirty page is written out as soon as it is visited.
+     * <p>
+     * The pages are written under the flush lock, just like when flushing the page cache, so readers and writers of
+     * the pages are not blocked.
+     */
+    void continuouslyCleanPages()
+    {
+        cleanerThread = Thread.currentThread();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos( cleanerIntervalMillis );
+        long passNanos = Math.max( intervalNanos, TimeUnit.MILLISECONDS.toNanos( cleanerMaxDirtyAgeMillis ) / 2 );
+        int batchSize = (int) Math.max( 1, (pages.length * intervalNanos + passNanos - 1) / passNanos );
+        // One bit for every page, that is set if the page was dirty the last time we visited it.
+        long[] dirtyAtLastVisit = new long[(pages.length + 63) / 64];
+        int cleanerArm = 0;
+        int dirtyPagesInPass = 0;
+        boolean cleanAllDirtyPages = false;
+
+        while ( !closed )
+        {
+            LockSupport.parkNanos( this, intervalNanos );
+            if ( Thread.interrupted() || closed )
+            {
+                return;
+            }
+
+            MajorFlushEvent cleanEvent = null;
+            try
+            {
+                for ( int i = 0; i < batchSize; i++ )
+                {
+                    MuninnPage page = pages[cleanerArm];
+                    if ( page == null )
+                    {
+                        // The page cache has been shut down.
+                        return;
+                    }
+
+                    int word = cleanerArm >>> 6;
+                    long bit = 1L << (cleanerArm & 63);
+                    // This is racy, since we don't take any locks, but cleanPage will check again under the lock.
+                    if ( page.isLoaded() && page.isDirty() )
+                    {
+                        dirtyPagesInPass++;
+                        if ( cleanAllDirtyPages || (dirtyAtLastVisit[word] & bit) != 0 )
+                        {
+                            if ( cleanEvent == null )
+                            {
+                                cleanEvent = tracer.beginCacheFlush();
+                            }
+                            if ( cleanPage( page, cleanEvent.flushEventOpportunity() ) )
+                            {
+                                dirtyAtLastVisit[word] &= ~bit;
+                            }
+                        }
+                        else
+                        {
+                            dirtyAtLastVisit[word] |= bit;
+                        }
+                    }
+                    else
+                    {
+                        dirtyAtLastVisit[word] &= ~bit;
+                    }
+
+                    cleanerArm++;
+                    if ( cleanerArm == pages.length )
+                    {
+                        cleanerArm = 0;
+                        cleanAllDirtyPages = dirtyPagesInPass > pages.length * cleanerDirtyRatio;
+                        dirtyPagesInPass = 0;
+                    }
+                }
+            }
+            finally
+            {
+                if ( cleanEvent != null )
+                {
+                    cleanEvent.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write out the given page, if it is still dirty and we can get its flush lock.
+     * This method will never throw an exception!
+     *
+     * @return {@code true} if the page was written out.
+     */
+    private boolean cleanPage( MuninnPage page, FlushEventOpportunity flushOpportunity )
+    {
+        if ( !page.tryFlushLock() )
+        {
+            return false;
+        }
+        try
+        {
+            PageSwapper swapper = page.getSwapper();
+            long filePageId = page.getFilePageId();
+            if ( swapper == null || !page.isDirty() )
+            {
+                return false;
+            }
+            // Mark the page as clean before we write it, so concurrent writes can mark it as dirty again, and they
+            // will then be written out by a later flush.
+            page.markAsClean();
+            FlushEvent flush = flushOpportunity.beginFlush( filePageId, page.getCachePageId(), swapper );
+            try
+            {
+                flush.addBytesWritten( swapper.write( filePageId, page ) );
+                flush.addPagesFlushed( 1 );
+                flush.done();
+                cleanedPages++;
+                return true;
+            }
+            catch ( Throwable throwable )
+            {
+                page.markAsDirty();
+                flush.done( throwable instanceof IOException ? (IOException) throwable : new IOException( throwable ) );
+                return false;
+            }
+        }
+        finally
+        {
+            page.unlockFlush();
+        }
+    }
+
+    /**
+     * Check if the given page belongs to a file that has no more pages in memory than it has reserved, in which case
+     * the page must not be evicted. This check is racy, since we don't hold any lock on the page, but the reservations
+     * only need to be approximately enforced.
+     */
+    private boolean isProtectedByReservation( MuninnPage page )
+    {
+        if ( reservedPages == 0 )
+        {
+            return false;
+        }
+        PageSwapper swapper = page.getSwapper();
+        FileMapping current = mappedFiles;
+        while ( current != null )
+        {
+            MuninnPagedFile pagedFile = current.pagedFile;
+            if ( pagedFile.swapper == swapper )
+            {
+                return pagedFile.getResidentPages() <= pagedFile.getReservedPages();
+            }
+            current = current.next;
+        }
+        return false;
+    }
+
     /**
      * Evict the given page, or return {@code false} if the eviction failed for any reason.
      * This method will never throw an exception!
@@ -32,8 +32,10 @@ import org.neo4j.io.pagecache.tracing.PageFaultEvent;
 import org.neo4j.io.pagecache.tracing.PinEvent;
 import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
 
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
 import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.flag;
+import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
 
 abstract class MuninnPageCursor extends PageCursor
 {
@@ -45,6 +47,9 @@ abstract class MuninnPageCursor extends PageCursor
 
     private static final boolean boundsCheck = flag( MuninnPageCursor.class, "boundsCheck", true );
 
+    // The number of pages that cursors opened with PF_READ_AHEAD will try to keep faulted in ahead of themselves.
+    private static final int readAheadPages = getInteger( MuninnPageCursor.class, "readAheadPages", 32 );
+
     // Size of the respective primitive types in bytes.
     private static final int SIZE_OF_BYTE = Byte.BYTES;
     private static final int SIZE_OF_SHORT = Short.BYTES;
@@ -55,6 +60,7 @@ abstract class MuninnPageCursor extends PageCursor
     protected MuninnPagedFile pagedFile;
     protected PageSwapper swapper;
     protected PageCacheTracer tracer;
+    protected EvictionPolicy evictionPolicy;
     protected MuninnPage page;
     protected PinEvent pinEvent;
     protected long pageId;
@@ -67,6 +73,10 @@ abstract class MuninnPageCursor extends PageCursor
     private int filePageSize;
     private int offset;
     private boolean outOfBounds;
+    // The read-ahead state; the page we moved to before the current one, and the first page after the range of pages
+    // that we have already asked to have read ahead.
+    private long previousPageId;
+    private long readAheadFrontier;
     // This is a String with the exception message if usePreciseCursorErrorStackTraces is false, otherwise it is a
     // CursorExceptionWithPreciseStackTrace with the message and stack trace pointing more or less directly at the
     // offending code.
@@ -82,6 +92,7 @@ abstract class MuninnPageCursor extends PageCursor
     {
         this.swapper = pagedFile.swapper;
         this.tracer = pagedFile.tracer;
+        this.evictionPolicy = pagedFile.pageCache.evictionPolicy;
     }
 
     final void initialiseFlags( MuninnPagedFile pagedFile, long pageId, int pf_flags )
@@ -90,6 +101,8 @@ abstract class MuninnPageCursor extends PageCursor
         this.pageId = pageId;
         this.pf_flags = pf_flags;
         this.filePageSize = pagedFile.filePageSize;
+        this.previousPageId = UNBOUND_PAGE_ID;
+        this.readAheadFrontier = 0;
     }
 
     @Override
@@ -198,6 +211,50 @@ abstract class MuninnPageCursor extends PageCursor
         return currentPageId == UNBOUND_PAGE_ID? null : pagedFile.file();
     }
 
+    /**
+     * Ask for the pages following the given page to be read ahead in the background, if this cursor was opened with
+     * the {@link org.neo4j.io.pagecache.PagedFile#PF_READ_AHEAD} flag, and is moving sequentially forward through the
+     * file. Moving to the first page of the file counts as sequential, since that is where most scans start.
+     * <p>
+     * Read-ahead is requested half a window at a time, whenever the cursor gets within half a window of the end of
+     * the range that has already been requested, so the read-ahead stays ahead of the cursor without any page being
+     * requested twice. Moving to the page the cursor is already at, which record stores do for every record, is
+     * neither sequential nor a reset. Any other non-sequential move resets the read-ahead.
+     *
+     * @param filePageId The id of the page that the cursor is about to pin.
+     * @param lastPageId The id of the last page in the file.
+     */
+    final void readAhead( long filePageId, long lastPageId )
+    {
+        if ( (pf_flags & PF_READ_AHEAD) == 0 )
+        {
+            return;
+        }
+        if ( filePageId == previousPageId )
+        {
+            return;
+        }
+        boolean sequential = filePageId == previousPageId + 1;
+        previousPageId = filePageId;
+        if ( !sequential || readAheadFrontier <= filePageId )
+        {
+            readAheadFrontier = filePageId + 1;
+            if ( !sequential )
+            {
+                return;
+            }
+        }
+        if ( readAheadFrontier - filePageId <= readAheadPages / 2 )
+        {
+            long endPageId = Math.min( filePageId + readAheadPages, lastPageId );
+            if ( endPageId >= readAheadFrontier )
+            {
+                pagedFile.readAhead( readAheadFrontier, (int) (endPageId - readAheadFrontier + 1) );
+                readAheadFrontier = endPageId + 1;
+            }
+        }
+    }
+
     /**
      * Pin the desired file page to this cursor, page faulting it into memory if it isn't there already.
      * @param filePageId The file page id we want to pin this cursor to.
@@ -238,6 +295,7 @@ abstract class MuninnPageCursor extends PageCursor
                 boolean locked = tryLockPage( page );
                 if ( locked & page.isBoundTo( swapper, filePageId ) )
                 {
+                    pinEvent.hit();
                     pinCursorToPage( page, filePageId, swapper );
                     return;
                 }
@@ -335,6 +393,7 @@ abstract class MuninnPageCursor extends PageCursor
             assertPagedFileStillMappedAndGetIdOfLastPage();
             page.initBuffer();
             page.fault( swapper, filePageId, faultEvent );
+            evictionPolicy.pageFaulted( page );
         }
         catch ( Throwable throwable )
         {
@@ -347,6 +406,7 @@ abstract class MuninnPageCursor extends PageCursor
         // Put the page in the translation table before we undo the exclusive lock, as we could otherwise race with
         // eviction, and the onEvict callback expects to find a MuninnPage object in the table.
         UnsafeUtil.putObjectVolatile( chunk, chunkOffset, page );
+        pagedFile.pageFaulted();
         // Once we page has been published to the translation table, we can convert our exclusive lock to whatever we
         // need for the page cursor.
         convertPageFaultLock( page );
@@ -24,6 +24,8 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.function.LongConsumer;
 
 import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCursor;
@@ -51,6 +53,8 @@ final class MuninnPagedFile implements PagedFile, Flushable
 
     private static final long headerStateOffset =
             UnsafeUtil.getFieldOffset( MuninnPagedFile.class, "headerState" );
+    private static final long residentPagesOffset =
+            UnsafeUtil.getFieldOffset( MuninnPagedFile.class, "residentPages" );
     private static final int headerStateRefCountShift = 48;
     private static final int headerStateRefCountMax = 0x7FFF;
     private static final long headerStateRefCountMask = 0x7FFF_0000_0000_0000L;
@@ -73,6 +77,14 @@ final class MuninnPagedFile implements PagedFile, Flushable
     // Used to trace the causes of any exceptions from getLastPageId.
     private volatile Exception closeStackTrace;
 
+    // The number of cache pages that the eviction must leave to this file. Guarded by the monitor lock on
+    // MuninnPageCache (map and unmap)
+    private volatile int reservedPages;
+
+    // The number of cache pages that are currently bound to pages of this file.
+    @SuppressWarnings( "unused" ) // Accessed via Unsafe
+    private volatile int residentPages;
+
     /**
      * The header state includes both the reference count of the PagedFile – 15 bits – and the ID of the last page in
      * the file – 48 bits, plus an empty file marker bit. Because our pages are usually 2^13 bytes, this means that we
@@ -239,7 +251,7 @@ final class MuninnPagedFile implements PagedFile, Flushable
         }
         try ( MajorFlushEvent flushEvent = tracer.beginFileFlush( swapper ) )
         {
-            flushAndForceInternal( flushEvent.flushEventOpportunity(), false, limiter );
+            pageCache.flushAndForce( Collections.singletonList( this ), flushEvent.flushEventOpportunity(), limiter );
             syncDevice();
         }
     }
@@ -248,21 +260,37 @@ final class MuninnPagedFile implements PagedFile, Flushable
     {
         try ( MajorFlushEvent flushEvent = tracer.beginFileFlush( swapper ) )
         {
-            flushAndForceInternal( flushEvent.flushEventOpportunity(), true, IOLimiter.unlimited() );
+            flushRange( flushEvent.flushEventOpportunity(), true, IOLimiter.unlimited(), 0, Integer.MAX_VALUE );
+            force();
             syncDevice();
         }
     }
 
-    void flushAndForceInternal( FlushEventOpportunity flushOpportunity, boolean forClosing, IOLimiter limiter )
-            throws IOException
+    /**
+     * @return The number of chunks in the translation table, which is the unit of work for parallel flushing.
+     */
+    int translationTableChunkCount()
+    {
+        return translationTable.length;
+    }
+
+    /**
+     * Flush the dirty pages in the given range of translation table chunks. Adjacent dirty pages within a chunk are
+     * written together with vectored writes. This does not force the file.
+     */
+    void flushRange( FlushEventOpportunity flushOpportunity, boolean forClosing, IOLimiter limiter,
+            int startChunk, int endChunk ) throws IOException
     {
         // TODO it'd be awesome if, on Linux, we'd call sync_file_range(2) instead of fsync
         MuninnPage[] pages = new MuninnPage[translationTableChunkSize];
-        long filePageId = -1; // Start at -1 because we increment at the *start* of the chunk-loop iteration.
+        // Start one before the range, because we increment at the *start* of the chunk-loop iteration.
+        long filePageId = ((long) startChunk << translationTableChunkSizePower) - 1;
         long limiterStamp = IOLimiter.INITIAL_STAMP;
         Object[][] tt = this.translationTable;
-        for ( Object[] chunk : tt )
+        endChunk = Math.min( endChunk, tt.length );
+        for ( int chunkIndex = startChunk; chunkIndex < endChunk; chunkIndex++ )
         {
+            Object[] chunk = tt[chunkIndex];
             // TODO Look into if we can tolerate flushing a few clean pages if it means we can use larger vectors.
             // TODO The clean pages in question must still be loaded, though. Otherwise we'll end up writing
             // TODO garbage to the file.
@@ -323,7 +351,10 @@ final class MuninnPagedFile implements PagedFile, Flushable
                 limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
             }
         }
+    }
 
+    void force() throws IOException
+    {
         swapper.force();
     }
 
@@ -521,6 +552,56 @@ final class MuninnPagedFile implements PagedFile, Flushable
         return pageCache.grabFreeAndExclusivelyLockedPage( faultEvent );
     }
 
+    /**
+     * Visit the ids of the pages of this file that are currently in memory, in file order, without taking any locks.
+     */
+    void visitResidentPages( LongConsumer visitor )
+    {
+        long filePageId = 0;
+        for ( Object[] chunk : translationTable )
+        {
+            for ( int i = 0; i < chunk.length; i++, filePageId++ )
+            {
+                Object element = UnsafeUtil.getObjectVolatile( chunk, computeChunkOffset( filePageId ) );
+                if ( element instanceof MuninnPage && ((MuninnPage) element).isBoundTo( swapper, filePageId ) )
+                {
+                    visitor.accept( filePageId );
+                }
+            }
+        }
+    }
+
+    /**
+     * Ask the page cache to fault in the given range of pages in the background, ahead of a sequential scan.
+     */
+    void readAhead( long startPageId, int pageCount )
+    {
+        pageCache.readAhead( this, startPageId, pageCount );
+    }
+
+    /**
+     * Account for a page of this file having been faulted into the cache.
+     */
+    void pageFaulted()
+    {
+        UnsafeUtil.getAndAddInt( this, residentPagesOffset, 1 );
+    }
+
+    int getResidentPages()
+    {
+        return UnsafeUtil.getIntVolatile( this, residentPagesOffset );
+    }
+
+    int getReservedPages()
+    {
+        return reservedPages;
+    }
+
+    void setReservedPages( int reservedPages )
+    {
+        this.reservedPages = reservedPages;
+    }
+
     /**
      * Remove the mapping of the given filePageId from the translation table, and return the evicted page object.
      * @param filePageId The id of the file page to evict.
@@ -533,6 +614,7 @@ final class MuninnPagedFile implements PagedFile, Flushable
         Object[] chunk = translationTable[chunkId];
         Object element = UnsafeUtil.getAndSetObject( chunk, chunkOffset, null );
         assert element instanceof MuninnPage: "Expected to evict a MuninnPage but found " + element;
+        UnsafeUtil.getAndAddInt( this, residentPagesOffset, -1 );
         return (MuninnPage) element;
     }
 
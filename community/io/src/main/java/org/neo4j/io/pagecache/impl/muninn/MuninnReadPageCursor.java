@@ -57,6 +57,7 @@ final class MuninnReadPageCursor extends MuninnPageCursor
         {
             return false;
         }
+        readAhead( nextPageId, lastPageId );
         pin( nextPageId, false );
         currentPageId = nextPageId;
         nextPageId++;
@@ -79,7 +80,7 @@ final class MuninnReadPageCursor extends MuninnPageCursor
     protected void pinCursorToPage( MuninnPage page, long filePageId, PageSwapper swapper )
     {
         reset( page );
-        page.incrementUsage();
+        evictionPolicy.pageAccessed( page );
     }
 
     @Override
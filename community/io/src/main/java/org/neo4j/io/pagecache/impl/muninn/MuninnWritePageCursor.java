@@ -69,6 +69,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
                 pagedFile.increaseLastPageIdTo( nextPageId );
             }
         }
+        readAhead( nextPageId, lastPageId );
         pin( nextPageId, true );
         currentPageId = nextPageId;
         nextPageId++;
@@ -99,7 +100,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
         // after the reset() call, which means that if we throw, the cursor will
         // be closed and the page lock will be released.
         assertPagedFileStillMappedAndGetIdOfLastPage();
-        page.incrementUsage();
+        evictionPolicy.pageAccessed( page );
     }
 
     @Override
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.tracing.FlushEventOpportunity;
+
+/**
+ * Flushes and forces a number of mapped files, by splitting their translation tables into ranges of chunks, and
+ * handing those ranges out to a number of flusher threads. The thread that calls {@link #flush(Executor)} always takes
+ * part in the flushing, so a flush with a parallelism of one is done entirely by the calling thread, just like a
+ * sequential flush. Each file is forced by the thread that finishes flushing the last range of that file.
+ * <p>
+ * All the flusher threads share the given {@link IOLimiter}, and the calls to it are serialised, so the limiter sees
+ * the combined IO of all the flusher threads. While one flusher thread is paused by the limiter, the other threads
+ * will block on their next call to the limiter, so the limiter is as effective as it is for a sequential flush.
+ * No page locks are held while calling the limiter.
+ */
+final class ParallelFlush implements IOLimiter
+{
+    private static final int CHUNKS_PER_RANGE = 1;
+
+    private final List<Range> ranges;
+    private final AtomicInteger nextRange;
+    private final FlushEventOpportunity flushOpportunity;
+    private final IOLimiter limiter;
+    private final int parallelism;
+    private final CountDownLatch helpersDone;
+    private long limiterStamp = IOLimiter.INITIAL_STAMP; // Guarded by synchronized(this)
+    private IOException failure; // Guarded by synchronized(this)
+    private volatile boolean failed;
+
+    ParallelFlush( List<MuninnPagedFile> files, FlushEventOpportunity flushOpportunity, IOLimiter limiter,
+            int parallelism )
+    {
+        this.flushOpportunity = flushOpportunity;
+        this.limiter = limiter;
+        this.ranges = new ArrayList<>();
+        for ( MuninnPagedFile file : files )
+        {
+            int chunks = file.translationTableChunkCount();
+            AtomicInteger remainingRanges = new AtomicInteger();
+            int startChunk = 0;
+            do
+            {
+                ranges.add( new Range( file, startChunk, startChunk + CHUNKS_PER_RANGE, remainingRanges ) );
+                remainingRanges.incrementAndGet();
+                startChunk += CHUNKS_PER_RANGE;
+            }
+            while ( startChunk < chunks );
+        }
+        this.nextRange = new AtomicInteger();
+        this.parallelism = Math.max( 1, Math.min( parallelism, ranges.size() ) );
+        this.helpersDone = new CountDownLatch( this.parallelism - 1 );
+    }
+
+    /**
+     * Flush and force all the files, using the given executor to run any helper flusher threads.
+     */
+    void flush( MuninnPageCache pageCache, Executor executor ) throws IOException
+    {
+        for ( int i = 1; i < parallelism; i++ )
+        {
+            executor.execute( new FlushTask( pageCache, this ) );
+        }
+        try
+        {
+            flushRanges();
+        }
+        finally
+        {
+            awaitHelpers();
+        }
+        synchronized ( this )
+        {
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Called by the helper flusher threads.
+     */
+    void help()
+    {
+        try
+        {
+            flushRanges();
+        }
+        catch ( Throwable ignore )
+        {
+            // Already recorded in flushRanges, and will be rethrown by the thread that called flush.
+        }
+        finally
+        {
+            helpersDone.countDown();
+        }
+    }
+
+    private void flushRanges() throws IOException
+    {
+        int index;
+        while ( !failed && (index = nextRange.getAndIncrement()) < ranges.size() )
+        {
+            Range range = ranges.get( index );
+            try
+            {
+                range.file.flushRange( flushOpportunity, false, this, range.startChunk, range.endChunk );
+                if ( range.remainingRanges.decrementAndGet() == 0 )
+                {
+                    range.file.force();
+                }
+            }
+            catch ( IOException | RuntimeException | Error e )
+            {
+                failed( e );
+                throw e;
+            }
+        }
+    }
+
+    private synchronized void failed( Throwable e )
+    {
+        failed = true;
+        if ( failure == null )
+        {
+            failure = e instanceof IOException ? (IOException) e : new IOException( e );
+        }
+        else if ( failure != e )
+        {
+            failure.addSuppressed( e );
+        }
+    }
+
+    private void awaitHelpers()
+    {
+        boolean interrupted = false;
+        for (;;)
+        {
+            try
+            {
+                helpersDone.await();
+                break;
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized long maybeLimitIO( long previousStamp, int recentlyCompletedIOs, Flushable flushable )
+            throws IOException
+    {
+        // The stamps of the individual flusher threads are ignored, in favour of the one stamp we share among them.
+        limiterStamp = limiter.maybeLimitIO( limiterStamp, recentlyCompletedIOs, flushable );
+        return limiterStamp;
+    }
+
+    private static final class Range
+    {
+        private final MuninnPagedFile file;
+        private final int startChunk;
+        private final int endChunk;
+        private final AtomicInteger remainingRanges;
+
+        Range( MuninnPagedFile file, int startChunk, int endChunk, AtomicInteger remainingRanges )
+        {
+            this.file = file;
+            this.startChunk = startChunk;
+            this.endChunk = endChunk;
+            this.remainingRanges = remainingRanges;
+        }
+    }
+}
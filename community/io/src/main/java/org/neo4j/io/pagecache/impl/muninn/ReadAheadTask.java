@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+
+/**
+ * This Runnable faults a range of pages of a file into memory, ahead of a page cursor that is scanning the file
+ * sequentially.
+ * <p>
+ * Read-ahead is only a hint. If anything goes wrong, e.g. the file is unmapped or the page cache is closed
+ * concurrently, then the read-ahead is silently abandoned, and the pages will be faulted in the ordinary way when they
+ * are pinned.
+ *
+ * @see MuninnPageCache#readAhead(MuninnPagedFile, long, int)
+ * @see BulkPageFault
+ */
+final class ReadAheadTask extends BackgroundTask
+{
+    private final BulkPageFault bulkPageFault;
+
+    ReadAheadTask( MuninnPageCache pageCache, MuninnPagedFile pagedFile, long startPageId, int pageCount )
+    {
+        super( pageCache );
+        this.bulkPageFault = new BulkPageFault( pagedFile, startPageId, pageCount, PageCacheTracer.NULL );
+    }
+
+    @Override
+    protected void run( MuninnPageCache pageCache )
+    {
+        try
+        {
+            bulkPageFault.fault( pageCache.evictionPolicy );
+        }
+        catch ( Throwable ignore )
+        {
+            // The pages will be faulted in by the page cursors instead, which will also report the problem, if any.
+        }
+        finally
+        {
+            pageCache.readAheadCompleted();
+        }
+    }
+}
@@ -30,6 +30,22 @@ public interface PageCacheCounters
      */
     long faults();
 
+    /**
+     * @return The number of page pins that found their page already in memory, thus far.
+     */
+    long hits();
+
+    /**
+     * @return The ratio of page pins that found their page already in memory, rather than having to fault it in,
+     * thus far. This is a number between 0 and 1, and is 0 if no pins have been observed.
+     */
+    default double hitRatio()
+    {
+        long hits = hits();
+        long total = hits + faults();
+        return total == 0 ? 0.0 : ((double) hits) / total;
+    }
+
     /**
      * @return The number of page evictions observed thus far.
      */
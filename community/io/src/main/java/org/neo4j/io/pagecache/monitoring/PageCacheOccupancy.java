@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.monitoring;
+
+import org.neo4j.io.pagecache.PageReservation;
+
+/**
+ * The PageCacheOccupancy exposes how the pages of the page cache are shared between the mapped files, and how much
+ * memory they occupy.
+ * Files are identified by their name, without their path, and the numbers are summed over all mapped files with the
+ * given name.
+ */
+public interface PageCacheOccupancy
+{
+    /**
+     * @return The number of cache pages currently holding pages of the mapped files with the given name.
+     */
+    long residentPages( String fileName );
+
+    /**
+     * @return The number of cache pages reserved through {@link PageReservation} for the mapped files with the given
+     * name.
+     */
+    long reservedPages( String fileName );
+
+    /**
+     * @return The number of bytes of memory that the page cache has allocated for its cache pages so far. Cache pages
+     * get their memory when they are first used, so this grows as the page cache warms up.
+     */
+    long allocatedMemory();
+
+    /**
+     * @return An estimate of the number of cache pages that currently hold changes that have not been written out.
+     */
+    long dirtyPages();
+
+    /**
+     * @return The number of dirty pages that the background page cleaner has written out so far.
+     */
+    long cleanedPages();
+}
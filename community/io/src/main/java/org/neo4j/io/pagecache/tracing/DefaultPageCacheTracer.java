@@ -83,6 +83,7 @@ public class DefaultPageCacheTracer implements PageCacheTracer
     }
 
     protected final AtomicLong faults = new AtomicLong();
+    protected final AtomicLong hits = new AtomicLong();
     protected final AtomicLong evictions = new AtomicLong();
     protected final AtomicLong pins = new AtomicLong();
     protected final AtomicLong unpins = new AtomicLong();
@@ -217,6 +218,12 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         {
         }
 
+        @Override
+        public void hit()
+        {
+            hits.getAndIncrement();
+        }
+
         @Override
         public PageFaultEvent beginPageFault()
         {
@@ -237,6 +244,12 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         {
         }
 
+        @Override
+        public void hit()
+        {
+            hits.getAndIncrement();
+        }
+
         @Override
         public PageFaultEvent beginPageFault()
         {
@@ -331,6 +344,12 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         return faults.get();
     }
 
+    @Override
+    public long hits()
+    {
+        return hits.get();
+    }
+
     @Override
     public long evictions()
     {
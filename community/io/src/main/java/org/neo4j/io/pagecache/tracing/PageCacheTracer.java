@@ -76,6 +76,12 @@ public interface PageCacheTracer extends PageCacheCounters
             return 0;
         }
 
+        @Override
+        public long hits()
+        {
+            return 0;
+        }
+
         @Override
         public long evictions()
         {
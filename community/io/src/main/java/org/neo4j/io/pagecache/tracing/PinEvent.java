@@ -34,6 +34,11 @@ public interface PinEvent
         {
         }
 
+        @Override
+        public void hit()
+        {
+        }
+
         @Override
         public PageFaultEvent beginPageFault()
         {
@@ -51,6 +56,11 @@ public interface PinEvent
      */
     public void setCachePageId( int cachePageId );
 
+    /**
+     * The page we want to pin is already in memory, so no page fault is needed.
+     */
+    public void hit();
+
     /**
      * The page we want to pin is not in memory, so being a page fault to load it in.
      */
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.PageSwapperFactory;
+import org.neo4j.io.pagecache.PageSwapperTest;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressingPageSwapperTest extends PageSwapperTest
+{
+    private static final int FILE_PAGE_SIZE = 8192;
+
+    // A rule, rather than an @After method, so the file system outlives the swappers that are closed after each test.
+    @Rule
+    public final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+
+    private EphemeralFileSystemAbstraction fs;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        fs = fsRule.get();
+        file = new File( "file" ).getCanonicalFile();
+    }
+
+    @Override
+    protected PageSwapperFactory swapperFactory()
+    {
+        CompressingPageSwapperFactory factory = new CompressingPageSwapperFactory(
+                new SingleFilePageSwapperFactory(), Arrays.asList( "a", "b", "file", "does not exist" ) );
+        factory.setFileSystemAbstraction( fs );
+        return factory;
+    }
+
+    @Override
+    protected void mkdirs( File dir ) throws IOException
+    {
+        fs.mkdirs( dir );
+    }
+
+    @Override
+    protected File baseDirectory() throws IOException
+    {
+        File dir = file.getParentFile();
+        mkdirs( dir );
+        return dir;
+    }
+
+    /**
+     * Compressed files cannot be reopened with a different file page size, so this test instead checks that this is
+     * refused.
+     */
+    @Override
+    public void positionedVectoredReadWhereLastPageExtendBeyondEndOfFileMustHaveRemainderZeroFilled() throws Exception
+    {
+        mustRefuseToReopenFileWithDifferentFilePageSize();
+    }
+
+    /**
+     * Compressed files cannot be reopened with a different file page size, so this test instead checks that this is
+     * refused.
+     */
+    @Override
+    public void positionedVectoredReadWhereSecondLastPageExtendBeyondEndOfFileMustHaveRestZeroFilled() throws Exception
+    {
+        mustRefuseToReopenFileWithDifferentFilePageSize();
+    }
+
+    private void mustRefuseToReopenFileWithDifferentFilePageSize() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapper( factory, file, 4, NO_CALLBACK, true );
+        swapper.write( 0, createPage( 4 ) );
+        swapper.close();
+
+        try
+        {
+            createSwapper( factory, file, 8, NO_CALLBACK, false );
+            fail( "Should have refused to open the file with a different file page size" );
+        }
+        catch ( IOException e )
+        {
+            assertThat( e.getMessage(), containsString( "file page size" ) );
+        }
+    }
+
+    private ByteBufferPage compressiblePage( long value )
+    {
+        ByteBufferPage page = createPage( FILE_PAGE_SIZE );
+        for ( int i = 0; i < FILE_PAGE_SIZE; i += 16 )
+        {
+            page.putLong( value, i );
+        }
+        return page;
+    }
+
+    @Test
+    public void mustStoreCompressiblePagesInLessSpaceAndReadThemBackAfterReopen() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        assertThat( swapper, instanceOf( CompressingPageSwapper.class ) );
+        int pageCount = 100;
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            swapper.write( i, compressiblePage( X + i ) );
+        }
+        swapper.force();
+        swapper.close();
+
+        assertThat( fs.getFileSize( file ), lessThan( pageCount * (long) FILE_PAGE_SIZE / 4 ) );
+        assertTrue( fs.fileExists( CompressingPageSwapper.mappingFile( file ) ) );
+
+        swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, false );
+        assertThat( swapper.getLastPageId(), is( pageCount - 1L ) );
+        ByteBufferPage page = createPage( FILE_PAGE_SIZE );
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            assertThat( swapper.read( i, page ), is( (long) FILE_PAGE_SIZE ) );
+            for ( int j = 0; j < FILE_PAGE_SIZE; j += 16 )
+            {
+                assertThat( page.getLong( j ), is( X + i ) );
+                assertThat( page.getLong( j + 8 ), is( 0L ) );
+            }
+        }
+    }
+
+    @Test
+    public void mustReuseSlotsOfRewrittenPagesAfterForce() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        for ( int round = 0; round < 3; round++ )
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                swapper.write( i, compressiblePage( round ) );
+            }
+            swapper.force();
+        }
+        long sizeAfterThreeRounds = fs.getFileSize( file );
+
+        for ( int round = 0; round < 10; round++ )
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                swapper.write( i, compressiblePage( round ) );
+            }
+            swapper.force();
+        }
+        assertThat( fs.getFileSize( file ), lessThan( sizeAfterThreeRounds + CompressingPageSwapper.MIN_SLOT_SIZE ) );
+    }
+
+    @Test
+    public void mustStoreIncompressiblePagesUncompressed() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        ByteBufferPage page = createPage( FILE_PAGE_SIZE );
+        long value = X;
+        for ( int i = 0; i < FILE_PAGE_SIZE; i += 8 )
+        {
+            value = value * 6364136223846793005L + 1442695040888963407L;
+            page.putLong( value, i );
+        }
+        swapper.write( 0, page );
+        swapper.force();
+        assertThat( fs.getFileSize( file ), is( (long) FILE_PAGE_SIZE ) );
+
+        ByteBufferPage readPage = createPage( FILE_PAGE_SIZE );
+        swapper.read( 0, readPage );
+        for ( int i = 0; i < FILE_PAGE_SIZE; i += 8 )
+        {
+            assertThat( readPage.getLong( i ), is( page.getLong( i ) ) );
+        }
+    }
+
+    @Test
+    public void mustDelegateUnconfiguredAndExistingUncompressedFiles() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        File other = new File( baseDirectory(), "other" );
+        PageSwapper swapper = createSwapper( factory, other, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        assertThat( swapper, not( instanceOf( CompressingPageSwapper.class ) ) );
+
+        swapper.write( 0, compressiblePage( X ) );
+        swapper.close();
+
+        // An existing file that has no page mapping is not compressed, even if it is configured to be.
+        fs.copyFile( other, file );
+        swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, false );
+        assertThat( swapper, not( instanceOf( CompressingPageSwapper.class ) ) );
+        swapper.closeAndDelete();
+
+        swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        assertThat( swapper, instanceOf( CompressingPageSwapper.class ) );
+        swapper.write( 0, compressiblePage( X ) );
+        swapper.force();
+        assertTrue( fs.fileExists( CompressingPageSwapper.mappingFile( file ) ) );
+        swapper.closeAndDelete();
+        assertFalse( fs.fileExists( CompressingPageSwapper.mappingFile( file ) ) );
+    }
+
+    @Test
+    public void mustOnlyAppendChangedMappingEntriesOnForce() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        int pageCount = 1000;
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            swapper.write( i, compressiblePage( X + i ) );
+        }
+        swapper.force();
+        File mappingFile = CompressingPageSwapper.mappingFile( file );
+        long snapshotSize = fs.getFileSize( mappingFile );
+        assertThat( snapshotSize, greaterThan( pageCount * 12L ) );
+
+        long previousSize = snapshotSize;
+        for ( int round = 1; round <= 10; round++ )
+        {
+            swapper.write( round, compressiblePage( Y + round ) );
+            swapper.force();
+            // A delta with one changed entry is appended, rather than the whole table being rewritten.
+            long size = fs.getFileSize( mappingFile );
+            assertThat( size, greaterThan( previousSize ) );
+            assertThat( size, lessThan( previousSize + 100 ) );
+            previousSize = size;
+        }
+        swapper.close();
+
+        swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, false );
+        assertThat( swapper.getLastPageId(), is( pageCount - 1L ) );
+        ByteBufferPage page = createPage( FILE_PAGE_SIZE );
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            swapper.read( i, page );
+            assertThat( page.getLong( 0 ), is( i >= 1 && i <= 10 ? Y + i : X + i ) );
+        }
+        swapper.close();
+    }
+
+    @Test
+    public void mustReplaceMappingFileWithSnapshotWhenDeltasGrowLargerThanTable() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        for ( int i = 0; i < 10; i++ )
+        {
+            swapper.write( i, compressiblePage( X + i ) );
+        }
+        swapper.force();
+        File mappingFile = CompressingPageSwapper.mappingFile( file );
+        long snapshotSize = fs.getFileSize( mappingFile );
+
+        for ( int round = 0; round < 100; round++ )
+        {
+            swapper.write( round % 10, compressiblePage( round ) );
+            swapper.force();
+            assertThat( fs.getFileSize( mappingFile ), lessThan( 3 * snapshotSize ) );
+        }
+        swapper.close();
+
+        swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, false );
+        ByteBufferPage page = createPage( FILE_PAGE_SIZE );
+        for ( int i = 0; i < 10; i++ )
+        {
+            swapper.read( i, page );
+            assertThat( page.getLong( 0 ), is( 90L + i ) );
+        }
+        swapper.close();
+    }
+
+    @Test
+    public void mustIgnoreTornDeltaAtEndOfMappingFile() throws Exception
+    {
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, true );
+        for ( int i = 0; i < 100; i++ )
+        {
+            swapper.write( i, compressiblePage( X ) );
+        }
+        swapper.force();
+        swapper.write( 0, compressiblePage( Y ) );
+        swapper.force();
+        File mappingFile = CompressingPageSwapper.mappingFile( file );
+        long sizeBeforeTornDelta = fs.getFileSize( mappingFile );
+        swapper.write( 1, compressiblePage( Y ) );
+        swapper.force();
+        swapper.close();
+
+        // Simulate a crash in the middle of appending the last delta, by corrupting its checksum.
+        try ( StoreChannel channel = fs.open( mappingFile, "rw" ) )
+        {
+            channel.writeAll( ByteBuffer.wrap( new byte[]{1, 2, 3, 4} ), channel.size() - 4 );
+        }
+
+        swapper = createSwapper( factory, file, FILE_PAGE_SIZE, NO_CALLBACK, false );
+        assertThat( fs.getFileSize( mappingFile ), is( sizeBeforeTornDelta ) );
+        ByteBufferPage page = createPage( FILE_PAGE_SIZE );
+        swapper.read( 0, page );
+        assertThat( page.getLong( 0 ), is( Y ) );
+        swapper.read( 1, page );
+        assertThat( page.getLong( 0 ), is( X ) );
+        swapper.close();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.PageSwapperFactory;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MemoryMappedPageSwapperTest extends SingleFilePageSwapperTest
+{
+    private static final int PAGES_PER_SEGMENT = 4;
+
+    @Override
+    protected PageSwapperFactory swapperFactory()
+    {
+        MemoryMappedPageSwapperFactory factory =
+                new MemoryMappedPageSwapperFactory( PAGES_PER_SEGMENT * (long) cachePageSize() );
+        factory.setFileSystemAbstraction( getFs() );
+        return factory;
+    }
+
+    @Override
+    protected File getFile()
+    {
+        return testDir.file( super.getFile().getName() );
+    }
+
+    @Override
+    protected FileSystemAbstraction getFs()
+    {
+        return getRealFileSystem();
+    }
+
+    @Test
+    public void mustReadPagesThroughMappedSegmentsAndSeeLaterWrites() throws Exception
+    {
+        File file = getFile();
+        PageSwapperFactory factory = createSwapperFactory();
+        PageSwapper swapper = createSwapperAndFile( factory, file );
+        int pageCount = PAGES_PER_SEGMENT * 3 + 1;
+        ByteBufferPage page = createPage();
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            page.putLong( i, 0 );
+            swapper.write( i, page );
+        }
+
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            clear( page );
+            assertThat( swapper.read( i, page ), is( (long) cachePageSize() ) );
+            assertThat( page.getLong( 0 ), is( (long) i ) );
+        }
+
+        // Overwrite a page in a segment that is now mapped, and check that the mapping sees the write.
+        page.putLong( 42, 0 );
+        swapper.write( 1, page );
+        clear( page );
+        swapper.read( 1, page );
+        assertThat( page.getLong( 0 ), is( 42L ) );
+
+        ByteBufferPage[] pages = new ByteBufferPage[PAGES_PER_SEGMENT * 2];
+        for ( int i = 0; i < pages.length; i++ )
+        {
+            pages[i] = createPage();
+        }
+        assertThat( swapper.read( PAGES_PER_SEGMENT, pages, 0, pages.length ),
+                is( (long) pages.length * cachePageSize() ) );
+        for ( int i = 0; i < pages.length; i++ )
+        {
+            assertThat( pages[i].getLong( 0 ), is( (long) PAGES_PER_SEGMENT + i ) );
+        }
+
+        swapper.truncate();
+        clear( page );
+        assertThat( swapper.read( 1, page ), is( 0L ) );
+        assertThat( page.getLong( 0 ), is( 0L ) );
+    }
+}
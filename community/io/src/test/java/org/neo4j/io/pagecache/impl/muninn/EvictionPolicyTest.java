@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.junit.Test;
+
+import org.neo4j.unsafe.impl.internal.dragons.MemoryManager;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EvictionPolicyTest
+{
+    private final MuninnPage page = new MuninnPage( 8192, new MemoryManager( 8192, 8 ) );
+
+    @Test
+    public void clockMustRewardEveryAccessWithHigherUsage() throws Exception
+    {
+        EvictionPolicy policy = EvictionPolicy.CLOCK;
+        policy.pageFaulted( page );
+        accessManyTimes( policy );
+
+        assertFalse( policy.sweep( page ) );
+        assertFalse( policy.sweep( page ) );
+        assertTrue( policy.sweep( page ) );
+    }
+
+    @Test
+    public void scanResistantMustCountAccessesBetweenSweepsAsOne() throws Exception
+    {
+        EvictionPolicy policy = EvictionPolicy.SCAN_RESISTANT;
+        policy.pageFaulted( page );
+        accessManyTimes( policy );
+
+        assertFalse( policy.sweep( page ) );
+        assertTrue( policy.sweep( page ) );
+    }
+
+    @Test
+    public void scanResistantMustPromotePagesReferencedInManySweeps() throws Exception
+    {
+        EvictionPolicy policy = EvictionPolicy.SCAN_RESISTANT;
+        policy.pageFaulted( page );
+        for ( int i = 0; i < MuninnPage.MAX_USAGE_COUNT * 2; i++ )
+        {
+            accessManyTimes( policy );
+            assertFalse( policy.sweep( page ) );
+        }
+
+        for ( int i = 1; i < MuninnPage.MAX_USAGE_COUNT; i++ )
+        {
+            assertFalse( policy.sweep( page ) );
+        }
+        assertTrue( policy.sweep( page ) );
+    }
+
+    @Test
+    public void scanResistantMustPutFaultedPagesOnProbation() throws Exception
+    {
+        EvictionPolicy policy = EvictionPolicy.SCAN_RESISTANT;
+        for ( int i = 0; i < MuninnPage.MAX_USAGE_COUNT; i++ )
+        {
+            accessManyTimes( policy );
+            policy.sweep( page );
+        }
+        policy.pageFaulted( page );
+        policy.pageAccessed( page );
+
+        assertFalse( policy.sweep( page ) );
+        assertTrue( policy.sweep( page ) );
+    }
+
+    private void accessManyTimes( EvictionPolicy policy )
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            policy.pageAccessed( page );
+        }
+    }
+}
@@ -24,17 +24,27 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.graphdb.mockfs.DelegatingFileSystemAbstraction;
 import org.neo4j.graphdb.mockfs.DelegatingStoreChannel;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCacheTest;
 import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PageReservation;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.RecordingPageCacheTracer;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.DelegatingPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.EvictionRunEvent;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
@@ -48,6 +58,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo4j.io.pagecache.RecordingPageCacheTracer.Evict;
 import static org.neo4j.io.pagecache.RecordingPageCacheTracer.Fault;
@@ -204,6 +215,351 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         assertThat( buf.getLong(), is( 0L ) );
     }
 
+    @Test
+    public void mustNotEvictPagesOfFileWithinItsReservation() throws Exception
+    {
+        writeInitialDataTo( file( "a" ) );
+        writeInitialDataTo( file( "b" ) );
+        RecordingPageCacheTracer tracer = new RecordingPageCacheTracer();
+
+        MuninnPageCache pageCache = createPageCache( fs, 4, 8, blockCacheFlush( tracer ) );
+        try ( PagedFile reserved = pageCache.map( file( "a" ), 8, PageReservation.ratio( 0.5 ) );
+              PagedFile unreserved = pageCache.map( file( "b" ), 8 ) )
+        {
+            try ( PageCursor cursor = reserved.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+            }
+            try ( PageCursor cursor = unreserved.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+            }
+            assertThat( pageCache.reservedPages( "a" ), is( 2L ) );
+            assertThat( pageCache.residentPages( "a" ), is( 1L ) );
+            assertThat( pageCache.residentPages( "b" ), is( 1L ) );
+
+            pageCache.evictPages( 1, 0, tracer.beginPageEvictions( 1 ) );
+
+            assertThat( pageCache.residentPages( "a" ), is( 1L ) );
+            assertThat( pageCache.residentPages( "b" ), is( 0L ) );
+        }
+    }
+
+    @Test
+    public void mustThrowWhenReservingTooManyPages() throws Exception
+    {
+        writeInitialDataTo( file( "a" ) );
+        writeInitialDataTo( file( "b" ) );
+
+        MuninnPageCache pageCache = createPageCache( fs, 4, 8, PageCacheTracer.NULL );
+        try ( PagedFile ignore = pageCache.map( file( "a" ), 8, PageReservation.ratio( 0.5 ) ) )
+        {
+            expectedException.expect( IllegalArgumentException.class );
+            pageCache.map( file( "b" ), 8, PageReservation.ratio( 0.5 ) );
+        }
+    }
+
+    @Test
+    public void mustReleaseReservationWhenFileIsUnmapped() throws Exception
+    {
+        writeInitialDataTo( file( "a" ) );
+        writeInitialDataTo( file( "b" ) );
+
+        MuninnPageCache pageCache = createPageCache( fs, 4, 8, PageCacheTracer.NULL );
+        pageCache.map( file( "a" ), 8, PageReservation.ratio( 0.5 ) ).close();
+        try ( PagedFile ignore = pageCache.map( file( "b" ), 8, PageReservation.ratio( 0.5 ) ) )
+        {
+            assertThat( pageCache.reservedPages( "a" ), is( 0L ) );
+            assertThat( pageCache.reservedPages( "b" ), is( 2L ) );
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustReadAheadOfSequentialScan() throws Exception
+    {
+        int filePages = 64;
+        try ( StoreChannel channel = fs.create( file( "a" ) ) )
+        {
+            ByteBuffer buf = ByteBuffer.allocate( 8 * filePages );
+            for ( long i = 0; i < filePages; i++ )
+            {
+                buf.putLong( i );
+            }
+            buf.flip();
+            channel.writeAll( buf );
+        }
+
+        MuninnPageCache pageCache = createPageCache( fs, 256, 8, PageCacheTracer.NULL );
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                assertTrue( cursor.next() );
+                assertTrue( cursor.next() );
+            }
+            while ( pageCache.residentPages( "a" ) <= 2 )
+            {
+                Thread.sleep( 1 );
+            }
+
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                for ( long i = 0; i < filePages; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    long value;
+                    do
+                    {
+                        value = cursor.getLong( 0 );
+                    }
+                    while ( cursor.shouldRetry() );
+                    assertThat( value, is( i ) );
+                }
+                assertFalse( cursor.next() );
+            }
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void readAheadMustNotBeCountedAsPinsOrFaults() throws Exception
+    {
+        int filePages = 64;
+        try ( StoreChannel channel = fs.create( file( "a" ) ) )
+        {
+            channel.writeAll( ByteBuffer.allocate( 8 * filePages ) );
+        }
+
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPageCache( fs, 256, 8, tracer );
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                assertTrue( cursor.next() );
+                assertTrue( cursor.next() );
+                // Moving to the same page again is neither sequential nor a reset of the read-ahead
+                assertTrue( cursor.next( 1 ) );
+            }
+            long pins = tracer.pins();
+            long faults = tracer.faults();
+            while ( pageCache.residentPages( "a" ) <= 2 )
+            {
+                Thread.sleep( 1 );
+            }
+            assertThat( tracer.pins(), is( pins ) );
+            assertThat( tracer.faults(), is( faults ) );
+        }
+    }
+
+    @Test
+    public void mustVisitResidentPagesAndLoadPagesInBulk() throws Exception
+    {
+        int filePages = 8;
+        try ( StoreChannel channel = fs.create( file( "a" ) ) )
+        {
+            ByteBuffer buf = ByteBuffer.allocate( 8 * filePages );
+            for ( long i = 0; i < filePages; i++ )
+            {
+                buf.putLong( i );
+            }
+            buf.flip();
+            channel.writeAll( buf );
+        }
+
+        MuninnPageCache pageCache = createPageCache( fs, 64, 8, PageCacheTracer.NULL );
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next( 1 ) );
+                assertTrue( cursor.next( 2 ) );
+                assertTrue( cursor.next( 5 ) );
+            }
+            List<Long> residentPages = new ArrayList<>();
+            pageCache.visitResidentPages( pagedFile, residentPages::add );
+            assertThat( residentPages, is( Arrays.asList( 1L, 2L, 5L ) ) );
+
+            // Pages beyond the end of the file are ignored
+            assertThat( pageCache.loadPages( pagedFile, 0, filePages * 2 ), is( filePages - 3L ) );
+
+            residentPages.clear();
+            pageCache.visitResidentPages( pagedFile, residentPages::add );
+            assertThat( residentPages.size(), is( filePages ) );
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                for ( long i = 0; i < filePages; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    assertThat( cursor.getLong( 0 ), is( i ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mustAllocatePageMemoryInHugePageAlignedChunks() throws Exception
+    {
+        long hugePageSize = 2 * 1024 * 1024;
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        MuninnPageCache pageCache =
+                new MuninnPageCache( swapperFactory, 64, 8, PageCacheTracer.NULL, EvictionPolicy.CLOCK, true );
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            assertThat( pageCache.allocatedMemory(), is( 0L ) );
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( long i = 0; i < 8; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( i );
+                }
+            }
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                for ( long i = 0; i < 8; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    assertThat( cursor.getLong(), is( i ) );
+                }
+            }
+            assertTrue( pageCache.allocatedMemory() > 0 );
+            assertThat( pageCache.allocatedMemory() % hugePageSize, is( 0L ) );
+        }
+        finally
+        {
+            pageCache.close();
+        }
+    }
+
+    @Test
+    public void parallelFlushMustFlushAllDirtyPagesOfAllFilesAndShareTheLimiter() throws Exception
+    {
+        int filePages = 10_000; // Spans three translation table chunks per file.
+        File[] files = {file( "a" ), file( "b" ), file( "c" )};
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        int maxPages = filePages * files.length + 100;
+        MuninnPageCache pageCache = new MuninnPageCache(
+                swapperFactory, maxPages, 8, PageCacheTracer.NULL, EvictionPolicy.CLOCK, false, 4 );
+        AtomicInteger concurrentLimiterCalls = new AtomicInteger();
+        AtomicInteger maxConcurrentLimiterCalls = new AtomicInteger();
+        AtomicLong flushedPages = new AtomicLong();
+        IOLimiter limiter = ( stamp, ios, flushable ) ->
+        {
+            int calls = concurrentLimiterCalls.incrementAndGet();
+            maxConcurrentLimiterCalls.accumulateAndGet( calls, Math::max );
+            flushedPages.addAndGet( ios );
+            concurrentLimiterCalls.decrementAndGet();
+            return stamp + 1;
+        };
+        try
+        {
+            List<PagedFile> pagedFiles = new ArrayList<>();
+            for ( File file : files )
+            {
+                PagedFile pagedFile = pageCache.map( file, 8, StandardOpenOption.CREATE );
+                pagedFiles.add( pagedFile );
+                try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+                {
+                    for ( long i = 0; i < filePages; i++ )
+                    {
+                        assertTrue( cursor.next() );
+                        cursor.putLong( i );
+                    }
+                }
+            }
+
+            pageCache.flushAndForce( limiter );
+
+            assertThat( flushedPages.get(), is( (long) filePages * files.length ) );
+            assertThat( maxConcurrentLimiterCalls.get(), is( 1 ) );
+            for ( File file : files )
+            {
+                try ( StoreChannel channel = fs.open( file, "r" ) )
+                {
+                    ByteBuffer buf = ByteBuffer.allocate( 8 * filePages );
+                    while ( buf.hasRemaining() && channel.read( buf ) != -1 )
+                    {
+                        // Keep reading until the buffer is full.
+                    }
+                    buf.flip();
+                    for ( long i = 0; i < filePages; i++ )
+                    {
+                        assertThat( buf.getLong(), is( i ) );
+                    }
+                }
+            }
+
+            // Everything is clean now, so there is nothing more to flush.
+            flushedPages.set( 0 );
+            pagedFiles.get( 0 ).flushAndForce( limiter );
+            assertThat( flushedPages.get(), is( 0L ) );
+            for ( PagedFile pagedFile : pagedFiles )
+            {
+                pagedFile.close();
+            }
+        }
+        finally
+        {
+            pageCache.close();
+        }
+    }
+
+    @Test( timeout = 60_000 )
+    public void backgroundCleanerMustWriteOutDirtyPages() throws Exception
+    {
+        int filePages = 100;
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        MuninnPageCache pageCache = new MuninnPageCache(
+                swapperFactory, 200, 8, PageCacheTracer.NULL, EvictionPolicy.CLOCK, false, 1, 200 );
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), 8, StandardOpenOption.CREATE ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( long i = 0; i < filePages; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( i );
+                }
+            }
+            assertThat( pageCache.dirtyPages(), is( (long) filePages ) );
+
+            while ( pageCache.dirtyPages() > 0 )
+            {
+                Thread.sleep( 10 );
+            }
+            assertThat( pageCache.cleanedPages(), is( (long) filePages ) );
+            try ( StoreChannel channel = fs.open( file( "a" ), "r" ) )
+            {
+                ByteBuffer buf = ByteBuffer.allocate( 8 * filePages );
+                while ( buf.hasRemaining() && channel.read( buf ) != -1 )
+                {
+                    // Keep reading until the buffer is full.
+                }
+                buf.flip();
+                for ( long i = 0; i < filePages; i++ )
+                {
+                    assertThat( buf.getLong(), is( i ) );
+                }
+            }
+
+            // The cleaner has done all the work, so the check point has nothing left to flush.
+            AtomicLong flushedPages = new AtomicLong();
+            pagedFile.flushAndForce( ( stamp, ios, flushable ) ->
+            {
+                flushedPages.addAndGet( ios );
+                return stamp;
+            } );
+            assertThat( flushedPages.get(), is( 0L ) );
+        }
+        finally
+        {
+            pageCache.close();
+        }
+    }
+
     @Test
     public void closingTheCursorMustUnlockModifiedPage() throws Exception
     {
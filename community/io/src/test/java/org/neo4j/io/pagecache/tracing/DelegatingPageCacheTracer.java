@@ -112,6 +112,11 @@ public class DelegatingPageCacheTracer implements PageCacheTracer
         return delegate.faults();
     }
 
+    public long hits()
+    {
+        return delegate.hits();
+    }
+
     public long evictions()
     {
         return delegate.evictions();
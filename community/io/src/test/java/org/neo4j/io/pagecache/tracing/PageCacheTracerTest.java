@@ -85,6 +85,26 @@ public abstract class PageCacheTracerTest
         assertCounts( 1, 1, 2, 0, 0, 0, 84, 0, 0, 0 );
     }
 
+    @Test
+    public void mustCountHitsAndComputeHitRatio()
+    {
+        PinEvent pinEvent = tracer.beginPin( false, 0, swapper );
+        pinEvent.hit();
+        pinEvent.done();
+        pinEvent = tracer.beginPin( false, 0, swapper );
+        pinEvent.hit();
+        pinEvent.done();
+        pinEvent = tracer.beginPin( false, 1, swapper );
+        pinEvent.beginPageFault().done();
+        pinEvent.done();
+        pinEvent = tracer.beginPin( false, 0, swapper );
+        pinEvent.hit();
+        pinEvent.done();
+
+        assertThat( "hits", tracer.hits(), is( 3L ) );
+        assertThat( "hitRatio", tracer.hitRatio(), is( 0.75 ) );
+    }
+
     @Test
     public void mustCountEvictions()
     {
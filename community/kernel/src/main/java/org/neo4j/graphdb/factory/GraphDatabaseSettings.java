@@ -29,6 +29,7 @@ import org.neo4j.graphdb.config.Setting;
 import org.neo4j.helpers.AdvertisedSocketAddress;
 import org.neo4j.helpers.ListenSocketAddress;
 import org.neo4j.io.ByteUnit;
+import org.neo4j.io.pagecache.impl.muninn.EvictionPolicy;
 import org.neo4j.kernel.configuration.BoltConnectorValidator;
 import org.neo4j.kernel.configuration.ConfigurationMigrator;
 import org.neo4j.kernel.configuration.GraphDatabaseConfigurationMigrator;
@@ -321,6 +322,12 @@ public class GraphDatabaseSettings implements LoadableConfig
     @Deprecated
     public static final Setting<List<String>> relationship_keys_indexable = setting("dbms.auto_index.relationships.keys", STRING_LIST, "" );
 
+    @Description( "Schema index provider to use for newly created indexes, given as provider key and version, " +
+                  "e.g. `lucene-1.0` or `lucene+native-1.0`. Existing indexes keep using the provider they were " +
+                  "created with. Default value: the available provider with highest priority, i.e. `lucene-1.0`." )
+    public static final Setting<String> default_schema_provider =
+            setting( "dbms.index.default_schema_provider", STRING, NO_DEFAULT );
+
     // Index sampling
     @Description("Enable or disable background index sampling")
     public static final Setting<Boolean> index_background_sampling_enabled =
@@ -364,6 +371,18 @@ public class GraphDatabaseSettings implements LoadableConfig
                   "`0` means that no rotation will automatically occur based on file size. " )
     public static final Setting<Long> logical_log_rotation_threshold = setting( "dbms.tx_log.rotation.size", BYTES, "250M", min( 1024*1024L /*1Mb*/ ) );
 
+    @Description( "Write larger commands compressed into the transaction log. This trades some CPU for less log " +
+                  "IO on commit. Logs containing compressed commands can not be read by versions prior to 3.2. " +
+                  "Transactions sent to other cluster members or backup clients are not compressed." )
+    @Internal
+    public static final Setting<Boolean> tx_log_compression = setting( "unsupported.dbms.tx_log.compression", BOOLEAN, FALSE );
+
+    @Description( "Preallocate transaction log files to the rotation size in the background, such that rotation " +
+                  "only has to switch over to an already prepared file. Pruned log files are recycled into " +
+                  "new log files instead of being deleted." )
+    @Internal
+    public static final Setting<Boolean> tx_log_preallocation = setting( "unsupported.dbms.tx_log.preallocation", BOOLEAN, FALSE );
+
     @Description("Use a quick approach for rebuilding the ID generators. This give quicker recovery time, " +
             "but will limit the ability to reuse the space of deleted entities.")
     @Internal
@@ -385,11 +404,75 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<Long> pagecache_memory =
             setting( "dbms.memory.pagecache.size", BYTES, null, min( 8192 * 30L ) );
 
-    @Description( "Specify which page swapper to use for doing paged IO. " +
-                  "This is only used when integrating with proprietary storage technology." )
+    @Description( "Specify which page swapper to use for doing paged IO. The built-in swappers are `single`, which " +
+                  "is the default, and `mmap`, which reads pages from memory mapped files. Other swappers can be " +
+                  "used when integrating with proprietary storage technology." )
     public static final Setting<String> pagecache_swapper =
             setting( "dbms.memory.pagecache.swapper", STRING, (String) null );
 
+    @Description( "Store the given store files compressed, as a comma separated list of file names, for instance " +
+                  "`neostore.propertystore.db.strings`. Each page is compressed individually, which saves disk space " +
+                  "and IO bandwidth for large and rarely accessed files, at the cost of CPU time on every page " +
+                  "fault and flush. Only files that are created while this is configured are compressed, and each " +
+                  "compressed file has its page mapping kept in a separate `.cmap` file next to it." )
+    @Internal
+    public static final Setting<List<String>> pagecache_compressed_files =
+            setting( "unsupported.dbms.memory.pagecache.compressed_files", STRING_LIST, "" );
+
+    @Description( "Specify the policy the page cache uses for choosing which pages to evict. The `CLOCK` policy " +
+                  "evicts the pages that have been pinned the least. The `SCAN_RESISTANT` policy counts all the " +
+                  "accesses to a page in a short period of time as one, which prevents large scans, for instance " +
+                  "from a consistency check or an analytical query, from pushing the working set out of the " +
+                  "page cache." )
+    public static final Setting<EvictionPolicy> pagecache_eviction_policy =
+            setting( "dbms.memory.pagecache.eviction_policy", options( EvictionPolicy.class ),
+                    EvictionPolicy.CLOCK.name() );
+
+    @Description( "Allocate the page cache memory in huge page aligned chunks, so the operating system can back it " +
+                  "with transparent huge pages. This reduces TLB misses when the page cache is large, but only has " +
+                  "an effect if transparent huge pages are enabled for all memory, and not just on request. " +
+                  "On NUMA machines, the page cache memory is placed on the node of the thread that first uses it. " +
+                  "To spread it evenly across the nodes instead, start the database with `numactl --interleave=all`." )
+    public static final Setting<Boolean> pagecache_huge_pages =
+            setting( "dbms.memory.pagecache.huge_pages", BOOLEAN, FALSE );
+
+    @Description( "The number of threads that flush dirty pages in parallel, when the page cache is flushed by a " +
+                  "checkpoint. The flushing is split into ranges of pages across all the store files. Storage " +
+                  "devices that can serve many concurrent writes, such as NVMe drives, benefit from more threads. " +
+                  "The `dbms.checkpoint.iops.limit` applies to the combined IO of all the threads." )
+    public static final Setting<Integer> pagecache_flush_threads =
+            setting( "dbms.memory.pagecache.flush_threads", INTEGER, "1", min( 1 ) );
+
+    @Description( "Enable the background page cleaner, which continuously writes dirty pages out to storage, so " +
+                  "checkpoints only have a small remainder of dirty pages left to flush. This evens out the IO " +
+                  "load, at the cost of writing pages that are changed often more than once between checkpoints." )
+    public static final Setting<Boolean> pagecache_cleaner_enabled =
+            setting( "dbms.memory.pagecache.cleaner.enable", BOOLEAN, FALSE );
+
+    @Description( "The approximate longest time that the background page cleaner lets a page stay dirty. The cleaner " +
+                  "also writes dirty pages more eagerly when a large share of the page cache is dirty." )
+    public static final Setting<Long> pagecache_cleaner_max_dirty_age =
+            setting( "dbms.memory.pagecache.cleaner.max_dirty_age", DURATION, "1m" );
+
+    @Description( "Reserve shares of the page cache for specific store files, as a comma separated list of " +
+                  "<file name>:<ratio> pairs, for instance `neostore.relationshipstore.db:0.4`. The page cache will " +
+                  "not evict the pages of a file while it has fewer pages in memory than its reservation, so heavy " +
+                  "workloads on other files cannot push its pages out of the cache. At most 90% of the page cache " +
+                  "can be reserved." )
+    public static final Setting<List<String>> pagecache_reservations =
+            setting( "dbms.memory.pagecache.reservations", STRING_LIST, "" );
+
+    @Description( "Keep a profile of which pages of the store files are in the page cache, and use it to warm the " +
+                  "page cache up in the background after a restart. The profiles are kept next to the store files, " +
+                  "and are written periodically, and when the database shuts down." )
+    public static final Setting<Boolean> pagecache_warmup_enabled =
+            setting( "dbms.memory.pagecache.warmup.enable", BOOLEAN, FALSE );
+
+    @Description( "The time interval between writing profiles of the contents of the page cache, when page cache " +
+                  "warmup is enabled." )
+    public static final Setting<Long> pagecache_warmup_profiling_interval =
+            setting( "dbms.memory.pagecache.warmup.profile.interval", DURATION, "1m" );
+
     /**
      * Block size properties values depends from selected record format.
      * We can't figured out record format until it will be selected by corresponding edition.
@@ -509,6 +592,22 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<Boolean> archive_failed_index = setting(
             "unsupported.dbms.index.archive_failed", BOOLEAN, "false" );
 
+    @Description( "The maximum time before updates committed to a non-unique Lucene schema index become visible to " +
+                  "other transactions. By default updates are made visible as part of applying each transaction. " +
+                  "A larger value moves refreshing of index searchers to a background job running at least this " +
+                  "often, which takes it off the commit path. Transactions always see their own updates." )
+    @Internal
+    public static final Setting<Long> index_searcher_max_staleness = setting(
+            "unsupported.dbms.index.lucene.max_staleness", DURATION, "0s" );
+
+    @Description( "The number of lanes that record updates of a transaction are spread over when the transaction is " +
+                  "applied to the store. Transactions with many record updates are then written by several threads " +
+                  "in parallel, and label scan store updates are applied in parallel with schema index updates. " +
+                  "A value of 1 applies all updates on the committing thread." )
+    @Internal
+    public static final Setting<Integer> record_update_lanes = setting(
+            "unsupported.dbms.transaction.record_update_lanes", INTEGER, "1", min( 1 ) );
+
     // Needed to validate config, accessed via reflection
     @SuppressWarnings( "unused" )
     public static final BoltConnectorValidator boltValidator = new BoltConnectorValidator();
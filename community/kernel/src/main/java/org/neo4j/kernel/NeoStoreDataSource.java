@@ -22,7 +22,9 @@ package org.neo4j.kernel;
 import java.io.File;
 import java.io.IOException;
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
@@ -43,6 +45,7 @@ import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.api.legacyindex.AutoIndexing;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.dependency.AllByPrioritySelectionStrategy;
 import org.neo4j.kernel.extension.dependency.HighestSelectionStrategy;
 import org.neo4j.kernel.guard.Guard;
 import org.neo4j.kernel.impl.api.CommitProcessFactory;
@@ -65,6 +68,7 @@ import org.neo4j.kernel.impl.api.TransactionCommitProcess;
 import org.neo4j.kernel.impl.api.TransactionHooks;
 import org.neo4j.kernel.impl.api.UpdateableSchemaState;
 import org.neo4j.kernel.impl.api.index.IndexingService;
+import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 import org.neo4j.kernel.impl.api.operations.QueryRegistrationOperations;
 import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.api.state.ConstraintIndexCreator;
@@ -81,6 +85,7 @@ import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.locking.ReentrantLockService;
 import org.neo4j.kernel.impl.locking.StatementLocksFactory;
 import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.pagecache.PageCacheWarmer;
 import org.neo4j.kernel.impl.proc.Procedures;
 import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
 import org.neo4j.kernel.impl.store.MetaDataStore;
@@ -98,6 +103,7 @@ import org.neo4j.kernel.impl.transaction.TransactionHeaderInformationFactory;
 import org.neo4j.kernel.impl.transaction.TransactionMonitor;
 import org.neo4j.kernel.impl.transaction.log.BatchingTransactionAppender;
 import org.neo4j.kernel.impl.transaction.log.LogFileInformation;
+import org.neo4j.kernel.impl.transaction.log.LogFilePreallocator;
 import org.neo4j.kernel.impl.transaction.log.LogHeaderCache;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
 import org.neo4j.kernel.impl.transaction.log.LogVersionRepository;
@@ -129,6 +135,7 @@ import org.neo4j.kernel.impl.transaction.log.pruning.LogPruning;
 import org.neo4j.kernel.impl.transaction.log.pruning.LogPruningImpl;
 import org.neo4j.kernel.impl.transaction.log.rotation.LogRotation;
 import org.neo4j.kernel.impl.transaction.log.rotation.LogRotationImpl;
+import org.neo4j.kernel.impl.transaction.state.DefaultSchemaIndexProviderMap;
 import org.neo4j.kernel.impl.transaction.state.NeoStoreFileListing;
 import org.neo4j.kernel.impl.util.Dependencies;
 import org.neo4j.kernel.impl.util.JobScheduler;
@@ -264,6 +271,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
     private Dependencies dependencies;
     private LifeSupport life;
     private SchemaIndexProvider schemaIndexProvider;
+    private SchemaIndexProviderMap schemaIndexProviderMap;
     private File storeDir;
     private boolean readOnly;
     private final AccessCapability accessCapability;
@@ -392,8 +400,11 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         dependencies = new Dependencies();
         life = new LifeSupport();
 
-        schemaIndexProvider = dependencyResolver.resolveDependency( SchemaIndexProvider.class,
-                HighestSelectionStrategy.getInstance() );
+        AllByPrioritySelectionStrategy<SchemaIndexProvider> schemaIndexProviders =
+                new AllByPrioritySelectionStrategy<>();
+        schemaIndexProvider = dependencyResolver.resolveDependency( SchemaIndexProvider.class, schemaIndexProviders );
+        schemaIndexProviderMap = new DefaultSchemaIndexProviderMap(
+                defaultSchemaIndexProvider( schemaIndexProviders.candidates() ), schemaIndexProviders.candidates() );
 
         IndexConfigStore indexConfigStore = new IndexConfigStore( storeDir, fs );
         dependencies.satisfyDependency( lockService );
@@ -478,6 +489,14 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
             throw Exceptions.launderedException( e );
         }
 
+        if ( config.get( GraphDatabaseSettings.pagecache_warmup_enabled ) )
+        {
+            life.add( new PageCacheWarmer( fs, pageCache, scheduler, storeDir,
+                    config.get( GraphDatabaseSettings.pagecache_warmup_profiling_interval ),
+                    monitors.newMonitor( PageCacheWarmer.Monitor.class ),
+                    logService.getInternalLog( PageCacheWarmer.class ) ) );
+        }
+
         // NOTE: please make sure this is performed after having added everything to the life, in fact we would like
         // to perform the checkpointing as first step when the life is shutdown.
         life.add( lifecycleToTriggerCheckPointOnShutdown() );
@@ -521,6 +540,33 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         return formats;
     }
 
+    /**
+     * @param providers all available schema index providers, in descending order of priority.
+     * @return the provider configured by {@link GraphDatabaseSettings#default_schema_provider}, or the one with
+     * highest priority if not configured.
+     */
+    private SchemaIndexProvider defaultSchemaIndexProvider( List<SchemaIndexProvider> providers )
+    {
+        String configured = config.get( GraphDatabaseSettings.default_schema_provider );
+        if ( configured == null )
+        {
+            return providers.get( 0 );
+        }
+        List<String> available = new ArrayList<>();
+        for ( SchemaIndexProvider provider : providers )
+        {
+            SchemaIndexProvider.Descriptor descriptor = provider.getProviderDescriptor();
+            String name = descriptor.getKey() + "-" + descriptor.getVersion();
+            if ( configured.equals( name ) )
+            {
+                return provider;
+            }
+            available.add( name );
+        }
+        throw new IllegalArgumentException( "Configured " + GraphDatabaseSettings.default_schema_provider.name() +
+                " '" + configured + "' doesn't match any of the available schema index providers " + available );
+    }
+
     private void upgradeStore( RecordFormats format )
     {
         LabelScanStoreProvider labelScanStoreProvider =
@@ -557,7 +603,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         RecordStorageEngine storageEngine = new RecordStorageEngine( storeDir, config, idGeneratorFactory,
                 eligibleForReuse, idTypeConfigurationProvider, pageCache, fs, logProvider, propertyKeyTokenHolder,
                 labelTokens, relationshipTypeTokens, schemaStateChangeCallback, constraintSemantics, scheduler,
-                tokenNameLookup, lockService, schemaIndexProvider, indexingServiceMonitor, databaseHealth,
+                tokenNameLookup, lockService, schemaIndexProviderMap, indexingServiceMonitor, databaseHealth,
                 labelScanStore, legacyIndexProviderLookup, indexConfigStore, legacyIndexTransactionOrdering,
                 transactionSnapshotSupplier );
 
@@ -584,10 +630,14 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         final PhysicalLogFiles logFiles = new PhysicalLogFiles( storeDir, PhysicalLogFile.DEFAULT_NAME,
                 fileSystemAbstraction );
 
+        long rotationThreshold = config.get( GraphDatabaseSettings.logical_log_rotation_threshold );
+        final LogFilePreallocator logFilePreallocator = config.get( GraphDatabaseSettings.tx_log_preallocation )
+                ? new LogFilePreallocator( fileSystemAbstraction, logFiles, rotationThreshold, scheduler,
+                        logProvider.getLog( LogFilePreallocator.class ) )
+                : null;
         final PhysicalLogFile logFile = life.add( new PhysicalLogFile( fileSystemAbstraction, logFiles,
-                config.get( GraphDatabaseSettings.logical_log_rotation_threshold ),
-                transactionIdStore::getLastCommittedTransactionId, logVersionRepository, physicalLogMonitor,
-                logHeaderCache ) );
+                rotationThreshold, transactionIdStore::getLastCommittedTransactionId, logVersionRepository,
+                physicalLogMonitor, logHeaderCache, logFilePreallocator ) );
 
         final PhysicalLogFileInformation.LogVersionToTimestamp logInformation = version ->
         {
@@ -616,7 +666,9 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         }
         String pruningConf = config.get( GraphDatabaseSettings.keep_logical_logs );
 
-        LogPruneStrategy logPruneStrategy = fromConfigValue( fs, logFileInformation, logFiles, pruningConf );
+        LogPruneStrategy logPruneStrategy = logFilePreallocator != null
+                ? fromConfigValue( fs, logFileInformation, logFiles, pruningConf, logFilePreallocator::recycle )
+                : fromConfigValue( fs, logFileInformation, logFiles, pruningConf );
 
         final LogPruning logPruning = new LogPruningImpl( logPruneStrategy, logProvider );
 
@@ -625,7 +677,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
 
         final TransactionAppender appender = life.add( new BatchingTransactionAppender(
                 logFile, logRotation, transactionMetadataCache, transactionIdStore, legacyIndexTransactionOrdering,
-                databaseHealth ) );
+                databaseHealth, config.get( GraphDatabaseSettings.tx_log_compression ) ) );
         final LogicalTransactionStore logicalTransactionStore =
                 new PhysicalLogicalTransactionStore( logFile, transactionMetadataCache, logEntryReader );
 
@@ -114,6 +114,12 @@ public interface ReadOperations
      */
     PrimitiveLongIterator nodesGetForLabel( int labelId );
 
+    /**
+     * @param labelIds the label ids of the labels that returned nodes are guaranteed to have, all of them
+     * @return ids of all nodes that have all of the given labels
+     */
+    PrimitiveLongIterator nodesGetForAllLabels( int... labelIds );
+
     /**
      * Returns an iterator with the matched nodes.
      *
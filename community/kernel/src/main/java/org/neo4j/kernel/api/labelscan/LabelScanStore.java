@@ -97,6 +97,15 @@ public interface LabelScanStore extends Lifecycle
      */
     LabelScanWriter newWriter();
 
+    /**
+     * @return whether or not multiple {@link #newWriter() writers} may be used by different threads at the
+     * same time. If not, writers must be used one at a time.
+     */
+    default boolean supportsConcurrentWriters()
+    {
+        return false;
+    }
+
     /**
      * Forces all changes to disk. Called at certain points from within Neo4j for example when
      * rotating the logical log. After completion of this call there cannot be any essential state that
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.extension.dependency;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.neo4j.graphdb.DependencyResolver;
+import org.neo4j.helpers.collection.Iterables;
+import org.neo4j.kernel.extension.KernelExtensions;
+
+import static org.neo4j.kernel.extension.KernelExtensionUtil.servicesClassPathEntryInformation;
+
+/**
+ * SelectionStrategy for {@link KernelExtensions kernel extensions loading} where the one with highest
+ * natural order will be selected, like {@link HighestSelectionStrategy}, but where all candidates
+ * are kept around as well, available from {@link #candidates()} after selection.
+ * If there are no candidates then an {@link IllegalArgumentException} will be thrown.
+ *
+ * @param <T> type of candidates.
+ * @see Comparable
+ */
+public class AllByPrioritySelectionStrategy<T extends Comparable<T>> implements DependencyResolver.SelectionStrategy
+{
+    private List<T> candidates = Collections.emptyList();
+
+    @Override
+    public <R> R select( Class<R> type, Iterable<R> candidates ) throws IllegalArgumentException
+    {
+        List<T> all = (List<T>) Iterables.asList( candidates );
+        if ( all.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Could not resolve dependency of type: " +
+                                                type.getName() + ". " + servicesClassPathEntryInformation() );
+        }
+        all.sort( Collections.reverseOrder() );
+        this.candidates = all;
+        return (R) all.get( 0 );
+    }
+
+    /**
+     * @return all candidates from the last selection, in descending order of priority.
+     */
+    public List<T> candidates()
+    {
+        return candidates;
+    }
+}
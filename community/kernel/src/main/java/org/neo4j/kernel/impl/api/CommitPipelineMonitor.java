@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+/**
+ * Exposes how commits move through the stages of the commit pipeline. Concurrently committing transactions
+ * overlap in these stages: one batch can be appended to the log while the previous one is forced and an even
+ * earlier one is applied to the store. Queue depths show where commits pile up and the accumulated times show
+ * the latency of each stage.
+ */
+public interface CommitPipelineMonitor
+{
+    enum Stage
+    {
+        /**
+         * Waiting for and serializing into the transaction log, including any log rotation.
+         */
+        LOG_APPEND,
+        /**
+         * Waiting for the transaction log to be forced, either by this or another committing thread.
+         */
+        LOG_FORCE,
+        /**
+         * Applying the committed transactions to the store.
+         */
+        STORE_APPLY
+    }
+
+    /**
+     * @return the number of commits currently in the given stage.
+     */
+    long queueDepth( Stage stage );
+
+    /**
+     * @return the total number of commits that have completed the given stage.
+     */
+    long numberOfStageEvents( Stage stage );
+
+    /**
+     * @return the total time commits have spent in the given stage.
+     */
+    long stageAccumulatedTotalTimeMillis( Stage stage );
+
+    CommitPipelineMonitor NULL = new CommitPipelineMonitor()
+    {
+        @Override
+        public long queueDepth( Stage stage )
+        {
+            return 0;
+        }
+
+        @Override
+        public long numberOfStageEvents( Stage stage )
+        {
+            return 0;
+        }
+
+        @Override
+        public long stageAccumulatedTotalTimeMillis( Stage stage )
+        {
+            return 0;
+        }
+    };
+}
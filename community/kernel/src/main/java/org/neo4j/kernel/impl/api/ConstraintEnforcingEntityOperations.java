@@ -268,6 +268,12 @@ public class ConstraintEnforcingEntityOperations implements EntityOperations, Sc
         return entityReadOperations.nodesGetForLabel( state, labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForAllLabels( KernelStatement state, int[] labelIds )
+    {
+        return entityReadOperations.nodesGetForAllLabels( state, labelIds );
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexSeek( KernelStatement state, IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException
@@ -35,7 +35,7 @@ import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.time.Clocks;
 import org.neo4j.time.SystemNanoClock;
 
-public class DefaultTransactionTracer implements TransactionTracer, LogRotationMonitor
+public class DefaultTransactionTracer implements TransactionTracer, LogRotationMonitor, CommitPipelineMonitor
 {
     public interface Monitor
     {
@@ -49,6 +49,8 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
     private final AtomicLong counter = new AtomicLong();
     private final AtomicLong accumulatedTotalTimeNanos = new AtomicLong();
 
+    private final StageCounters[] stageCounters = new StageCounters[Stage.values().length];
+
     private long startTimeNanos;
 
     private final LogRotateEvent logRotateEvent = new LogRotateEvent()
@@ -60,11 +62,14 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         }
     };
 
-    private final LogAppendEvent logAppendEvent = new LogAppendEvent()
+    private class PipelineLogAppendEvent implements LogAppendEvent
     {
+        private final StageEvent appendStage = new StageEvent( stageCounters[Stage.LOG_APPEND.ordinal()] );
+
         @Override
         public void close()
         {
+            appendStage.close();
         }
 
         @Override
@@ -89,7 +94,9 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         @Override
         public LogForceWaitEvent beginLogForceWait()
         {
-            return LogForceWaitEvent.NULL;
+            // Appending is done once we start waiting for the log to be forced
+            appendStage.close();
+            return new StageEvent( stageCounters[Stage.LOG_FORCE.ordinal()] );
         }
 
         @Override
@@ -97,7 +104,40 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         {
             return LogForceEvent.NULL;
         }
-    };
+    }
+
+    private class StageEvent implements LogForceWaitEvent, StoreApplyEvent
+    {
+        private final StageCounters counters;
+        private final long startNanos;
+        private boolean closed;
+
+        StageEvent( StageCounters counters )
+        {
+            this.counters = counters;
+            this.startNanos = clock.nanos();
+            counters.queueDepth.incrementAndGet();
+        }
+
+        @Override
+        public void close()
+        {
+            if ( !closed )
+            {
+                closed = true;
+                counters.queueDepth.decrementAndGet();
+                counters.events.incrementAndGet();
+                counters.totalTimeNanos.addAndGet( clock.nanos() - startNanos );
+            }
+        }
+    }
+
+    private static class StageCounters
+    {
+        private final AtomicLong queueDepth = new AtomicLong();
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong totalTimeNanos = new AtomicLong();
+    }
 
     private final CommitEvent commitEvent = new CommitEvent()
     {
@@ -109,13 +149,13 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         @Override
         public LogAppendEvent beginLogAppend()
         {
-            return logAppendEvent;
+            return new PipelineLogAppendEvent();
         }
 
         @Override
         public StoreApplyEvent beginStoreApply()
         {
-            return StoreApplyEvent.NULL;
+            return new StageEvent( stageCounters[Stage.STORE_APPLY.ordinal()] );
         }
     };
 
@@ -164,6 +204,10 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         this.clock = clock;
         this.monitor = monitor;
         this.jobScheduler = jobScheduler;
+        for ( int i = 0; i < stageCounters.length; i++ )
+        {
+            stageCounters[i] = new StageCounters();
+        }
     }
 
     @Override
@@ -184,6 +228,24 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         return TimeUnit.NANOSECONDS.toMillis( accumulatedTotalTimeNanos.get() );
     }
 
+    @Override
+    public long queueDepth( Stage stage )
+    {
+        return stageCounters[stage.ordinal()].queueDepth.get();
+    }
+
+    @Override
+    public long numberOfStageEvents( Stage stage )
+    {
+        return stageCounters[stage.ordinal()].events.get();
+    }
+
+    @Override
+    public long stageAccumulatedTotalTimeMillis( Stage stage )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( stageCounters[stage.ordinal()].totalTimeNanos.get() );
+    }
+
     private void updateCountersAndNotifyListeners()
     {
         counter.incrementAndGet();
@@ -168,6 +168,13 @@ public class GuardingStatementOperations implements
         return entityReadDelegate.nodesGetForLabel( statement, labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForAllLabels( KernelStatement statement, int[] labelIds )
+    {
+        guard.check( statement );
+        return entityReadDelegate.nodesGetForAllLabels( statement, labelIds );
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexSeek( KernelStatement statement, IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException
@@ -222,6 +222,20 @@ public class OperationsFacade
         return dataRead().nodesGetForLabel( statement, labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForAllLabels( int... labelIds )
+    {
+        statement.assertOpen();
+        for ( int labelId : labelIds )
+        {
+            if ( labelId == StatementConstants.NO_SUCH_LABEL )
+            {
+                return PrimitiveLongCollections.emptyIterator();
+            }
+        }
+        return dataRead().nodesGetForAllLabels( statement, labelIds );
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexSeek( IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException
@@ -79,6 +79,7 @@ import org.neo4j.kernel.impl.api.store.RelationshipIterator;
 import org.neo4j.kernel.impl.index.IndexEntityType;
 import org.neo4j.kernel.impl.index.LegacyIndexStore;
 import org.neo4j.kernel.impl.util.Validators;
+import org.neo4j.kernel.impl.util.diffsets.DiffSets;
 import org.neo4j.register.Register.DoubleLongRegister;
 import org.neo4j.storageengine.api.EntityType;
 import org.neo4j.storageengine.api.LabelItem;
@@ -356,6 +357,55 @@ public class StateHandlingStatementOperations implements
         return storeLayer.nodesGetForLabel( state.getStoreStatement(), labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForAllLabels( KernelStatement state, int[] labelIds )
+    {
+        if ( state.hasTxStateWithChanges() )
+        {
+            // Nodes which lost any of the labels are removed first, that way only nodes which gained
+            // some of the labels in this transaction and now have all of them are added
+            DiffSets<Long> changes = new DiffSets<>();
+            for ( int labelId : labelIds )
+            {
+                changes.removeAll( state.txState().nodesWithLabelChanged( labelId ).getRemoved().iterator() );
+            }
+            for ( int labelId : labelIds )
+            {
+                for ( Long nodeId : state.txState().nodesWithLabelChanged( labelId ).getAdded() )
+                {
+                    if ( !changes.isAdded( nodeId ) && nodeHasAllLabels( state, nodeId, labelIds ) )
+                    {
+                        changes.add( nodeId );
+                    }
+                }
+            }
+            PrimitiveLongIterator wLabelChanges =
+                    changes.augment( storeLayer.nodesGetForAllLabels( state.getStoreStatement(), labelIds ) );
+            return state.txState().addedAndRemovedNodes().augmentWithRemovals( wLabelChanges );
+        }
+
+        return storeLayer.nodesGetForAllLabels( state.getStoreStatement(), labelIds );
+    }
+
+    private boolean nodeHasAllLabels( KernelStatement state, long nodeId, int[] labelIds )
+    {
+        try ( Cursor<NodeItem> node = nodeCursor( state, nodeId ) )
+        {
+            if ( !node.next() )
+            {
+                return false;
+            }
+            for ( int labelId : labelIds )
+            {
+                if ( !node.get().hasLabel( labelId ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     @Override
     public long nodesGetCount( KernelStatement state )
     {
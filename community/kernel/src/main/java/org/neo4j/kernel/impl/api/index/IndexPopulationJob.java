@@ -31,6 +31,7 @@ import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.storageengine.api.schema.PopulationProgress;
 
+import static java.lang.System.currentTimeMillis;
 import static java.lang.Thread.currentThread;
 import static org.neo4j.helpers.FutureAdapter.latchGuardedValue;
 
@@ -135,8 +136,10 @@ public class IndexPopulationJob implements Runnable
 
     private void indexAllNodes() throws IndexPopulationFailedKernelException
     {
+        long startTime = currentTimeMillis();
         storeScan = multiPopulator.indexAllNodes();
         storeScan.run();
+        monitor.populationScanCompleted( storeScan.getProgress(), currentTimeMillis() - startTime );
     }
 
     public PopulationProgress getPopulationProgress()
@@ -60,6 +60,7 @@ import org.neo4j.logging.Log;
 import org.neo4j.logging.LogProvider;
 import org.neo4j.register.Register.DoubleLongRegister;
 import org.neo4j.register.Registers;
+import org.neo4j.storageengine.api.schema.PopulationProgress;
 
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -120,6 +121,14 @@ public class IndexingService extends LifecycleAdapter
         void verifyDeferredConstraints();
 
         void awaitingPopulationOfRecoveredIndex( long indexId, IndexDescriptor descriptor );
+
+        /**
+         * Called when the store scan of an index population job has gone through all nodes.
+         *
+         * @param progress the final progress of the scan, i.e. number of nodes scanned out of the total.
+         * @param elapsedMillis time the scan took, from which population throughput can be derived.
+         */
+        void populationScanCompleted( PopulationProgress progress, long elapsedMillis );
     }
 
     public static class MonitorAdapter implements Monitor
@@ -148,6 +157,11 @@ public class IndexingService extends LifecycleAdapter
         public void awaitingPopulationOfRecoveredIndex( long indexId, IndexDescriptor descriptor )
         {   // Do nothing
         }
+
+        @Override
+        public void populationScanCompleted( PopulationProgress progress, long elapsedMillis )
+        {   // Do nothing
+        }
     }
 
     public static final Monitor NO_MONITOR = new MonitorAdapter();
@@ -39,6 +39,12 @@ public interface EntityReadOperations
      */
     PrimitiveLongIterator nodesGetForLabel( KernelStatement state, int labelId );
 
+    /**
+     * @param labelIds the label ids of the labels that returned nodes are guaranteed to have, all of them
+     * @return ids of all nodes that have all of the given labels
+     */
+    PrimitiveLongIterator nodesGetForAllLabels( KernelStatement state, int[] labelIds );
+
     /**
      * Returns an iterable with the matched nodes.
      *
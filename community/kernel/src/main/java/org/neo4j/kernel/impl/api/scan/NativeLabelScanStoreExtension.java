@@ -27,6 +27,7 @@ import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStore;
 import org.neo4j.kernel.impl.spi.KernelContext;
 import org.neo4j.kernel.lifecycle.Lifecycle;
+import org.neo4j.kernel.monitoring.Monitors;
 
 public class NativeLabelScanStoreExtension extends
         KernelExtensionFactory<NativeLabelScanStoreExtension.Dependencies>
@@ -36,6 +37,8 @@ public class NativeLabelScanStoreExtension extends
         PageCache pageCache();
 
         Supplier<IndexStoreView> indexStoreView();
+
+        Monitors monitors();
     }
 
     public NativeLabelScanStoreExtension()
@@ -47,6 +50,7 @@ public class NativeLabelScanStoreExtension extends
     public Lifecycle newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
     {
         return new LabelScanStoreProvider( new NativeLabelScanStore( dependencies.pageCache(),
-                context.storeDir(), new FullLabelStream( dependencies.indexStoreView() ) ), 0 );
+                context.storeDir(), new FullLabelStream( dependencies.indexStoreView() ),
+                dependencies.monitors().newMonitor( NativeLabelScanStore.WriteMonitor.class ) ), 0 );
     }
 }
@@ -209,6 +209,12 @@ public class CacheLayer implements StoreReadLayer
         return diskLayer.nodesGetForLabel( state, labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForAllLabels( StorageStatement state, int[] labelIds )
+    {
+        return diskLayer.nodesGetForAllLabels( state, labelIds );
+    }
+
     @Override
     public IndexDescriptor indexGetForLabelAndPropertyKey( int labelId, int propertyKey )
     {
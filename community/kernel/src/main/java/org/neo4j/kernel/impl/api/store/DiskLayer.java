@@ -176,6 +176,12 @@ public class DiskLayer implements StoreReadLayer
         return statement.getLabelScanReader().nodesWithLabel( labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForAllLabels( StorageStatement statement, int[] labelIds )
+    {
+        return statement.getLabelScanReader().nodesWithAllLabels( labelIds );
+    }
+
     @Override
     public IndexDescriptor indexGetForLabelAndPropertyKey( int labelId, int propertyKey )
     {
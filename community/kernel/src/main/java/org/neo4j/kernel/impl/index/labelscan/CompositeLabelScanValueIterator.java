@@ -19,114 +19,201 @@
  */
 package org.neo4j.kernel.impl.index.labelscan;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Objects;
-import java.util.PriorityQueue;
 
 import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.Hit;
 
 /**
- * {@link PrimitiveLongIterator} acting as a combining of multiple {@link PrimitiveLongIterator}
+ * {@link PrimitiveLongIterator} acting as a combining of multiple label scan cursors, one per label,
  * for merging their results lazily as iterating commences. Both {@code AND} and {@code OR} merging is supported.
  * <p>
- * Source iterators must be sorted in ascending order.
+ * Merging is done range by range on whole {@link LabelScanValue} bit sets rather than node by node,
+ * i.e. for {@code AND} merging the cursors are aligned on the same {@link LabelScanKey#idRange} and their
+ * bit sets intersected, whereas for {@code OR} merging the bit sets of the lowest range of all cursors
+ * are unioned. Only the node ids in the merged bit sets are then returned, in ascending order.
+ * <p>
+ * Source cursors must be sorted in ascending {@link LabelScanKey#idRange} order. They are managed
+ * externally, e.g. by {@link NativeLabelScanReader}.
  */
 class CompositeLabelScanValueIterator extends PrimitiveLongBaseIterator
 {
-    private final PriorityQueue<IdAndSource> sortedIterators = new PriorityQueue<>();
-    private final int atLeastNumberOfLabels;
-    private long last = -1;
+    private final Source[] sources;
+    private final boolean trueForAll;
+
+    /**
+     * Merged bit set of the current range.
+     */
+    private final LabelScanValue merged = new LabelScanValue();
+
+    /**
+     * {@link LabelScanKey#idRange} of the current range, or {@code -1} before the first range.
+     */
+    private long currentRange = -1;
+
+    /**
+     * Index of the next bit to look for in {@link #merged}, or {@code -1} if current range is exhausted.
+     */
+    private int nextBit = -1;
 
     /**
      * Constructs a {@link CompositeLabelScanValueIterator}.
      *
-     * @param iterators {@link PrimitiveLongIterator iterators} to merge.
+     * @param cursors {@link RawCursor cursors} to merge.
      * @param trueForAll if {@code true} using {@code AND} merging, otherwise {@code OR} merging.
      */
-    CompositeLabelScanValueIterator( List<PrimitiveLongIterator> iterators, boolean trueForAll )
+    CompositeLabelScanValueIterator( List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> cursors,
+            boolean trueForAll )
     {
-        this.atLeastNumberOfLabels = trueForAll ? iterators.size() : 1;
-        for ( PrimitiveLongIterator iterator : iterators )
+        this.sources = new Source[cursors.size()];
+        for ( int i = 0; i < sources.length; i++ )
         {
-            if ( iterator.hasNext() )
-            {
-                sortedIterators.add( new IdAndSource( iterator.next(), iterator ) );
-            }
+            sources[i] = new Source( cursors.get( i ) );
         }
+        this.trueForAll = trueForAll;
     }
 
     @Override
     protected boolean fetchNext()
     {
-        int numberOfLabels = 0;
-        long next = last;
-        while ( next == last || numberOfLabels < atLeastNumberOfLabels )
+        while ( true )
         {
-            IdAndSource idAndSource = sortedIterators.poll();
-            if ( idAndSource == null )
+            if ( nextBit != -1 )
             {
-                return false;
+                int bit = merged.nextSetBit( nextBit );
+                if ( bit != -1 )
+                {
+                    nextBit = bit + 1;
+                    return next( currentRange * LabelScanValue.RANGE_SIZE + bit );
+                }
+                nextBit = -1;
             }
 
-            if ( idAndSource.latestReturned == next )
+            try
             {
-                numberOfLabels++;
+                if ( !(trueForAll ? intersectNextRange() : unionNextRange()) )
+                {
+                    return false;
+                }
             }
-            else
+            catch ( IOException e )
             {
-                next = idAndSource.latestReturned;
-                numberOfLabels = 1;
+                throw new UncheckedIOException( e );
             }
+            nextBit = 0;
+        }
+    }
 
-            if ( idAndSource.source.hasNext() )
+    /**
+     * Aligns all sources on the next range which all of them have and intersects their bit sets.
+     *
+     * @return {@code true} if such a range was found, otherwise {@code false}.
+     */
+    private boolean intersectNextRange() throws IOException
+    {
+        if ( sources.length == 0 )
+        {
+            return false;
+        }
+
+        long target = currentRange + 1;
+        boolean aligned;
+        do
+        {
+            aligned = true;
+            for ( Source source : sources )
             {
-                idAndSource.latestReturned = idAndSource.source.next();
-                sortedIterators.offer( idAndSource );
+                while ( source.idRange < target )
+                {
+                    if ( !source.next() )
+                    {
+                        return false;
+                    }
+                }
+                if ( source.idRange > target )
+                {
+                    target = source.idRange;
+                    aligned = false;
+                }
             }
         }
-        last = next;
-        next( last );
+        while ( !aligned );
+
+        merged.copyFrom( sources[0].value );
+        for ( int i = 1; i < sources.length; i++ )
+        {
+            merged.retain( sources[i].value );
+        }
+        currentRange = target;
         return true;
     }
 
-    private class IdAndSource implements Comparable<IdAndSource>
+    /**
+     * Moves past the current range and unions the bit sets of all sources on the lowest range of them.
+     *
+     * @return {@code true} if there was a next range, otherwise {@code false}.
+     */
+    private boolean unionNextRange() throws IOException
     {
-        private long latestReturned;
-        private final PrimitiveLongIterator source;
-
-        private IdAndSource( long latestReturned, PrimitiveLongIterator source )
+        long target = Long.MAX_VALUE;
+        for ( Source source : sources )
+        {
+            if ( source.idRange <= currentRange )
+            {
+                source.next();
+            }
+            if ( !source.exhausted )
+            {
+                target = Math.min( target, source.idRange );
+            }
+        }
+        if ( target == Long.MAX_VALUE )
         {
-            this.latestReturned = latestReturned;
-            this.source = source;
+            return false;
         }
 
-        @Override
-        public int compareTo( IdAndSource o )
+        merged.clear();
+        for ( Source source : sources )
         {
-            int keyComparison = Long.compare( latestReturned, o.latestReturned );
-            if ( keyComparison == 0 )
+            if ( !source.exhausted && source.idRange == target )
             {
-                return Integer.compare( source.hashCode(), o.source.hashCode() );
+                merged.add( source.value );
             }
-            return keyComparison;
         }
+        currentRange = target;
+        return true;
+    }
 
-        @Override
-        public boolean equals( Object o )
+    /**
+     * One cursor and the {@link LabelScanValue} of the range it's currently at.
+     */
+    private static class Source
+    {
+        private final RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> cursor;
+        private final LabelScanValue value = new LabelScanValue();
+        private long idRange = -1;
+        private boolean exhausted;
+
+        Source( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> cursor )
         {
-            if ( this == o )
-            { return true; }
-            if ( o == null || getClass() != o.getClass() )
-            { return false; }
-            IdAndSource that = (IdAndSource) o;
-            return compareTo( that ) == 0;
+            this.cursor = cursor;
         }
 
-        @Override
-        public int hashCode()
+        boolean next() throws IOException
         {
-            return Objects.hash( latestReturned, source );
+            if ( exhausted || !cursor.next() )
+            {
+                exhausted = true;
+                return false;
+            }
+            Hit<LabelScanKey,LabelScanValue> hit = cursor.get();
+            idRange = hit.key().idRange;
+            value.copyFrom( hit.value() );
+            return true;
         }
     }
 }
@@ -28,13 +28,28 @@ import org.neo4j.io.pagecache.PageCursor;
  *
  * <ul>
  * <li>
- * Each keys is a combination of {@code labelId} and {@code nodeIdRange} ({@code nodeId/64}).
+ * Each keys is a combination of {@code labelId} and {@code nodeIdRange} ({@code nodeId/256}).
  * </li>
  * <li>
- * Each value is a 64-bit bit set (a primitive {@code long}) where each set bit in it represents
- * a node with that label, such that {@code nodeId = nodeIdRange+bitOffset}. Range size is 64 bits.
+ * Each value is a 256-bit bit set where each set bit in it represents a node with that label,
+ * such that {@code nodeId = nodeIdRange+bitOffset}. Range size is 256 bits.
  * </li>
  * </ul>
+ * Values are of variable size, each stored in whichever container is the smallest for its contents:
+ * <ul>
+ * <li>
+ * {@link #ARRAY_CONTAINER}: {@code [type][count][offset]...}, one byte per set bit, good for sparse ranges.
+ * </li>
+ * <li>
+ * {@link #RUN_CONTAINER}: {@code [type][count][start,length-1]...}, two bytes per run of consecutive set bits,
+ * good for ranges where consecutively created nodes have the same label.
+ * </li>
+ * <li>
+ * {@link #BITMAP_CONTAINER}: {@code [type][bits]}, the full bit set, good for dense ranges with mixed labels.
+ * </li>
+ * </ul>
+ * Regardless of container the in-memory representation is the plain bit set, so that set operations
+ * like union and intersection between ranges work without having to care about container types.
  */
 class LabelScanLayout implements Layout<LabelScanKey,LabelScanValue>
 {
@@ -48,6 +63,20 @@ class LabelScanLayout implements Layout<LabelScanKey,LabelScanValue>
      */
     private static final int KEY_SIZE = Integer.BYTES/*labelId*/ + 6/*idRange*/;
 
+    static final byte ARRAY_CONTAINER = 0;
+    static final byte RUN_CONTAINER = 1;
+    static final byte BITMAP_CONTAINER = 2;
+
+    /**
+     * Size of the header of every container, i.e. the container type.
+     */
+    private static final int CONTAINER_HEADER_SIZE = Byte.BYTES;
+
+    /**
+     * Size of a {@link #BITMAP_CONTAINER}, which is also the maximum size of any value.
+     */
+    private static final int BITMAP_CONTAINER_SIZE = CONTAINER_HEADER_SIZE + LabelScanValue.RANGE_SIZE / Byte.SIZE;
+
     /**
      * Compares {@link LabelScanKey}, giving ascending order of {@code labelId} then {@code nodeIdRange}.
      */
@@ -87,7 +116,49 @@ class LabelScanLayout implements Layout<LabelScanKey,LabelScanValue>
     @Override
     public int valueSize()
     {
-        return LabelScanValue.RANGE_SIZE_BYTES;
+        return BITMAP_CONTAINER_SIZE;
+    }
+
+    @Override
+    public int valueSize( LabelScanValue value )
+    {
+        return containerSize( containerType( value ), value );
+    }
+
+    @Override
+    public boolean fixedSize()
+    {
+        return false;
+    }
+
+    /**
+     * @param value {@link LabelScanValue} to pick container for.
+     * @return the type of the smallest container which can hold the bits of {@code value}.
+     */
+    static byte containerType( LabelScanValue value )
+    {
+        int arraySize = containerSize( ARRAY_CONTAINER, value );
+        int runSize = containerSize( RUN_CONTAINER, value );
+        if ( arraySize <= runSize )
+        {
+            return arraySize <= BITMAP_CONTAINER_SIZE ? ARRAY_CONTAINER : BITMAP_CONTAINER;
+        }
+        return runSize <= BITMAP_CONTAINER_SIZE ? RUN_CONTAINER : BITMAP_CONTAINER;
+    }
+
+    private static int containerSize( byte type, LabelScanValue value )
+    {
+        switch ( type )
+        {
+        case ARRAY_CONTAINER:
+            return CONTAINER_HEADER_SIZE + Byte.BYTES/*count*/ + value.cardinality();
+        case RUN_CONTAINER:
+            return CONTAINER_HEADER_SIZE + Byte.BYTES/*count*/ + value.runCount() * 2;
+        case BITMAP_CONTAINER:
+            return BITMAP_CONTAINER_SIZE;
+        default:
+            throw new IllegalArgumentException( "Unknown container type " + type );
+        }
     }
 
     @Override
@@ -106,7 +177,37 @@ class LabelScanLayout implements Layout<LabelScanKey,LabelScanValue>
     @Override
     public void writeValue( PageCursor cursor, LabelScanValue value )
     {
-        cursor.putLong( value.bits );
+        byte type = containerType( value );
+        cursor.putByte( type );
+        switch ( type )
+        {
+        case ARRAY_CONTAINER:
+            cursor.putByte( (byte) value.cardinality() );
+            for ( int i = value.nextSetBit( 0 ); i != -1; i = value.nextSetBit( i + 1 ) )
+            {
+                cursor.putByte( (byte) i );
+            }
+            break;
+        case RUN_CONTAINER:
+            cursor.putByte( (byte) value.runCount() );
+            for ( int start = value.nextSetBit( 0 ); start != -1; )
+            {
+                int end = start;
+                while ( end + 1 < LabelScanValue.RANGE_SIZE && value.isSet( end + 1 ) )
+                {
+                    end++;
+                }
+                cursor.putByte( (byte) start );
+                cursor.putByte( (byte) (end - start) );
+                start = value.nextSetBit( end + 1 );
+            }
+            break;
+        default:
+            for ( long word : value.bits )
+            {
+                cursor.putLong( word );
+            }
+        }
     }
 
     @Override
@@ -123,10 +224,50 @@ class LabelScanLayout implements Layout<LabelScanKey,LabelScanValue>
         return low4b | (high2b << Integer.SIZE);
     }
 
+    /**
+     * Reads a value written by {@link #writeValue(PageCursor, LabelScanValue)}. Reads may happen concurrently
+     * with writes and so data read may be inconsistent, in which case the read is retried. Therefore decoding
+     * is careful to never set bits outside of the range, whatever bytes it reads.
+     */
     @Override
     public void readValue( PageCursor cursor, LabelScanValue into )
     {
-        into.bits = cursor.getLong();
+        into.clear();
+        byte type = cursor.getByte();
+        switch ( type )
+        {
+        case ARRAY_CONTAINER:
+        {
+            int count = cursor.getByte() & 0xFF;
+            for ( int i = 0; i < count; i++ )
+            {
+                into.set( cursor.getByte() & 0xFF );
+            }
+            break;
+        }
+        case RUN_CONTAINER:
+        {
+            int count = cursor.getByte() & 0xFF;
+            for ( int i = 0; i < count; i++ )
+            {
+                int start = cursor.getByte() & 0xFF;
+                int end = Math.min( start + (cursor.getByte() & 0xFF), LabelScanValue.RANGE_SIZE - 1 );
+                for ( int bit = start; bit <= end; bit++ )
+                {
+                    into.set( bit );
+                }
+            }
+            break;
+        }
+        case BITMAP_CONTAINER:
+            for ( int i = 0; i < LabelScanValue.RANGE_SIZE_WORDS; i++ )
+            {
+                into.bits[i] = cursor.getLong();
+            }
+            break;
+        default:
+            // Inconsistent read, will be retried
+        }
     }
 
     @Override
@@ -144,6 +285,6 @@ class LabelScanLayout implements Layout<LabelScanKey,LabelScanValue>
     @Override
     public int minorVersion()
     {
-        return 1;
+        return 2;
     }
 }
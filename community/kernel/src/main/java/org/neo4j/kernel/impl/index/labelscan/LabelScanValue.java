@@ -19,28 +19,51 @@
  */
 package org.neo4j.kernel.impl.index.labelscan;
 
+import java.util.Arrays;
+
 /**
- * A small bit set of maximum 64 bits. Used in {@link LabelScanLayout}.
+ * A small bit set of {@link #RANGE_SIZE} bits, one bit per node in a node id range. Used in {@link LabelScanLayout},
+ * which stores it in the most compact of a few container formats given its contents, see
+ * {@link LabelScanLayout#valueSize(LabelScanValue)}.
  */
 class LabelScanValue
 {
-    static final int RANGE_SIZE = Long.SIZE;
-    static final int RANGE_SIZE_BYTES = Long.BYTES;
+    static final int RANGE_SIZE = 256;
+    static final int RANGE_SIZE_WORDS = RANGE_SIZE / Long.SIZE;
 
     /**
-     * Small bit set.
+     * Small bit set, where bit {@code index} is found in {@code bits[index/64]} at bit offset {@code index%64}.
      */
-    long bits;
+    final long[] bits = new long[RANGE_SIZE_WORDS];
 
     /**
-     * Sets bit at given {@code index}, where {@code index=0} is the lowest index, {@code index=63} the highest.
+     * Sets bit at given {@code index}, where {@code index=0} is the lowest index,
+     * {@code index=RANGE_SIZE-1} the highest.
      *
      * @param index index into the bit set of the bit to set.
      */
     void set( int index )
     {
-        long mask = 1L << index;
-        bits |= mask;
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Unsets bit at given {@code index}.
+     *
+     * @param index index into the bit set of the bit to unset.
+     */
+    void unset( int index )
+    {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * @param index index into the bit set of the bit to check.
+     * @return whether or not bit at given {@code index} is set.
+     */
+    boolean isSet( int index )
+    {
+        return (bits[index >>> 6] & (1L << index)) != 0;
     }
 
     /**
@@ -52,7 +75,10 @@ class LabelScanValue
      */
     LabelScanValue add( LabelScanValue other )
     {
-        bits |= other.bits;
+        for ( int i = 0; i < RANGE_SIZE_WORDS; i++ )
+        {
+            bits[i] |= other.bits[i];
+        }
         return this;
     }
 
@@ -66,7 +92,38 @@ class LabelScanValue
      */
     LabelScanValue remove( LabelScanValue other )
     {
-        bits &= ~other.bits;
+        for ( int i = 0; i < RANGE_SIZE_WORDS; i++ )
+        {
+            bits[i] &= ~other.bits[i];
+        }
+        return this;
+    }
+
+    /**
+     * Keeps only bits which are also set in {@code other}.
+     * Result is an intersection of the two bit sets. {@code other} is kept intact.
+     *
+     * @param other value containing bits to retain.
+     * @return this instance, now with only bits also set in {@code other}.
+     */
+    LabelScanValue retain( LabelScanValue other )
+    {
+        for ( int i = 0; i < RANGE_SIZE_WORDS; i++ )
+        {
+            bits[i] &= other.bits[i];
+        }
+        return this;
+    }
+
+    /**
+     * Copies all bits from {@code other} into this bit set, overwriting any bits previously set.
+     *
+     * @param other value to copy bits from.
+     * @return this instance, now with the same bits as {@code other}.
+     */
+    LabelScanValue copyFrom( LabelScanValue other )
+    {
+        System.arraycopy( other.bits, 0, bits, 0, RANGE_SIZE_WORDS );
         return this;
     }
 
@@ -75,12 +132,99 @@ class LabelScanValue
      */
     void clear()
     {
-        bits = 0;
+        Arrays.fill( bits, 0 );
+    }
+
+    /**
+     * @return {@code true} if no bit is set in this bit set, otherwise {@code false}.
+     */
+    boolean isEmpty()
+    {
+        for ( long word : bits )
+        {
+            if ( word != 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of set bits in this bit set.
+     */
+    int cardinality()
+    {
+        int count = 0;
+        for ( long word : bits )
+        {
+            count += Long.bitCount( word );
+        }
+        return count;
+    }
+
+    /**
+     * @return number of runs, i.e. sequences of consecutive set bits, in this bit set.
+     */
+    int runCount()
+    {
+        int count = 0;
+        long carry = 0;
+        for ( long word : bits )
+        {
+            // a run starts at each set bit which doesn't have a set bit right below it
+            count += Long.bitCount( word & ~((word << 1) | carry) );
+            carry = word >>> (Long.SIZE - 1);
+        }
+        return count;
+    }
+
+    /**
+     * @param fromIndex index to start looking from, inclusive.
+     * @return index of the first set bit at or after {@code fromIndex}, or {@code -1} if there is none.
+     */
+    int nextSetBit( int fromIndex )
+    {
+        if ( fromIndex >= RANGE_SIZE )
+        {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> 6;
+        long word = bits[wordIndex] & (-1L << fromIndex);
+        while ( true )
+        {
+            if ( word != 0 )
+            {
+                return wordIndex * Long.SIZE + Long.numberOfTrailingZeros( word );
+            }
+            if ( ++wordIndex == RANGE_SIZE_WORDS )
+            {
+                return -1;
+            }
+            word = bits[wordIndex];
+        }
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        return this == o || o instanceof LabelScanValue && Arrays.equals( bits, ((LabelScanValue) o).bits );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode( bits );
     }
 
     @Override
     public String toString()
     {
-        return String.valueOf( bits );
+        StringBuilder builder = new StringBuilder( "[" );
+        for ( int i = nextSetBit( 0 ); i != -1; i = nextSetBit( i + 1 ) )
+        {
+            builder.append( builder.length() > 1 ? "," : "" ).append( i );
+        }
+        return builder.append( "]" ).toString();
     }
 }
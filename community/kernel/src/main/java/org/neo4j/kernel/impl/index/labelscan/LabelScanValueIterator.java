@@ -47,9 +47,14 @@ class LabelScanValueIterator extends PrimitiveLongCollections.PrimitiveLongBaseI
     private long baseNodeId;
 
     /**
-     * Bit set of the current {@link LabelScanValue}.
+     * Bit set of the current {@link LabelScanValue}, copied since the cursor may reuse its value instance.
      */
-    private long bits;
+    private final LabelScanValue value = new LabelScanValue();
+
+    /**
+     * Index of the next bit to look for in {@link #value}, or {@code -1} if current value is exhausted.
+     */
+    private int nextBit = -1;
 
     /**
      * LabelId of previously retrieved {@link LabelScanKey}, for debugging and asserting purposes.
@@ -76,9 +81,9 @@ class LabelScanValueIterator extends PrimitiveLongCollections.PrimitiveLongBaseI
     {
         while ( true )
         {
-            if ( bits != 0 )
+            if ( nextBit != -1 && nextFromCurrent() )
             {
-                return nextFromCurrent();
+                return true;
             }
 
             try
@@ -95,7 +100,8 @@ class LabelScanValueIterator extends PrimitiveLongCollections.PrimitiveLongBaseI
 
             Hit<LabelScanKey,LabelScanValue> hit = cursor.get();
             baseNodeId = hit.key().idRange * LabelScanValue.RANGE_SIZE;
-            bits = hit.value().bits;
+            value.copyFrom( hit.value() );
+            nextBit = 0;
 
             assert keysInOrder( hit.key() );
         }
@@ -115,8 +121,13 @@ class LabelScanValueIterator extends PrimitiveLongCollections.PrimitiveLongBaseI
 
     private boolean nextFromCurrent()
     {
-        int delta = Long.numberOfTrailingZeros( bits );
-        bits &= bits-1;
+        int delta = value.nextSetBit( nextBit );
+        if ( delta == -1 )
+        {
+            nextBit = -1;
+            return false;
+        }
+        nextBit = delta + 1;
         return next( baseNodeId + delta );
     }
 }
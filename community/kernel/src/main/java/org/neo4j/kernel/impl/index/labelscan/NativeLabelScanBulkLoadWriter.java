@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntIterator;
+import org.neo4j.collection.primitive.PrimitiveIntObjectMap;
+import org.neo4j.index.internal.gbptree.BulkLoader;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.impl.api.scan.FullStoreChangeStream;
+
+import static java.lang.Math.toIntExact;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE_WORDS;
+
+/**
+ * {@link LabelScanWriter} for building an empty {@link NativeLabelScanStore} from scratch, i.e. from a
+ * {@link FullStoreChangeStream}, using a {@link GBPTree#bulkLoader() bulk loader} of its internal {@link GBPTree}.
+ * <p>
+ * {@link #write(NodeLabelUpdate) Updates} come in node id order, whereas the tree is ordered by label id first.
+ * The node id ranges and their bit sets are therefore collected per label id in memory, which is possible
+ * without sorting since each label sees its ranges in ascending order. At most {@code maxBufferedRanges} ranges
+ * are kept in memory. When more are collected they are written, sorted by label id, as a chunk to a spill file
+ * next to the store file and memory is cleared. On {@link #close()} the chunks are merged, or if there are none
+ * the labels in memory sorted, and all keys are bulk loaded into the tree in order. Only
+ * {@link NodeLabelUpdate#getLabelsAfter()} is considered, since there's nothing in the store to remove labels from.
+ * <p>
+ * Keys are only loaded if the writer has been marked {@link #success() successful}, otherwise {@link #close()}
+ * leaves the tree empty.
+ */
+class NativeLabelScanBulkLoadWriter implements LabelScanWriter
+{
+    /**
+     * Size of each spilled entry: {@code [labelId][idRange][bits]}.
+     */
+    private static final int SPILL_ENTRY_SIZE = Integer.BYTES + Long.BYTES + RANGE_SIZE_WORDS * Long.BYTES;
+
+    private final BulkLoader<LabelScanKey,LabelScanValue> bulkLoader;
+    private final PageCache pageCache;
+    private final File spillFile;
+    private final int maxBufferedRanges;
+    private final PrimitiveIntObjectMap<LabelRanges> labels = Primitive.intObjectMap();
+    private int bufferedRanges;
+    private long previousNodeId = -1;
+    private boolean success;
+
+    private PagedFile spill;
+    private PageCursor spillCursor;
+    private int spillEntriesPerPage;
+    private long spilledEntries;
+    private final List<SpillChunk> chunks = new ArrayList<>();
+
+    NativeLabelScanBulkLoadWriter( BulkLoader<LabelScanKey,LabelScanValue> bulkLoader, PageCache pageCache,
+            File spillFile, int maxBufferedRanges )
+    {
+        this.bulkLoader = bulkLoader;
+        this.pageCache = pageCache;
+        this.spillFile = spillFile;
+        this.maxBufferedRanges = maxBufferedRanges;
+    }
+
+    @Override
+    public void write( NodeLabelUpdate update ) throws IOException
+    {
+        long nodeId = update.getNodeId();
+        if ( nodeId < previousNodeId )
+        {
+            throw new IllegalArgumentException( "Updates for building a label scan store must come in ascending " +
+                    "node id order, but node " + nodeId + " came after " + previousNodeId );
+        }
+        previousNodeId = nodeId;
+
+        long idRange = nodeId / RANGE_SIZE;
+        int bit = toIntExact( nodeId % RANGE_SIZE );
+        for ( long labelId : update.getLabelsAfter() )
+        {
+            if ( labelId == -1 )
+            {
+                break;
+            }
+            LabelRanges ranges = labels.get( toIntExact( labelId ) );
+            if ( ranges == null )
+            {
+                ranges = new LabelRanges();
+                labels.put( toIntExact( labelId ), ranges );
+            }
+            if ( ranges.add( idRange, bit ) )
+            {
+                bufferedRanges++;
+            }
+        }
+
+        if ( bufferedRanges >= maxBufferedRanges )
+        {
+            spillChunk();
+        }
+    }
+
+    /**
+     * Marks that all updates have been {@link #write(NodeLabelUpdate) written}, so that they are loaded into
+     * the tree on {@link #close()}.
+     */
+    void success()
+    {
+        success = true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if ( success )
+            {
+                if ( chunks.isEmpty() )
+                {
+                    LabelScanKey key = new LabelScanKey();
+                    LabelScanValue value = new LabelScanValue();
+                    visitSortedRanges( ( labelId, idRange, bits, bitsOffset ) ->
+                    {
+                        key.set( labelId, idRange );
+                        System.arraycopy( bits, bitsOffset, value.bits, 0, RANGE_SIZE_WORDS );
+                        bulkLoader.add( key, value );
+                    } );
+                }
+                else
+                {
+                    spillChunk();
+                    mergeChunks();
+                }
+                bulkLoader.success();
+            }
+        }
+        finally
+        {
+            try
+            {
+                labels.close();
+                closeSpill();
+            }
+            finally
+            {
+                bulkLoader.close();
+            }
+        }
+    }
+
+    /**
+     * Visits all ranges in memory, ordered by label id and then node id range.
+     */
+    private void visitSortedRanges( RangeVisitor visitor ) throws IOException
+    {
+        int[] labelIds = new int[labels.size()];
+        PrimitiveIntIterator labelIterator = labels.iterator();
+        for ( int i = 0; labelIterator.hasNext(); i++ )
+        {
+            labelIds[i] = labelIterator.next();
+        }
+        Arrays.sort( labelIds );
+
+        for ( int labelId : labelIds )
+        {
+            LabelRanges ranges = labels.get( labelId );
+            for ( int i = 0; i < ranges.size; i++ )
+            {
+                visitor.visit( labelId, ranges.idRanges[i], ranges.bits, i * RANGE_SIZE_WORDS );
+            }
+        }
+    }
+
+    /**
+     * Writes all ranges in memory as a sorted chunk to the spill file, then clears memory.
+     */
+    private void spillChunk() throws IOException
+    {
+        if ( spill == null )
+        {
+            spill = pageCache.map( spillFile, pageCache.pageSize(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE );
+            spillCursor = spill.io( 0, PagedFile.PF_SHARED_WRITE_LOCK );
+            spillEntriesPerPage = spill.pageSize() / SPILL_ENTRY_SIZE;
+        }
+
+        long chunkStart = spilledEntries;
+        visitSortedRanges( this::spillEntry );
+        chunks.add( new SpillChunk( chunkStart, spilledEntries ) );
+        labels.clear();
+        bufferedRanges = 0;
+    }
+
+    private void spillEntry( int labelId, long idRange, long[] bits, int bitsOffset ) throws IOException
+    {
+        long pageId = spilledEntries / spillEntriesPerPage;
+        int offset = toIntExact( spilledEntries % spillEntriesPerPage ) * SPILL_ENTRY_SIZE;
+        if ( offset == 0 && !spillCursor.next( pageId ) )
+        {
+            throw new IllegalStateException( "Could not go to page " + pageId + " of " + spillFile );
+        }
+        spillCursor.setOffset( offset );
+        spillCursor.putInt( labelId );
+        spillCursor.putLong( idRange );
+        for ( int i = 0; i < RANGE_SIZE_WORDS; i++ )
+        {
+            spillCursor.putLong( bits[bitsOffset + i] );
+        }
+        spilledEntries++;
+    }
+
+    /**
+     * Merges all spilled chunks, bulk loading their entries in order. Entries for the same key may occur
+     * in consecutive chunks, if a chunk was spilled in the middle of a node id range, and are then combined.
+     */
+    private void mergeChunks() throws IOException
+    {
+        spillCursor.close();
+        spillCursor = null;
+
+        PriorityQueue<SpillChunk> queue = new PriorityQueue<>( chunks.size(), ( a, b ) ->
+        {
+            int compare = Integer.compare( a.labelId, b.labelId );
+            return compare != 0 ? compare : Long.compare( a.idRange, b.idRange );
+        } );
+        for ( SpillChunk chunk : chunks )
+        {
+            if ( chunk.next() )
+            {
+                queue.add( chunk );
+            }
+        }
+
+        LabelScanKey key = new LabelScanKey();
+        LabelScanValue value = new LabelScanValue();
+        boolean pending = false;
+        while ( !queue.isEmpty() )
+        {
+            SpillChunk chunk = queue.poll();
+            if ( pending && key.labelId == chunk.labelId && key.idRange == chunk.idRange )
+            {
+                for ( int i = 0; i < RANGE_SIZE_WORDS; i++ )
+                {
+                    value.bits[i] |= chunk.bits[i];
+                }
+            }
+            else
+            {
+                if ( pending )
+                {
+                    bulkLoader.add( key, value );
+                }
+                key.set( chunk.labelId, chunk.idRange );
+                System.arraycopy( chunk.bits, 0, value.bits, 0, RANGE_SIZE_WORDS );
+                pending = true;
+            }
+
+            if ( chunk.next() )
+            {
+                queue.add( chunk );
+            }
+        }
+        if ( pending )
+        {
+            bulkLoader.add( key, value );
+        }
+    }
+
+    private void closeSpill() throws IOException
+    {
+        if ( spill != null )
+        {
+            try
+            {
+                for ( SpillChunk chunk : chunks )
+                {
+                    chunk.close();
+                }
+                if ( spillCursor != null )
+                {
+                    spillCursor.close();
+                }
+            }
+            finally
+            {
+                // Mapped with DELETE_ON_CLOSE, so this also deletes the spill file
+                spill.close();
+            }
+        }
+    }
+
+    private interface RangeVisitor
+    {
+        void visit( int labelId, long idRange, long[] bits, int bitsOffset ) throws IOException;
+    }
+
+    /**
+     * A sorted run of entries {@code [start,end)} in the spill file, read one entry at a time when merging.
+     */
+    private class SpillChunk
+    {
+        private final long end;
+        private long position;
+        private PageCursor cursor;
+
+        private int labelId;
+        private long idRange;
+        private final long[] bits = new long[RANGE_SIZE_WORDS];
+
+        SpillChunk( long start, long end )
+        {
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean next() throws IOException
+        {
+            if ( position == end )
+            {
+                return false;
+            }
+
+            long pageId = position / spillEntriesPerPage;
+            int offset = toIntExact( position % spillEntriesPerPage ) * SPILL_ENTRY_SIZE;
+            if ( cursor == null )
+            {
+                cursor = spill.io( pageId, PagedFile.PF_SHARED_READ_LOCK );
+            }
+            if ( cursor.getCurrentPageId() != pageId && !cursor.next( pageId ) )
+            {
+                throw new IllegalStateException( "Could not go to page " + pageId + " of " + spillFile );
+            }
+            do
+            {
+                cursor.setOffset( offset );
+                labelId = cursor.getInt();
+                idRange = cursor.getLong();
+                for ( int i = 0; i < RANGE_SIZE_WORDS; i++ )
+                {
+                    bits[i] = cursor.getLong();
+                }
+            }
+            while ( cursor.shouldRetry() );
+            position++;
+            return true;
+        }
+
+        void close()
+        {
+            if ( cursor != null )
+            {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Node id ranges, in ascending order, and their bit sets for one label.
+     * Bit set of range {@code i} is stored in {@code bits} from {@code i*RANGE_SIZE_WORDS}.
+     */
+    private static class LabelRanges
+    {
+        private long[] idRanges = new long[4];
+        private long[] bits = new long[4 * RANGE_SIZE_WORDS];
+        private int size;
+
+        /**
+         * @return {@code true} if {@code idRange} is a new range for this label, otherwise {@code false}.
+         */
+        boolean add( long idRange, int bit )
+        {
+            boolean added = false;
+            if ( size == 0 || idRanges[size - 1] != idRange )
+            {
+                if ( size == idRanges.length )
+                {
+                    idRanges = Arrays.copyOf( idRanges, size * 2 );
+                    bits = Arrays.copyOf( bits, size * 2 * RANGE_SIZE_WORDS );
+                }
+                idRanges[size] = idRange;
+                size++;
+                added = true;
+            }
+            bits[(size - 1) * RANGE_SIZE_WORDS + (bit >>> 6)] |= 1L << bit;
+            return added;
+        }
+    }
+}
@@ -94,23 +94,53 @@ class NativeLabelScanReader implements LabelScanReader
         return new LabelScanValueIterator( cursor );
     }
 
+    /**
+     * Node ids are partitioned using {@link GBPTree#partitionedSeek(Object, Object, int)} and so each partition
+     * returns node ids in ascending order, as do the partitions themselves.
+     */
+    @Override
+    public List<PrimitiveLongIterator> nodesWithLabel( int labelId, int desiredNumberOfPartitions )
+    {
+        List<PrimitiveLongIterator> partitions = new ArrayList<>( desiredNumberOfPartitions );
+        try
+        {
+            ensureOpenCursorsClosed();
+            for ( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> cursor :
+                    index.partitionedSeek( rangeFrom( labelId ), rangeTo( labelId ), desiredNumberOfPartitions ) )
+            {
+                openCursors.offer( cursor );
+                partitions.add( new LabelScanValueIterator( cursor ) );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+        return partitions;
+    }
+
+    /**
+     * Label bit sets are merged range by range, see {@link CompositeLabelScanValueIterator}.
+     */
     @Override
     public PrimitiveLongIterator nodesWithAnyOfLabels( int... labelIds )
     {
-        List<PrimitiveLongIterator> iterators = iteratorsForLabels( labelIds );
-        return new CompositeLabelScanValueIterator( iterators, false );
+        return new CompositeLabelScanValueIterator( cursorsForLabels( labelIds ), false );
     }
 
+    /**
+     * Label bit sets are intersected range by range, see {@link CompositeLabelScanValueIterator},
+     * so that only node ids having all the labels are ever returned.
+     */
     @Override
     public PrimitiveLongIterator nodesWithAllLabels( int... labelIds )
     {
-        List<PrimitiveLongIterator> iterators = iteratorsForLabels( labelIds );
-        return new CompositeLabelScanValueIterator( iterators, true );
+        return new CompositeLabelScanValueIterator( cursorsForLabels( labelIds ), true );
     }
 
-    private List<PrimitiveLongIterator> iteratorsForLabels( int[] labelIds )
+    private List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> cursorsForLabels( int[] labelIds )
     {
-        List<PrimitiveLongIterator> iterators = new ArrayList<>();
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> cursors = new ArrayList<>();
         try
         {
             ensureOpenCursorsClosed();
@@ -118,21 +148,29 @@ class NativeLabelScanReader implements LabelScanReader
             {
                 RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> cursor = seekerForLabel( labelId );
                 openCursors.offer( cursor );
-                iterators.add( new LabelScanValueIterator( cursor ) );
+                cursors.add( cursor );
             }
         }
         catch ( IOException e )
         {
             throw new UncheckedIOException( e );
         }
-        return iterators;
+        return cursors;
     }
 
     private RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seekerForLabel( int labelId ) throws IOException
     {
-        LabelScanKey from = new LabelScanKey( labelId, 0 );
-        LabelScanKey to = new LabelScanKey( labelId, Long.MAX_VALUE );
-        return index.seek( from, to );
+        return index.seek( rangeFrom( labelId ), rangeTo( labelId ) );
+    }
+
+    private static LabelScanKey rangeFrom( int labelId )
+    {
+        return new LabelScanKey( labelId, 0 );
+    }
+
+    private static LabelScanKey rangeTo( int labelId )
+    {
+        return new LabelScanKey( labelId, Long.MAX_VALUE );
     }
 
     private void ensureOpenCursorsClosed() throws IOException
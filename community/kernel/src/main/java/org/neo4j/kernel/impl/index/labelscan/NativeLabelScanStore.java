@@ -22,19 +22,21 @@ package org.neo4j.kernel.impl.index.labelscan;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.StandardOpenOption;
 
 import org.neo4j.cursor.RawCursor;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.index.internal.gbptree.GBPTree;
 import org.neo4j.index.internal.gbptree.Hit;
 import org.neo4j.index.internal.gbptree.Layout;
+import org.neo4j.index.internal.gbptree.MetadataMismatchException;
 import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.kernel.api.labelscan.AllEntriesLabelScanReader;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.impl.api.scan.FullStoreChangeStream;
-import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.store.UnderlyingStorageException;
 import org.neo4j.storageengine.api.schema.LabelScanReader;
 
@@ -44,18 +46,19 @@ import static org.neo4j.kernel.impl.store.MetaDataStore.DEFAULT_NAME;
 
 /**
  * {@link LabelScanStore} which is implemented using {@link GBPTree} atop a {@link PageCache}.
- * Only a single writer is allowed at any given point in time so synchronization or merging of updates
- * need to be handled externally.
+ * Multiple writers are allowed at any given point in time, each backed by a {@link GBPTree#concurrentWriter()
+ * concurrent writer} of the tree, so that updates from concurrent threads in different label and node id ranges
+ * can be applied in parallel.
  * <p>
  * About the {@link Layout} used in this instance of {@link GBPTree}:
  * <ul>
  * <li>
- * Each keys is a combination of {@code labelId} and {@code nodeIdRange} ({@code nodeId/64}).
+ * Each keys is a combination of {@code labelId} and {@code nodeIdRange} ({@code nodeId/256}).
  * </li>
  * <li>
- * Each value is a 64-bit bit set (a primitive {@code long}) where each set bit in it represents
- * a node with that label, such that {@code nodeId = nodeIdRange+bitOffset}. Range size (e.g. 64 bits)
- * is configurable on initial creation of the store, 8, 16, 32 or 64.
+ * Each value is a 256-bit bit set where each set bit in it represents a node with that label,
+ * such that {@code nodeId = nodeIdRange+bitOffset}. Values are stored in compact array, run or bitmap
+ * containers, see {@link LabelScanLayout}.
  * </li>
  * </ul>
  * <p>
@@ -66,6 +69,42 @@ import static org.neo4j.kernel.impl.store.MetaDataStore.DEFAULT_NAME;
  */
 public class NativeLabelScanStore implements LabelScanStore
 {
+    /**
+     * Monitors batches of updates applied by {@link LabelScanWriter writers} of a {@link NativeLabelScanStore}.
+     */
+    public interface WriteMonitor
+    {
+        WriteMonitor EMPTY = new WriteMonitor()
+        {
+            @Override
+            public void batchApplied( int updates, int changes, int merges )
+            {
+            }
+        };
+
+        /**
+         * Called after a writer has applied a batch of updates to the tree. Changes are merged into
+         * the tree in key order, so that merges into the same leaf come one after the other.
+         * The ratio {@code changes/merges} shows how many changes each hit into a leaf carried on average.
+         *
+         * @param updates number of {@link NodeLabelUpdate updates} in the batch.
+         * @param changes number of label additions and removals these updates contained.
+         * @param merges number of merges made into the tree for applying these changes.
+         */
+        void batchApplied( int updates, int changes, int merges );
+    }
+
+    /**
+     * Size of the batches of updates that each {@link NativeLabelScanWriter} applies in sorted order.
+     */
+    private static final int WRITER_BATCH_SIZE = 1_000;
+
+    /**
+     * Number of node id ranges that a {@link NativeLabelScanBulkLoadWriter} keeps in memory, about 40 bytes each,
+     * before spilling them to disk.
+     */
+    private static final int BULK_LOAD_BUFFERED_RANGES = 1 << 20;
+
     /**
      * {@link PageCache} to {@link PageCache#map(File, int, java.nio.file.OpenOption...)}
      * store file backing this label scan store. Passed to {@link GBPTree}.
@@ -100,6 +139,11 @@ public class NativeLabelScanStore implements LabelScanStore
      */
     private volatile boolean started;
 
+    /**
+     * Notified about batches of updates applied by {@link NativeLabelScanWriter writers}.
+     */
+    private final WriteMonitor writeMonitor;
+
     /**
      * If {@link #index} is {@code null} and {@link #started} is {@code false},
      * then it's between {@link #init()} and {@link #start()}. If {@link #newWriter()} is called at this
@@ -107,25 +151,29 @@ public class NativeLabelScanStore implements LabelScanStore
      */
     private boolean recoveryStarted;
 
-    private final NativeLabelScanWriter singleWriter;
-
     public NativeLabelScanStore( PageCache pageCache, File storeDir,
             FullStoreChangeStream fullStoreChangeStream )
     {
-        this( pageCache, storeDir, fullStoreChangeStream, 0/*means no opinion about page size*/ );
+        this( pageCache, storeDir, fullStoreChangeStream, WriteMonitor.EMPTY );
+    }
+
+    public NativeLabelScanStore( PageCache pageCache, File storeDir,
+            FullStoreChangeStream fullStoreChangeStream, WriteMonitor writeMonitor )
+    {
+        this( pageCache, storeDir, fullStoreChangeStream, 0/*means no opinion about page size*/, writeMonitor );
     }
 
     /*
      * Test access to be able to control page size.
      */
     NativeLabelScanStore( PageCache pageCache, File storeDir,
-            FullStoreChangeStream fullStoreChangeStream, int pageSize )
+            FullStoreChangeStream fullStoreChangeStream, int pageSize, WriteMonitor writeMonitor )
     {
         this.pageCache = pageCache;
         this.pageSize = pageSize;
+        this.writeMonitor = writeMonitor;
         this.fullStoreChangeStream = fullStoreChangeStream;
         this.storeFile = new File( storeDir, DEFAULT_NAME + ".labelscanstore.db" );
-        this.singleWriter = new NativeLabelScanWriter( 1_000 );
     }
 
     /**
@@ -142,11 +190,10 @@ public class NativeLabelScanStore implements LabelScanStore
 
     /**
      * Returns {@link LabelScanWriter} capable of making changes to this {@link LabelScanStore}.
-     * Only a single writer is allowed at any given point in time.
+     * Multiple writers are allowed at any given point in time, although each writer must only be used
+     * by one thread at a time.
      *
      * @return {@link LabelScanWriter} capable of making changes to this {@link LabelScanStore}.
-     * @throws IllegalStateException if someone else has already acquired a writer and hasn't yet
-     * called {@link LabelScanWriter#close()}.
      */
     @Override
     public LabelScanWriter newWriter()
@@ -161,7 +208,7 @@ public class NativeLabelScanStore implements LabelScanStore
                 recoveryStarted = true;
             }
 
-            return singleWriter.initialize( index.writer() );
+            return new NativeLabelScanWriter( WRITER_BATCH_SIZE, writeMonitor ).initialize( index.concurrentWriter() );
         }
         catch ( IOException e )
         {
@@ -169,6 +216,16 @@ public class NativeLabelScanStore implements LabelScanStore
         }
     }
 
+    /**
+     * @return {@code true} since each {@link #newWriter() writer} is backed by its own
+     * {@link GBPTree#concurrentWriter() concurrent writer}.
+     */
+    @Override
+    public boolean supportsConcurrentWriters()
+    {
+        return true;
+    }
+
     /**
      * Forces all changes to {@link PageCache} and creates a checkpoint so that the {@link LabelScanStore}
      * is recoverable from this point, given that the same transactions which will be applied after this point
@@ -213,14 +270,25 @@ public class NativeLabelScanStore implements LabelScanStore
     }
 
     /**
-     * Instantiates the underlying {@link GBPTree} and its resources.
+     * Instantiates the underlying {@link GBPTree} and its resources. A store file written with another
+     * {@link LabelScanLayout layout}, e.g. by a previous version, is deleted and replaced by an empty tree,
+     * which {@link #start()} then rebuilds from the {@link FullStoreChangeStream}.
      *
      * @throws IOException on {@link PageCache} exceptions.
      */
     @Override
     public void init() throws IOException
     {
-        index = new GBPTree<>( pageCache, storeFile, new LabelScanLayout(), pageSize, GBPTree.NO_MONITOR );
+        try
+        {
+            index = new GBPTree<>( pageCache, storeFile, new LabelScanLayout(), pageSize, GBPTree.NO_MONITOR );
+        }
+        catch ( MetadataMismatchException e )
+        {
+            // The store was written in a format we can't read, drop it and let start() rebuild it
+            pageCache.map( storeFile, pageCache.pageSize(), StandardOpenOption.DELETE_ON_CLOSE ).close();
+            index = new GBPTree<>( pageCache, storeFile, new LabelScanLayout(), pageSize, GBPTree.NO_MONITOR );
+        }
     }
 
     /**
@@ -234,7 +302,13 @@ public class NativeLabelScanStore implements LabelScanStore
     {
         if ( isEmpty() )
         {
-            LabelScanStoreProvider.rebuild( this, fullStoreChangeStream );
+            // Build the tree bottom-up from the sorted updates, rather than inserting them one by one
+            try ( NativeLabelScanBulkLoadWriter writer = new NativeLabelScanBulkLoadWriter( index.bulkLoader(),
+                    pageCache, new File( storeFile.getPath() + ".bulkload" ), BULK_LOAD_BUFFERED_RANGES ) )
+            {
+                fullStoreChangeStream.applyTo( writer );
+                writer.success();
+            }
         }
         started = true;
     }
@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntObjectMap;
 import org.neo4j.index.internal.gbptree.GBPTree;
 import org.neo4j.index.internal.gbptree.ValueMerger;
 import org.neo4j.index.internal.gbptree.Writer;
@@ -30,7 +32,7 @@ import org.neo4j.kernel.api.labelscan.LabelScanWriter;
 import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.storageengine.api.schema.LabelScanReader;
 
-import static java.lang.Long.min;
+import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 
 import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
@@ -41,6 +43,9 @@ import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
  * <p>
  * {@link #write(NodeLabelUpdate) updates} are queued up to a maximum batch size and, for performance,
  * applied in sorted order (by label and node id) when reaches batch size or on {@link #close()}.
+ * Applying a batch is done in one pass over the tree in key order, where all changes to the same
+ * {@link LabelScanKey} are combined into one merge, so that consecutive merges end up in the same leaf
+ * as far as possible.
  * <p>
  * Updates aren't visible to {@link LabelScanReader readers} immediately, rather when queue happens to be applied.
  * <p>
@@ -60,6 +65,12 @@ class NativeLabelScanWriter implements LabelScanWriter
     private static final Comparator<NodeLabelUpdate> UPDATE_SORTER =
             (o1, o2) -> Long.compare( o1.getNodeId(), o2.getNodeId() );
 
+    /**
+     * {@link Comparator} for sorting {@link LabelChanges} by label id, so that changes are applied in key order.
+     */
+    private static final Comparator<LabelChanges> LABEL_SORTER =
+            (o1, o2) -> Integer.compare( o1.labelId, o2.labelId );
+
     /**
      * {@link ValueMerger} used for adding label->node mappings, see {@link LabelScanValue#add(LabelScanValue)}.
      */
@@ -70,29 +81,48 @@ class NativeLabelScanWriter implements LabelScanWriter
      */
     private static final ValueMerger<LabelScanValue> REMOVE_MERGER = LabelScanValue::remove;
 
+    /**
+     * Initial length of {@link #pendingUpdates}.
+     */
+    private static final int INITIAL_PENDING_UPDATES = 8;
+
     /**
      * {@link Writer} acquired when acquiring this {@link NativeLabelScanWriter},
-     * acquired from {@link GBPTree#writer()}.
+     * acquired from {@link GBPTree#concurrentWriter()}.
      */
     private Writer<LabelScanKey,LabelScanValue> writer;
 
     /**
-     * Instance of {@link LabelScanKey} acting as place to read keys into and also to set for each applied update.
+     * Notified about each applied batch.
+     */
+    private final NativeLabelScanStore.WriteMonitor monitor;
+
+    /**
+     * Instance of {@link LabelScanKey} acting as place to set for each applied range.
      */
     private final LabelScanKey key = new LabelScanKey();
 
     /**
-     * Instance of {@link LabelScanValue} acting as place to read values into and also to update
-     * for each applied update.
+     * Node ids added to the range in {@link #key}, not yet merged into the tree.
      */
-    private final LabelScanValue value = new LabelScanValue();
+    private final LabelScanValue additions = new LabelScanValue();
+
+    /**
+     * Node ids removed from the range in {@link #key}, not yet merged into the tree.
+     */
+    private final LabelScanValue removals = new LabelScanValue();
+
+    /**
+     * Maximum number of {@link #pendingUpdates} before they are applied as a batch.
+     */
+    private final int batchSize;
 
     /**
      * Batch currently building up as {@link #write(NodeLabelUpdate) updates} come in. Cursor for where
-     * to place new updates is {@link #pendingUpdatesCursor}. Length of this queue is decided in constructor
-     * and defines the maximum batch size.
+     * to place new updates is {@link #pendingUpdatesCursor}. Grows as needed up to {@link #batchSize},
+     * since most writers only see the few updates of a single transaction.
      */
-    private final NodeLabelUpdate[] pendingUpdates;
+    private NodeLabelUpdate[] pendingUpdates = new NodeLabelUpdate[INITIAL_PENDING_UPDATES];
 
     /**
      * Cursor into {@link #pendingUpdates}, where to place new {@link #write(NodeLabelUpdate) updates}.
@@ -101,33 +131,47 @@ class NativeLabelScanWriter implements LabelScanWriter
     private int pendingUpdatesCursor;
 
     /**
-     * There are two levels of batching, one for {@link NodeLabelUpdate updates} and one when applying.
-     * This variable helps keeping track of the second level where updates to the actual {@link GBPTree}
-     * are batched per node id range, i.e. to add several labelId->nodeId mappings falling into the same
-     * range, all of those updates are made into one {@link LabelScanValue} and then issues as one update
-     * to the tree. There are additions and removals, this variable keeps track of which.
+     * When applying {@link NodeLabelUpdate updates} (when batch full or in {@link #close()}), the updates are
+     * first split up into changes per label id, kept here. Instances are reused between batches.
+     */
+    private final PrimitiveIntObjectMap<LabelChanges> changesByLabel = Primitive.intObjectMap();
+
+    /**
+     * The {@link LabelChanges} in {@link #changesByLabel} which have changes in the current batch,
+     * {@link #labelsWithChanges} number of them.
      */
-    private boolean addition;
+    private LabelChanges[] labels = new LabelChanges[8];
 
     /**
-     * When applying {@link NodeLabelUpdate updates} (when batch full or in {@link #close()}), updates are
-     * applied labelId by labelId. All updates are scanned through multiple times, with one label in mind at a time.
-     * For each round the current round tries to figure out which is the closest higher labelId to apply
-     * in the next round. This variable keeps track of that next labelId.
+     * Number of {@link LabelChanges} in {@link #labels} which have changes in the current batch.
      */
-    private long lowestLabelId;
+    private int labelsWithChanges;
+
+    /**
+     * Number of label changes extracted from the current batch, for the {@link #monitor}.
+     */
+    private int changeCount;
+
+    /**
+     * Number of merges made into the tree for the current batch, for the {@link #monitor}.
+     */
+    private int mergeCount;
 
     NativeLabelScanWriter( int batchSize )
     {
-        this.pendingUpdates = new NodeLabelUpdate[batchSize];
+        this( batchSize, NativeLabelScanStore.WriteMonitor.EMPTY );
+    }
+
+    NativeLabelScanWriter( int batchSize, NativeLabelScanStore.WriteMonitor monitor )
+    {
+        this.batchSize = batchSize;
+        this.monitor = monitor;
     }
 
     NativeLabelScanWriter initialize( Writer<LabelScanKey,LabelScanValue> writer )
     {
         this.writer = writer;
         this.pendingUpdatesCursor = 0;
-        this.addition = false;
-        this.lowestLabelId = Long.MAX_VALUE;
         return this;
     }
 
@@ -138,117 +182,134 @@ class NativeLabelScanWriter implements LabelScanWriter
     @Override
     public void write( NodeLabelUpdate update ) throws IOException
     {
-        if ( pendingUpdatesCursor == pendingUpdates.length )
+        if ( pendingUpdatesCursor == batchSize )
         {
             flushPendingChanges();
         }
+        else if ( pendingUpdatesCursor == pendingUpdates.length )
+        {
+            pendingUpdates = Arrays.copyOf( pendingUpdates, min( batchSize, pendingUpdates.length * 2 ) );
+        }
 
         pendingUpdates[pendingUpdatesCursor++] = update;
         PhysicalToLogicalLabelChanges.convertToAdditionsAndRemovals( update );
-        checkNextLabelId( update.getLabelsBefore() );
-        checkNextLabelId( update.getLabelsAfter() );
     }
 
-    private void checkNextLabelId( long[] labels )
+    private void flushPendingChanges() throws IOException
     {
-        if ( labels.length > 0 && labels[0] != -1 )
+        // Sorting is stable, so changes to the same node keep the order in which they were written
+        Arrays.sort( pendingUpdates, 0, pendingUpdatesCursor, UPDATE_SORTER );
+
+        changeCount = 0;
+        mergeCount = 0;
+        for ( int i = 0; i < pendingUpdatesCursor; i++ )
         {
-            lowestLabelId = min( lowestLabelId, labels[0] );
+            NodeLabelUpdate update = pendingUpdates[i];
+            extractChanges( update.getLabelsAfter(), update.getNodeId(), false );
+            extractChanges( update.getLabelsBefore(), update.getNodeId(), true );
+            pendingUpdates[i] = null;
         }
-    }
 
-    private void flushPendingChanges() throws IOException
-    {
-        Arrays.sort( pendingUpdates, 0, pendingUpdatesCursor, UPDATE_SORTER );
+        Arrays.sort( labels, 0, labelsWithChanges, LABEL_SORTER );
+        for ( int i = 0; i < labelsWithChanges; i++ )
+        {
+            applyChanges( labels[i] );
+        }
+        labelsWithChanges = 0;
 
-        long currentLabelId = lowestLabelId;
-        value.clear();
-        key.clear();
-        while ( currentLabelId != Long.MAX_VALUE )
+        if ( pendingUpdatesCursor > 0 )
         {
-            long nextLabelId = Long.MAX_VALUE;
-            for ( int i = 0; i < pendingUpdatesCursor; i++ )
-            {
-                NodeLabelUpdate update = pendingUpdates[i];
-                long nodeId = update.getNodeId();
-                nextLabelId = extractChange( update.getLabelsAfter(), currentLabelId, nodeId, nextLabelId, true );
-                nextLabelId = extractChange( update.getLabelsBefore(), currentLabelId, nodeId, nextLabelId, false );
-            }
-            currentLabelId = nextLabelId;
+            monitor.batchApplied( pendingUpdatesCursor, changeCount, mergeCount );
         }
-        flushPendingRange();
         pendingUpdatesCursor = 0;
     }
 
-    private long extractChange( long[] labels, long currentLabelId, long nodeId, long nextLabelId, boolean addition )
-            throws IOException
+    private void extractChanges( long[] labelIds, long nodeId, boolean removal )
     {
-        long foundNextLabelId = nextLabelId;
-        for ( int li = 0; li < labels.length; li++ )
+        long previousLabelId = -1;
+        for ( long labelId : labelIds )
         {
-            long labelId = labels[li];
             if ( labelId == -1 )
             {
                 break;
             }
-
-            // Have this check here so that we can pick up the next labelId in our change set
-            if ( labelId == currentLabelId )
+            if ( labelId < previousLabelId )
             {
-                change( currentLabelId, nodeId, addition );
-
-                // We can do a little shorter check for next labelId here straight away,
-                // we just check the next if it's less than what we currently think is next labelId
-                // and then break right after
-                if ( li+1 < labels.length && labels[li+1] != -1 )
-                {
-                    long nextLabelCandidate = labels[li+1];
-                    if ( nextLabelCandidate < currentLabelId )
-                    {
-                        throw new IllegalArgumentException( "The node label update contained unsorted label ids " +
-                                Arrays.toString( labels ) );
-                    }
-                    if ( nextLabelCandidate > currentLabelId )
-                    {
-                        foundNextLabelId = min( foundNextLabelId, nextLabelCandidate );
-                    }
-                }
-                break;
+                throw new IllegalArgumentException( "The node label update contained unsorted label ids " +
+                        Arrays.toString( labelIds ) );
             }
-            else if ( labelId > currentLabelId )
+            previousLabelId = labelId;
+
+            changesFor( toIntExact( labelId ) ).add( nodeId, removal );
+            changeCount++;
+        }
+    }
+
+    private LabelChanges changesFor( int labelId )
+    {
+        LabelChanges changes = changesByLabel.get( labelId );
+        if ( changes == null )
+        {
+            changes = new LabelChanges( labelId );
+            changesByLabel.put( labelId, changes );
+        }
+        if ( changes.size == 0 )
+        {
+            if ( labelsWithChanges == labels.length )
             {
-                foundNextLabelId = min( foundNextLabelId, labelId );
+                labels = Arrays.copyOf( labels, labelsWithChanges * 2 );
             }
+            labels[labelsWithChanges++] = changes;
         }
-        return foundNextLabelId;
+        return changes;
     }
 
-    private void change( long currentLabelId, long nodeId, boolean add ) throws IOException
+    /**
+     * Applies changes for one label, range by range in ascending node id order. All changes for a range are
+     * combined into at most one addition and one removal merge into the tree. Changes for a node are in the
+     * order they were written, and the last change of a node in the batch wins, so that the additions and
+     * removals for a range never overlap and can be applied in any order. Applying a batch is idempotent,
+     * which recovery relies on when replaying transactions the tree has already seen.
+     */
+    private void applyChanges( LabelChanges changes ) throws IOException
     {
-        int labelId = toIntExact( currentLabelId );
-        long idRange = rangeOf( nodeId );
-        if ( labelId != key.labelId || idRange != key.idRange || addition != add )
+        key.set( changes.labelId, -1 );
+        for ( int i = 0; i < changes.size; i++ )
         {
-            flushPendingRange();
+            long change = changes.changes[i];
+            long nodeId = change >>> 1;
+            long idRange = rangeOf( nodeId );
+            if ( idRange != key.idRange )
+            {
+                flushPendingRange();
+                key.idRange = idRange;
+            }
 
-            // Set key to current and reset value
-            key.labelId = labelId;
-            key.idRange = idRange;
-            addition = add;
+            int bit = toIntExact( nodeId % RANGE_SIZE );
+            LabelScanValue value = (change & 1) != 0 ? removals : additions;
+            LabelScanValue opposite = value == removals ? additions : removals;
+            value.set( bit );
+            opposite.unset( bit );
         }
-
-        value.set( toIntExact( nodeId % RANGE_SIZE ) );
+        flushPendingRange();
+        changes.size = 0;
     }
 
     private void flushPendingRange() throws IOException
     {
-        if ( value.bits != 0 )
+        if ( !removals.isEmpty() )
         {
-            // There are changes in the current range, flush them
-            writer.merge( key, value, addition ? ADD_MERGER : REMOVE_MERGER );
             // TODO: after a remove we could check if the tree value is empty and if so remove it from the index
             // hmm, or perhaps that could be a feature of ValueAmender?
-            value.clear();
+            writer.merge( key, removals, REMOVE_MERGER );
+            removals.clear();
+            mergeCount++;
+        }
+        if ( !additions.isEmpty() )
+        {
+            writer.merge( key, additions, ADD_MERGER );
+            additions.clear();
+            mergeCount++;
         }
     }
 
@@ -273,4 +334,29 @@ class NativeLabelScanWriter implements LabelScanWriter
             writer.close();
         }
     }
+
+    /**
+     * Changes for one label id in a batch, in the order of ascending node id. Each change is a node id
+     * shifted one bit to the left, with the lowest bit set for removals.
+     */
+    private static class LabelChanges
+    {
+        private final int labelId;
+        private long[] changes = new long[16];
+        private int size;
+
+        LabelChanges( int labelId )
+        {
+            this.labelId = labelId;
+        }
+
+        void add( long nodeId, boolean removal )
+        {
+            if ( size == changes.length )
+            {
+                changes = Arrays.copyOf( changes, size * 2 );
+            }
+            changes[size++] = (nodeId << 1) | (removal ? 1 : 0);
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Predicate;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.Hit;
+
+/**
+ * {@link PrimitiveLongIterator} which iterates over {@link NativeSchemaKey} from a seek and returns
+ * the {@link NativeSchemaKey#entityId entity ids} of keys accepted by a filter, until reaching the end
+ * of the seek or a key matching an end condition.
+ *
+ * The provided {@link RawCursor} is managed externally, e.g. {@link NativeSchemaIndexReader},
+ * this because implemented interface lacks close-method.
+ */
+class NativeSchemaHitIterator extends PrimitiveLongCollections.PrimitiveLongBaseIterator
+{
+    private final RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor;
+    private final Predicate<NativeSchemaKey> filter;
+    private final Predicate<NativeSchemaKey> end;
+
+    NativeSchemaHitIterator( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor )
+    {
+        this( cursor, key -> true, key -> false );
+    }
+
+    /**
+     * @param cursor {@link RawCursor} to read keys from.
+     * @param filter only entity ids of keys accepted by this filter are returned.
+     * @param end iteration ends at the first key matching this condition.
+     */
+    NativeSchemaHitIterator( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor,
+            Predicate<NativeSchemaKey> filter, Predicate<NativeSchemaKey> end )
+    {
+        this.cursor = cursor;
+        this.filter = filter;
+        this.end = end;
+    }
+
+    @Override
+    protected boolean fetchNext()
+    {
+        try
+        {
+            while ( cursor.next() )
+            {
+                NativeSchemaKey key = cursor.get().key();
+                if ( end.test( key ) )
+                {
+                    return false;
+                }
+                if ( filter.test( key ) )
+                {
+                    return next( key.entityId );
+                }
+            }
+            return false;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
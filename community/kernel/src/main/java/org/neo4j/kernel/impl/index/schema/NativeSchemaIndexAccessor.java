@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.helpers.collection.BoundedIterable;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.impl.api.index.IndexUpdateMode;
+import org.neo4j.storageengine.api.schema.IndexReader;
+
+import static org.neo4j.helpers.collection.Iterators.asResourceIterator;
+import static org.neo4j.helpers.collection.Iterators.iterator;
+
+/**
+ * {@link IndexAccessor} for an online native schema index. The {@link GBPTree} is opened on construction
+ * and {@link #force() forcing} the index means {@link GBPTree#checkpoint(IOLimiter) checkpointing} the tree.
+ * Updates made after the last checkpoint are lost on crash and so are expected to be replayed by recovery.
+ */
+class NativeSchemaIndexAccessor implements IndexAccessor
+{
+    private final FileSystemAbstraction fs;
+    private final NativeSchemaIndexProvider.IndexFiles files;
+    private final GBPTree<NativeSchemaKey,NativeSchemaValue> tree;
+
+    NativeSchemaIndexAccessor( PageCache pageCache, FileSystemAbstraction fs,
+            NativeSchemaIndexProvider.IndexFiles files ) throws IOException
+    {
+        this.fs = fs;
+        this.files = files;
+        this.tree = new GBPTree<>( pageCache, files.tree, new NativeSchemaLayout(), 0, GBPTree.NO_MONITOR );
+    }
+
+    @Override
+    public void drop() throws IOException
+    {
+        tree.close();
+        fs.deleteRecursively( files.directory );
+    }
+
+    @Override
+    public IndexUpdater newUpdater( IndexUpdateMode mode )
+    {
+        return new NativeSchemaIndexUpdater( tree, null );
+    }
+
+    @Override
+    public void flush() throws IOException
+    {   // Updates are written straight into the page cache, force() checkpoints them
+    }
+
+    @Override
+    public void force() throws IOException
+    {
+        tree.checkpoint( IOLimiter.unlimited() );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        tree.close();
+    }
+
+    @Override
+    public IndexReader newReader()
+    {
+        return new NativeSchemaIndexReader( tree );
+    }
+
+    @Override
+    public BoundedIterable<Long> newAllEntriesReader()
+    {
+        return new AllEntriesReader();
+    }
+
+    @Override
+    public ResourceIterator<File> snapshotFiles() throws IOException
+    {
+        return asResourceIterator( iterator( files.tree ) );
+    }
+
+    /**
+     * Reads the node ids of all entries in the index, in order of value.
+     */
+    private class AllEntriesReader implements BoundedIterable<Long>
+    {
+        private RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor;
+
+        @Override
+        public long maxCount()
+        {
+            try ( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> counter = seekAll() )
+            {
+                long count = 0;
+                while ( counter.next() )
+                {
+                    count++;
+                }
+                return count;
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        @Override
+        public Iterator<Long> iterator()
+        {
+            closeCursor();
+            cursor = seekAll();
+            return new Iterator<Long>()
+            {
+                private boolean hasNext;
+                private boolean fetched;
+
+                @Override
+                public boolean hasNext()
+                {
+                    if ( !fetched )
+                    {
+                        try
+                        {
+                            hasNext = cursor.next();
+                        }
+                        catch ( IOException e )
+                        {
+                            throw new UncheckedIOException( e );
+                        }
+                        fetched = true;
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public Long next()
+                {
+                    if ( !hasNext() )
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    fetched = false;
+                    return cursor.get().key().entityId;
+                }
+            };
+        }
+
+        private RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> seekAll()
+        {
+            try
+            {
+                return tree.seek( new NativeSchemaKey().initAsLowest(), new NativeSchemaKey().initAsHighest() );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            closeCursor();
+        }
+
+        private void closeCursor()
+        {
+            if ( cursor != null )
+            {
+                try
+                {
+                    cursor.close();
+                }
+                catch ( IOException e )
+                {
+                    throw new UncheckedIOException( e );
+                }
+                cursor = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Writer;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.storageengine.api.schema.IndexSample;
+
+/**
+ * {@link IndexPopulator} for a native schema index. Updates are written straight into the {@link GBPTree}
+ * and the index is marked as populating, see {@link NativeSchemaIndexProvider}, until population
+ * has completed successfully.
+ * <p>
+ * Sampling is done on {@link #sampleResult()} by going through the populated index, which gives an exact
+ * sample since entries are ordered by value, so no sampling is done while populating.
+ */
+class NativeSchemaIndexPopulator implements IndexPopulator
+{
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final NativeSchemaIndexProvider.IndexFiles files;
+    private final IndexDescriptor descriptor;
+    private final boolean unique;
+    private final NativeSchemaKey key = new NativeSchemaKey();
+    private GBPTree<NativeSchemaKey,NativeSchemaValue> tree;
+
+    NativeSchemaIndexPopulator( PageCache pageCache, FileSystemAbstraction fs,
+            NativeSchemaIndexProvider.IndexFiles files, IndexDescriptor descriptor, boolean unique )
+    {
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.files = files;
+        this.descriptor = descriptor;
+        this.unique = unique;
+    }
+
+    @Override
+    public void create() throws IOException
+    {
+        fs.deleteRecursively( files.directory );
+        fs.mkdirs( files.directory );
+        fs.create( files.populatingMarker ).close();
+        tree = new GBPTree<>( pageCache, files.tree, new NativeSchemaLayout(), 0, GBPTree.NO_MONITOR );
+    }
+
+    @Override
+    public void drop() throws IOException
+    {
+        closeTree();
+        fs.deleteRecursively( files.directory );
+    }
+
+    @Override
+    public void add( Collection<NodePropertyUpdate> updates ) throws IndexEntryConflictException, IOException
+    {
+        try ( Writer<NativeSchemaKey,NativeSchemaValue> writer = tree.concurrentWriter() )
+        {
+            for ( NodePropertyUpdate update : updates )
+            {
+                writer.put( key.from( update.getValueAfter(), update.getNodeId() ), NativeSchemaValue.INSTANCE );
+            }
+        }
+    }
+
+    @Override
+    public void verifyDeferredConstraints( PropertyAccessor accessor ) throws IndexEntryConflictException, IOException
+    {
+        if ( unique )
+        {
+            new NativeSchemaUniquenessVerifier( tree, accessor, descriptor.getPropertyKeyId() ).verifyAll();
+        }
+    }
+
+    @Override
+    public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor ) throws IOException
+    {
+        return new NativeSchemaIndexUpdater( tree,
+                unique ? new NativeSchemaUniquenessVerifier( tree, accessor, descriptor.getPropertyKeyId() ) : null );
+    }
+
+    @Override
+    public void close( boolean populationCompletedSuccessfully ) throws IOException
+    {
+        if ( populationCompletedSuccessfully )
+        {
+            tree.checkpoint( IOLimiter.unlimited() );
+            fs.deleteFile( files.populatingMarker );
+        }
+        closeTree();
+    }
+
+    private void closeTree() throws IOException
+    {
+        if ( tree != null )
+        {
+            tree.close();
+            tree = null;
+        }
+    }
+
+    @Override
+    public void markAsFailed( String failure ) throws IOException
+    {
+        NativeSchemaIndexProvider.writeFailure( fs, files, failure );
+    }
+
+    @Override
+    public void includeSample( NodePropertyUpdate update )
+    {   // Sampled from the populated index instead
+    }
+
+    @Override
+    public void configureSampling( boolean onlineSampling )
+    {   // Sampled from the populated index instead
+    }
+
+    @Override
+    public IndexSample sampleResult()
+    {
+        return NativeSchemaIndexReader.sample( tree );
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
+
+/**
+ * {@link SchemaIndexProvider} of schema indexes backed by {@link GBPTree} atop a {@link PageCache}.
+ * Indexes hold numbers and strings {@link NativeSchemaKey#supports(Object) short enough} to fit in a fixed size key.
+ * This provider is meant to be used together with another provider for the values that it doesn't support,
+ * see {@link org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider}.
+ * <p>
+ * Each index lives in its own directory, containing:
+ * <ul>
+ * <li>"index", the {@link GBPTree} store file</li>
+ * <li>"populating", a marker which exists from population start until population has completed successfully</li>
+ * <li>"failure-message", the failure given to {@link IndexPopulator#markAsFailed(String)}, if any</li>
+ * </ul>
+ */
+public class NativeSchemaIndexProvider extends SchemaIndexProvider
+{
+    public static final String KEY = "native";
+    public static final Descriptor NATIVE_PROVIDER_DESCRIPTOR = new Descriptor( KEY, "1.0" );
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File indexesDirectory;
+
+    public NativeSchemaIndexProvider( PageCache pageCache, FileSystemAbstraction fs, File storeDir )
+    {
+        super( NATIVE_PROVIDER_DESCRIPTOR, 0 );
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.indexesDirectory = getSchemaIndexStoreDirectory( storeDir );
+    }
+
+    /**
+     * @param value property value.
+     * @return whether or not indexes of this provider can hold the given value.
+     */
+    public static boolean supportsValue( Object value )
+    {
+        return NativeSchemaKey.supports( value );
+    }
+
+    @Override
+    public IndexPopulator getPopulator( long indexId, IndexDescriptor descriptor, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig )
+    {
+        return new NativeSchemaIndexPopulator( pageCache, fs, files( indexId ), descriptor, config.isUnique() );
+    }
+
+    @Override
+    public IndexAccessor getOnlineAccessor( long indexId, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        return new NativeSchemaIndexAccessor( pageCache, fs, files( indexId ) );
+    }
+
+    @Override
+    public String getPopulationFailure( long indexId ) throws IllegalStateException
+    {
+        IndexFiles files = files( indexId );
+        if ( !fs.fileExists( files.failure ) )
+        {
+            throw new IllegalStateException( "Index " + indexId + " isn't failed" );
+        }
+        try ( BufferedReader reader = new BufferedReader( fs.openAsReader( files.failure, StandardCharsets.UTF_8 ) ) )
+        {
+            return reader.lines().collect( Collectors.joining( System.lineSeparator() ) );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public InternalIndexState getInitialState( long indexId )
+    {
+        IndexFiles files = files( indexId );
+        if ( fs.fileExists( files.failure ) )
+        {
+            return InternalIndexState.FAILED;
+        }
+        if ( !fs.fileExists( files.tree ) || fs.fileExists( files.populatingMarker ) )
+        {
+            return InternalIndexState.POPULATING;
+        }
+        return InternalIndexState.ONLINE;
+    }
+
+    @Override
+    public StoreMigrationParticipant storeMigrationParticipant( FileSystemAbstraction fs, PageCache pageCache,
+            LabelScanStoreProvider labelScanStoreProvider )
+    {
+        // No index of this provider exists in a store of an older format
+        return StoreMigrationParticipant.NOT_PARTICIPATING;
+    }
+
+    private IndexFiles files( long indexId )
+    {
+        return new IndexFiles( new File( indexesDirectory, String.valueOf( indexId ) ) );
+    }
+
+    static void writeFailure( FileSystemAbstraction fs, IndexFiles files, String failure ) throws IOException
+    {
+        fs.mkdirs( files.directory );
+        try ( Writer writer = fs.openAsWriter( files.failure, StandardCharsets.UTF_8, false ) )
+        {
+            writer.write( failure );
+        }
+    }
+
+    /**
+     * Files of a single index.
+     */
+    static class IndexFiles
+    {
+        final File directory;
+        final File tree;
+        final File populatingMarker;
+        final File failure;
+
+        IndexFiles( File directory )
+        {
+            this.directory = directory;
+            this.tree = new File( directory, "index" );
+            this.populatingMarker = new File( directory, "populating" );
+            this.failure = new File( directory, "failure-message" );
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.function.Predicate;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.storageengine.api.schema.IndexSample;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+
+import static org.neo4j.kernel.impl.index.schema.NativeSchemaKey.TYPE_NUMBER;
+import static org.neo4j.kernel.impl.index.schema.NativeSchemaKey.TYPE_STRING;
+
+/**
+ * {@link IndexReader} for reading data from a native schema index, i.e. a {@link GBPTree} with
+ * {@link NativeSchemaLayout}. Each {@link PrimitiveLongIterator} returned from each of the methods is backed
+ * by {@link RawCursor} directly from {@link GBPTree#seek(Object, Object)}.
+ * <p>
+ * All queries are exact for the values that the index holds, i.e. numbers as {@code double} and strings
+ * {@link NativeSchemaKey#supports(Object) short enough} to fit in a key. Seeking for other values gives no results.
+ * <p>
+ * The returned {@link PrimitiveLongIterator} aren't closable so the cursors retrieved are managed
+ * inside of this reader and closed between each new query and on {@link #close()}.
+ */
+class NativeSchemaIndexReader implements IndexReader
+{
+    private final GBPTree<NativeSchemaKey,NativeSchemaValue> tree;
+
+    /**
+     * Currently open {@link RawCursor} from query methods below. Open cursors are closed when calling
+     * new query methods or when {@link #close() closing} this reader.
+     */
+    private final Queue<RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException>> openCursors =
+            new LinkedList<>();
+
+    NativeSchemaIndexReader( GBPTree<NativeSchemaKey,NativeSchemaValue> tree )
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public PrimitiveLongIterator seek( Object value )
+    {
+        if ( !NativeSchemaKey.supports( value ) )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+        NativeSchemaKey from = new NativeSchemaKey().from( value, Long.MIN_VALUE );
+        NativeSchemaKey to = new NativeSchemaKey().from( value, Long.MAX_VALUE );
+        return new NativeSchemaHitIterator( seekFresh( from, to ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumberInclusive( Number lower, Number upper )
+    {
+        NativeSchemaKey from = lower == null ? new NativeSchemaKey().initAsLowestOf( TYPE_NUMBER )
+                                             : new NativeSchemaKey().from( lower, Long.MIN_VALUE );
+        NativeSchemaKey to = upper == null ? new NativeSchemaKey().initAsHighestOf( TYPE_NUMBER )
+                                           : new NativeSchemaKey().from( upper, Long.MAX_VALUE );
+        return new NativeSchemaHitIterator( seekFresh( from, to ) );
+    }
+
+    /**
+     * Bounds which are too long to fit in a key are truncated. Since no string in the index is longer
+     * than a truncated bound, a string in the index equal to the truncated bound is lower than the bound itself
+     * and a string higher than the truncated bound is higher than the bound itself.
+     */
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+            String upper, boolean includeUpper )
+    {
+        NativeSchemaKey from = new NativeSchemaKey();
+        if ( lower == null )
+        {
+            from.initAsLowestOf( TYPE_STRING );
+        }
+        else
+        {
+            boolean fits = NativeSchemaKey.supports( lower );
+            from.fromStringBound( utf8( lower ), fits && includeLower ? Long.MIN_VALUE : Long.MAX_VALUE );
+        }
+
+        NativeSchemaKey to = new NativeSchemaKey();
+        if ( upper == null )
+        {
+            to.initAsHighestOf( TYPE_STRING );
+        }
+        else
+        {
+            boolean fits = NativeSchemaKey.supports( upper );
+            to.fromStringBound( utf8( upper ), !fits || includeUpper ? Long.MAX_VALUE : Long.MIN_VALUE );
+        }
+        return new NativeSchemaHitIterator( seekFresh( from, to ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        byte[] prefixBytes = utf8( prefix );
+        if ( prefixBytes.length > NativeSchemaKey.MAX_STRING_BYTES )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+        NativeSchemaKey from = new NativeSchemaKey().fromStringBound( prefixBytes, Long.MIN_VALUE );
+        NativeSchemaKey to = new NativeSchemaKey().initAsHighestOf( TYPE_STRING );
+        return new NativeSchemaHitIterator( seekFresh( from, to ), key -> true, key -> !key.startsWith( prefixBytes ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator scan()
+    {
+        return new NativeSchemaHitIterator(
+                seekFresh( new NativeSchemaKey().initAsLowest(), new NativeSchemaKey().initAsHighest() ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator containsString( String exactTerm )
+    {
+        return scanStrings( key -> key.stringValue().contains( exactTerm ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator endsWith( String suffix )
+    {
+        return scanStrings( key -> key.stringValue().endsWith( suffix ) );
+    }
+
+    private PrimitiveLongIterator scanStrings( Predicate<NativeSchemaKey> filter )
+    {
+        NativeSchemaKey from = new NativeSchemaKey().initAsLowestOf( TYPE_STRING );
+        NativeSchemaKey to = new NativeSchemaKey().initAsHighestOf( TYPE_STRING );
+        return new NativeSchemaHitIterator( seekFresh( from, to ), filter, key -> false );
+    }
+
+    @Override
+    public long countIndexedNodes( long nodeId, Object propertyValue )
+    {
+        if ( !NativeSchemaKey.supports( propertyValue ) )
+        {
+            return 0;
+        }
+        NativeSchemaKey from = new NativeSchemaKey().from( propertyValue, nodeId );
+        NativeSchemaKey to = new NativeSchemaKey().from( propertyValue, nodeId + 1 );
+        try ( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor = tree.seek( from, to ) )
+        {
+            long count = 0;
+            while ( cursor.next() )
+            {
+                count++;
+            }
+            return count;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * @return {@link IndexSampler} which scans through all entries in the index. Entries are ordered by value
+     * and so the number of unique values are counted exactly, without keeping any values around.
+     */
+    @Override
+    public IndexSampler createSampler()
+    {
+        return () -> sample( tree );
+    }
+
+    static IndexSample sample( GBPTree<NativeSchemaKey,NativeSchemaValue> tree )
+    {
+        try ( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor =
+                      tree.seek( new NativeSchemaKey().initAsLowest(), new NativeSchemaKey().initAsHighest() ) )
+        {
+            NativeSchemaKey previous = new NativeSchemaKey();
+            long indexSize = 0;
+            long uniqueValues = 0;
+            while ( cursor.next() )
+            {
+                NativeSchemaKey key = cursor.get().key();
+                if ( indexSize == 0 || key.compareValueTo( previous ) != 0 )
+                {
+                    uniqueValues++;
+                    previous.copyFrom( key );
+                }
+                indexSize++;
+            }
+            return new IndexSample( indexSize, uniqueValues, indexSize );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> seekFresh( NativeSchemaKey from,
+            NativeSchemaKey to )
+    {
+        try
+        {
+            ensureOpenCursorsClosed();
+            RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor = tree.seek( from, to );
+            openCursors.offer( cursor );
+            return cursor;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private static byte[] utf8( String string )
+    {
+        return string.getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Closes all currently open {@link RawCursor cursors} from last query method call.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            ensureOpenCursorsClosed();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private void ensureOpenCursorsClosed() throws IOException
+    {
+        RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor;
+        while ( (cursor = openCursors.poll()) != null )
+        {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.index.internal.gbptree.Writer;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+
+/**
+ * {@link IndexUpdater} applying updates directly to a native schema index, using a
+ * {@link GBPTree#concurrentWriter() concurrent writer} which is acquired on first update
+ * and released on {@link #close()}.
+ * <p>
+ * If given a {@link NativeSchemaUniquenessVerifier} then values added through this updater are verified to be unique
+ * when closing it.
+ */
+class NativeSchemaIndexUpdater implements IndexUpdater
+{
+    private final GBPTree<NativeSchemaKey,NativeSchemaValue> tree;
+    private final NativeSchemaUniquenessVerifier uniquenessVerifier;
+    private final NativeSchemaKey key = new NativeSchemaKey();
+    private final List<Object> addedValues = new ArrayList<>();
+    private Writer<NativeSchemaKey,NativeSchemaValue> writer;
+
+    NativeSchemaIndexUpdater( GBPTree<NativeSchemaKey,NativeSchemaValue> tree,
+            NativeSchemaUniquenessVerifier uniquenessVerifier )
+    {
+        this.tree = tree;
+        this.uniquenessVerifier = uniquenessVerifier;
+    }
+
+    @Override
+    public void process( NodePropertyUpdate update ) throws IOException, IndexEntryConflictException
+    {
+        switch ( update.getUpdateMode() )
+        {
+        case ADDED:
+            add( update.getNodeId(), update.getValueAfter() );
+            break;
+        case CHANGED:
+            remove( update.getNodeId(), update.getValueBefore() );
+            add( update.getNodeId(), update.getValueAfter() );
+            break;
+        case REMOVED:
+            remove( update.getNodeId(), update.getValueBefore() );
+            break;
+        default:
+            throw new UnsupportedOperationException( "Unknown update mode " + update.getUpdateMode() );
+        }
+    }
+
+    private void add( long nodeId, Object value ) throws IOException
+    {
+        writer().put( key.from( value, nodeId ), NativeSchemaValue.INSTANCE );
+        if ( uniquenessVerifier != null )
+        {
+            addedValues.add( value );
+        }
+    }
+
+    private void remove( long nodeId, Object value ) throws IOException
+    {
+        writer().remove( key.from( value, nodeId ) );
+    }
+
+    /**
+     * Removes all entries of the given nodes. Entries are ordered by value and so this means going through
+     * all entries of the index, which is fine since this is only used in rare cases, like recovery.
+     */
+    @Override
+    public void remove( PrimitiveLongSet nodeIds ) throws IOException
+    {
+        List<NativeSchemaKey> toRemove = new ArrayList<>();
+        try ( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor =
+                      tree.seek( new NativeSchemaKey().initAsLowest(), new NativeSchemaKey().initAsHighest() ) )
+        {
+            while ( cursor.next() )
+            {
+                NativeSchemaKey hit = cursor.get().key();
+                if ( nodeIds.contains( hit.entityId ) )
+                {
+                    NativeSchemaKey copy = new NativeSchemaKey();
+                    copy.copyFrom( hit );
+                    toRemove.add( copy );
+                }
+            }
+        }
+        for ( NativeSchemaKey keyToRemove : toRemove )
+        {
+            writer().remove( keyToRemove );
+        }
+    }
+
+    private Writer<NativeSchemaKey,NativeSchemaValue> writer() throws IOException
+    {
+        if ( writer == null )
+        {
+            writer = tree.concurrentWriter();
+        }
+        return writer;
+    }
+
+    @Override
+    public void close() throws IOException, IndexEntryConflictException
+    {
+        if ( writer != null )
+        {
+            writer.close();
+            writer = null;
+        }
+        if ( uniquenessVerifier != null )
+        {
+            for ( Object value : addedValues )
+            {
+                uniquenessVerifier.verify( value );
+            }
+            addedValues.clear();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keys in {@link NativeSchemaLayout}, each key consists of a property value and the {@code entityId}
+ * of the node having that value. Supported value types are numbers, stored as the {@code double} they
+ * convert to, and strings with an UTF-8 encoding of at most {@link #MAX_STRING_BYTES} bytes.
+ * Other values are not {@link #supports(Object) supported}.
+ * <p>
+ * Keys are ordered by {@link #type}, then value, then {@link #entityId}, so that all entries for a value
+ * are adjacent and a range of values maps to a single range of keys.
+ */
+class NativeSchemaKey
+{
+    /**
+     * Max number of bytes of the UTF-8 encoding of a string value, for it to fit in a key.
+     */
+    static final int MAX_STRING_BYTES = 30;
+
+    /**
+     * Type of the lowest possible key, used as bound in seeks.
+     */
+    static final byte TYPE_LOWEST = 0;
+    static final byte TYPE_NUMBER = 1;
+    static final byte TYPE_STRING = 2;
+    /**
+     * Type of the highest possible key, used as bound in seeks.
+     */
+    static final byte TYPE_HIGHEST = Byte.MAX_VALUE;
+
+    byte type;
+    long numberRawBits;
+    final byte[] stringBytes = new byte[MAX_STRING_BYTES];
+    int stringLength;
+    long entityId;
+
+    NativeSchemaKey()
+    {
+        initAsLowest();
+    }
+
+    /**
+     * @param value property value.
+     * @return whether or not the given value can be represented by a key.
+     */
+    static boolean supports( Object value )
+    {
+        if ( value instanceof Number )
+        {
+            return true;
+        }
+        if ( value instanceof String )
+        {
+            String string = (String) value;
+            return string.length() <= MAX_STRING_BYTES &&
+                   string.getBytes( StandardCharsets.UTF_8 ).length <= MAX_STRING_BYTES;
+        }
+        return false;
+    }
+
+    /**
+     * Sets this key to the given value and entity id.
+     *
+     * @param value {@link #supports(Object) supported} property value.
+     * @param entityId entity id, or {@link Long#MIN_VALUE}/{@link Long#MAX_VALUE} for seek bounds.
+     * @return this key instance, for convenience.
+     * @throws IllegalArgumentException if the value isn't {@link #supports(Object) supported}.
+     */
+    NativeSchemaKey from( Object value, long entityId )
+    {
+        if ( value instanceof Number )
+        {
+            type = TYPE_NUMBER;
+            numberRawBits = Double.doubleToLongBits( ((Number) value).doubleValue() );
+            stringLength = 0;
+        }
+        else if ( value instanceof String )
+        {
+            byte[] bytes = ((String) value).getBytes( StandardCharsets.UTF_8 );
+            if ( bytes.length > MAX_STRING_BYTES )
+            {
+                throw new IllegalArgumentException( "String value of " + bytes.length + " bytes is longer than the " +
+                        MAX_STRING_BYTES + " bytes supported by this index" );
+            }
+            type = TYPE_STRING;
+            numberRawBits = 0;
+            System.arraycopy( bytes, 0, stringBytes, 0, bytes.length );
+            stringLength = bytes.length;
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unsupported value " + value +
+                    (value != null ? " of type " + value.getClass() : "") );
+        }
+        this.entityId = entityId;
+        return this;
+    }
+
+    /**
+     * Sets this key to a string value given as UTF-8 bytes, truncating it to {@link #MAX_STRING_BYTES} bytes
+     * if longer. Truncated keys must only be used as seek bounds.
+     *
+     * @param utf8 UTF-8 bytes of the string.
+     * @param entityId entity id, or {@link Long#MIN_VALUE}/{@link Long#MAX_VALUE} for seek bounds.
+     * @return this key instance, for convenience.
+     */
+    NativeSchemaKey fromStringBound( byte[] utf8, long entityId )
+    {
+        type = TYPE_STRING;
+        numberRawBits = 0;
+        stringLength = Math.min( utf8.length, MAX_STRING_BYTES );
+        System.arraycopy( utf8, 0, stringBytes, 0, stringLength );
+        this.entityId = entityId;
+        return this;
+    }
+
+    /**
+     * Sets this key to be lower than all keys of the given type.
+     *
+     * @param type type, i.e. {@link #TYPE_NUMBER} or {@link #TYPE_STRING}.
+     * @return this key instance, for convenience.
+     */
+    NativeSchemaKey initAsLowestOf( byte type )
+    {
+        this.type = type;
+        this.numberRawBits = Double.doubleToLongBits( Double.NEGATIVE_INFINITY );
+        this.stringLength = 0;
+        this.entityId = Long.MIN_VALUE;
+        return this;
+    }
+
+    /**
+     * Sets this key to be higher than all keys of the given type.
+     *
+     * @param type type, i.e. {@link #TYPE_NUMBER} or {@link #TYPE_STRING}.
+     * @return this key instance, for convenience.
+     */
+    NativeSchemaKey initAsHighestOf( byte type )
+    {
+        return initAsLowestOf( (byte) (type + 1) );
+    }
+
+    NativeSchemaKey initAsLowest()
+    {
+        return initAsLowestOf( TYPE_LOWEST );
+    }
+
+    NativeSchemaKey initAsHighest()
+    {
+        return initAsLowestOf( TYPE_HIGHEST );
+    }
+
+    /**
+     * @return the property value of this key, a {@link Double} or a {@link String}.
+     */
+    Object value()
+    {
+        switch ( type )
+        {
+        case TYPE_NUMBER:
+            return Double.longBitsToDouble( numberRawBits );
+        case TYPE_STRING:
+            return stringValue();
+        default:
+            throw new IllegalStateException( "Key " + this + " has no value" );
+        }
+    }
+
+    String stringValue()
+    {
+        return new String( stringBytes, 0, stringLength, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Compares only the values of this and the given key, i.e. not {@link #entityId}.
+     * Numbers are compared by their {@code double} value and strings by their UTF-8 bytes, which is
+     * the same as comparing their code points.
+     *
+     * @param other key to compare value with.
+     * @return negative, zero or positive if value of this key is lower, equal or higher than that of {@code other}.
+     */
+    int compareValueTo( NativeSchemaKey other )
+    {
+        int typeComparison = Byte.compare( type, other.type );
+        if ( typeComparison != 0 )
+        {
+            return typeComparison;
+        }
+        switch ( type )
+        {
+        case TYPE_NUMBER:
+            return Double.compare( Double.longBitsToDouble( numberRawBits ),
+                    Double.longBitsToDouble( other.numberRawBits ) );
+        case TYPE_STRING:
+            int length = Math.min( stringLength, other.stringLength );
+            for ( int i = 0; i < length; i++ )
+            {
+                int byteComparison = Integer.compare( stringBytes[i] & 0xFF, other.stringBytes[i] & 0xFF );
+                if ( byteComparison != 0 )
+                {
+                    return byteComparison;
+                }
+            }
+            return Integer.compare( stringLength, other.stringLength );
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * @param prefix UTF-8 bytes of a string prefix.
+     * @return whether or not this is a string key starting with the given prefix.
+     */
+    boolean startsWith( byte[] prefix )
+    {
+        if ( type != TYPE_STRING || stringLength < prefix.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < prefix.length; i++ )
+        {
+            if ( stringBytes[i] != prefix[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void copyFrom( NativeSchemaKey key )
+    {
+        type = key.type;
+        numberRawBits = key.numberRawBits;
+        System.arraycopy( key.stringBytes, 0, stringBytes, 0, key.stringLength );
+        stringLength = key.stringLength;
+        entityId = key.entityId;
+    }
+
+    @Override
+    public String toString()
+    {
+        String value = type == TYPE_NUMBER || type == TYPE_STRING ? String.valueOf( value() ) : "type:" + type;
+        return "[value:" + value + ",entityId:" + entityId + "]";
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Layout;
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * {@link Layout} for {@link GBPTree} used by {@link NativeSchemaIndexProvider}.
+ *
+ * <ul>
+ * <li>
+ * Each key is a combination of property value and {@code entityId}, see {@link NativeSchemaKey}.
+ * A key starts with a type byte, followed by a payload which is either the raw bits of a {@code double}
+ * or a length-prefixed UTF-8 string, followed by the {@code entityId}. Keys are not {@link #fixedSize() fixed size},
+ * a key only occupies as many bytes as its payload needs.
+ * </li>
+ * <li>
+ * Values are empty apart from a placeholder byte, see {@link NativeSchemaValue}.
+ * </li>
+ * </ul>
+ */
+class NativeSchemaLayout implements Layout<NativeSchemaKey,NativeSchemaValue>
+{
+    /**
+     * Name part of the {@link #identifier()} value.
+     */
+    private static final String IDENTIFIER_NAME = "NSL";
+
+    /**
+     * Maximum size of the value payload of a {@link NativeSchemaKey}, big enough for both numbers and strings.
+     */
+    private static final int MAX_PAYLOAD_SIZE =
+            Math.max( Long.BYTES/*number*/, Byte.BYTES/*length*/ + NativeSchemaKey.MAX_STRING_BYTES/*string*/ );
+
+    /**
+     * Size of a {@link NativeSchemaKey} without its value payload.
+     */
+    private static final int KEY_OVERHEAD_SIZE = Byte.BYTES/*type*/ + Long.BYTES/*entityId*/;
+
+    /**
+     * Compares {@link NativeSchemaKey}, giving ascending order of value then {@code entityId}.
+     */
+    @Override
+    public int compare( NativeSchemaKey o1, NativeSchemaKey o2 )
+    {
+        int valueComparison = o1.compareValueTo( o2 );
+        return valueComparison != 0 ? valueComparison : Long.compare( o1.entityId, o2.entityId );
+    }
+
+    @Override
+    public NativeSchemaKey newKey()
+    {
+        return new NativeSchemaKey();
+    }
+
+    @Override
+    public NativeSchemaKey copyKey( NativeSchemaKey key, NativeSchemaKey into )
+    {
+        into.copyFrom( key );
+        return into;
+    }
+
+    @Override
+    public NativeSchemaValue newValue()
+    {
+        return NativeSchemaValue.INSTANCE;
+    }
+
+    @Override
+    public int keySize()
+    {
+        return KEY_OVERHEAD_SIZE + MAX_PAYLOAD_SIZE;
+    }
+
+    @Override
+    public int keySize( NativeSchemaKey key )
+    {
+        int payloadSize = key.type == NativeSchemaKey.TYPE_STRING ? Byte.BYTES + key.stringLength : Long.BYTES;
+        return KEY_OVERHEAD_SIZE + payloadSize;
+    }
+
+    @Override
+    public boolean fixedSize()
+    {
+        return false;
+    }
+
+    @Override
+    public int valueSize()
+    {
+        return NativeSchemaValue.SIZE;
+    }
+
+    @Override
+    public void writeKey( PageCursor cursor, NativeSchemaKey key )
+    {
+        cursor.putByte( key.type );
+        if ( key.type == NativeSchemaKey.TYPE_STRING )
+        {
+            cursor.putByte( (byte) key.stringLength );
+            cursor.putBytes( key.stringBytes, 0, key.stringLength );
+        }
+        else
+        {
+            cursor.putLong( key.numberRawBits );
+        }
+        cursor.putLong( key.entityId );
+    }
+
+    @Override
+    public void writeValue( PageCursor cursor, NativeSchemaValue value )
+    {
+        cursor.putByte( (byte) 0 );
+    }
+
+    @Override
+    public void readKey( PageCursor cursor, NativeSchemaKey into )
+    {
+        into.type = cursor.getByte();
+        if ( into.type == NativeSchemaKey.TYPE_STRING )
+        {
+            // Guard against reading garbage in an inconsistent read, the read will be retried anyway
+            into.stringLength = Math.min( cursor.getByte() & 0xFF, NativeSchemaKey.MAX_STRING_BYTES );
+            cursor.getBytes( into.stringBytes, 0, into.stringLength );
+            into.numberRawBits = 0;
+        }
+        else
+        {
+            into.numberRawBits = cursor.getLong();
+            into.stringLength = 0;
+        }
+        into.entityId = cursor.getLong();
+    }
+
+    @Override
+    public void readValue( PageCursor cursor, NativeSchemaValue into )
+    {
+        cursor.getByte();
+    }
+
+    @Override
+    public long identifier()
+    {
+        return Layout.namedIdentifier( IDENTIFIER_NAME, NativeSchemaKey.MAX_STRING_BYTES );
+    }
+
+    @Override
+    public int majorVersion()
+    {
+        return 0;
+    }
+
+    @Override
+    public int minorVersion()
+    {
+        return 3;
+    }
+}
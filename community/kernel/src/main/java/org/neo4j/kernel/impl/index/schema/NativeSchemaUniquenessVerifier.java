@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.PreexistingIndexEntryConflictException;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.api.properties.Property;
+
+/**
+ * Verifies that no two nodes in a native schema index have the same property value.
+ * <p>
+ * Numbers are stored as {@code double} in the index and so nodes sharing a key doesn't necessarily mean that
+ * they share a value. Such nodes are verified against their actual property values, read using a
+ * {@link PropertyAccessor}.
+ */
+class NativeSchemaUniquenessVerifier
+{
+    private final GBPTree<NativeSchemaKey,NativeSchemaValue> tree;
+    private final PropertyAccessor accessor;
+    private final int propertyKeyId;
+
+    NativeSchemaUniquenessVerifier( GBPTree<NativeSchemaKey,NativeSchemaValue> tree, PropertyAccessor accessor,
+            int propertyKeyId )
+    {
+        this.tree = tree;
+        this.accessor = accessor;
+        this.propertyKeyId = propertyKeyId;
+    }
+
+    /**
+     * Verifies that there's at most one node with the given value.
+     *
+     * @param value value to verify.
+     * @throws IndexEntryConflictException if there are multiple nodes with the given value.
+     * @throws IOException on error reading the index.
+     */
+    void verify( Object value ) throws IndexEntryConflictException, IOException
+    {
+        try ( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor = tree.seek(
+                new NativeSchemaKey().from( value, Long.MIN_VALUE ),
+                new NativeSchemaKey().from( value, Long.MAX_VALUE ) ) )
+        {
+            List<Long> nodeIds = new ArrayList<>();
+            while ( cursor.next() )
+            {
+                nodeIds.add( cursor.get().key().entityId );
+            }
+            verifyNodesWithSameKey( nodeIds );
+        }
+    }
+
+    /**
+     * Verifies that no two nodes in the whole index have the same value.
+     *
+     * @throws IndexEntryConflictException if there are multiple nodes with the same value.
+     * @throws IOException on error reading the index.
+     */
+    void verifyAll() throws IndexEntryConflictException, IOException
+    {
+        try ( RawCursor<Hit<NativeSchemaKey,NativeSchemaValue>,IOException> cursor =
+                      tree.seek( new NativeSchemaKey().initAsLowest(), new NativeSchemaKey().initAsHighest() ) )
+        {
+            NativeSchemaKey previous = new NativeSchemaKey();
+            List<Long> nodeIds = new ArrayList<>();
+            while ( cursor.next() )
+            {
+                NativeSchemaKey key = cursor.get().key();
+                if ( !nodeIds.isEmpty() && key.compareValueTo( previous ) != 0 )
+                {
+                    verifyNodesWithSameKey( nodeIds );
+                    nodeIds.clear();
+                }
+                previous.copyFrom( key );
+                nodeIds.add( key.entityId );
+            }
+            verifyNodesWithSameKey( nodeIds );
+        }
+    }
+
+    private void verifyNodesWithSameKey( List<Long> nodeIds ) throws IndexEntryConflictException
+    {
+        if ( nodeIds.size() < 2 )
+        {
+            return;
+        }
+
+        Object[] values = new Object[nodeIds.size()];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = propertyValue( nodeIds.get( i ) );
+            for ( int j = 0; j < i; j++ )
+            {
+                if ( values[j] != null && Property.property( propertyKeyId, values[j] ).valueEquals( values[i] ) )
+                {
+                    throw new PreexistingIndexEntryConflictException( values[i], nodeIds.get( j ), nodeIds.get( i ) );
+                }
+            }
+        }
+    }
+
+    private Object propertyValue( long nodeId )
+    {
+        try
+        {
+            return accessor.getProperty( nodeId, propertyKeyId ).value( null );
+        }
+        catch ( EntityNotFoundException e )
+        {
+            // Node has been deleted since added to the index, it cannot be in conflict
+            return null;
+        }
+    }
+}
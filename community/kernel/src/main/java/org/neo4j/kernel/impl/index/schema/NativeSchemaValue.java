@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+/**
+ * Values in {@link NativeSchemaLayout}. All information about an index entry lives in its {@link NativeSchemaKey}
+ * and so values are empty. They still occupy a single, always zero, byte in the tree since the tree moves
+ * values around with page cursor copies, which don't accept zero lengths.
+ */
+class NativeSchemaValue
+{
+    static final int SIZE = Byte.BYTES;
+
+    static final NativeSchemaValue INSTANCE = new NativeSchemaValue();
+
+    @Override
+    public String toString()
+    {
+        return "[]";
+    }
+}
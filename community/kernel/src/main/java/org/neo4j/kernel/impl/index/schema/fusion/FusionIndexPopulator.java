@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.Selector;
+import org.neo4j.storageengine.api.schema.IndexSample;
+
+/**
+ * {@link IndexPopulator} of a {@link FusionSchemaIndexProvider fused} index, populating both parts.
+ * Since equal values always go into the same part, uniqueness can be verified by each part on its own.
+ */
+class FusionIndexPopulator implements IndexPopulator
+{
+    private final IndexPopulator nativePopulator;
+    private final IndexPopulator fallbackPopulator;
+    private final Selector selector;
+
+    FusionIndexPopulator( IndexPopulator nativePopulator, IndexPopulator fallbackPopulator, Selector selector )
+    {
+        this.nativePopulator = nativePopulator;
+        this.fallbackPopulator = fallbackPopulator;
+        this.selector = selector;
+    }
+
+    @Override
+    public void create() throws IOException
+    {
+        nativePopulator.create();
+        fallbackPopulator.create();
+    }
+
+    @Override
+    public void drop() throws IOException
+    {
+        try
+        {
+            nativePopulator.drop();
+        }
+        finally
+        {
+            fallbackPopulator.drop();
+        }
+    }
+
+    @Override
+    public void add( Collection<NodePropertyUpdate> updates ) throws IndexEntryConflictException, IOException
+    {
+        List<NodePropertyUpdate> nativeUpdates = new ArrayList<>( updates.size() );
+        List<NodePropertyUpdate> fallbackUpdates = new ArrayList<>();
+        for ( NodePropertyUpdate update : updates )
+        {
+            (selector.selectNative( update.getValueAfter() ) ? nativeUpdates : fallbackUpdates).add( update );
+        }
+        if ( !nativeUpdates.isEmpty() )
+        {
+            nativePopulator.add( nativeUpdates );
+        }
+        if ( !fallbackUpdates.isEmpty() )
+        {
+            fallbackPopulator.add( fallbackUpdates );
+        }
+    }
+
+    @Override
+    public void verifyDeferredConstraints( PropertyAccessor accessor ) throws IndexEntryConflictException, IOException
+    {
+        nativePopulator.verifyDeferredConstraints( accessor );
+        fallbackPopulator.verifyDeferredConstraints( accessor );
+    }
+
+    @Override
+    public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor ) throws IOException
+    {
+        return new FusionIndexUpdater( nativePopulator.newPopulatingUpdater( accessor ),
+                fallbackPopulator.newPopulatingUpdater( accessor ), selector );
+    }
+
+    @Override
+    public void close( boolean populationCompletedSuccessfully ) throws IOException
+    {
+        try
+        {
+            nativePopulator.close( populationCompletedSuccessfully );
+        }
+        finally
+        {
+            fallbackPopulator.close( populationCompletedSuccessfully );
+        }
+    }
+
+    @Override
+    public void markAsFailed( String failure ) throws IOException
+    {
+        try
+        {
+            nativePopulator.markAsFailed( failure );
+        }
+        finally
+        {
+            fallbackPopulator.markAsFailed( failure );
+        }
+    }
+
+    @Override
+    public void includeSample( NodePropertyUpdate update )
+    {
+        (selector.selectNative( update.getValueAfter() ) ? nativePopulator : fallbackPopulator).includeSample( update );
+    }
+
+    @Override
+    public void configureSampling( boolean onlineSampling )
+    {
+        nativePopulator.configureSampling( onlineSampling );
+        fallbackPopulator.configureSampling( onlineSampling );
+    }
+
+    @Override
+    public IndexSample sampleResult()
+    {
+        return FusionIndexSampler.combine( nativePopulator.sampleResult(), fallbackPopulator.sampleResult() );
+    }
+}
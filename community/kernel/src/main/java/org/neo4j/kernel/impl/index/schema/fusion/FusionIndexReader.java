@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.util.Arrays;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.Selector;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+
+/**
+ * {@link IndexReader} of a {@link FusionSchemaIndexProvider fused} index. Exact lookups go to the part holding
+ * the value, other queries go to both parts and their results are concatenated. A node has at most one value
+ * for the indexed property and so results from the two parts never overlap.
+ */
+class FusionIndexReader implements IndexReader
+{
+    private final IndexReader nativeReader;
+    private final IndexReader fallbackReader;
+    private final Selector selector;
+
+    FusionIndexReader( IndexReader nativeReader, IndexReader fallbackReader, Selector selector )
+    {
+        this.nativeReader = nativeReader;
+        this.fallbackReader = fallbackReader;
+        this.selector = selector;
+    }
+
+    @Override
+    public PrimitiveLongIterator seek( Object value )
+    {
+        return select( value ).seek( value );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumberInclusive( Number lower, Number upper )
+    {
+        return concat( nativeReader.rangeSeekByNumberInclusive( lower, upper ),
+                fallbackReader.rangeSeekByNumberInclusive( lower, upper ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+            String upper, boolean includeUpper )
+    {
+        return concat( nativeReader.rangeSeekByString( lower, includeLower, upper, includeUpper ),
+                fallbackReader.rangeSeekByString( lower, includeLower, upper, includeUpper ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        return concat( nativeReader.rangeSeekByPrefix( prefix ), fallbackReader.rangeSeekByPrefix( prefix ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator scan()
+    {
+        return concat( nativeReader.scan(), fallbackReader.scan() );
+    }
+
+    @Override
+    public PrimitiveLongIterator containsString( String exactTerm )
+    {
+        return concat( nativeReader.containsString( exactTerm ), fallbackReader.containsString( exactTerm ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator endsWith( String suffix )
+    {
+        return concat( nativeReader.endsWith( suffix ), fallbackReader.endsWith( suffix ) );
+    }
+
+    @Override
+    public long countIndexedNodes( long nodeId, Object propertyValue )
+    {
+        return select( propertyValue ).countIndexedNodes( nodeId, propertyValue );
+    }
+
+    @Override
+    public IndexSampler createSampler()
+    {
+        return new FusionIndexSampler( nativeReader.createSampler(), fallbackReader.createSampler() );
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            nativeReader.close();
+        }
+        finally
+        {
+            fallbackReader.close();
+        }
+    }
+
+    private IndexReader select( Object value )
+    {
+        return selector.selectNative( value ) ? nativeReader : fallbackReader;
+    }
+
+    private static PrimitiveLongIterator concat( PrimitiveLongIterator nativeResult,
+            PrimitiveLongIterator fallbackResult )
+    {
+        return PrimitiveLongCollections.concat( Arrays.asList( nativeResult, fallbackResult ) );
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException;
+import org.neo4j.storageengine.api.schema.IndexSample;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+
+/**
+ * {@link IndexSampler} of a {@link FusionSchemaIndexProvider fused} index, combining the samples of both parts.
+ * Since equal values always go into the same part, unique values of the parts add up.
+ */
+class FusionIndexSampler implements IndexSampler
+{
+    private final IndexSampler nativeSampler;
+    private final IndexSampler fallbackSampler;
+
+    FusionIndexSampler( IndexSampler nativeSampler, IndexSampler fallbackSampler )
+    {
+        this.nativeSampler = nativeSampler;
+        this.fallbackSampler = fallbackSampler;
+    }
+
+    @Override
+    public IndexSample sampleIndex() throws IndexNotFoundKernelException
+    {
+        return combine( nativeSampler.sampleIndex(), fallbackSampler.sampleIndex() );
+    }
+
+    static IndexSample combine( IndexSample first, IndexSample other )
+    {
+        return new IndexSample( Math.addExact( first.indexSize(), other.indexSize() ),
+                Math.addExact( first.uniqueValues(), other.uniqueValues() ),
+                Math.addExact( first.sampleSize(), other.sampleSize() ) );
+    }
+}
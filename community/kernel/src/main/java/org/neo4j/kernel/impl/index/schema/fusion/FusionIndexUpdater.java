@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.io.IOException;
+
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.Selector;
+
+/**
+ * {@link IndexUpdater} of a {@link FusionSchemaIndexProvider fused} index. A change from a value of one part
+ * to a value of the other part is applied as a removal from one and an addition to the other.
+ */
+class FusionIndexUpdater implements IndexUpdater
+{
+    private final IndexUpdater nativeUpdater;
+    private final IndexUpdater fallbackUpdater;
+    private final Selector selector;
+
+    FusionIndexUpdater( IndexUpdater nativeUpdater, IndexUpdater fallbackUpdater, Selector selector )
+    {
+        this.nativeUpdater = nativeUpdater;
+        this.fallbackUpdater = fallbackUpdater;
+        this.selector = selector;
+    }
+
+    @Override
+    public void process( NodePropertyUpdate update ) throws IOException, IndexEntryConflictException
+    {
+        switch ( update.getUpdateMode() )
+        {
+        case ADDED:
+            select( update.getValueAfter() ).process( update );
+            break;
+        case CHANGED:
+            IndexUpdater from = select( update.getValueBefore() );
+            IndexUpdater to = select( update.getValueAfter() );
+            if ( from == to )
+            {
+                from.process( update );
+            }
+            else
+            {
+                from.process( NodePropertyUpdate.remove( update.getNodeId(), update.getPropertyKeyId(),
+                        update.getValueBefore(), update.getLabelsBefore() ) );
+                to.process( NodePropertyUpdate.add( update.getNodeId(), update.getPropertyKeyId(),
+                        update.getValueAfter(), update.getLabelsAfter() ) );
+            }
+            break;
+        case REMOVED:
+            select( update.getValueBefore() ).process( update );
+            break;
+        default:
+            throw new UnsupportedOperationException( "Unknown update mode " + update.getUpdateMode() );
+        }
+    }
+
+    private IndexUpdater select( Object value )
+    {
+        return selector.selectNative( value ) ? nativeUpdater : fallbackUpdater;
+    }
+
+    @Override
+    public void remove( PrimitiveLongSet nodeIds ) throws IOException
+    {
+        nativeUpdater.remove( nodeIds );
+        fallbackUpdater.remove( nodeIds );
+    }
+
+    @Override
+    public void close() throws IOException, IndexEntryConflictException
+    {
+        try
+        {
+            nativeUpdater.close();
+        }
+        finally
+        {
+            fallbackUpdater.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.io.IOException;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
+
+/**
+ * {@link SchemaIndexProvider} which fuses two providers into one, such that each index consists of
+ * one index of each provider. Each value goes into the native index if the {@link Selector} says it's
+ * supported there, otherwise into the fallback index. Queries go to either or both, depending on which
+ * values they can match.
+ * <p>
+ * Both parts of an index share the same index id, each part living in the directory of its provider.
+ */
+public class FusionSchemaIndexProvider extends SchemaIndexProvider
+{
+    /**
+     * Decides which values go into the native part of an index.
+     */
+    public interface Selector
+    {
+        /**
+         * @param value property value.
+         * @return {@code true} if the value belongs in the native index, {@code false} for the fallback index.
+         */
+        boolean selectNative( Object value );
+    }
+
+    private final SchemaIndexProvider nativeProvider;
+    private final SchemaIndexProvider fallbackProvider;
+    private final Selector selector;
+
+    public FusionSchemaIndexProvider( SchemaIndexProvider nativeProvider, SchemaIndexProvider fallbackProvider,
+            Selector selector, Descriptor descriptor, int priority )
+    {
+        super( descriptor, priority );
+        this.nativeProvider = nativeProvider;
+        this.fallbackProvider = fallbackProvider;
+        this.selector = selector;
+    }
+
+    @Override
+    public IndexPopulator getPopulator( long indexId, IndexDescriptor descriptor, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig )
+    {
+        return new FusionIndexPopulator(
+                nativeProvider.getPopulator( indexId, descriptor, config, samplingConfig ),
+                fallbackProvider.getPopulator( indexId, descriptor, config, samplingConfig ), selector );
+    }
+
+    @Override
+    public IndexAccessor getOnlineAccessor( long indexId, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        IndexAccessor nativeAccessor = nativeProvider.getOnlineAccessor( indexId, config, samplingConfig );
+        try
+        {
+            return new FusionIndexAccessor( nativeAccessor,
+                    fallbackProvider.getOnlineAccessor( indexId, config, samplingConfig ), selector );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            nativeAccessor.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getPopulationFailure( long indexId ) throws IllegalStateException
+    {
+        StringBuilder failure = new StringBuilder();
+        appendFailure( failure, nativeProvider, indexId );
+        appendFailure( failure, fallbackProvider, indexId );
+        if ( failure.length() == 0 )
+        {
+            throw new IllegalStateException( "Index " + indexId + " isn't failed" );
+        }
+        return failure.toString();
+    }
+
+    private static void appendFailure( StringBuilder failure, SchemaIndexProvider provider, long indexId )
+    {
+        if ( provider.getInitialState( indexId ) == InternalIndexState.FAILED )
+        {
+            if ( failure.length() > 0 )
+            {
+                failure.append( System.lineSeparator() );
+            }
+            failure.append( provider.getPopulationFailure( indexId ) );
+        }
+    }
+
+    /**
+     * @return {@link InternalIndexState#FAILED} if any part has failed, otherwise
+     * {@link InternalIndexState#POPULATING} if any part is populating, otherwise {@link InternalIndexState#ONLINE}.
+     */
+    @Override
+    public InternalIndexState getInitialState( long indexId )
+    {
+        InternalIndexState nativeState = nativeProvider.getInitialState( indexId );
+        InternalIndexState fallbackState = fallbackProvider.getInitialState( indexId );
+        if ( nativeState == InternalIndexState.FAILED || fallbackState == InternalIndexState.FAILED )
+        {
+            return InternalIndexState.FAILED;
+        }
+        if ( nativeState == InternalIndexState.POPULATING || fallbackState == InternalIndexState.POPULATING )
+        {
+            return InternalIndexState.POPULATING;
+        }
+        return InternalIndexState.ONLINE;
+    }
+
+    @Override
+    public StoreMigrationParticipant storeMigrationParticipant( FileSystemAbstraction fs, PageCache pageCache,
+            LabelScanStoreProvider labelScanStoreProvider )
+    {
+        // No index of this provider exists in a store of an older format
+        return StoreMigrationParticipant.NOT_PARTICIPATING;
+    }
+
+    @Override
+    public void init() throws Throwable
+    {
+        nativeProvider.init();
+        fallbackProvider.init();
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        nativeProvider.start();
+        fallbackProvider.start();
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        try
+        {
+            fallbackProvider.stop();
+        }
+        finally
+        {
+            nativeProvider.stop();
+        }
+    }
+
+    @Override
+    public void shutdown() throws Throwable
+    {
+        try
+        {
+            fallbackProvider.shutdown();
+        }
+        finally
+        {
+            nativeProvider.shutdown();
+        }
+    }
+}
@@ -19,11 +19,14 @@
  */
 package org.neo4j.kernel.impl.pagecache;
 
+import java.util.List;
+
 import org.neo4j.helpers.Service;
 import org.neo4j.io.ByteUnit;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PageSwapperFactory;
+import org.neo4j.io.pagecache.impl.CompressingPageSwapperFactory;
 import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
 import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
@@ -32,6 +35,12 @@ import org.neo4j.kernel.impl.util.OsBeanUtil;
 import org.neo4j.logging.Log;
 
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_cleaner_enabled;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_cleaner_max_dirty_age;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_compressed_files;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_eviction_policy;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_flush_threads;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_huge_pages;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_swapper;
 import static org.neo4j.kernel.configuration.Settings.BYTES;
@@ -47,7 +56,8 @@ public class ConfiguringPageCacheFactory
     public ConfiguringPageCacheFactory(
             FileSystemAbstraction fs, Config config, PageCacheTracer tracer, Log log )
     {
-        this.swapperFactory = createAndConfigureSwapperFactory( fs, config, log );
+        this.swapperFactory = compressConfiguredFiles(
+                createAndConfigureSwapperFactory( fs, config, log ), fs, config, log );
         this.config = config;
         this.tracer = tracer;
         this.log = log;
@@ -81,6 +91,20 @@ public class ConfiguringPageCacheFactory
         return factory;
     }
 
+    private PageSwapperFactory compressConfiguredFiles(
+            PageSwapperFactory swapperFactory, FileSystemAbstraction fs, Config config, Log log )
+    {
+        List<String> compressedFiles = config.get( pagecache_compressed_files );
+        if ( compressedFiles.isEmpty() )
+        {
+            return swapperFactory;
+        }
+        PageSwapperFactory factory = new CompressingPageSwapperFactory( swapperFactory, compressedFiles );
+        factory.setFileSystemAbstraction( fs );
+        log.info( "Configured " + pagecache_compressed_files.name() + ": " + compressedFiles );
+        return factory;
+    }
+
     public synchronized PageCache getOrCreatePageCache()
     {
         if ( pageCache == null )
@@ -98,7 +122,11 @@ public class ConfiguringPageCacheFactory
                 swapperFactory,
                 maxPages,
                 cachePageSize,
-                tracer );
+                tracer,
+                config.get( pagecache_eviction_policy ),
+                config.get( pagecache_huge_pages ),
+                config.get( pagecache_flush_threads ),
+                config.get( pagecache_cleaner_enabled ) ? config.get( pagecache_cleaner_max_dirty_age ) : 0 );
     }
 
     public int calculateMaxPages( Config config, int cachePageSize )
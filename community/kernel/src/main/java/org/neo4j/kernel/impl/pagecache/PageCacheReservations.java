@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import java.io.File;
+import java.nio.file.OpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.neo4j.io.pagecache.PageReservation;
+import org.neo4j.kernel.configuration.Config;
+
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_reservations;
+import static org.neo4j.helpers.ArrayUtil.concat;
+
+/**
+ * Interprets the {@link org.neo4j.graphdb.factory.GraphDatabaseSettings#pagecache_reservations} setting, which
+ * reserves shares of the page cache for specific store files.
+ */
+public class PageCacheReservations
+{
+    private PageCacheReservations()
+    {
+    }
+
+    /**
+     * @return the reserved page cache ratio for each configured file name, in the order they were configured.
+     */
+    public static Map<String,Double> reservations( Config config )
+    {
+        Map<String,Double> reservations = new LinkedHashMap<>();
+        for ( String reservation : config.get( pagecache_reservations ) )
+        {
+            int separator = reservation.lastIndexOf( ':' );
+            if ( separator <= 0 || separator == reservation.length() - 1 )
+            {
+                throw new IllegalArgumentException( "Page cache reservation '" + reservation + "' in " +
+                        pagecache_reservations.name() + " must be on the form <file name>:<ratio>" );
+            }
+            String fileName = reservation.substring( 0, separator ).trim();
+            double ratio = Double.parseDouble( reservation.substring( separator + 1 ).trim() );
+            reservations.put( fileName, ratio );
+        }
+        return reservations;
+    }
+
+    /**
+     * Add a {@link PageReservation} to the given open options, if the configuration reserves a share of the page
+     * cache for the given file.
+     */
+    public static OpenOption[] withReservation( Config config, File file, OpenOption[] openOptions )
+    {
+        Double ratio = reservations( config ).get( file.getName() );
+        return ratio == null ? openOptions : concat( openOptions, PageReservation.ratio( ratio ) );
+    }
+}
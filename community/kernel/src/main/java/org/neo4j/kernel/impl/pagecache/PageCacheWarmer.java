@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCacheWarmup;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.logging.Log;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.neo4j.kernel.impl.util.JobScheduler.Groups.pageCacheWarmup;
+
+/**
+ * Keeps a profile of which pages of the store files are in the page cache, and uses it to warm the page cache up
+ * again after a restart.
+ * <p>
+ * When started, the warmer loads the pages listed in the profiles that were written by the previous run, in file
+ * order, with vectored reads. Once the warmup is done, it periodically writes new profiles of the mapped store files,
+ * and writes a final profile when it is stopped. Each profile is a gzip compressed bitmap of the resident pages of a
+ * store file, and is kept in a file next to the store file, with the {@link #SUFFIX_CACHEPROF} suffix.
+ * <p>
+ * The warmer only works with page caches that implement {@link PageCacheWarmup}, and does nothing otherwise.
+ */
+public class PageCacheWarmer extends LifecycleAdapter
+{
+    public static final String SUFFIX_CACHEPROF = ".cacheprof";
+    private static final String SUFFIX_CACHEPROF_TMP = ".cacheprof.tmp";
+    // Progress is reported after each store file, and in between every this many pages, i.e. 512 MiB of 8 KiB pages
+    private static final long PROGRESS_REPORT_INTERVAL_PAGES = 1 << 16;
+
+    public interface Monitor
+    {
+        /**
+         * @param storeFile the store file that is currently being warmed up, or just was.
+         * @param pagesLoaded the number of pages loaded so far, for all store files.
+         */
+        default void warmupProgress( File storeFile, long pagesLoaded )
+        { // no-op by default
+        }
+
+        default void warmupCompleted( long pagesLoaded, long elapsedMillis )
+        { // no-op by default
+        }
+
+        default void profileCompleted( long pagesInProfile, long elapsedMillis )
+        { // no-op by default
+        }
+    }
+
+    private final FileSystemAbstraction fs;
+    private final PageCache pageCache;
+    private final JobScheduler scheduler;
+    private final File storeDir;
+    private final long profileIntervalMillis;
+    private final Monitor monitor;
+    private final Log log;
+    private volatile boolean stopped;
+    // Only accessed while holding the monitor lock on this PageCacheWarmer instance.
+    private boolean warmedUp;
+    private JobScheduler.JobHandle handle;
+
+    public PageCacheWarmer( FileSystemAbstraction fs, PageCache pageCache, JobScheduler scheduler, File storeDir,
+            long profileIntervalMillis, Monitor monitor, Log log )
+    {
+        this.fs = fs;
+        this.pageCache = pageCache;
+        this.scheduler = scheduler;
+        this.storeDir = storeDir;
+        this.profileIntervalMillis = profileIntervalMillis;
+        this.monitor = monitor;
+        this.log = log;
+    }
+
+    @Override
+    public synchronized void start() throws Throwable
+    {
+        if ( pageCache instanceof PageCacheWarmup )
+        {
+            stopped = false;
+            warmedUp = false;
+            handle = scheduler.schedule( pageCacheWarmup, this::warmUpAndScheduleProfiling );
+        }
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        // Raise the flag before grabbing the lock, so that a running warmup will stop at the next opportunity.
+        stopped = true;
+        synchronized ( this )
+        {
+            if ( handle != null )
+            {
+                handle.cancel( false );
+                handle = null;
+            }
+            if ( warmedUp )
+            {
+                profile();
+            }
+        }
+    }
+
+    private synchronized void warmUpAndScheduleProfiling()
+    {
+        if ( stopped )
+        {
+            return;
+        }
+        long startMillis = System.currentTimeMillis();
+        long pagesLoaded = 0;
+        for ( File profileFile : fs.listFiles( storeDir, ( dir, name ) -> name.endsWith( SUFFIX_CACHEPROF ) ) )
+        {
+            if ( stopped )
+            {
+                return;
+            }
+            String profileName = profileFile.getName();
+            File storeFile = new File( storeDir, profileName.substring( 0, profileName.length() -
+                    SUFFIX_CACHEPROF.length() ) );
+            long pagesLoadedBefore = pagesLoaded;
+            try
+            {
+                pagesLoaded = warmUp( storeFile, profileFile, pagesLoaded );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                log.warn( "Failed to warm up the page cache for " + storeFile + " from " + profileFile, e );
+                continue;
+            }
+            log.info( "Page cache warmup loaded " + (pagesLoaded - pagesLoadedBefore) + " pages of " +
+                    storeFile.getName() + ", " + pagesLoaded + " pages in total" );
+            monitor.warmupProgress( storeFile, pagesLoaded );
+        }
+        long elapsedMillis = System.currentTimeMillis() - startMillis;
+        log.info( "Page cache warmup loaded " + pagesLoaded + " pages in " + elapsedMillis + " ms" );
+        monitor.warmupCompleted( pagesLoaded, elapsedMillis );
+
+        warmedUp = true;
+        handle = scheduler.scheduleRecurring( pageCacheWarmup, this::scheduledProfile,
+                profileIntervalMillis, profileIntervalMillis, MILLISECONDS );
+    }
+
+    /**
+     * @param pagesLoaded the number of pages loaded so far, for all store files.
+     * @return the number of pages loaded so far, including the ones loaded for this store file.
+     */
+    private long warmUp( File storeFile, File profileFile, long pagesLoaded ) throws IOException
+    {
+        Optional<PagedFile> mapping = pageCache.getExistingMapping( storeFile );
+        if ( !mapping.isPresent() )
+        {
+            return pagesLoaded;
+        }
+        try ( PagedFile pagedFile = mapping.get();
+              InputStream in = new BufferedInputStream(
+                      new GZIPInputStream( fs.openAsInputStream( profileFile ) ) ) )
+        {
+            // Load the pages in runs of consecutive pages, in file order.
+            long runStartPageId = 0;
+            long runLength = 0;
+            long pageId = 0;
+            int b;
+            while ( (b = in.read()) != -1 && !stopped )
+            {
+                for ( int bit = 0; bit < Byte.SIZE; bit++, pageId++ )
+                {
+                    if ( (b & (1 << bit)) != 0 )
+                    {
+                        if ( runLength == 0 )
+                        {
+                            runStartPageId = pageId;
+                        }
+                        runLength++;
+                    }
+                    else if ( runLength > 0 )
+                    {
+                        pagesLoaded = loadPages( storeFile, pagedFile, runStartPageId, runLength, pagesLoaded );
+                        runLength = 0;
+                    }
+                }
+            }
+            if ( runLength > 0 && !stopped )
+            {
+                pagesLoaded = loadPages( storeFile, pagedFile, runStartPageId, runLength, pagesLoaded );
+            }
+        }
+        return pagesLoaded;
+    }
+
+    private long loadPages( File storeFile, PagedFile pagedFile, long startPageId, long pageCount, long pagesLoaded )
+            throws IOException
+    {
+        long loaded = ((PageCacheWarmup) pageCache).loadPages( pagedFile, startPageId, pageCount );
+        if ( (pagesLoaded + loaded) / PROGRESS_REPORT_INTERVAL_PAGES > pagesLoaded / PROGRESS_REPORT_INTERVAL_PAGES )
+        {
+            monitor.warmupProgress( storeFile, pagesLoaded + loaded );
+        }
+        return pagesLoaded + loaded;
+    }
+
+    private synchronized void scheduledProfile()
+    {
+        if ( !stopped )
+        {
+            profile();
+        }
+    }
+
+    private void profile()
+    {
+        long startMillis = System.currentTimeMillis();
+        long pagesInProfile = 0;
+        for ( File storeFile : fs.listFiles( storeDir, ( dir, name ) -> !name.endsWith( SUFFIX_CACHEPROF ) &&
+                !name.endsWith( SUFFIX_CACHEPROF_TMP ) ) )
+        {
+            try
+            {
+                pagesInProfile += profile( storeFile );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                log.warn( "Failed to write the page cache profile for " + storeFile, e );
+            }
+        }
+        monitor.profileCompleted( pagesInProfile, System.currentTimeMillis() - startMillis );
+    }
+
+    private long profile( File storeFile ) throws IOException
+    {
+        Optional<PagedFile> mapping = pageCache.getExistingMapping( storeFile );
+        if ( !mapping.isPresent() )
+        {
+            return 0;
+        }
+        File profileFile = new File( storeDir, storeFile.getName() + SUFFIX_CACHEPROF );
+        File tmpProfileFile = new File( storeDir, storeFile.getName() + SUFFIX_CACHEPROF_TMP );
+        PageIdBitmapWriter writer;
+        try ( PagedFile pagedFile = mapping.get();
+              OutputStream out = new BufferedOutputStream(
+                      new GZIPOutputStream( fs.openAsOutputStream( tmpProfileFile, false ) ) ) )
+        {
+            writer = new PageIdBitmapWriter( out );
+            ((PageCacheWarmup) pageCache).visitResidentPages( pagedFile, writer );
+            writer.finish();
+        }
+        catch ( UncheckedIOException e )
+        {
+            throw e.getCause();
+        }
+        fs.renameFile( tmpProfileFile, profileFile, REPLACE_EXISTING );
+        return writer.pages;
+    }
+
+    /**
+     * Writes the visited page ids, which must come in increasing order, as a bitmap with one bit per page.
+     */
+    private static class PageIdBitmapWriter implements LongConsumer
+    {
+        private final OutputStream out;
+        private long currentByteIndex;
+        private int currentByte;
+        private long pages;
+
+        PageIdBitmapWriter( OutputStream out )
+        {
+            this.out = out;
+        }
+
+        @Override
+        public void accept( long pageId )
+        {
+            try
+            {
+                long byteIndex = pageId >>> 3;
+                while ( currentByteIndex < byteIndex )
+                {
+                    out.write( currentByte );
+                    currentByte = 0;
+                    currentByteIndex++;
+                }
+                currentByte |= 1 << (pageId & 7);
+                pages++;
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        void finish() throws IOException
+        {
+            if ( pages > 0 )
+            {
+                out.write( currentByte );
+            }
+        }
+    }
+}
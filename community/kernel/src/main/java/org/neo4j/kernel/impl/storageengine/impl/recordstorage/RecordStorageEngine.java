@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 import org.neo4j.concurrent.WorkSync;
@@ -37,7 +38,6 @@ import org.neo4j.kernel.api.TokenNameLookup;
 import org.neo4j.kernel.api.exceptions.TransactionFailureException;
 import org.neo4j.kernel.api.exceptions.schema.ConstraintValidationKernelException;
 import org.neo4j.kernel.api.exceptions.schema.CreateConstraintFailureException;
-import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.api.labelscan.LabelScanWriter;
 import org.neo4j.kernel.api.txstate.TransactionCountingStateVisitor;
@@ -56,6 +56,7 @@ import org.neo4j.kernel.impl.api.TransactionApplierFacade;
 import org.neo4j.kernel.impl.api.index.IndexingService;
 import org.neo4j.kernel.impl.api.index.IndexingServiceFactory;
 import org.neo4j.kernel.impl.api.index.PropertyPhysicalToLogicalConverter;
+import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.api.store.CacheLayer;
 import org.neo4j.kernel.impl.api.store.DiskLayer;
@@ -89,7 +90,7 @@ import org.neo4j.kernel.impl.transaction.command.IndexBatchTransactionApplier;
 import org.neo4j.kernel.impl.transaction.command.IndexUpdatesWork;
 import org.neo4j.kernel.impl.transaction.command.LabelUpdateWork;
 import org.neo4j.kernel.impl.transaction.command.NeoStoreBatchTransactionApplier;
-import org.neo4j.kernel.impl.transaction.state.DefaultSchemaIndexProviderMap;
+import org.neo4j.kernel.impl.transaction.command.RecordUpdateLanes;
 import org.neo4j.kernel.impl.transaction.state.IntegrityValidator;
 import org.neo4j.kernel.impl.transaction.state.Loaders;
 import org.neo4j.kernel.impl.transaction.state.PropertyCreator;
@@ -126,6 +127,7 @@ import org.neo4j.storageengine.api.txstate.TxStateVisitor;
 import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
 
 import static org.neo4j.kernel.impl.locking.LockService.NO_LOCK_SERVICE;
+import static org.neo4j.kernel.impl.util.JobScheduler.Groups.recordUpdateApplication;
 
 public class RecordStorageEngine implements StorageEngine, Lifecycle
 {
@@ -146,7 +148,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final IntegrityValidator integrityValidator;
     private final CacheAccessBackDoor cacheAccess;
     private final LabelScanStore labelScanStore;
-    private final DefaultSchemaIndexProviderMap schemaIndexProviderMap;
+    private final SchemaIndexProviderMap schemaIndexProviderMap;
     private final LegacyIndexApplierLookup legacyIndexApplierLookup;
     private final Runnable schemaStateChangeCallback;
     private final SchemaStorage schemaStorage;
@@ -154,7 +156,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final IdOrderingQueue legacyIndexTransactionOrdering;
     private final JobScheduler scheduler;
     private final LockService lockService;
-    private final WorkSync<Supplier<LabelScanWriter>,LabelUpdateWork> labelScanStoreSync;
+    private final IndexBatchTransactionApplier.LabelUpdatesApplier labelUpdatesApplier;
     private final CommandReaderFactory commandReaderFactory;
     private final WorkSync<IndexingService,IndexUpdatesWork> indexUpdatesSync;
     private final NeoStoreIndexStoreView indexStoreView;
@@ -162,6 +164,8 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final PropertyPhysicalToLogicalConverter indexUpdatesConverter;
     private final Supplier<StorageStatement> storeStatementSupplier;
     private final IdController idController;
+    private final int recordUpdateLanes;
+    private final Executor recordUpdateExecutor;
 
     // Immutable state for creating/applying commands
     private final Loaders loaders;
@@ -187,7 +191,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             JobScheduler scheduler,
             TokenNameLookup tokenNameLookup,
             LockService lockService,
-            SchemaIndexProvider indexProvider,
+            SchemaIndexProviderMap indexProviderMap,
             IndexingService.Monitor indexingServiceMonitor,
             DatabaseHealth databaseHealth,
             LabelScanStoreProvider labelScanStoreProvider,
@@ -207,6 +211,8 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
         this.indexConfigStore = indexConfigStore;
         this.constraintSemantics = constraintSemantics;
         this.legacyIndexTransactionOrdering = legacyIndexTransactionOrdering;
+        this.recordUpdateLanes = config.get( GraphDatabaseSettings.record_update_lanes );
+        this.recordUpdateExecutor = recordUpdateLanes > 1 ? scheduler.executor( recordUpdateApplication ) : null;
 
         this.idController = createStorageIdController( idGeneratorFactory, eligibleForReuse,
             idTypeConfigurationProvider, transactionsSnapshotSupplier );
@@ -221,7 +227,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
 
             labelScanStore = labelScanStoreProvider.getLabelScanStore();
 
-            schemaIndexProviderMap = new DefaultSchemaIndexProviderMap( indexProvider );
+            schemaIndexProviderMap = indexProviderMap;
             indexStoreView = new DynamicIndexStoreView( labelScanStore, lockService, neoStores, logProvider );
             indexingService = IndexingServiceFactory.createIndexingService( config, scheduler, schemaIndexProviderMap,
                     indexStoreView, tokenNameLookup,
@@ -241,7 +247,17 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
 
             legacyIndexApplierLookup = new LegacyIndexApplierLookup.Direct( legacyIndexProviderLookup );
 
-            labelScanStoreSync = new WorkSync<>( labelScanStore::newWriter );
+            if ( labelScanStore.supportsConcurrentWriters() )
+            {
+                // Each batch of label updates gets its own writer, rather than lining up behind a single one
+                labelUpdatesApplier = work -> work.apply( labelScanStore::newWriter );
+            }
+            else
+            {
+                WorkSync<Supplier<LabelScanWriter>,LabelUpdateWork> labelScanStoreSync =
+                        new WorkSync<>( labelScanStore::newWriter );
+                labelUpdatesApplier = labelScanStoreSync::apply;
+            }
 
             commandReaderFactory = new RecordStorageCommandReaderFactory();
             indexUpdatesSync = new WorkSync<>( indexingService );
@@ -369,8 +385,10 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     protected BatchTransactionApplierFacade applier( TransactionApplicationMode mode )
     {
         ArrayList<BatchTransactionApplier> appliers = new ArrayList<>();
+        RecordUpdateLanes lanes = recordUpdateLanes > 1
+                                  ? new RecordUpdateLanes( recordUpdateExecutor, recordUpdateLanes ) : null;
         // Graph store application. The order of the decorated store appliers is irrelevant
-        appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService ) );
+        appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService, lanes ) );
         if ( mode.needsHighIdTracking() )
         {
             appliers.add( new HighIdBatchTransactionApplier( neoStores ) );
@@ -381,9 +399,9 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
         }
 
         // Schema index application
-        appliers.add( new IndexBatchTransactionApplier( indexingService, labelScanStoreSync, indexUpdatesSync,
+        appliers.add( new IndexBatchTransactionApplier( indexingService, labelUpdatesApplier, indexUpdatesSync,
                 neoStores.getNodeStore(), new PropertyLoader( neoStores ),
-                indexUpdatesConverter, mode ) );
+                indexUpdatesConverter, mode, recordUpdateExecutor ) );
 
         // Legacy index application
         appliers.add(
@@ -393,6 +411,13 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
         // Counts store application
         appliers.add( new CountsStoreBatchTransactionApplier( neoStores.getCounts(), mode ) );
 
+        // Record updates handed to the lanes are written when their transaction applier is closed, which happens
+        // first since the facade closes transaction appliers in reverse order, so it must be added last
+        if ( lanes != null )
+        {
+            appliers.add( lanes );
+        }
+
         // Perform the application
         return new BatchTransactionApplierFacade(
                 appliers.toArray( new BatchTransactionApplier[appliers.size()] ) );
@@ -53,6 +53,7 @@ import static org.neo4j.io.pagecache.PageCacheOpenOptions.ANY_PAGE_SIZE;
 import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+import static org.neo4j.kernel.impl.pagecache.PageCacheReservations.withReservation;
 import static org.neo4j.kernel.impl.store.record.RecordLoad.CHECK;
 import static org.neo4j.kernel.impl.store.record.RecordLoad.NORMAL;
 
@@ -223,7 +224,8 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
     {
         try
         {
-            storeFile = pageCache.map( getStorageFileName(), filePageSize, openOptions );
+            storeFile = pageCache.map( getStorageFileName(), filePageSize,
+                    withReservation( configuration, getStorageFileName(), openOptions ) );
             loadIdGenerator();
         }
         catch ( IOException e )
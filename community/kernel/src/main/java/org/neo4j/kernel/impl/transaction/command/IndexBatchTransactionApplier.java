@@ -23,12 +23,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.function.Supplier;
 
 import org.neo4j.concurrent.WorkSync;
 import org.neo4j.kernel.api.exceptions.index.IndexActivationFailedKernelException;
 import org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException;
 import org.neo4j.kernel.api.exceptions.index.IndexPopulationFailedKernelException;
+import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.api.labelscan.LabelScanWriter;
 import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.impl.api.BatchTransactionApplier;
@@ -57,10 +60,11 @@ import static org.neo4j.kernel.impl.store.NodeLabelsField.parseLabelsField;
 public class IndexBatchTransactionApplier extends BatchTransactionApplier.Adapter
 {
     private final IndexingService indexingService;
-    private final WorkSync<Supplier<LabelScanWriter>,LabelUpdateWork> labelScanStoreSync;
+    private final LabelUpdatesApplier labelUpdatesApplier;
     private final WorkSync<IndexingService,IndexUpdatesWork> indexUpdatesSync;
     private final SingleTransactionApplier transactionApplier;
     private final PropertyPhysicalToLogicalConverter indexUpdateConverter;
+    private final Executor labelUpdatesExecutor;
 
     private List<NodeLabelUpdate> labelUpdates;
     private IndexUpdates indexUpdates;
@@ -72,8 +76,27 @@ public class IndexBatchTransactionApplier extends BatchTransactionApplier.Adapte
             PropertyPhysicalToLogicalConverter indexUpdateConverter,
             TransactionApplicationMode mode )
     {
+        this( indexingService, labelScanStoreSync::apply, indexUpdatesSync, nodeStore, propertyLoader,
+                indexUpdateConverter, mode, null );
+    }
+
+    /**
+     * @param labelUpdatesApplier applies label updates to the label scan store, typically through a
+     * {@link WorkSync}, unless the label scan store {@link LabelScanStore#supportsConcurrentWriters() supports
+     * concurrent writers}.
+     * @param labelUpdatesExecutor if not {@code null}, label scan store updates are applied by this executor
+     * while schema index updates are applied by the committing thread.
+     */
+    public IndexBatchTransactionApplier( IndexingService indexingService,
+            LabelUpdatesApplier labelUpdatesApplier,
+            WorkSync<IndexingService,IndexUpdatesWork> indexUpdatesSync,
+            NodeStore nodeStore, PropertyLoader propertyLoader,
+            PropertyPhysicalToLogicalConverter indexUpdateConverter,
+            TransactionApplicationMode mode, Executor labelUpdatesExecutor )
+    {
+        this.labelUpdatesExecutor = labelUpdatesExecutor;
         this.indexingService = indexingService;
-        this.labelScanStoreSync = labelScanStoreSync;
+        this.labelUpdatesApplier = labelUpdatesApplier;
         this.indexUpdatesSync = indexUpdatesSync;
         this.indexUpdateConverter = indexUpdateConverter;
         this.transactionApplier = new SingleTransactionApplier( nodeStore, propertyLoader, mode );
@@ -87,34 +110,87 @@ public class IndexBatchTransactionApplier extends BatchTransactionApplier.Adapte
 
     private void applyPendingLabelAndIndexUpdates() throws IOException
     {
+        FutureTask<Void> labelUpdatesTask = null;
         if ( labelUpdates != null )
         {
             // Updates are sorted according to node id here, an artifact of node commands being sorted
             // by node id when extracting from TransactionRecordState.
-            try
+            LabelUpdateWork labelUpdateWork = new LabelUpdateWork( labelUpdates );
+            labelUpdates = null;
+            if ( labelUpdatesExecutor != null && indexUpdates != null && indexUpdates.hasUpdates() )
             {
-                labelScanStoreSync.apply( new LabelUpdateWork( labelUpdates ) );
+                // The label scan store and the schema indexes are independent of each other,
+                // so apply label updates in parallel with the index updates below
+                labelUpdatesTask = new FutureTask<>( () ->
+                {
+                    labelUpdatesApplier.apply( labelUpdateWork );
+                    return null;
+                } );
+                labelUpdatesExecutor.execute( labelUpdatesTask );
             }
-            catch ( ExecutionException e )
+            else
             {
-                throw new IOException( "Failed to flush label updates", e );
+                applyLabelUpdates( () -> labelUpdatesApplier.apply( labelUpdateWork ) );
             }
-            labelUpdates = null;
         }
-        if ( indexUpdates != null && indexUpdates.hasUpdates() )
+        try
         {
-            try
+            if ( indexUpdates != null && indexUpdates.hasUpdates() )
             {
-                indexUpdatesSync.apply( new IndexUpdatesWork( indexUpdates ) );
+                try
+                {
+                    indexUpdatesSync.apply( new IndexUpdatesWork( indexUpdates ) );
+                }
+                catch ( ExecutionException e )
+                {
+                    throw new IOException( "Failed to flush index updates", e );
+                }
+                indexUpdates = null;
             }
-            catch ( ExecutionException e )
+        }
+        finally
+        {
+            if ( labelUpdatesTask != null )
             {
-                throw new IOException( "Failed to flush index updates", e );
+                applyLabelUpdates( labelUpdatesTask::get );
             }
-            indexUpdates = null;
         }
     }
 
+    private static void applyLabelUpdates( LabelUpdatesApplication application ) throws IOException
+    {
+        try
+        {
+            application.apply();
+        }
+        catch ( ExecutionException e )
+        {
+            // Unwrap the extra layer added when the label updates were applied by the executor
+            Throwable cause = e.getCause() instanceof ExecutionException ? e.getCause() : e;
+            throw new IOException( "Failed to flush label updates", cause );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while flushing label updates", e );
+        }
+    }
+
+    /**
+     * Applies a batch of label updates to the label scan store.
+     */
+    @FunctionalInterface
+    public interface LabelUpdatesApplier
+    {
+        void apply( LabelUpdateWork work ) throws ExecutionException;
+    }
+
+    @FunctionalInterface
+    private interface LabelUpdatesApplication
+    {
+        void apply() throws ExecutionException, InterruptedException;
+    }
+
     @Override
     public void close() throws Exception
     {
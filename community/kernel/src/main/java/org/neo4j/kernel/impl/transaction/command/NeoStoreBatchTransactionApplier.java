@@ -41,9 +41,17 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
     // Ideally we don't want any cache access in here, but it is how it is. At least we try to minimize use of it
     private final CacheAccessBackDoor cacheAccess;
     private final LockService lockService;
+    private final RecordUpdateLanes recordUpdateLanes;
 
     public NeoStoreBatchTransactionApplier( NeoStores store, CacheAccessBackDoor cacheAccess, LockService lockService )
     {
+        this( store, cacheAccess, lockService, null );
+    }
+
+    public NeoStoreBatchTransactionApplier( NeoStores store, CacheAccessBackDoor cacheAccess, LockService lockService,
+            RecordUpdateLanes recordUpdateLanes )
+    {
+        this.recordUpdateLanes = recordUpdateLanes;
         this.neoStores = store;
         this.cacheAccess = cacheAccess;
         this.lockService = lockService;
@@ -59,6 +67,6 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
     public TransactionApplier startTx( CommandsToApply transaction, LockGroup lockGroup ) throws IOException
     {
         return new NeoStoreTransactionApplier( neoStores, cacheAccess, lockService, transaction.transactionId(),
-                lockGroup );
+                lockGroup, recordUpdateLanes );
     }
 }
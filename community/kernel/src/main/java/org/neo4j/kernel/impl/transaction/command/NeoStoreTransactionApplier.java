@@ -26,7 +26,9 @@ import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
 import org.neo4j.kernel.impl.locking.LockGroup;
 import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.RecordStore;
 import org.neo4j.kernel.impl.store.SchemaStore;
+import org.neo4j.kernel.impl.store.record.AbstractBaseRecord;
 import org.neo4j.kernel.impl.store.record.DynamicRecord;
 import org.neo4j.kernel.impl.store.record.PropertyConstraintRule;
 
@@ -45,10 +47,22 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     private final NeoStores neoStores;
     private final CacheAccessBackDoor cacheAccess;
     private LockService lockService;
+    private final RecordUpdateLanes recordUpdateLanes;
 
     public NeoStoreTransactionApplier( NeoStores neoStores, CacheAccessBackDoor cacheAccess, LockService lockService,
             long transactionId, LockGroup lockGroup )
     {
+        this( neoStores, cacheAccess, lockService, transactionId, lockGroup, null );
+    }
+
+    /**
+     * @param recordUpdateLanes if not {@code null}, node, relationship, property and relationship group records
+     * are handed to these lanes to be written in parallel, instead of written directly by this applier.
+     */
+    public NeoStoreTransactionApplier( NeoStores neoStores, CacheAccessBackDoor cacheAccess, LockService lockService,
+            long transactionId, LockGroup lockGroup, RecordUpdateLanes recordUpdateLanes )
+    {
+        this.recordUpdateLanes = recordUpdateLanes;
         this.lockGroup = lockGroup;
         this.transactionId = transactionId;
         this.lockService = lockService;
@@ -69,7 +83,7 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
         lockGroup.add( lockService.acquireNodeLock( command.getKey(), LockService.LockType.WRITE_LOCK ) );
 
         // update store
-        neoStores.getNodeStore().updateRecord( command.getAfter() );
+        updateRecord( neoStores.getNodeStore(), command.getAfter() );
         return false;
     }
 
@@ -78,7 +92,7 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     {
         lockGroup.add( lockService.acquireRelationshipLock( command.getKey(), LockService.LockType.WRITE_LOCK ) );
 
-        neoStores.getRelationshipStore().updateRecord( command.getAfter() );
+        updateRecord( neoStores.getRelationshipStore(), command.getAfter() );
         return false;
     }
 
@@ -97,14 +111,14 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
 
         // track the dynamic value record high ids
         // update store
-        neoStores.getPropertyStore().updateRecord( command.getAfter() );
+        updateRecord( neoStores.getPropertyStore(), command.getAfter() );
         return false;
     }
 
     @Override
     public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command ) throws IOException
     {
-        neoStores.getRelationshipGroupStore().updateRecord( command.getAfter() );
+        updateRecord( neoStores.getRelationshipGroupStore(), command.getAfter() );
         return false;
     }
 
@@ -180,4 +194,16 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
         neoStores.getMetaDataStore().setGraphNextProp( command.getAfter().getNextProp() );
         return false;
     }
+
+    private <RECORD extends AbstractBaseRecord> void updateRecord( RecordStore<RECORD> store, RECORD record )
+    {
+        if ( recordUpdateLanes != null )
+        {
+            recordUpdateLanes.update( store, record );
+        }
+        else
+        {
+            store.updateRecord( record );
+        }
+    }
 }
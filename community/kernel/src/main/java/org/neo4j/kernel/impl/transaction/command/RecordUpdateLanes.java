@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.neo4j.kernel.impl.api.BatchTransactionApplier;
+import org.neo4j.kernel.impl.api.TransactionApplier;
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.record.AbstractBaseRecord;
+import org.neo4j.storageengine.api.CommandsToApply;
+
+/**
+ * Applies record updates of a transaction in parallel, spread over a number of lanes. The
+ * {@link NeoStoreTransactionApplier} hands its record updates to {@link #update(RecordStore, AbstractBaseRecord)}
+ * instead of writing them directly and the updates are written when the {@link TransactionApplier} returned
+ * from {@link #startTx(CommandsToApply)} is closed.
+ * <p>
+ * Records are assigned to lanes by the page of their store they live in, so that all records in the same page
+ * are written by the same lane and lanes do not contend on page write locks. Each record is updated at most once per
+ * transaction and all lanes are done before the transaction applier is closed, so updates of the same record in
+ * different transactions happen in transaction order.
+ * <p>
+ * This applier must be the last one in a {@link org.neo4j.kernel.impl.api.BatchTransactionApplierFacade}, since the
+ * facade closes its transaction appliers in reverse order. That way all record updates of a transaction are written
+ * before other appliers, f.ex. the one producing index updates, read the store, and before the entity locks of the
+ * transaction are released.
+ */
+public class RecordUpdateLanes extends BatchTransactionApplier.Adapter
+{
+    /**
+     * Transactions with fewer record updates than this are applied by the committing thread alone, since
+     * handing them over to other threads would cost more than it saves.
+     */
+    static final int PARALLEL_THRESHOLD = 64;
+
+    private final Executor executor;
+    private final List<PendingUpdate<?>>[] lanes;
+    private int pendingUpdates;
+
+    @SuppressWarnings( "unchecked" )
+    public RecordUpdateLanes( Executor executor, int numberOfLanes )
+    {
+        this.executor = executor;
+        this.lanes = new List[numberOfLanes];
+        for ( int i = 0; i < numberOfLanes; i++ )
+        {
+            lanes[i] = new ArrayList<>();
+        }
+    }
+
+    public <RECORD extends AbstractBaseRecord> void update( RecordStore<RECORD> store, RECORD record )
+    {
+        long pageId = record.getId() / store.getRecordsPerPage();
+        int lane = (int) (pageId % lanes.length);
+        lanes[lane].add( new PendingUpdate<>( store, record ) );
+        pendingUpdates++;
+    }
+
+    @Override
+    public TransactionApplier startTx( CommandsToApply transaction )
+    {
+        return new TransactionApplier.Adapter()
+        {
+            @Override
+            public void close() throws Exception
+            {
+                apply();
+            }
+        };
+    }
+
+    void apply() throws IOException
+    {
+        try
+        {
+            if ( pendingUpdates < PARALLEL_THRESHOLD )
+            {
+                for ( List<PendingUpdate<?>> lane : lanes )
+                {
+                    applyLane( lane );
+                }
+            }
+            else
+            {
+                applyInParallel();
+            }
+        }
+        finally
+        {
+            for ( List<PendingUpdate<?>> lane : lanes )
+            {
+                lane.clear();
+            }
+            pendingUpdates = 0;
+        }
+    }
+
+    private void applyInParallel() throws IOException
+    {
+        List<FutureTask<Void>> tasks = new ArrayList<>( lanes.length );
+        Throwable failure = null;
+        try
+        {
+            for ( int i = 1; i < lanes.length; i++ )
+            {
+                List<PendingUpdate<?>> lane = lanes[i];
+                if ( !lane.isEmpty() )
+                {
+                    FutureTask<Void> task = new FutureTask<>( () -> applyLane( lane ), null );
+                    tasks.add( task );
+                    executor.execute( task );
+                }
+            }
+            // Let the committing thread take the first lane instead of only waiting for the others
+            applyLane( lanes[0] );
+        }
+        catch ( Throwable t )
+        {
+            failure = t;
+        }
+
+        // Wait for all lanes, even if one of them failed, so that no lane writes after the transaction is closed
+        boolean interrupted = false;
+        for ( FutureTask<Void> task : tasks )
+        {
+            while ( true )
+            {
+                try
+                {
+                    task.get();
+                    break;
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+                catch ( ExecutionException e )
+                {
+                    failure = failure == null ? e.getCause() : failure;
+                    break;
+                }
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if ( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        if ( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
+        if ( failure != null )
+        {
+            throw new IOException( "Failed to apply record updates", failure );
+        }
+    }
+
+    private static void applyLane( List<PendingUpdate<?>> lane )
+    {
+        for ( PendingUpdate<?> update : lane )
+        {
+            update.apply();
+        }
+    }
+
+    private static class PendingUpdate<RECORD extends AbstractBaseRecord>
+    {
+        private final RecordStore<RECORD> store;
+        private final RECORD record;
+
+        PendingUpdate( RecordStore<RECORD> store, RECORD record )
+        {
+            this.store = store;
+            this.record = record;
+        }
+
+        void apply()
+        {
+            store.updateRecord( record );
+        }
+    }
+}
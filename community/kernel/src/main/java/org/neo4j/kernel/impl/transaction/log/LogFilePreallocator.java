@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.logging.Log;
+
+import static java.lang.Math.min;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderWriter.writeLogHeader;
+
+/**
+ * Keeps one spare log file around, preallocated to the rotation size, ready to become the next log version.
+ * The spare file is prepared in the background after every rotation, so that rotating is reduced to writing
+ * a header into the spare file and renaming it into place. Appending into a preallocated file also avoids
+ * growing the file, which would otherwise have every force update file system metadata as well.
+ *
+ * A prepared spare file is filled with zeros, which reads as {@link LogEntryByteCodes#EMPTY} entries,
+ * which in turn means end of log to any reader. Pruned log files can be {@link #recycle(File) recycled}
+ * into the spare file instead of being deleted.
+ *
+ * The zeros are written into a separate file which is renamed to the spare file when complete, so a spare file
+ * of the rotation size is known to be prepared, and is not written again when the database is restarted.
+ */
+public class LogFilePreallocator
+{
+    private static final int ZEROS_CHUNK_SIZE = 1024 * 1024;
+
+    private final FileSystemAbstraction fileSystem;
+    private final File spareFile;
+    private final File preparingFile;
+    private final long size;
+    private final JobScheduler scheduler;
+    private final Log log;
+    // Held while preparing, rotation and pruning only ever try to acquire it, so they never wait for preparation
+    private final Lock lock = new ReentrantLock();
+    private boolean prepared;
+
+    public LogFilePreallocator( FileSystemAbstraction fileSystem, PhysicalLogFiles logFiles, long size,
+            JobScheduler scheduler, Log log )
+    {
+        this.fileSystem = fileSystem;
+        this.spareFile = logFiles.getSpareLogFile();
+        this.preparingFile = new File( spareFile.getPath() + ".preparing" );
+        this.size = size;
+        this.scheduler = scheduler;
+        this.log = log;
+    }
+
+    /**
+     * Prepares the spare file in the background, unless it's already prepared.
+     */
+    public void prepareAhead()
+    {
+        scheduler.schedule( JobScheduler.Groups.logFilePreallocation, this::prepare );
+    }
+
+    void prepare()
+    {
+        lock.lock();
+        try
+        {
+            if ( !prepared )
+            {
+                if ( !fileSystem.fileExists( spareFile ) || fileSystem.getFileSize( spareFile ) != size )
+                {
+                    zeroFill();
+                }
+                prepared = true;
+            }
+        }
+        catch ( IOException e )
+        {
+            // Not fatal in any way, rotation will simply create the next log file from scratch
+            log.warn( "Unable to preallocate transaction log file " + spareFile, e );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Turns the spare file into the log file for the given version, if it has been prepared.
+     *
+     * @param logFile log file for {@code logVersion}, must not exist.
+     * @param logVersion version of the log file to write into the header.
+     * @param lastCommittedTxId last committed transaction id to write into the header.
+     * @return {@code true} if the spare file is now in place as {@code logFile}, complete with header,
+     * otherwise {@code false}, where the caller will have to create the log file itself.
+     * @throws IOException on I/O error writing the header or renaming the spare file.
+     */
+    public boolean claim( File logFile, long logVersion, long lastCommittedTxId ) throws IOException
+    {
+        if ( !lock.tryLock() )
+        {
+            // Still preparing, don't let rotation wait for that
+            return false;
+        }
+        try
+        {
+            if ( !prepared || fileSystem.fileExists( logFile ) )
+            {
+                return false;
+            }
+            prepared = false;
+            // Header goes in before the rename so that readers never see the new version without its header
+            writeLogHeader( fileSystem, spareFile, logVersion, lastCommittedTxId );
+            fileSystem.renameFile( spareFile, logFile );
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Offers a pruned log file to become the spare file, instead of it being deleted.
+     *
+     * @param prunedLogFile log file which has been pruned and is no longer needed.
+     * @return {@code true} if the file was taken as the spare file, otherwise {@code false},
+     * where the caller should delete it.
+     */
+    public boolean recycle( File prunedLogFile )
+    {
+        if ( !lock.tryLock() )
+        {
+            return false;
+        }
+        try
+        {
+            if ( prepared || fileSystem.fileExists( spareFile ) || fileSystem.fileExists( preparingFile ) )
+            {
+                return false;
+            }
+            fileSystem.renameFile( prunedLogFile, preparingFile );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Unable to recycle transaction log file " + prunedLogFile, e );
+            return false;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        prepareAhead();
+        return true;
+    }
+
+    private void zeroFill() throws IOException
+    {
+        if ( fileSystem.fileExists( spareFile ) )
+        {
+            // A spare file of some other size, f.ex. from before the rotation size was changed
+            fileSystem.renameFile( spareFile, preparingFile, REPLACE_EXISTING );
+        }
+        try ( StoreChannel channel = fileSystem.open( preparingFile, "rw" ) )
+        {
+            if ( channel.size() > size )
+            {
+                channel.truncate( size );
+            }
+            ByteBuffer zeros = ByteBuffer.allocate( (int) min( ZEROS_CHUNK_SIZE, size ) );
+            for ( long position = 0; position < size; position += zeros.limit() )
+            {
+                zeros.clear();
+                zeros.limit( (int) min( zeros.capacity(), size - position ) );
+                channel.writeAll( zeros, position );
+            }
+            // Including metadata, the whole point is to not have to update it when appending later
+            channel.force( true );
+        }
+        fileSystem.renameFile( preparingFile, spareFile );
+    }
+}
@@ -57,6 +57,13 @@ public class LoggingLogFileMonitor implements PhysicalLogFile.Monitor, LogRotati
         }
     }
 
+    @Override
+    public void recoveryProgress( int numberOfRecoveredTransactions, long transactionsPerSecond )
+    {
+        log.info( format( "Recovery in progress. %d transactions recovered, %d transactions/s",
+                numberOfRecoveredTransactions, transactionsPerSecond ) );
+    }
+
     @Override
     public void startedRotating( long currentVersion )
     {
@@ -28,9 +28,12 @@ import java.util.function.Supplier;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
 import org.neo4j.kernel.impl.transaction.log.entry.LogHeader;
+import org.neo4j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
 import org.neo4j.kernel.lifecycle.Lifecycle;
 
+import static org.neo4j.kernel.impl.transaction.log.LogVersionBridge.NO_MORE_CHANNELS;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderReader.readLogHeader;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderWriter.writeLogHeader;
@@ -68,6 +71,7 @@ public class PhysicalLogFile implements LogFile, Lifecycle
     private PositionAwarePhysicalFlushableChannel writer;
     private final LogVersionRepository logVersionRepository;
     private final LogVersionBridge readerLogVersionBridge;
+    private final LogFilePreallocator preallocator;
 
     private volatile PhysicalLogVersionedStoreChannel channel;
 
@@ -75,6 +79,17 @@ public class PhysicalLogFile implements LogFile, Lifecycle
                             Supplier<Long> lastCommittedId, LogVersionRepository logVersionRepository,
                             Monitor monitor, LogHeaderCache logHeaderCache
     )
+    {
+        this( fileSystem, logFiles, rotateAtSize, lastCommittedId, logVersionRepository, monitor, logHeaderCache,
+                null );
+    }
+
+    /**
+     * @param preallocator if not {@code null}, rotation will use log files prepared ahead of time by it.
+     */
+    public PhysicalLogFile( FileSystemAbstraction fileSystem, PhysicalLogFiles logFiles, long rotateAtSize,
+                            Supplier<Long> lastCommittedId, LogVersionRepository logVersionRepository,
+                            Monitor monitor, LogHeaderCache logHeaderCache, LogFilePreallocator preallocator )
     {
         this.fileSystem = fileSystem;
         this.rotateAtSize = rotateAtSize;
@@ -84,6 +99,7 @@ public class PhysicalLogFile implements LogFile, Lifecycle
         this.logHeaderCache = logHeaderCache;
         this.logFiles = logFiles;
         this.readerLogVersionBridge = new ReaderLogVersionBridge( fileSystem, logFiles );
+        this.preallocator = preallocator;
     }
 
     @Override
@@ -104,9 +120,48 @@ public class PhysicalLogFile implements LogFile, Lifecycle
         long lastLogVersionUsed = logVersionRepository.getCurrentLogVersion();
         channel = createLogChannelForVersion( lastLogVersionUsed );
         // Move to the end
-        channel.position( channel.size() );
+        channel.position( endOfLog( channel ) );
 
         writer = new PositionAwarePhysicalFlushableChannel( channel );
+        if ( preallocator != null )
+        {
+            preallocator.prepareAhead();
+        }
+    }
+
+    /**
+     * The end of the log is normally the end of the file, since recovery truncates anything after the last
+     * complete transaction. A log file which was preallocated may however still have its zero filled tail,
+     * f.ex. after a crash where no recovery was needed. Only if the file ends with a zero is it scanned to
+     * find the end of the last entry.
+     */
+    private long endOfLog( PhysicalLogVersionedStoreChannel channel ) throws IOException
+    {
+        long size = channel.size();
+        if ( size <= LOG_HEADER_SIZE )
+        {
+            return size;
+        }
+        ByteBuffer lastByte = ByteBuffer.allocate( 1 );
+        channel.position( size - 1 );
+        channel.read( lastByte );
+        if ( lastByte.get( 0 ) != 0 )
+        {
+            return size;
+        }
+
+        LogEntryReader<ReadableClosablePositionAwareChannel> entryReader = new VersionAwareLogEntryReader<>();
+        LogPositionMarker marker = new LogPositionMarker();
+        try ( ReadableLogChannel reader = new ReadAheadLogChannel(
+                openForVersion( logFiles, fileSystem, channel.getVersion(), false ), NO_MORE_CHANNELS ) )
+        {
+            reader.getCurrentPosition( marker );
+            while ( entryReader.readLogEntry( reader ) != null )
+            {
+                reader.getCurrentPosition( marker );
+            }
+        }
+        return marker.getByteOffset();
     }
 
     @Override
@@ -123,6 +178,12 @@ public class PhysicalLogFile implements LogFile, Lifecycle
     {
         if ( writer != null )
         {
+            if ( preallocator != null )
+            {
+                // Cut off the unused preallocated space so that the next start finds the end of the log right away
+                writer.prepareForFlush().flush();
+                channel.truncate( channel.position() );
+            }
             writer.close();
         }
         if ( channel != null )
@@ -161,6 +222,9 @@ public class PhysicalLogFile implements LogFile, Lifecycle
      * <li>3: Create new log file</li>
      * <li>4: Write header</li>
      * </ol>
+     * When log files are preallocated, 3-4 is instead writing the header into the prepared spare file
+     * and renaming it to the new version, see {@link LogFilePreallocator#claim(File, long, long)}.
+     * A crash in between leaves a zero filled header, which is treated the same as a missing header.
      *
      * Recovery: what happens if crash between:
      * <ol>
@@ -206,6 +270,16 @@ public class PhysicalLogFile implements LogFile, Lifecycle
          * transaction complete in the log we're rotating away. Awesome.
          */
         writer.prepareForFlush().flush();
+        if ( preallocator != null )
+        {
+            /*
+             * Give back the unused part of a preallocated log. Readers continue into the next log version
+             * when reaching the end of the file, not when reaching a zero filled tail. The new size must be
+             * durable before the next version appears, or readers could stop at the zero filled tail after a crash.
+             */
+            currentLog.truncate( currentLog.position() );
+            currentLog.force( true );
+        }
         /*
          * The log version is now in the store, flushed and persistent. If we crash
          * now, on recovery we'll attempt to open the version we're about to create
@@ -216,6 +290,10 @@ public class PhysicalLogFile implements LogFile, Lifecycle
          */
         PhysicalLogVersionedStoreChannel newLog = createLogChannelForVersion( newLogVersion );
         currentLog.close();
+        if ( preallocator != null )
+        {
+            preallocator.prepareAhead();
+        }
         return newLog;
     }
 
@@ -232,15 +310,34 @@ public class PhysicalLogFile implements LogFile, Lifecycle
     private PhysicalLogVersionedStoreChannel createLogChannelForVersion( long forVersion ) throws IOException
     {
         File toOpen = logFiles.getLogFileForVersion( forVersion );
+        if ( preallocator != null && !fileSystem.fileExists( toOpen ) )
+        {
+            long lastTxId = lastCommittedId.get();
+            if ( preallocator.claim( toOpen, forVersion, lastTxId ) )
+            {
+                StoreChannel storeChannel = fileSystem.open( toOpen, "rw" );
+                storeChannel.position( LOG_HEADER_SIZE );
+                logHeaderCache.putHeader( forVersion, lastTxId );
+                monitor.opened( toOpen, forVersion, lastTxId, true );
+                return new PhysicalLogVersionedStoreChannel( storeChannel, forVersion, CURRENT_LOG_VERSION );
+            }
+        }
+
         StoreChannel storeChannel = fileSystem.open( toOpen, "rw" );
         LogHeader header = readLogHeader( headerBuffer, storeChannel, false, toOpen );
+        if ( header != null && header.logFormatVersion == 0 )
+        {
+            // A zero filled header, from a preallocated file which was renamed before its header made it to disk
+            header = null;
+        }
         if ( header == null )
         {
             // Either the header is not there in full or the file was new. Don't care
             long lastTxId = lastCommittedId.get();
             writeLogHeader( headerBuffer, forVersion, lastTxId );
             logHeaderCache.putHeader( forVersion, lastTxId );
-            storeChannel.writeAll( headerBuffer );
+            storeChannel.writeAll( headerBuffer, 0 );
+            storeChannel.position( LOG_HEADER_SIZE );
             monitor.opened( toOpen, forVersion, lastTxId, true );
         }
         byte formatVersion = header == null ? CURRENT_LOG_VERSION : header.logFormatVersion;
@@ -21,9 +21,13 @@ package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.regex.Pattern;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes;
 import org.neo4j.kernel.impl.transaction.log.entry.LogHeader;
 
 import static java.lang.Math.max;
@@ -57,6 +61,12 @@ public class PhysicalLogFiles
         }
     }
 
+    /**
+     * Takes the place of the version in the name of the spare log file, see {@link #getSpareLogFile()}. Files
+     * whose names start with the spare log file name are never part of the log.
+     */
+    public static final String SPARE_VERSION = "spare";
+
     private final File logBaseName;
     private final Pattern logFilePattern;
     private final FileSystemAbstraction fileSystem;
@@ -78,6 +88,15 @@ public class PhysicalLogFiles
         return new File( logBaseName.getPath() + DEFAULT_VERSION_SUFFIX + version );
     }
 
+    /**
+     * @return the file which is prepared to become the next log version, see {@link LogFilePreallocator}.
+     * Its name doesn't match the pattern of versioned log files.
+     */
+    public File getSpareLogFile()
+    {
+        return new File( logBaseName.getPath() + DEFAULT_VERSION_SUFFIX + SPARE_VERSION );
+    }
+
     public boolean versionExists( long version )
     {
         return fileSystem.fileExists( getLogFileForVersion( version ) );
@@ -88,9 +107,31 @@ public class PhysicalLogFiles
         return readLogHeader( fileSystem, getLogFileForVersion( version ) );
     }
 
+    /**
+     * A log may be {@link LogFilePreallocator preallocated}, i.e. have its full size with a zero filled tail,
+     * so whether or not it has any entries is decided by the first byte after the header not being
+     * {@link LogEntryByteCodes#EMPTY}.
+     *
+     * @param version log version to check.
+     * @return whether or not the log of the given version has any entries.
+     */
     public boolean hasAnyEntries( long version )
     {
-        return fileSystem.getFileSize( getLogFileForVersion( version ) ) > LOG_HEADER_SIZE;
+        File logFile = getLogFileForVersion( version );
+        if ( fileSystem.getFileSize( logFile ) <= LOG_HEADER_SIZE )
+        {
+            return false;
+        }
+        ByteBuffer firstEntryType = ByteBuffer.allocate( 1 );
+        try ( StoreChannel channel = fileSystem.open( logFile, "r" ) )
+        {
+            return channel.read( firstEntryType, LOG_HEADER_SIZE ) == 1 &&
+                   firstEntryType.get( 0 ) != LogEntryByteCodes.EMPTY;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
     }
 
     public long getHighestLogVersion()
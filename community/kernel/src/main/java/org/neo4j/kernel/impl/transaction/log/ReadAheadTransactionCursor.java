@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * {@link TransactionCursor} which reads and decodes transactions from another cursor in a separate thread,
+ * keeping up to a given number of transactions ahead of the consumer. This allows reading and decoding of
+ * log entries to overlap with whatever the consumer does with the transactions, f.ex. applying them
+ * during recovery.
+ * <p>
+ * {@link #position()} reflects the position after the most recent transaction returned by this cursor,
+ * not how far the read-ahead thread has come.
+ */
+public class ReadAheadTransactionCursor implements TransactionCursor
+{
+    private final TransactionCursor source;
+    private final BlockingQueue<ReadAhead> queue;
+    private final Thread reader;
+    private volatile boolean closed;
+
+    private CommittedTransactionRepresentation current;
+    private LogPosition position;
+    private boolean exhausted;
+
+    public ReadAheadTransactionCursor( TransactionCursor source, int readAheadTransactions )
+    {
+        this.source = source;
+        this.queue = new ArrayBlockingQueue<>( readAheadTransactions );
+        this.position = source.position();
+        this.reader = new Thread( this::readAhead, "TransactionLogReadAhead" );
+        this.reader.setDaemon( true );
+        this.reader.start();
+    }
+
+    private void readAhead()
+    {
+        ReadAhead last;
+        try
+        {
+            while ( !closed && source.next() )
+            {
+                put( new ReadAhead( source.get(), source.position(), null ) );
+            }
+            last = new ReadAhead( null, source.position(), null );
+        }
+        catch ( Throwable t )
+        {
+            last = new ReadAhead( null, null, t );
+        }
+
+        try
+        {
+            put( last );
+        }
+        catch ( InterruptedException e )
+        {
+            // Interrupted from the outside, the consumer will not get to know how reading ended
+        }
+    }
+
+    private void put( ReadAhead readAhead ) throws InterruptedException
+    {
+        // Time out now and then to notice if the cursor was closed while the queue is full
+        while ( !queue.offer( readAhead, 10, MILLISECONDS ) )
+        {
+            if ( closed )
+            {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+        if ( exhausted )
+        {
+            return false;
+        }
+
+        ReadAhead readAhead;
+        try
+        {
+            readAhead = queue.take();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting for transactions to be read", e );
+        }
+
+        if ( readAhead.failure != null )
+        {
+            exhausted = true;
+            current = null;
+            if ( readAhead.failure instanceof IOException )
+            {
+                throw (IOException) readAhead.failure;
+            }
+            if ( readAhead.failure instanceof RuntimeException )
+            {
+                throw (RuntimeException) readAhead.failure;
+            }
+            if ( readAhead.failure instanceof Error )
+            {
+                throw (Error) readAhead.failure;
+            }
+            throw new IOException( readAhead.failure );
+        }
+
+        position = readAhead.position;
+        current = readAhead.transaction;
+        if ( current == null )
+        {
+            exhausted = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public CommittedTransactionRepresentation get()
+    {
+        return current;
+    }
+
+    @Override
+    public LogPosition position()
+    {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        try
+        {
+            // Keep making room in the queue so that the reader notices that it's closed and exits,
+            // rather than interrupting it in the middle of reading from the channel
+            while ( reader.isAlive() )
+            {
+                queue.clear();
+                reader.join( 10 );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting for transaction read-ahead to stop", e );
+        }
+        finally
+        {
+            queue.clear();
+        }
+        source.close();
+    }
+
+    private static class ReadAhead
+    {
+        private final CommittedTransactionRepresentation transaction;
+        private final LogPosition position;
+        private final Throwable failure;
+
+        ReadAhead( CommittedTransactionRepresentation transaction, LogPosition position, Throwable failure )
+        {
+            this.transaction = transaction;
+            this.position = position;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosableChannel;
+import org.neo4j.storageengine.api.CommandReaderFactory;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static java.lang.String.format;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter.MAX_COMPRESSED_COMMAND_SIZE;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter.MAX_RETAINED_SCRATCH_SIZE;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter.SCRATCH_SIZE;
+
+// 3.2
+// Same entries as 2.3, with the addition of commands compressed one by one, see LogEntryWriter
+public enum LogEntryParsersV3_2 implements LogEntryParser<LogEntry>
+{
+    EMPTY( LogEntryParsersV2_3.EMPTY ),
+    TX_START( LogEntryParsersV2_3.TX_START ),
+    COMMAND( LogEntryParsersV2_3.COMMAND ),
+    TX_1P_COMMIT( LogEntryParsersV2_3.TX_1P_COMMIT ),
+    CHECK_POINT( LogEntryParsersV2_3.CHECK_POINT ),
+
+    COMPRESSED_COMMAND( null )
+            {
+                @Override
+                public LogEntry parse( LogEntryVersion version, ReadableClosableChannel channel, LogPositionMarker marker,
+                                       CommandReaderFactory commandReader ) throws IOException
+                {
+                    int uncompressedLength = channel.getInt();
+                    int compressedLength = channel.getInt();
+                    // Check the lengths before allocating anything for them, they may come from a torn entry
+                    if ( uncompressedLength < 0 || uncompressedLength > MAX_COMPRESSED_COMMAND_SIZE ||
+                         compressedLength < 0 || compressedLength > uncompressedLength )
+                    {
+                        throw new IOException( format( "Invalid compressed command lengths, compressed:%d, " +
+                                "uncompressed:%d, at position %s", compressedLength, uncompressedLength,
+                                marker.newPosition() ) );
+                    }
+
+                    Decompression decompression = DECOMPRESSION.get();
+                    StorageCommand command;
+                    try
+                    {
+                        InMemoryClosableChannel uncompressed =
+                                decompression.decompress( channel, compressedLength, uncompressedLength );
+                        command = commandReader.byVersion( version.byteCode() ).read( uncompressed );
+                    }
+                    catch ( DataFormatException e )
+                    {
+                        throw new IOException( "Unable to decompress command at position " + marker.newPosition(), e );
+                    }
+                    finally
+                    {
+                        decompression.shrinkScratchBuffers();
+                    }
+                    return command == null ? null : new LogEntryCommand( version, command );
+                }
+
+                @Override
+                public byte byteCode()
+                {
+                    return LogEntryByteCodes.COMPRESSED_COMMAND;
+                }
+
+                @Override
+                public boolean skip()
+                {
+                    return false;
+                }
+            };
+
+    /**
+     * Inflater and scratch buffers for reading compressed commands, one per reading thread since the parsers are
+     * shared by all readers. Mirrors the Deflater and scratch buffers kept by each {@link LogEntryWriter}.
+     */
+    private static final ThreadLocal<Decompression> DECOMPRESSION = ThreadLocal.withInitial( Decompression::new );
+
+    private final LogEntryParser<LogEntry> delegate;
+
+    LogEntryParsersV3_2( LogEntryParser<LogEntry> delegate )
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public LogEntry parse( LogEntryVersion version, ReadableClosableChannel channel, LogPositionMarker marker,
+                           CommandReaderFactory commandReader ) throws IOException
+    {
+        return delegate.parse( version, channel, marker, commandReader );
+    }
+
+    @Override
+    public byte byteCode()
+    {
+        return delegate.byteCode();
+    }
+
+    @Override
+    public boolean skip()
+    {
+        return delegate.skip();
+    }
+
+    private static class Decompression
+    {
+        private final Inflater inflater = new Inflater();
+        private byte[] compressed = new byte[SCRATCH_SIZE];
+        private byte[] uncompressed = new byte[SCRATCH_SIZE];
+        // the channel reads straight from the uncompressed array
+        private InMemoryClosableChannel uncompressedChannel = new InMemoryClosableChannel( uncompressed, false );
+
+        InMemoryClosableChannel decompress( ReadableClosableChannel channel, int compressedLength,
+                int uncompressedLength ) throws IOException, DataFormatException
+        {
+            if ( compressed.length < compressedLength )
+            {
+                compressed = new byte[compressedLength];
+            }
+            if ( uncompressed.length < uncompressedLength )
+            {
+                uncompressed = new byte[uncompressedLength];
+                uncompressedChannel = new InMemoryClosableChannel( uncompressed, false );
+            }
+            channel.get( compressed, compressedLength );
+
+            inflater.reset();
+            inflater.setInput( compressed, 0, compressedLength );
+            if ( inflater.inflate( uncompressed, 0, uncompressedLength ) != uncompressedLength ||
+                 !inflater.finished() )
+            {
+                throw new IOException( "Compressed command did not decompress into the expected " +
+                        uncompressedLength + " bytes" );
+            }
+            uncompressedChannel.positionReader( 0 );
+            uncompressedChannel.positionWriter( uncompressedLength );
+            return uncompressedChannel;
+        }
+
+        void shrinkScratchBuffers()
+        {
+            if ( uncompressed.length > MAX_RETAINED_SCRATCH_SIZE )
+            {
+                uncompressed = new byte[SCRATCH_SIZE];
+                uncompressedChannel = new InMemoryClosableChannel( uncompressed, false );
+            }
+            if ( compressed.length > MAX_RETAINED_SCRATCH_SIZE )
+            {
+                compressed = new byte[SCRATCH_SIZE];
+            }
+        }
+    }
+}
@@ -93,9 +93,14 @@ public enum LogEntryVersion
     // as of 2016-05-30: neo4j 3.0.2 legacy index IndexDefineCommand maps write size as short instead of byte
     // See comment for V2.2.10 for version number explanation
     // log entry layout hasn't changed since 2_3 so just use that one
-    V3_0_2( -9, LogEntryParsersV2_3.class );
+    V3_0_2( -9, LogEntryParsersV2_3.class ),
+    // as of 2017-03-01: neo4j 3.2 commands may be written compressed, as a separate entry type.
+    // Only compressed commands are written with this version, command format hasn't changed since 3.0.2
+    // and uncompressed entries are still written as 3.0.2 so that they can be read by 3.0.2 as well
+    V3_2( -10, LogEntryParsersV3_2.class );
 
     public static final LogEntryVersion CURRENT = V3_0_2;
+    public static final LogEntryVersion COMPRESSED = V3_2;
     private static final LogEntryVersion[] ALL = values();
     private static final LogEntryVersion[] LOOKUP_BY_VERSION = new LogEntryVersion[ALL.length + 1]; // pessimistic size
     static
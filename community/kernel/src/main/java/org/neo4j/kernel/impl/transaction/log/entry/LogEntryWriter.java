@@ -20,29 +20,63 @@
 package org.neo4j.kernel.impl.transaction.log.entry;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.util.Collection;
+import java.util.zip.Deflater;
 
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.FlushableChannel;
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
 import org.neo4j.storageengine.api.StorageCommand;
 
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.CHECK_POINT;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMMAND;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMPRESSED_COMMAND;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_1P_COMMIT;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_START;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersion.COMPRESSED;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersion.CURRENT;
 
 public class LogEntryWriter
 {
+    /**
+     * Commands serializing into fewer bytes than this are written as is, compressing them isn't worth it.
+     */
+    static final int COMPRESSION_THRESHOLD = 128;
+    /**
+     * Commands serializing into more bytes than this are written as is, so that readers can reject compressed
+     * commands claiming larger lengths as corrupt, instead of allocating for them.
+     */
+    static final int MAX_COMPRESSED_COMMAND_SIZE = 64 * 1024 * 1024;
+    static final int SCRATCH_SIZE = 1024;
+    /**
+     * Scratch buffers grown beyond this size for a single large command are dropped after that command, so that
+     * one large command doesn't keep its memory around for the lifetime of the writer.
+     */
+    static final int MAX_RETAINED_SCRATCH_SIZE = 64 * 1024;
+
     private final FlushableChannel channel;
     private final Visitor<StorageCommand,IOException> serializer;
 
     public LogEntryWriter( FlushableChannel channel )
+    {
+        this( channel, false );
+    }
+
+    /**
+     * @param channel channel to write log entries to.
+     * @param compressCommands whether or not to write larger commands as {@link LogEntryByteCodes#COMPRESSED_COMMAND}
+     * entries. Such entries can only be read by versions knowing about {@link LogEntryVersion#V3_2}, so only
+     * enable this for logs which are read locally, not for entries sent to other instances.
+     */
+    public LogEntryWriter( FlushableChannel channel, boolean compressCommands )
     {
         this.channel = channel;
-        this.serializer = new StorageCommandSerializer( channel );
+        this.serializer = compressCommands
+                ? new CompressingStorageCommandSerializer( channel )
+                : new StorageCommandSerializer( channel );
     }
 
     private void writeLogEntryHeader( byte type ) throws IOException
@@ -84,6 +118,18 @@ public class LogEntryWriter
                 putLong( logPosition.getByteOffset() );
     }
 
+    /**
+     * Releases the native memory held for compressing commands, if enabled. This writer cannot serialize commands
+     * after it has been closed.
+     */
+    public void close()
+    {
+        if ( serializer instanceof CompressingStorageCommandSerializer )
+        {
+            ((CompressingStorageCommandSerializer) serializer).close();
+        }
+    }
+
     private class StorageCommandSerializer implements Visitor<StorageCommand,IOException>
     {
         private final FlushableChannel channel;
@@ -101,4 +147,94 @@ public class LogEntryWriter
             return false;
         }
     }
+
+    private class CompressingStorageCommandSerializer implements Visitor<StorageCommand,IOException>
+    {
+        private final FlushableChannel channel;
+        private final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+        // the scratch channel writes straight into the uncompressed array
+        private byte[] uncompressed = new byte[SCRATCH_SIZE];
+        private InMemoryClosableChannel scratch = new InMemoryClosableChannel( uncompressed, false );
+        private byte[] compressed = new byte[SCRATCH_SIZE];
+
+        CompressingStorageCommandSerializer( FlushableChannel channel )
+        {
+            this.channel = channel;
+        }
+
+        @Override
+        public boolean visit( StorageCommand command ) throws IOException
+        {
+            int length = serializeToScratch( command );
+            int compressedLength = length >= COMPRESSION_THRESHOLD && length <= MAX_COMPRESSED_COMMAND_SIZE
+                                   ? compress( length ) : -1;
+            if ( compressedLength == -1 )
+            {
+                writeLogEntryHeader( COMMAND );
+                channel.put( uncompressed, length );
+            }
+            else
+            {
+                channel.put( COMPRESSED.byteCode() ).put( COMPRESSED_COMMAND );
+                channel.putInt( length ).putInt( compressedLength ).put( compressed, compressedLength );
+            }
+            shrinkScratchBuffers();
+            return false;
+        }
+
+        private void shrinkScratchBuffers()
+        {
+            if ( uncompressed.length > MAX_RETAINED_SCRATCH_SIZE )
+            {
+                uncompressed = new byte[SCRATCH_SIZE];
+                scratch = new InMemoryClosableChannel( uncompressed, false );
+            }
+            if ( compressed.length > MAX_RETAINED_SCRATCH_SIZE )
+            {
+                compressed = new byte[SCRATCH_SIZE];
+            }
+        }
+
+        void close()
+        {
+            deflater.end();
+        }
+
+        private int serializeToScratch( StorageCommand command ) throws IOException
+        {
+            while ( true )
+            {
+                // not using reset() since there's no need to zero out the buffer every time
+                scratch.positionWriter( 0 );
+                try
+                {
+                    command.serialize( scratch );
+                    return scratch.writerPosition();
+                }
+                catch ( BufferOverflowException e )
+                {
+                    uncompressed = new byte[uncompressed.length * 2];
+                    scratch = new InMemoryClosableChannel( uncompressed, false );
+                }
+            }
+        }
+
+        /**
+         * @return length of compressed data in {@link #compressed}, or -1 if compression didn't make it smaller.
+         */
+        private int compress( int length )
+        {
+            if ( compressed.length < length )
+            {
+                compressed = new byte[length];
+            }
+            deflater.reset();
+            deflater.setInput( uncompressed, 0, length );
+            deflater.finish();
+            // Only accept the result if all of it fit into fewer bytes than the uncompressed command,
+            // including the additional length field
+            int compressedLength = deflater.deflate( compressed, 0, length - Integer.BYTES );
+            return deflater.finished() ? compressedLength : -1;
+        }
+    }
 }
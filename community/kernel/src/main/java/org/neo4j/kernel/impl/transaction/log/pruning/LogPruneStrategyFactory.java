@@ -19,6 +19,9 @@
  */
 package org.neo4j.kernel.impl.transaction.log.pruning;
 
+import java.io.File;
+import java.util.function.Predicate;
+
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.impl.transaction.log.LogFileInformation;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogFiles;
@@ -64,6 +67,19 @@ public class LogPruneStrategyFactory
                                                     LogFileInformation logFileInformation,
                                                     PhysicalLogFiles files,
                                                     String configValue )
+    {
+        return fromConfigValue( fileSystem, logFileInformation, files, configValue, file -> false );
+    }
+
+    /**
+     * Same as {@link #fromConfigValue(FileSystemAbstraction, LogFileInformation, PhysicalLogFiles, String)},
+     * but offering pruned log files to the {@code recycler} before deleting them.
+     */
+    public static LogPruneStrategy fromConfigValue( FileSystemAbstraction fileSystem,
+                                                    LogFileInformation logFileInformation,
+                                                    PhysicalLogFiles files,
+                                                    String configValue,
+                                                    Predicate<File> recycler )
     {
         ThresholdConfigValue value = parse( configValue );
 
@@ -73,7 +89,7 @@ public class LogPruneStrategyFactory
         }
 
         Threshold thresholdToUse = getThresholdByType( fileSystem, value, configValue );
-        return new ThresholdBasedPruneStrategy( fileSystem, logFileInformation, files, thresholdToUse );
+        return new ThresholdBasedPruneStrategy( fileSystem, logFileInformation, files, thresholdToUse, recycler );
     }
 
     // visible for testing
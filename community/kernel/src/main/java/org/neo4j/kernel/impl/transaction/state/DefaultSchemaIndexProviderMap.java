@@ -19,16 +19,37 @@
  */
 package org.neo4j.kernel.impl.transaction.state;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 
+import static java.util.Collections.emptyList;
+
 public class DefaultSchemaIndexProviderMap implements SchemaIndexProviderMap
 {
     private final SchemaIndexProvider indexProvider;
+    private final Map<String,SchemaIndexProvider> indexProviders = new HashMap<>();
 
     public DefaultSchemaIndexProviderMap( SchemaIndexProvider indexProvider )
+    {
+        this( indexProvider, emptyList() );
+    }
+
+    /**
+     * @param indexProvider provider of newly created indexes.
+     * @param additionalIndexProviders other providers that existing indexes may have been created with.
+     */
+    public DefaultSchemaIndexProviderMap( SchemaIndexProvider indexProvider,
+            Iterable<SchemaIndexProvider> additionalIndexProviders )
     {
         this.indexProvider = indexProvider;
+        for ( SchemaIndexProvider provider : additionalIndexProviders )
+        {
+            indexProviders.put( provider.getProviderDescriptor().getKey(), provider );
+        }
+        indexProviders.put( indexProvider.getProviderDescriptor().getKey(), indexProvider );
     }
 
     @Override
@@ -40,13 +61,14 @@ public class DefaultSchemaIndexProviderMap implements SchemaIndexProviderMap
     @Override
     public SchemaIndexProvider apply( SchemaIndexProvider.Descriptor descriptor )
     {
-        if ( indexProvider.getProviderDescriptor().getKey().equals( descriptor.getKey() ) )
+        SchemaIndexProvider provider = indexProviders.get( descriptor.getKey() );
+        if ( provider != null )
         {
-            return indexProvider;
+            return provider;
         }
 
         throw new IllegalArgumentException( "Tried to get index provider for an existing index with provider " +
-                descriptor + " whereas the default and only supported provider in this session is " +
-                indexProvider.getProviderDescriptor() );
+                descriptor + " whereas the supported providers in this session are " + indexProviders.keySet() +
+                ", with default " + indexProvider.getProviderDescriptor() );
     }
 }
@@ -35,6 +35,8 @@ import org.neo4j.kernel.impl.api.index.IndexingService;
 import org.neo4j.kernel.impl.index.IndexConfigStore;
 import org.neo4j.kernel.impl.store.MetaDataStore;
 import org.neo4j.kernel.impl.store.format.RecordFormat;
+import org.neo4j.kernel.impl.transaction.log.PhysicalLogFile;
+import org.neo4j.kernel.impl.transaction.log.PhysicalLogFiles;
 import org.neo4j.kernel.spi.legacyindex.IndexImplementation;
 import org.neo4j.storageengine.api.StorageEngine;
 import org.neo4j.storageengine.api.StoreFileMetadata;
@@ -134,7 +136,15 @@ public class NeoStoreFileListing
 
     private boolean transactionLogFile( String name )
     {
-        return name.startsWith( MetaDataStore.DEFAULT_NAME + ".transaction" ) && !name.endsWith( ".active" );
+        return name.startsWith( MetaDataStore.DEFAULT_NAME + ".transaction" ) && !name.endsWith( ".active" ) &&
+               !spareLogFile( name );
+    }
+
+    private boolean spareLogFile( String name )
+    {
+        // The spare log file is only zeros and may be renamed at any time by the log file preallocator
+        return name.startsWith( PhysicalLogFile.DEFAULT_NAME + PhysicalLogFile.DEFAULT_VERSION_SUFFIX +
+                                PhysicalLogFiles.SPARE_VERSION );
     }
 
     private static final class MultiResource implements Resource
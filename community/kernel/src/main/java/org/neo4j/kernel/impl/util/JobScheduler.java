@@ -176,6 +176,26 @@ public interface JobScheduler extends Lifecycle
          * File watch service group
          */
         public static Group fileWatch = new Group( "FileWatcher", NEW_THREAD );
+
+        /**
+         * Page cache warmup and profiling.
+         */
+        public static Group pageCacheWarmup = new Group( "PageCacheWarmup", POOLED );
+
+        /**
+         * Background refreshing of schema index searchers.
+         */
+        public static final Group indexSearcherRefresh = new Group( "IndexSearcherRefresh", POOLED );
+
+        /**
+         * Parallel application of transactions to the record stores.
+         */
+        public static final Group recordUpdateApplication = new Group( "RecordUpdateApplication", POOLED );
+
+        /**
+         * Preallocation of transaction log files ahead of rotation.
+         */
+        public static final Group logFilePreallocation = new Group( "LogFilePreallocation", POOLED );
     }
 
     interface JobHandle
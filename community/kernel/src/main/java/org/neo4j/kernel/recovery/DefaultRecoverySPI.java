@@ -32,6 +32,7 @@ import org.neo4j.kernel.impl.transaction.log.LogPosition;
 import org.neo4j.kernel.impl.transaction.log.LogVersionRepository;
 import org.neo4j.kernel.impl.transaction.log.LogicalTransactionStore;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogFiles;
+import org.neo4j.kernel.impl.transaction.log.ReadAheadTransactionCursor;
 import org.neo4j.kernel.impl.transaction.log.TransactionCursor;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart;
@@ -42,6 +43,8 @@ import static org.neo4j.storageengine.api.TransactionApplicationMode.RECOVERY;
 
 public class DefaultRecoverySPI implements Recovery.SPI
 {
+    private static final int READ_AHEAD_TRANSACTIONS = 1_000;
+
     private final LogVersionRepository logVersionRepository;
     private final PositionToRecoverFrom positionToRecoverFrom;
     private final PhysicalLogFiles logFiles;
@@ -99,7 +102,9 @@ public class DefaultRecoverySPI implements Recovery.SPI
     @Override
     public TransactionCursor getTransactions( LogPosition position ) throws IOException
     {
-        return logicalTransactionStore.getTransactions( position );
+        // Read and decode transactions in a separate thread while the recovery thread applies them
+        return new ReadAheadTransactionCursor( logicalTransactionStore.getTransactions( position ),
+                READ_AHEAD_TRANSACTIONS );
     }
 
     @Override
@@ -20,12 +20,15 @@
 package org.neo4j.kernel.recovery;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
 
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
 import org.neo4j.kernel.impl.transaction.log.TransactionCursor;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.time.Clocks;
 
 /**
  * This is the process of doing a recovery on the transaction log and store, and is executed
@@ -46,6 +49,16 @@ public class Recovery extends LifecycleAdapter
         default void recoveryCompleted( int numberOfRecoveredTransactions )
         { // no-op by default
         }
+
+        /**
+         * Called periodically while transactions are being recovered.
+         *
+         * @param numberOfRecoveredTransactions number of transactions recovered so far.
+         * @param transactionsPerSecond recovery throughput since the previous progress report.
+         */
+        default void recoveryProgress( int numberOfRecoveredTransactions, long transactionsPerSecond )
+        { // no-op by default
+        }
     }
 
     public interface SPI
@@ -62,16 +75,25 @@ public class Recovery extends LifecycleAdapter
                 LogPosition positionAfterLastRecoveredTransaction ) throws Exception;
     }
 
+    static final long PROGRESS_REPORT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+
     private final SPI spi;
     private final Monitor monitor;
+    private final Clock clock;
     private int numberOfRecoveredTransactions;
 
     private boolean recoveredLog = false;
 
     public Recovery( SPI spi, Monitor monitor )
+    {
+        this( spi, monitor, Clocks.systemClock() );
+    }
+
+    public Recovery( SPI spi, Monitor monitor, Clock clock )
     {
         this.spi = spi;
         this.monitor = monitor;
+        this.clock = clock;
     }
 
     @Override
@@ -88,6 +110,8 @@ public class Recovery extends LifecycleAdapter
         LogPosition recoveryToPosition;
         CommittedTransactionRepresentation lastTransaction = null;
         Visitor<CommittedTransactionRepresentation,Exception> recoveryVisitor = spi.startRecovery();
+        long lastProgressReportTime = clock.millis();
+        int transactionsAtLastProgressReport = 0;
         try ( TransactionCursor transactionsToRecover = spi.getTransactions( recoveryFromPosition ) )
         {
             while ( transactionsToRecover.next() )
@@ -97,6 +121,17 @@ public class Recovery extends LifecycleAdapter
                 recoveryVisitor.visit( lastTransaction );
                 monitor.transactionRecovered( txId );
                 numberOfRecoveredTransactions++;
+
+                long now = clock.millis();
+                long sinceLastProgressReport = now - lastProgressReportTime;
+                if ( sinceLastProgressReport >= PROGRESS_REPORT_INTERVAL_MILLIS )
+                {
+                    long recovered = numberOfRecoveredTransactions - transactionsAtLastProgressReport;
+                    monitor.recoveryProgress( numberOfRecoveredTransactions,
+                            recovered * 1000 / sinceLastProgressReport );
+                    lastProgressReportTime = now;
+                    transactionsAtLastProgressReport = numberOfRecoveredTransactions;
+                }
             }
             recoveryToPosition = transactionsToRecover.position();
         }
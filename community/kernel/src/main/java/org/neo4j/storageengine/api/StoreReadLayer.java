@@ -152,6 +152,13 @@ public interface StoreReadLayer
 
     PrimitiveLongIterator nodesGetForLabel( StorageStatement statement, int labelId );
 
+    /**
+     * @param statement {@link StorageStatement} to use for reading.
+     * @param labelIds label ids which all returned nodes must have.
+     * @return ids of all stored nodes which have all of the given labels.
+     */
+    PrimitiveLongIterator nodesGetForAllLabels( StorageStatement statement, int[] labelIds );
+
     /**
      * Looks for a stored index by given {@code labelId} and {@code propertyKey}
      *
@@ -19,6 +19,9 @@
  */
 package org.neo4j.storageengine.api.schema;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.Resource;
 
@@ -33,6 +36,21 @@ public interface LabelScanReader extends Resource
      */
     PrimitiveLongIterator nodesWithLabel( int labelId );
 
+    /**
+     * Like {@link #nodesWithLabel(int)}, but with the node ids split into partitions which can be read
+     * in parallel, each by one thread at a time. Implementations which can't split their results return
+     * a single partition.
+     *
+     * @param labelId label token id.
+     * @param desiredNumberOfPartitions number of partitions to split node ids into, if there are enough of them.
+     * @return partitions which together contain the node ids with the given {@code labelId}, each node id
+     * in exactly one partition.
+     */
+    default List<PrimitiveLongIterator> nodesWithLabel( int labelId, int desiredNumberOfPartitions )
+    {
+        return Collections.singletonList( nodesWithLabel( labelId ) );
+    }
+
     /**
      * @param labelIds label token ids.
      * @return node ids with any of the given label ids.
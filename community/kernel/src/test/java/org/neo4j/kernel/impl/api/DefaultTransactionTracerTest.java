@@ -24,10 +24,13 @@ import org.junit.Test;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
+import org.neo4j.kernel.impl.api.CommitPipelineMonitor.Stage;
 import org.neo4j.kernel.impl.api.DefaultTransactionTracer.Monitor;
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceWaitEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogRotateEvent;
+import org.neo4j.kernel.impl.transaction.tracing.StoreApplyEvent;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionEvent;
 import org.neo4j.test.OnDemandJobScheduler;
 import org.neo4j.time.Clocks;
@@ -76,6 +79,42 @@ public class DefaultTransactionTracerTest
         verifyZeroInteractions( monitor );
     }
 
+    @Test
+    public void shouldTrackQueueDepthAndTimeOfCommitPipelineStages() throws Throwable
+    {
+        DefaultTransactionTracer tracer = new DefaultTransactionTracer( clock, monitor, jobScheduler );
+
+        try ( TransactionEvent txEvent = tracer.beginTransaction();
+              CommitEvent commitEvent = txEvent.beginCommitEvent() )
+        {
+            try ( LogAppendEvent logAppendEvent = commitEvent.beginLogAppend() )
+            {
+                assertEquals( 1, tracer.queueDepth( Stage.LOG_APPEND ) );
+                clock.forward( 5, TimeUnit.MILLISECONDS );
+                try ( LogForceWaitEvent logForceWaitEvent = logAppendEvent.beginLogForceWait() )
+                {
+                    assertEquals( 0, tracer.queueDepth( Stage.LOG_APPEND ) );
+                    assertEquals( 1, tracer.queueDepth( Stage.LOG_FORCE ) );
+                    clock.forward( 7, TimeUnit.MILLISECONDS );
+                }
+            }
+            try ( StoreApplyEvent storeApplyEvent = commitEvent.beginStoreApply() )
+            {
+                assertEquals( 0, tracer.queueDepth( Stage.LOG_FORCE ) );
+                assertEquals( 1, tracer.queueDepth( Stage.STORE_APPLY ) );
+                clock.forward( 3, TimeUnit.MILLISECONDS );
+            }
+        }
+
+        assertEquals( 0, tracer.queueDepth( Stage.STORE_APPLY ) );
+        assertEquals( 1, tracer.numberOfStageEvents( Stage.LOG_APPEND ) );
+        assertEquals( 1, tracer.numberOfStageEvents( Stage.LOG_FORCE ) );
+        assertEquals( 1, tracer.numberOfStageEvents( Stage.STORE_APPLY ) );
+        assertEquals( 5, tracer.stageAccumulatedTotalTimeMillis( Stage.LOG_APPEND ) );
+        assertEquals( 7, tracer.stageAccumulatedTotalTimeMillis( Stage.LOG_FORCE ) );
+        assertEquals( 3, tracer.stageAccumulatedTotalTimeMillis( Stage.STORE_APPLY ) );
+    }
+
     private void triggerEvent( DefaultTransactionTracer tracer, int eventDuration )
     {
         try ( TransactionEvent txEvent = tracer.beginTransaction() )
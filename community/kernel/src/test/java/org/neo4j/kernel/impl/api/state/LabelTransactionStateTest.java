@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -45,9 +46,12 @@ import org.neo4j.kernel.impl.api.store.StoreStatement;
 import org.neo4j.kernel.impl.index.LegacyIndexStore;
 import org.neo4j.storageengine.api.StoreReadLayer;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.neo4j.helpers.collection.Iterators.asSet;
@@ -190,6 +194,26 @@ public class LabelTransactionStateTest
         assertEquals( asSet( 0L ), PrimitiveLongCollections.toSet( txContext.nodesGetForLabel( state, 2 ) ) );
     }
 
+    @Test
+    public void labelChangesShouldBeReflectedWhenGettingNodesForAllLabels() throws Exception
+    {
+        // GIVEN
+        commitLabels(
+                labels( 0, 1, 2 ),
+                labels( 1, 2, 3 ),
+                labels( 2, 1, 3 ),
+                labels( 3, 1, 2, 3 ) );
+
+        // WHEN
+        txContext.nodeRemoveLabel( state, 0, 1 );
+        txContext.nodeAddLabel( state, 1, 1 );
+        txContext.nodeAddLabel( state, 2, 4 );
+
+        // THEN
+        assertEquals( asSet( 1L, 3L ),
+                PrimitiveLongCollections.toSet( txContext.nodesGetForAllLabels( state, new int[] {1, 2} ) ) );
+    }
+
     @Test
     public void addingNewLabelToNodeShouldRespondTrue() throws Exception
     {
@@ -345,6 +369,19 @@ public class LabelTransactionStateTest
             when( store.nodesGetForLabel( state.getStoreStatement(), entry.getKey() ) )
                     .then( answerAsPrimitiveLongIteratorFrom( entry.getValue() ) );
         }
+        when( store.nodesGetForAllLabels( eq( state.getStoreStatement() ), any( int[].class ) ) ).then( invocation ->
+        {
+            int[] labelIds = (int[]) invocation.getArguments()[1];
+            Collection<Long> nodes = new ArrayList<>();
+            for ( Labels nodeLabels : labels )
+            {
+                if ( Arrays.stream( labelIds ).allMatch( asList( nodeLabels.labelIds )::contains ) )
+                {
+                    nodes.add( nodeLabels.nodeId );
+                }
+            }
+            return PrimitiveLongCollections.toPrimitiveIterator( nodes.iterator() );
+        } );
     }
 
     private void commitNoLabels() throws Exception
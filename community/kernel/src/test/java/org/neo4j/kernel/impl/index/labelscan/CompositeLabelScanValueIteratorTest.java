@@ -21,20 +21,23 @@ package org.neo4j.kernel.impl.index.labelscan;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.neo4j.collection.primitive.PrimitiveLongCollections;
-import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.Hit;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
-import static org.neo4j.collection.primitive.PrimitiveLongCollections.emptyIterator;
-import static org.neo4j.collection.primitive.PrimitiveLongCollections.iterator;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
 
 public class CompositeLabelScanValueIteratorTest
 {
@@ -42,7 +45,7 @@ public class CompositeLabelScanValueIteratorTest
     public void mustHandleEmptyListOfIterators() throws Exception
     {
         // given
-        List<PrimitiveLongIterator> iterators = emptyList();
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = emptyList();
 
         // when
         CompositeLabelScanValueIterator iterator = new CompositeLabelScanValueIterator( iterators, false );
@@ -64,7 +67,7 @@ public class CompositeLabelScanValueIteratorTest
     public void mustHandleEmptyIterator() throws Exception
     {
         // given
-        List<PrimitiveLongIterator> iterators = singletonList( emptyIterator() );
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = singletonList( iterator() );
 
         // when
         CompositeLabelScanValueIterator iterator = new CompositeLabelScanValueIterator( iterators, false );
@@ -77,7 +80,7 @@ public class CompositeLabelScanValueIteratorTest
     public void mustHandleMultipleEmptyIterators() throws Exception
     {
         // given
-        List<PrimitiveLongIterator> iterators = Arrays.asList( emptyIterator(), emptyIterator(), emptyIterator() );
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList( iterator(), iterator(), iterator() );
 
         // when
         CompositeLabelScanValueIterator iterator = new CompositeLabelScanValueIterator( iterators, false );
@@ -92,7 +95,7 @@ public class CompositeLabelScanValueIteratorTest
     {
         // given
         long[] expected = {0L, 1L, Long.MAX_VALUE};
-        List<PrimitiveLongIterator> iterators = Arrays.asList( iterator( expected ) );
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList( iterator( expected ) );
 
         // when
         CompositeLabelScanValueIterator iterator = new CompositeLabelScanValueIterator( iterators, false );
@@ -108,7 +111,7 @@ public class CompositeLabelScanValueIteratorTest
         long[] firstIter  = {0L,     2L,     Long.MAX_VALUE};
         long[] secondIter = {    1L,     3L                };
         long[] expected   = {0L, 1L, 2L, 3L, Long.MAX_VALUE};
-        List<PrimitiveLongIterator> iterators = Arrays.asList(
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList(
                 iterator( firstIter ),
                 iterator( secondIter ) );
 
@@ -127,7 +130,7 @@ public class CompositeLabelScanValueIteratorTest
         long[] secondIter = {    1L,     3L                };
         long[] thridIter  = {0L,         3L                };
         long[] expected   = {0L, 1L, 2L, 3L, Long.MAX_VALUE};
-        List<PrimitiveLongIterator> iterators = Arrays.asList(
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList(
                 iterator( firstIter ),
                 iterator( secondIter ),
                 iterator( thridIter ) );
@@ -148,7 +151,7 @@ public class CompositeLabelScanValueIteratorTest
         long[] thridIter  = {0L,         3L                };
         long[] fourthIter = {/* Empty */                   };
         long[] expected   = {0L, 1L, 2L, 3L, Long.MAX_VALUE};
-        List<PrimitiveLongIterator> iterators = Arrays.asList(
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList(
                 iterator( firstIter ),
                 iterator( secondIter ),
                 iterator( thridIter ),
@@ -170,7 +173,7 @@ public class CompositeLabelScanValueIteratorTest
         long[] secondIter = {0L, 1L,     Long.MAX_VALUE};
         long[] thridIter  = {0L, 1L, 2L, Long.MAX_VALUE};
         long[] expected   = {0L,         Long.MAX_VALUE};
-        List<PrimitiveLongIterator> iterators = Arrays.asList(
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList(
                 iterator( firstIter ),
                 iterator( secondIter ),
                 iterator( thridIter ) );
@@ -191,11 +194,11 @@ public class CompositeLabelScanValueIteratorTest
         long[] thridIter  = {0L, 1L, 2L, Long.MAX_VALUE};
         long[] fourthIter = {/* Empty */               };
         long[] expected   = {                          };
-        List<PrimitiveLongIterator> iterators = Arrays.asList(
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList(
                 iterator( firstIter ),
                 iterator( secondIter ),
                 iterator( thridIter ),
-                iterator( fourthIter ));
+                iterator( fourthIter ) );
 
         // when
         CompositeLabelScanValueIterator iterator = new CompositeLabelScanValueIterator( iterators, true );
@@ -203,4 +206,66 @@ public class CompositeLabelScanValueIteratorTest
         // then
         assertArrayEquals( expected, PrimitiveLongCollections.asArray( iterator ) );
     }
+
+    @Test
+    public void mustOnlyReportValuesReportedByAllInSameAndDifferentRanges() throws Exception
+    {
+        // given
+        long[] firstIter  = {1L,                  RANGE_SIZE + 1, 3 * RANGE_SIZE, 5 * RANGE_SIZE + 7};
+        long[] secondIter = {1L, 2L,              RANGE_SIZE + 2, 3 * RANGE_SIZE, 5 * RANGE_SIZE + 7};
+        long[] thridIter  = {1L, 2L, RANGE_SIZE - 1, 2 * RANGE_SIZE, 3 * RANGE_SIZE, 5 * RANGE_SIZE + 7};
+        long[] expected   = {1L,                                    3 * RANGE_SIZE, 5 * RANGE_SIZE + 7};
+        List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> iterators = Arrays.asList(
+                iterator( firstIter ),
+                iterator( secondIter ),
+                iterator( thridIter ) );
+
+        // when
+        CompositeLabelScanValueIterator iterator = new CompositeLabelScanValueIterator( iterators, true );
+
+        // then
+        assertArrayEquals( expected, PrimitiveLongCollections.asArray( iterator ) );
+    }
+
+    /**
+     * @param nodeIds node ids, in ascending order, to group into {@link LabelScanValue} ranges.
+     * @return a cursor over the ranges of the given node ids, like a cursor from a label scan seek would return.
+     */
+    private static RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> iterator( long... nodeIds )
+    {
+        List<Hit<LabelScanKey,LabelScanValue>> hits = new ArrayList<>();
+        for ( long nodeId : nodeIds )
+        {
+            long idRange = nodeId / RANGE_SIZE;
+            if ( hits.isEmpty() || hits.get( hits.size() - 1 ).key().idRange != idRange )
+            {
+                hits.add( new MutableHit<>( new LabelScanKey( 0, idRange ), new LabelScanValue() ) );
+            }
+            hits.get( hits.size() - 1 ).value().set( (int) (nodeId % RANGE_SIZE) );
+        }
+
+        Iterator<Hit<LabelScanKey,LabelScanValue>> iterator = hits.iterator();
+        return new RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>()
+        {
+            private Hit<LabelScanKey,LabelScanValue> current;
+
+            @Override
+            public boolean next()
+            {
+                current = iterator.hasNext() ? iterator.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public Hit<LabelScanKey,LabelScanValue> get()
+            {
+                return current;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+    }
 }
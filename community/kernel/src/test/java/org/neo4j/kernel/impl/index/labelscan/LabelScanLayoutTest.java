@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.StubPageCursor;
+import org.neo4j.test.rule.RandomRule;
+
+import static org.junit.Assert.assertEquals;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanLayout.ARRAY_CONTAINER;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanLayout.BITMAP_CONTAINER;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanLayout.RUN_CONTAINER;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
+
+public class LabelScanLayoutTest
+{
+    @Rule
+    public final RandomRule random = new RandomRule();
+
+    private final LabelScanLayout layout = new LabelScanLayout();
+
+    @Test
+    public void shouldUseArrayContainerForSparseValue() throws Exception
+    {
+        // GIVEN
+        LabelScanValue value = valueWithBits( 0, 17, 130, 255 );
+
+        // THEN
+        assertEquals( ARRAY_CONTAINER, LabelScanLayout.containerType( value ) );
+        assertEquals( 2 + 4, layout.valueSize( value ) );
+        assertRoundTrip( value );
+    }
+
+    @Test
+    public void shouldUseRunContainerForConsecutiveBits() throws Exception
+    {
+        // GIVEN
+        LabelScanValue value = new LabelScanValue();
+        for ( int i = 10; i < 200; i++ )
+        {
+            value.set( i );
+        }
+        value.set( 255 );
+
+        // THEN
+        assertEquals( RUN_CONTAINER, LabelScanLayout.containerType( value ) );
+        assertEquals( 2 + 2 * 2, layout.valueSize( value ) );
+        assertRoundTrip( value );
+    }
+
+    @Test
+    public void shouldUseBitmapContainerForDenseMixedValue() throws Exception
+    {
+        // GIVEN
+        LabelScanValue value = new LabelScanValue();
+        for ( int i = 0; i < RANGE_SIZE; i += 2 )
+        {
+            value.set( i );
+        }
+
+        // THEN
+        assertEquals( BITMAP_CONTAINER, LabelScanLayout.containerType( value ) );
+        assertEquals( layout.valueSize(), layout.valueSize( value ) );
+        assertRoundTrip( value );
+    }
+
+    @Test
+    public void shouldStoreEmptyValue() throws Exception
+    {
+        assertRoundTrip( new LabelScanValue() );
+    }
+
+    @Test
+    public void shouldRoundTripRandomValues() throws Exception
+    {
+        for ( int round = 0; round < 1_000; round++ )
+        {
+            // GIVEN
+            LabelScanValue value = new LabelScanValue();
+            int density = random.nextInt( RANGE_SIZE );
+            int runLength = 1 + random.nextInt( 20 );
+            for ( int i = 0; i < RANGE_SIZE; i++ )
+            {
+                if ( random.nextInt( RANGE_SIZE ) < density )
+                {
+                    for ( int j = i; j < Math.min( i + runLength, RANGE_SIZE ); j++ )
+                    {
+                        value.set( j );
+                    }
+                }
+            }
+
+            // THEN
+            assertRoundTrip( value );
+        }
+    }
+
+    private void assertRoundTrip( LabelScanValue value )
+    {
+        PageCursor cursor = new StubPageCursor( 0, 64 );
+        layout.writeValue( cursor, value );
+        assertEquals( layout.valueSize( value ), cursor.getOffset() );
+
+        cursor.setOffset( 0 );
+        LabelScanValue read = layout.newValue();
+        read.set( 42 );
+        layout.readValue( cursor, read );
+        assertEquals( value, read );
+        assertEquals( layout.valueSize( value ), cursor.getOffset() );
+    }
+
+    private static LabelScanValue valueWithBits( int... bits )
+    {
+        LabelScanValue value = new LabelScanValue();
+        for ( int bit : bits )
+        {
+            value.set( bit );
+        }
+        return value;
+    }
+}
@@ -30,15 +30,15 @@ public class LabelScanValueTest
     {
         // GIVEN
         LabelScanValue value = new LabelScanValue();
-        value.bits = 0b0000__1000_0100__0010_0001;
+        value.bits[0] = 0b0000__1000_0100__0010_0001;
 
         // WHEN
         LabelScanValue other = new LabelScanValue();
-        other.bits = 0b1100__0100_0100__0100_0100;
+        other.bits[0] = 0b1100__0100_0100__0100_0100;
         value.add( other );
 
         // THEN
-        assertEquals( 0b1100__1100_0100__0110_0101, value.bits );
+        assertEquals( 0b1100__1100_0100__0110_0101, value.bits[0] );
     }
 
     @Test
@@ -46,14 +46,59 @@ public class LabelScanValueTest
     {
         // GIVEN
         LabelScanValue value = new LabelScanValue();
-        value.bits = 0b1100__1000_0100__0010_0001;
+        value.bits[0] = 0b1100__1000_0100__0010_0001;
 
         // WHEN
         LabelScanValue other = new LabelScanValue();
-        other.bits = 0b1000__0100_0100__0100_0100;
+        other.bits[0] = 0b1000__0100_0100__0100_0100;
         value.remove( other );
 
         // THEN
-        assertEquals( 0b0100__1000_0000__0010_0001, value.bits );
+        assertEquals( 0b0100__1000_0000__0010_0001, value.bits[0] );
+    }
+
+    @Test
+    public void shouldRetainBits() throws Exception
+    {
+        // GIVEN
+        LabelScanValue value = new LabelScanValue();
+        value.bits[0] = 0b1100__1000_0100__0010_0001;
+        value.bits[3] = 0b0110;
+
+        // WHEN
+        LabelScanValue other = new LabelScanValue();
+        other.bits[0] = 0b1000__0100_0100__0100_0101;
+        other.bits[2] = 0b0110;
+        value.retain( other );
+
+        // THEN
+        assertEquals( 0b1000__0000_0100__0000_0001, value.bits[0] );
+        assertEquals( 0, value.bits[2] );
+        assertEquals( 0, value.bits[3] );
+    }
+
+    @Test
+    public void shouldSetAndFindBitsAcrossWords() throws Exception
+    {
+        // GIVEN
+        LabelScanValue value = new LabelScanValue();
+
+        // WHEN
+        value.set( 3 );
+        value.set( 63 );
+        value.set( 64 );
+        value.set( 255 );
+
+        // THEN
+        assertEquals( 3, value.nextSetBit( 0 ) );
+        assertEquals( 63, value.nextSetBit( 4 ) );
+        assertEquals( 64, value.nextSetBit( 64 ) );
+        assertEquals( 255, value.nextSetBit( 65 ) );
+        assertEquals( -1, value.nextSetBit( 256 ) );
+        assertEquals( 4, value.cardinality() );
+        assertEquals( 3, value.runCount() );
+
+        value.unset( 255 );
+        assertEquals( -1, value.nextSetBit( 65 ) );
     }
 }
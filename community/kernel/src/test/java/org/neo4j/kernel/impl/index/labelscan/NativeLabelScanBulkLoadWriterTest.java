@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.RandomRule;
+import org.neo4j.test.rule.TestDirectory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.rules.RuleChain.outerRule;
+
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
+import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreTest.getLabels;
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreTest.nodesWithLabel;
+
+public class NativeLabelScanBulkLoadWriterTest
+{
+    private static final int NODE_COUNT = 10_000;
+    private static final int LABEL_COUNT = 12;
+
+    private final TestDirectory directory = TestDirectory.testDirectory( getClass() );
+    private final PageCacheRule pageCacheRule = new PageCacheRule();
+    private final RandomRule random = new RandomRule();
+    @Rule
+    public final RuleChain rules = outerRule( directory ).around( pageCacheRule ).around( random );
+
+    @Test
+    public void shouldBulkLoadUpdatesSpilledInManyChunks() throws Exception
+    {
+        // GIVEN
+        PageCache pageCache = pageCacheRule.getPageCache( new DefaultFileSystemAbstraction() );
+        File spillFile = directory.file( "spill" );
+        long[] expected = new long[NODE_COUNT];
+        try ( GBPTree<LabelScanKey,LabelScanValue> tree = new GBPTree<>( pageCache, directory.file( "index" ),
+                new LabelScanLayout(), 0, GBPTree.NO_MONITOR ) )
+        {
+            // WHEN
+            try ( NativeLabelScanBulkLoadWriter writer =
+                          new NativeLabelScanBulkLoadWriter( tree.bulkLoader(), pageCache, spillFile, 50 ) )
+            {
+                for ( int nodeId = 0; nodeId < NODE_COUNT; nodeId++ )
+                {
+                    expected[nodeId] = random.nextInt( 1 << LABEL_COUNT ) & random.nextInt( 1 << LABEL_COUNT );
+                    writer.write( labelChanges( nodeId, new long[0], getLabels( expected[nodeId] ) ) );
+                }
+                writer.success();
+            }
+
+            // THEN
+            try ( NativeLabelScanReader reader = new NativeLabelScanReader( tree ) )
+            {
+                for ( int labelId = 0; labelId < LABEL_COUNT; labelId++ )
+                {
+                    assertArrayEquals( nodesWithLabel( expected, labelId ),
+                            asArray( reader.nodesWithLabel( labelId ) ) );
+                }
+            }
+        }
+        assertFalse( spillFile.exists() );
+    }
+}
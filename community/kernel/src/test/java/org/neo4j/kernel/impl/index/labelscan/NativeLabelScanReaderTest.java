@@ -22,15 +22,20 @@ package org.neo4j.kernel.impl.index.labelscan;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.cursor.RawCursor;
 import org.neo4j.index.internal.gbptree.GBPTree;
 import org.neo4j.index.internal.gbptree.Hit;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
@@ -62,22 +67,50 @@ public class NativeLabelScanReaderTest
 
             // THEN
             assertArrayEquals( new long[] {
-                    // base 0*64 = 0
+                    // base 0*256 = 0
                     1, 6, 7, 11, 15,
-                    // base 1*64 = 64
-                    64 + 3, 64 + 9,
-                    // base 3*64 = 192
-                    192 + 0, 192 + 5, 192 + 7, 192 + 13 },
+                    // base 1*256 = 256
+                    256 + 3, 256 + 9,
+                    // base 3*256 = 768
+                    768 + 0, 768 + 5, 768 + 7, 768 + 13 },
 
                     asArray( iterator ) );
         }
     }
 
+    @SuppressWarnings( "unchecked" )
+    @Test
+    public void shouldReturnOneIteratorPerPartition() throws Exception
+    {
+        // GIVEN
+        GBPTree<LabelScanKey,LabelScanValue> index = mock( GBPTree.class );
+        RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> first = mock( RawCursor.class );
+        when( first.next() ).thenReturn( true, false );
+        when( first.get() ).thenReturn( hit( 0, 0b0110L ), null );
+        RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> second = mock( RawCursor.class );
+        when( second.next() ).thenReturn( true, true, false );
+        when( second.get() ).thenReturn( hit( 2, 0b0001L ), hit( 5, 0b1000L ), null );
+        when( index.partitionedSeek( any( LabelScanKey.class ), any( LabelScanKey.class ), eq( 2 ) ) )
+                .thenReturn( asList( first, second ) );
+        try ( NativeLabelScanReader reader = new NativeLabelScanReader( index ) )
+        {
+            // WHEN
+            List<PrimitiveLongIterator> partitions = reader.nodesWithLabel( LABEL_ID, 2 );
+
+            // THEN
+            assertEquals( 2, partitions.size() );
+            assertArrayEquals( new long[] {1, 2}, asArray( partitions.get( 0 ) ) );
+            assertArrayEquals( new long[] {512, 1280 + 3}, asArray( partitions.get( 1 ) ) );
+        }
+        verify( first ).close();
+        verify( second ).close();
+    }
+
     private static Hit<LabelScanKey,LabelScanValue> hit( long baseNodeId, long bits )
     {
         LabelScanKey key = new LabelScanKey( LABEL_ID, baseNodeId );
         LabelScanValue value = new LabelScanValue();
-        value.bits = bits;
+        value.bits[0] = bits;
         return new MutableHit<>( key, value );
     }
 }
@@ -24,10 +24,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.RuleChain;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Random;
 
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Layout;
+import org.neo4j.index.internal.gbptree.Writer;
 import org.neo4j.io.fs.DefaultFileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.kernel.api.labelscan.LabelScanWriter;
@@ -40,10 +45,13 @@ import org.neo4j.test.rule.RandomRule;
 import org.neo4j.test.rule.TestDirectory;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.junit.rules.RuleChain.outerRule;
 
 import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
 import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
+import static org.neo4j.kernel.impl.store.MetaDataStore.DEFAULT_NAME;
 
 public class NativeLabelScanStoreTest
 {
@@ -65,7 +73,8 @@ public class NativeLabelScanStoreTest
         store = life.add( new NativeLabelScanStore( pageCache, directory.absolutePath(),
                 FullStoreChangeStream.EMPTY,
                 // a bit of random pageSize
-                Math.min( pageCache.pageSize(), 256 << random.nextInt( 5 ) ) ) );
+                Math.min( pageCache.pageSize(), 256 << random.nextInt( 5 ) ),
+                NativeLabelScanStore.WriteMonitor.EMPTY ) );
     }
 
     @Test
@@ -83,6 +92,90 @@ public class NativeLabelScanStoreTest
         }
     }
 
+    @Test
+    public void shouldRebuildStoreWrittenWithOldLayout() throws Exception
+    {
+        // GIVEN a store file written with the layout of 64-bit ranges
+        PageCache pageCache = pageCacheRule.getPageCache( new DefaultFileSystemAbstraction() );
+        File storeDir = directory.directory( "old" );
+        File storeFile = new File( storeDir, DEFAULT_NAME + ".labelscanstore.db" );
+        LabelScanLayout oldLayout = new LabelScanLayout()
+        {
+            @Override
+            public long identifier()
+            {
+                return Layout.namedIdentifier( "LSL", 64 );
+            }
+
+            @Override
+            public int minorVersion()
+            {
+                return 1;
+            }
+        };
+        try ( GBPTree<LabelScanKey,LabelScanValue> tree =
+                      new GBPTree<>( pageCache, storeFile, oldLayout, 0, GBPTree.NO_MONITOR );
+              Writer<LabelScanKey,LabelScanValue> writer = tree.writer() )
+        {
+            LabelScanValue value = new LabelScanValue();
+            value.set( 3 );
+            writer.put( new LabelScanKey( 0, 0 ), value );
+        }
+
+        // WHEN
+        FullStoreChangeStream changes = writer ->
+        {
+            writer.write( labelChanges( 5, new long[0], new long[] {1} ) );
+            return 1;
+        };
+        NativeLabelScanStore oldStore = life.add( new NativeLabelScanStore( pageCache, storeDir, changes ) );
+
+        // THEN
+        try ( LabelScanReader reader = oldStore.newReader() )
+        {
+            assertArrayEquals( new long[0], asArray( reader.nodesWithLabel( 0 ) ) );
+            assertArrayEquals( new long[] {5}, asArray( reader.nodesWithLabel( 1 ) ) );
+        }
+    }
+
+    @Test
+    public void shouldLeaveStoreEmptyIfFullStoreChangeStreamFails() throws Exception
+    {
+        // GIVEN
+        PageCache pageCache = pageCacheRule.getPageCache( new DefaultFileSystemAbstraction() );
+        FullStoreChangeStream failingChanges = writer ->
+        {
+            writer.write( labelChanges( 5, new long[0], new long[] {1} ) );
+            throw new IOException( "Failed half way" );
+        };
+        NativeLabelScanStore failingStore =
+                new NativeLabelScanStore( pageCache, directory.directory( "failing" ), failingChanges );
+        failingStore.init();
+        try
+        {
+            // WHEN
+            try
+            {
+                failingStore.start();
+                fail( "Should have failed" );
+            }
+            catch ( IOException e )
+            {
+                assertEquals( "Failed half way", e.getMessage() );
+            }
+
+            // THEN
+            try ( LabelScanReader reader = failingStore.newReader() )
+            {
+                assertArrayEquals( new long[0], asArray( reader.nodesWithLabel( 1 ) ) );
+            }
+        }
+        finally
+        {
+            failingStore.shutdown();
+        }
+    }
+
     private void verifyReads( long[] expected )
     {
         try ( LabelScanReader reader = store.newReader() )
@@ -93,7 +186,33 @@ public class NativeLabelScanStoreTest
                 long[] expectedNodes = nodesWithLabel( expected, i );
                 assertArrayEquals( expectedNodes, actualNodes );
             }
+
+            int[] labelIds = {random.nextInt( LABEL_COUNT ), random.nextInt( LABEL_COUNT ), random.nextInt( LABEL_COUNT )};
+            assertArrayEquals( nodesWithLabels( expected, labelIds, true ),
+                    asArray( reader.nodesWithAllLabels( labelIds ) ) );
+            assertArrayEquals( nodesWithLabels( expected, labelIds, false ),
+                    asArray( reader.nodesWithAnyOfLabels( labelIds ) ) );
+        }
+    }
+
+    private static long[] nodesWithLabels( long[] expected, int[] labelIds, boolean all )
+    {
+        int mask = 0;
+        for ( int labelId : labelIds )
+        {
+            mask |= 1 << labelId;
+        }
+        long[] result = new long[expected.length];
+        int cursor = 0;
+        for ( int nodeId = 0; nodeId < expected.length; nodeId++ )
+        {
+            long labels = expected[nodeId] & mask;
+            if ( all ? labels == mask : labels != 0 )
+            {
+                result[cursor++] = nodeId;
+            }
         }
+        return Arrays.copyOf( result, cursor );
     }
 
     public static long[] nodesWithLabel( long[] expected, int labelId )
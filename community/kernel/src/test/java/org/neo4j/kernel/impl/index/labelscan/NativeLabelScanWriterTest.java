@@ -39,12 +39,14 @@ import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.test.rule.RandomRule;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import static java.lang.Integer.max;
 
 import static org.neo4j.collection.primitive.PrimitiveLongCollections.EMPTY_LONG_ARRAY;
 import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
 import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreTest.flipRandom;
 import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreTest.getLabels;
 import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreTest.nodesWithLabel;
@@ -110,6 +112,81 @@ public class NativeLabelScanWriterTest
         assertTrue( failed );
     }
 
+    @Test
+    public void shouldMergeAllChangesToSameRangeAtOnce() throws Exception
+    {
+        // GIVEN
+        ControlledInserter inserter = new ControlledInserter();
+        RecordingWriteMonitor monitor = new RecordingWriteMonitor();
+        try ( NativeLabelScanWriter writer = new NativeLabelScanWriter( 1_000, monitor ) )
+        {
+            writer.initialize( inserter );
+
+            // WHEN
+            for ( int nodeId = RANGE_SIZE - 1; nodeId >= 0; nodeId-- )
+            {
+                writer.write( NodeLabelUpdate.labelChanges( nodeId, EMPTY_LONG_ARRAY, new long[] {0, 1} ) );
+            }
+        }
+
+        // THEN
+        assertEquals( 1, monitor.batches );
+        assertEquals( RANGE_SIZE, monitor.updates );
+        assertEquals( RANGE_SIZE * 2, monitor.changes );
+        assertEquals( 2, monitor.merges );
+        assertEquals( 2, inserter.merges );
+        // all bits set
+        assertEquals( RANGE_SIZE, inserter.value( 0, 0 ).cardinality() );
+        assertEquals( RANGE_SIZE, inserter.value( 1, 0 ).cardinality() );
+    }
+
+    @Test
+    public void shouldLetLastChangeOfSameLabelInSameBatchWin() throws Exception
+    {
+        // GIVEN
+        ControlledInserter inserter = new ControlledInserter();
+        RecordingWriteMonitor monitor = new RecordingWriteMonitor();
+        try ( NativeLabelScanWriter writer = new NativeLabelScanWriter( 100, monitor ) )
+        {
+            writer.initialize( inserter );
+
+            // WHEN
+            writer.write( NodeLabelUpdate.labelChanges( 5, EMPTY_LONG_ARRAY, new long[] {0} ) );
+            writer.write( NodeLabelUpdate.labelChanges( 6, EMPTY_LONG_ARRAY, new long[] {0} ) );
+            writer.write( NodeLabelUpdate.labelChanges( 5, new long[] {0}, EMPTY_LONG_ARRAY ) );
+        }
+
+        // THEN
+        assertEquals( 3, monitor.changes );
+        assertEquals( 2, monitor.merges );
+        assertArrayEquals( new long[] {6},
+                asArray( new LabelScanValueIterator( inserter.nodesFor( 0 ) ) ) );
+    }
+
+    @Test
+    public void shouldReapplyRemovalAndAdditionOfSameLabelInSameBatchIdempotently() throws Exception
+    {
+        // GIVEN a tree where node 5 doesn't have label 0, as if the removal was already applied before a crash
+        ControlledInserter inserter = new ControlledInserter();
+        try ( NativeLabelScanWriter writer = new NativeLabelScanWriter( 100 ) )
+        {
+            writer.initialize( inserter );
+            writer.write( NodeLabelUpdate.labelChanges( 7, EMPTY_LONG_ARRAY, new long[] {0} ) );
+        }
+
+        // WHEN recovery replays the removal and the later addition in the same batch
+        try ( NativeLabelScanWriter writer = new NativeLabelScanWriter( 100 ) )
+        {
+            writer.initialize( inserter );
+            writer.write( NodeLabelUpdate.labelChanges( 5, new long[] {0}, EMPTY_LONG_ARRAY ) );
+            writer.write( NodeLabelUpdate.labelChanges( 5, EMPTY_LONG_ARRAY, new long[] {0} ) );
+        }
+
+        // THEN
+        assertArrayEquals( new long[] {5, 7},
+                asArray( new LabelScanValueIterator( inserter.nodesFor( 0 ) ) ) );
+    }
+
     private NodeLabelUpdate randomUpdate( long[] expected )
     {
         int nodeId = random.nextInt( expected.length );
@@ -124,9 +201,27 @@ public class NativeLabelScanWriterTest
         return NodeLabelUpdate.labelChanges( nodeId, before, getLabels( labels ) );
     }
 
+    private static class RecordingWriteMonitor implements NativeLabelScanStore.WriteMonitor
+    {
+        private int batches;
+        private int updates;
+        private int changes;
+        private int merges;
+
+        @Override
+        public void batchApplied( int updates, int changes, int merges )
+        {
+            this.batches++;
+            this.updates += updates;
+            this.changes += changes;
+            this.merges += merges;
+        }
+    }
+
     private static class ControlledInserter implements Writer<LabelScanKey,LabelScanValue>
     {
         private final Map<Integer,Map<LabelScanKey,LabelScanValue>> data = new HashMap<>();
+        private int merges;
 
         @Override
         public void close() throws IOException
@@ -143,6 +238,7 @@ public class NativeLabelScanWriterTest
         public void merge( LabelScanKey key, LabelScanValue value, ValueMerger<LabelScanValue> amender )
                 throws IOException
         {
+            merges++;
             // Clone since these instances are reused between calls, internally in the writer
             key = clone( key );
             value = clone( value );
@@ -162,9 +258,7 @@ public class NativeLabelScanWriterTest
 
         private static LabelScanValue clone( LabelScanValue value )
         {
-            LabelScanValue result = new LabelScanValue();
-            result.bits = value.bits;
-            return result;
+            return new LabelScanValue().copyFrom( value );
         }
 
         private static LabelScanKey clone( LabelScanKey key )
@@ -178,6 +272,11 @@ public class NativeLabelScanWriterTest
             throw new UnsupportedOperationException( "Should not be called" );
         }
 
+        LabelScanValue value( int labelId, long idRange )
+        {
+            return data.get( labelId ).get( new LabelScanKey( labelId, idRange ) );
+        }
+
         @SuppressWarnings( "unchecked" )
         RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> nodesFor( int labelId )
         {
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PreexistingIndexEntryConflictException;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.index.IndexUpdateMode;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.storageengine.api.schema.IndexSample;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.TestDirectory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.rules.RuleChain.outerRule;
+
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
+
+public class NativeSchemaIndexProviderTest
+{
+    private static final long INDEX_ID = 1;
+    private static final int PROPERTY_KEY_ID = 2;
+    private static final long[] LABELS = {3};
+    private static final String LONG_STRING = "a string which is too long to fit in a native index key";
+
+    private final TestDirectory directory = TestDirectory.testDirectory( getClass() );
+    private final PageCacheRule pageCacheRule = new PageCacheRule();
+    @Rule
+    public final RuleChain rules = outerRule( directory ).around( pageCacheRule );
+
+    private final FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+    private final IndexSamplingConfig samplingConfig = new IndexSamplingConfig( Config.empty() );
+    private final IndexDescriptor descriptor = new IndexDescriptor( (int) LABELS[0], PROPERTY_KEY_ID );
+    private NativeSchemaIndexProvider provider;
+
+    @Before
+    public void before()
+    {
+        PageCache pageCache = pageCacheRule.getPageCache( fs );
+        provider = new NativeSchemaIndexProvider( pageCache, fs, directory.absolutePath() );
+    }
+
+    @Test
+    public void shouldSupportNumbersAndShortStringsOnly() throws Exception
+    {
+        assertEquals( true, NativeSchemaIndexProvider.supportsValue( 10 ) );
+        assertEquals( true, NativeSchemaIndexProvider.supportsValue( 1.5d ) );
+        assertEquals( true, NativeSchemaIndexProvider.supportsValue( "short" ) );
+        assertEquals( false, NativeSchemaIndexProvider.supportsValue( LONG_STRING ) );
+        assertEquals( false, NativeSchemaIndexProvider.supportsValue( true ) );
+        assertEquals( false, NativeSchemaIndexProvider.supportsValue( new long[]{1} ) );
+    }
+
+    @Test
+    public void shouldPopulateAndQueryIndex() throws Exception
+    {
+        // GIVEN
+        Object[] values = {5, 3.5d, -10L, 5, "b", "abc", "abd", "", "ab", 100};
+        populate( IndexConfiguration.NON_UNIQUE, values );
+
+        // WHEN
+        assertEquals( InternalIndexState.ONLINE, provider.getInitialState( INDEX_ID ) );
+        try ( IndexAccessor accessor = provider.getOnlineAccessor( INDEX_ID, IndexConfiguration.NON_UNIQUE,
+                samplingConfig );
+              IndexReader reader = accessor.newReader() )
+        {
+            // THEN
+            assertNodes( reader.seek( 5 ), 0, 3 );
+            assertNodes( reader.seek( 5.0d ), 0, 3 );
+            assertNodes( reader.seek( "abc" ), 5 );
+            assertNodes( reader.seek( LONG_STRING ) );
+            assertNodes( reader.rangeSeekByNumberInclusive( 3.5, 5 ), 0, 1, 3 );
+            assertNodes( reader.rangeSeekByNumberInclusive( null, 0 ), 2 );
+            assertNodes( reader.rangeSeekByNumberInclusive( 6, null ), 9 );
+            assertNodes( reader.rangeSeekByString( "ab", true, "b", false ), 5, 6, 8 );
+            assertNodes( reader.rangeSeekByString( "ab", false, "b", true ), 4, 5, 6 );
+            assertNodes( reader.rangeSeekByString( null, true, "ab", true ), 7, 8 );
+            assertNodes( reader.rangeSeekByString( "abc" + LONG_STRING, true, null, true ), 4, 6 );
+            assertNodes( reader.rangeSeekByString( null, true, "abc" + LONG_STRING, true ), 5, 7, 8 );
+            assertNodes( reader.rangeSeekByPrefix( "ab" ), 5, 6, 8 );
+            assertNodes( reader.rangeSeekByPrefix( "" ), 4, 5, 6, 7, 8 );
+            assertNodes( reader.containsString( "b" ), 4, 5, 6, 8 );
+            assertNodes( reader.endsWith( "d" ), 6 );
+            assertNodes( reader.scan(), 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 );
+            assertEquals( 1, reader.countIndexedNodes( 3, 5 ) );
+            assertEquals( 0, reader.countIndexedNodes( 4, 5 ) );
+            assertEquals( new IndexSample( 10, 9, 10 ), reader.createSampler().sampleIndex() );
+        }
+    }
+
+    @Test
+    public void shouldApplyUpdatesToOnlineIndex() throws Exception
+    {
+        // GIVEN
+        populate( IndexConfiguration.NON_UNIQUE, 1, 2, "three" );
+
+        try ( IndexAccessor accessor = provider.getOnlineAccessor( INDEX_ID, IndexConfiguration.NON_UNIQUE,
+                samplingConfig ) )
+        {
+            // WHEN
+            try ( IndexUpdater updater = accessor.newUpdater( IndexUpdateMode.ONLINE ) )
+            {
+                updater.process( NodePropertyUpdate.change( 0, PROPERTY_KEY_ID, 1, LABELS, "one", LABELS ) );
+                updater.process( NodePropertyUpdate.remove( 1, PROPERTY_KEY_ID, 2, LABELS ) );
+                updater.process( NodePropertyUpdate.add( 3, PROPERTY_KEY_ID, 4, LABELS ) );
+            }
+
+            // THEN
+            try ( IndexReader reader = accessor.newReader() )
+            {
+                assertNodes( reader.seek( 1 ) );
+                assertNodes( reader.seek( "one" ), 0 );
+                assertNodes( reader.seek( 2 ) );
+                assertNodes( reader.rangeSeekByNumberInclusive( null, null ), 3 );
+                assertNodes( reader.scan(), 0, 2, 3 );
+            }
+        }
+    }
+
+    @Test
+    public void shouldFailPopulationOfUniqueIndexWithDuplicateValues() throws Exception
+    {
+        // GIVEN
+        Object[] values = {"a", 1L << 60, "b", (1L << 60) + 1, "a"};
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, descriptor, IndexConfiguration.UNIQUE,
+                samplingConfig );
+        populator.create();
+        populator.add( updates( values ) );
+
+        // WHEN
+        try
+        {
+            populator.verifyDeferredConstraints( accessor( values ) );
+            fail( "Should have failed" );
+        }
+        catch ( PreexistingIndexEntryConflictException e )
+        {
+            // THEN numbers converting to the same double are not in conflict, equal strings are
+            assertEquals( "a", e.getPropertyValue() );
+            assertEquals( 0, e.getExistingNodeId() );
+            assertEquals( 4, e.getAddedNodeId() );
+        }
+        populator.markAsFailed( "Duplicates" );
+        populator.close( false );
+        assertEquals( InternalIndexState.FAILED, provider.getInitialState( INDEX_ID ) );
+        assertEquals( "Duplicates", provider.getPopulationFailure( INDEX_ID ) );
+    }
+
+    @Test
+    public void shouldBePopulatingUntilPopulationCompleted() throws Exception
+    {
+        // GIVEN
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, descriptor, IndexConfiguration.NON_UNIQUE,
+                samplingConfig );
+        populator.create();
+        populator.add( updates( 1, 2 ) );
+
+        // WHEN
+        InternalIndexState state = provider.getInitialState( INDEX_ID );
+        populator.close( true );
+
+        // THEN
+        assertEquals( InternalIndexState.POPULATING, state );
+        assertEquals( InternalIndexState.ONLINE, provider.getInitialState( INDEX_ID ) );
+    }
+
+    private void populate( IndexConfiguration config, Object... values )
+            throws IOException, IndexEntryConflictException
+    {
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, descriptor, config, samplingConfig );
+        populator.create();
+        populator.add( updates( values ) );
+        populator.verifyDeferredConstraints( accessor( values ) );
+        populator.close( true );
+    }
+
+    private static List<NodePropertyUpdate> updates( Object... values )
+    {
+        List<NodePropertyUpdate> updates = new ArrayList<>();
+        for ( int nodeId = 0; nodeId < values.length; nodeId++ )
+        {
+            updates.add( NodePropertyUpdate.add( nodeId, PROPERTY_KEY_ID, values[nodeId], LABELS ) );
+        }
+        return updates;
+    }
+
+    private static PropertyAccessor accessor( Object[] values )
+    {
+        return ( nodeId, propertyKeyId ) -> Property.property( propertyKeyId, values[(int) nodeId] );
+    }
+
+    private static void assertNodes( PrimitiveLongIterator result, long... expected )
+    {
+        long[] actual = asArray( result );
+        Arrays.sort( actual );
+        assertArrayEquals( expected, actual );
+    }
+}
@@ -23,8 +23,15 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.file.StandardOpenOption;
+
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.impl.CompressingPageSwapper;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.logging.AssertableLogProvider;
@@ -35,7 +42,11 @@ import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_compressed_files;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_swapper;
 import static org.neo4j.helpers.collection.MapUtil.stringMap;
@@ -96,6 +107,40 @@ public class ConfiguringPageCacheFactoryTest
         logProvider.assertContainsMessageContaining( TEST_PAGESWAPPER_NAME );
     }
 
+    @Test
+    public void mustCompressConfiguredFiles() throws Exception
+    {
+        // Given
+        Config config = Config.embeddedDefaults( stringMap(
+                pagecache_memory.name(), "8m",
+                pagecache_compressed_files.name(), "compressed" ) );
+        FileSystemAbstraction fs = fsRule.get();
+        File compressed = new File( "compressed" ).getCanonicalFile();
+        File plain = new File( "plain" ).getCanonicalFile();
+        fs.mkdirs( compressed.getParentFile() );
+
+        // When
+        ConfiguringPageCacheFactory factory = new ConfiguringPageCacheFactory(
+                fs, config, PageCacheTracer.NULL, NullLog.getInstance() );
+        try ( PageCache cache = factory.getOrCreatePageCache() )
+        {
+            for ( File file : new File[]{compressed, plain} )
+            {
+                try ( PagedFile pagedFile = cache.map( file, cache.pageSize(), StandardOpenOption.CREATE );
+                      PageCursor cursor = pagedFile.io( 0, PagedFile.PF_SHARED_WRITE_LOCK ) )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( 42 );
+                }
+            }
+        }
+
+        // Then
+        assertTrue( fs.fileExists( CompressingPageSwapper.mappingFile( compressed ) ) );
+        assertFalse( fs.fileExists( CompressingPageSwapper.mappingFile( plain ) ) );
+        assertThat( fs.getFileSize( compressed ), lessThan( fs.getFileSize( plain ) ) );
+    }
+
     @Test( expected = IllegalArgumentException.class )
     public void mustThrowIfConfiguredPageSwapperCannotBeFound() throws Exception
     {
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import org.neo4j.io.pagecache.PageReservation;
+import org.neo4j.kernel.configuration.Config;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_reservations;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+public class PageCacheReservationsTest
+{
+    @Test
+    public void shouldHaveNoReservationsByDefault() throws Exception
+    {
+        Config config = Config.embeddedDefaults();
+
+        assertTrue( PageCacheReservations.reservations( config ).isEmpty() );
+        OpenOption[] openOptions = {StandardOpenOption.CREATE};
+        assertThat( PageCacheReservations.withReservation( config, new File( "store" ), openOptions ),
+                is( openOptions ) );
+    }
+
+    @Test
+    public void shouldParseConfiguredReservations() throws Exception
+    {
+        Config config = Config.embeddedDefaults( stringMap( pagecache_reservations.name(),
+                "neostore.relationshipstore.db:0.4, neostore.nodestore.db:0.2" ) );
+
+        Map<String,Double> reservations = PageCacheReservations.reservations( config );
+
+        assertThat( reservations.size(), is( 2 ) );
+        assertThat( reservations.get( "neostore.relationshipstore.db" ), is( 0.4 ) );
+        assertThat( reservations.get( "neostore.nodestore.db" ), is( 0.2 ) );
+    }
+
+    @Test
+    public void shouldAddReservationToOpenOptionsOfReservedFile() throws Exception
+    {
+        Config config = Config.embeddedDefaults( stringMap( pagecache_reservations.name(),
+                "neostore.relationshipstore.db:0.4" ) );
+
+        OpenOption[] openOptions = PageCacheReservations.withReservation( config,
+                new File( "graph.db", "neostore.relationshipstore.db" ), new OpenOption[]{StandardOpenOption.CREATE} );
+
+        assertThat( openOptions, arrayContaining( StandardOpenOption.CREATE, PageReservation.ratio( 0.4 ) ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldRejectMalformedReservation() throws Exception
+    {
+        Config config = Config.embeddedDefaults( stringMap( pagecache_reservations.name(),
+                "neostore.relationshipstore.db" ) );
+
+        PageCacheReservations.reservations( config );
+    }
+}
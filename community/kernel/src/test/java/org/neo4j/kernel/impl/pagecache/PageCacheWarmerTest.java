@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCacheWarmup;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.impl.muninn.StandalonePageCacheFactory;
+import org.neo4j.kernel.impl.util.Neo4jJobScheduler;
+import org.neo4j.logging.NullLog;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+public class PageCacheWarmerTest
+{
+    @Rule
+    public final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+
+    private final File storeDir = new File( "graph.db" );
+    private final File storeFile = new File( storeDir, "neostore.nodestore.db" );
+    private final File profileFile = new File( storeDir, storeFile.getName() + PageCacheWarmer.SUFFIX_CACHEPROF );
+    private final Neo4jJobScheduler scheduler = new Neo4jJobScheduler();
+    private EphemeralFileSystemAbstraction fs;
+
+    @Before
+    public void setUp() throws Throwable
+    {
+        fs = fsRule.get();
+        fs.mkdirs( storeDir );
+        scheduler.init();
+        scheduler.start();
+    }
+
+    @After
+    public void tearDown() throws Throwable
+    {
+        scheduler.stop();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void shouldNotWriteProfileBeforeWarmupHasCompleted() throws Throwable
+    {
+        try ( PageCache pageCache = StandalonePageCacheFactory.createPageCache( fs );
+              PagedFile ignore = pageCache.map( storeFile, pageCache.pageSize(), CREATE ) )
+        {
+            PageCacheWarmer warmer = new PageCacheWarmer( fs, pageCache, scheduler, storeDir, 1,
+                    new PageCacheWarmer.Monitor()
+                    {
+                    }, NullLog.getInstance() );
+            // Stopping before the warmup job gets to run
+            warmer.stop();
+
+            assertFalse( fs.fileExists( profileFile ) );
+        }
+    }
+
+    @Test( timeout = 60_000 )
+    public void shouldWarmUpPagesFromProfileWrittenByPreviousRun() throws Throwable
+    {
+        try ( PageCache pageCache = StandalonePageCacheFactory.createPageCache( fs );
+              PagedFile pagedFile = pageCache.map( storeFile, pageCache.pageSize(), CREATE ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( long pageId = 0; pageId < 20; pageId++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( pageId );
+                }
+            }
+            pagedFile.flushAndForce();
+        }
+
+        try ( PageCache pageCache = StandalonePageCacheFactory.createPageCache( fs );
+              PagedFile pagedFile = pageCache.map( storeFile, pageCache.pageSize() ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                for ( long pageId : new long[]{1, 3, 4, 5, 17} )
+                {
+                    assertTrue( cursor.next( pageId ) );
+                }
+            }
+            RecordingMonitor monitor = new RecordingMonitor();
+            PageCacheWarmer warmer = startWarmer( pageCache, monitor );
+            monitor.warmupCompleted.await();
+            warmer.stop();
+            assertThat( monitor.pagesInProfile.get(), is( 5L ) );
+        }
+        assertTrue( fs.fileExists( profileFile ) );
+
+        try ( PageCache pageCache = StandalonePageCacheFactory.createPageCache( fs );
+              PagedFile pagedFile = pageCache.map( storeFile, pageCache.pageSize() ) )
+        {
+            RecordingMonitor monitor = new RecordingMonitor();
+            PageCacheWarmer warmer = startWarmer( pageCache, monitor );
+            monitor.warmupCompleted.await();
+            warmer.stop();
+
+            assertThat( monitor.pagesLoaded.get(), is( 5L ) );
+            assertThat( monitor.progress, is( Arrays.asList( storeFile.getName() + ":5" ) ) );
+            List<Long> residentPages = new ArrayList<>();
+            ((PageCacheWarmup) pageCache).visitResidentPages( pagedFile, residentPages::add );
+            assertThat( residentPages, is( Arrays.asList( 1L, 3L, 4L, 5L, 17L ) ) );
+            try ( PageCursor cursor = pagedFile.io( 17, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                assertThat( cursor.getLong(), is( 17L ) );
+            }
+        }
+    }
+
+    private PageCacheWarmer startWarmer( PageCache pageCache, RecordingMonitor monitor ) throws Throwable
+    {
+        PageCacheWarmer warmer = new PageCacheWarmer( fs, pageCache, scheduler, storeDir,
+                TimeUnit.MINUTES.toMillis( 1 ), monitor, NullLog.getInstance() );
+        warmer.start();
+        return warmer;
+    }
+
+    private static class RecordingMonitor implements PageCacheWarmer.Monitor
+    {
+        final CountDownLatch warmupCompleted = new CountDownLatch( 1 );
+        final AtomicLong pagesLoaded = new AtomicLong();
+        final AtomicLong pagesInProfile = new AtomicLong();
+        final List<String> progress = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void warmupProgress( File storeFile, long pagesLoaded )
+        {
+            progress.add( storeFile.getName() + ":" + pagesLoaded );
+        }
+
+        @Override
+        public void warmupCompleted( long pagesLoaded, long elapsedMillis )
+        {
+            this.pagesLoaded.set( pagesLoaded );
+            warmupCompleted.countDown();
+        }
+
+        @Override
+        public void profileCompleted( long pagesInProfile, long elapsedMillis )
+        {
+            this.pagesInProfile.set( pagesInProfile );
+        }
+    }
+}
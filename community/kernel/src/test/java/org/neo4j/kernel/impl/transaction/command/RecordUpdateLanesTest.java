@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.neo4j.kernel.impl.api.TransactionApplier;
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.storageengine.api.CommandsToApply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class RecordUpdateLanesTest
+{
+    private static final int RECORDS_PER_PAGE = 546;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( 3 );
+    @SuppressWarnings( "unchecked" )
+    private final RecordStore<NodeRecord> store = mock( RecordStore.class );
+
+    @Before
+    public void stubRecordsPerPage()
+    {
+        when( store.getRecordsPerPage() ).thenReturn( RECORDS_PER_PAGE );
+    }
+
+    @After
+    public void shutdownExecutor()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldWriteAllRecordsWhenTransactionApplierIsClosed() throws Exception
+    {
+        // GIVEN
+        RecordUpdateLanes lanes = new RecordUpdateLanes( executor, 4 );
+        NodeRecord[] records = nodes( 1_000 );
+
+        // WHEN
+        try ( TransactionApplier txApplier = lanes.startTx( mock( CommandsToApply.class ) ) )
+        {
+            for ( NodeRecord record : records )
+            {
+                lanes.update( store, record );
+            }
+            verify( store, never() ).updateRecord( any() );
+        }
+
+        // THEN
+        for ( NodeRecord record : records )
+        {
+            verify( store ).updateRecord( record );
+        }
+    }
+
+    @Test
+    public void shouldWriteSmallTransactionsOnCommittingThread() throws Exception
+    {
+        // GIVEN
+        ExecutorService unusedExecutor = mock( ExecutorService.class );
+        RecordUpdateLanes lanes = new RecordUpdateLanes( unusedExecutor, 4 );
+        NodeRecord[] records = nodes( RecordUpdateLanes.PARALLEL_THRESHOLD - 1 );
+
+        // WHEN
+        try ( TransactionApplier txApplier = lanes.startTx( mock( CommandsToApply.class ) ) )
+        {
+            for ( NodeRecord record : records )
+            {
+                lanes.update( store, record );
+            }
+        }
+
+        // THEN
+        verify( store, times( records.length ) ).updateRecord( any() );
+        verifyZeroInteractions( unusedExecutor );
+    }
+
+    @Test
+    public void shouldOnlyWriteRecordsOfTheClosedTransaction() throws Exception
+    {
+        // GIVEN
+        RecordUpdateLanes lanes = new RecordUpdateLanes( executor, 4 );
+        NodeRecord[] records = nodes( 200 );
+        try ( TransactionApplier txApplier = lanes.startTx( mock( CommandsToApply.class ) ) )
+        {
+            for ( NodeRecord record : records )
+            {
+                lanes.update( store, record );
+            }
+        }
+
+        // WHEN
+        try ( TransactionApplier txApplier = lanes.startTx( mock( CommandsToApply.class ) ) )
+        {
+            lanes.update( store, records[0] );
+        }
+
+        // THEN
+        verify( store, times( 2 ) ).updateRecord( records[0] );
+        verify( store, times( records.length + 1 ) ).updateRecord( any() );
+    }
+
+    @Test
+    public void shouldWriteAllRecordsOfAPageInTheSameLane() throws Exception
+    {
+        // GIVEN
+        RecordUpdateLanes lanes = new RecordUpdateLanes( executor, 4 );
+        NodeRecord[] records = nodes( RECORDS_PER_PAGE * 8 );
+        Map<Long,Thread> writingThreads = new ConcurrentHashMap<>();
+        doAnswer( invocation ->
+        {
+            NodeRecord record = (NodeRecord) invocation.getArguments()[0];
+            writingThreads.put( record.getId(), Thread.currentThread() );
+            return null;
+        } ).when( store ).updateRecord( any() );
+
+        // WHEN
+        try ( TransactionApplier txApplier = lanes.startTx( mock( CommandsToApply.class ) ) )
+        {
+            for ( NodeRecord record : records )
+            {
+                lanes.update( store, record );
+            }
+        }
+
+        // THEN
+        assertEquals( records.length, writingThreads.size() );
+        for ( NodeRecord record : records )
+        {
+            long firstRecordInPage = record.getId() - record.getId() % RECORDS_PER_PAGE;
+            assertSame( writingThreads.get( firstRecordInPage ), writingThreads.get( record.getId() ) );
+        }
+    }
+
+    @Test
+    public void shouldPropagateFailureFromLane() throws Exception
+    {
+        // GIVEN
+        RecordUpdateLanes lanes = new RecordUpdateLanes( executor, 4 );
+        NodeRecord[] records = nodes( 1_000 );
+        UnderlyingStorageException failure = new UnderlyingStorageException( "Failed" );
+        doThrow( failure ).when( store ).updateRecord( records[500] );
+
+        // WHEN
+        TransactionApplier txApplier = lanes.startTx( mock( CommandsToApply.class ) );
+        for ( NodeRecord record : records )
+        {
+            lanes.update( store, record );
+        }
+        try
+        {
+            txApplier.close();
+            fail( "Should have failed" );
+        }
+        catch ( UnderlyingStorageException e )
+        {
+            // THEN
+            assertSame( failure, e );
+        }
+    }
+
+    private static NodeRecord[] nodes( int count )
+    {
+        NodeRecord[] records = new NodeRecord[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            records[i] = new NodeRecord( i ).initialize( true, -1, false, -1, 0 );
+        }
+        return records;
+    }
+}
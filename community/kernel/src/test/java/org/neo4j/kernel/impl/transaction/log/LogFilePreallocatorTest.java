@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.transaction.DeadSimpleLogVersionRepository;
+import org.neo4j.kernel.impl.transaction.DeadSimpleTransactionIdStore;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
+import org.neo4j.kernel.impl.transaction.log.entry.LogHeader;
+import org.neo4j.kernel.lifecycle.LifeSupport;
+import org.neo4j.logging.NullLog;
+import org.neo4j.test.OnDemandJobScheduler;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.kernel.impl.transaction.log.TransactionIdStore.BASE_TX_COMMIT_TIMESTAMP;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderReader.readLogHeader;
+
+public class LogFilePreallocatorTest
+{
+    private static final long SIZE = 10_000;
+
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory();
+    @Rule
+    public final DefaultFileSystemRule fileSystemRule = new DefaultFileSystemRule();
+    private final OnDemandJobScheduler scheduler = new OnDemandJobScheduler();
+    private final LogVersionRepository logVersionRepository = new DeadSimpleLogVersionRepository( 1L );
+    private final TransactionIdStore transactionIdStore =
+            new DeadSimpleTransactionIdStore( 5L, 0, BASE_TX_COMMIT_TIMESTAMP, 0, 0 );
+
+    @Test
+    public void shouldPrepareSpareFileInTheBackground() throws Exception
+    {
+        // GIVEN
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LogFilePreallocator preallocator = preallocator( fs, logFiles );
+
+        // WHEN
+        preallocator.prepareAhead();
+
+        // THEN
+        assertFalse( fs.fileExists( logFiles.getSpareLogFile() ) );
+        scheduler.runJob();
+        assertZeroFilled( fs, logFiles.getSpareLogFile() );
+    }
+
+    @Test
+    public void shouldRotateIntoPreparedSpareFile() throws Exception
+    {
+        // GIVEN
+        LifeSupport life = new LifeSupport();
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LogFile logFile = life.add( physicalLogFile( fs, logFiles, preallocator( fs, logFiles ) ) );
+        life.start();
+        try
+        {
+            scheduler.runJob();
+            FlushablePositionAwareChannel writer = logFile.getWriter();
+            writer.putLong( 123 );
+
+            // WHEN
+            logFile.rotate();
+            writer.putLong( 456 );
+            writer.prepareForFlush().flush();
+
+            // THEN
+            assertEquals( LOG_HEADER_SIZE + 8, fs.getFileSize( logFiles.getLogFileForVersion( 1 ) ) );
+            File rotatedInto = logFiles.getLogFileForVersion( 2 );
+            assertEquals( SIZE, fs.getFileSize( rotatedInto ) );
+            assertFalse( fs.fileExists( logFiles.getSpareLogFile() ) );
+            LogHeader header = readLogHeader( fs, rotatedInto );
+            assertEquals( 2, header.logVersion );
+            assertEquals( 5, header.lastCommittedTxId );
+            try ( ReadableClosableChannel reader = logFile.getReader( LogPosition.start( 1 ) ) )
+            {
+                assertEquals( 123, reader.getLong() );
+                assertEquals( 456, reader.getLong() );
+            }
+
+            // and the next spare file is prepared after rotation
+            scheduler.runJob();
+            assertZeroFilled( fs, logFiles.getSpareLogFile() );
+        }
+        finally
+        {
+            life.shutdown();
+        }
+        assertEquals( LOG_HEADER_SIZE + 8, fs.getFileSize( logFiles.getLogFileForVersion( 2 ) ) );
+    }
+
+    @Test
+    public void shouldNotReportEntriesInPreallocatedLogWithoutEntries() throws Exception
+    {
+        // GIVEN a preallocated current log with no entries in it yet
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LifeSupport life = new LifeSupport();
+        LogFile logFile = life.add( physicalLogFile( fs, logFiles, preallocator( fs, logFiles ) ) );
+        life.start();
+        try
+        {
+            scheduler.runJob();
+            logFile.rotate();
+
+            // THEN
+            assertEquals( SIZE, fs.getFileSize( logFiles.getLogFileForVersion( 2 ) ) );
+            assertFalse( logFiles.hasAnyEntries( 2 ) );
+
+            // and WHEN
+            FlushablePositionAwareChannel writer = logFile.getWriter();
+            new LogEntryWriter( writer ).writeCheckPointEntry( new LogPosition( 2, LOG_HEADER_SIZE ) );
+            writer.prepareForFlush().flush();
+
+            // THEN
+            assertTrue( logFiles.hasAnyEntries( 2 ) );
+        }
+        finally
+        {
+            life.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldContinueAfterLastEntryWhenStartingOnPreallocatedLog() throws Exception
+    {
+        // GIVEN a preallocated log with an entry in it, left as is without shutting down
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LifeSupport life = new LifeSupport();
+        LogFile logFile = life.add( physicalLogFile( fs, logFiles, preallocator( fs, logFiles ) ) );
+        life.start();
+        scheduler.runJob();
+        logFile.rotate();
+        FlushablePositionAwareChannel writer = logFile.getWriter();
+        new LogEntryWriter( writer ).writeCheckPointEntry( new LogPosition( 2, LOG_HEADER_SIZE ) );
+        writer.prepareForFlush().flush();
+        LogPositionMarker endOfEntry = new LogPositionMarker();
+        writer.getCurrentPosition( endOfEntry );
+
+        // WHEN
+        LifeSupport restartedLife = new LifeSupport();
+        LogFile restartedLogFile = restartedLife.add( physicalLogFile( fs, logFiles, null ) );
+        restartedLife.start();
+        try
+        {
+            // THEN
+            LogPositionMarker position = new LogPositionMarker();
+            restartedLogFile.getWriter().getCurrentPosition( position );
+            assertEquals( endOfEntry.newPosition(), position.newPosition() );
+        }
+        finally
+        {
+            restartedLife.shutdown();
+            life.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRecyclePrunedFileOnlyIfThereIsNoSpareFile() throws Exception
+    {
+        // GIVEN
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LogFilePreallocator preallocator = preallocator( fs, logFiles );
+        File pruned = logFiles.getLogFileForVersion( 0 );
+        File otherPruned = logFiles.getLogFileForVersion( 1 );
+        writeOnes( fs, pruned, SIZE * 2 );
+        writeOnes( fs, otherPruned, 100 );
+
+        // WHEN
+        boolean recycled = preallocator.recycle( pruned );
+        boolean otherRecycled = preallocator.recycle( otherPruned );
+
+        // THEN
+        assertTrue( recycled );
+        assertFalse( fs.fileExists( pruned ) );
+        assertFalse( otherRecycled );
+        assertTrue( fs.fileExists( otherPruned ) );
+        scheduler.runJob();
+        assertZeroFilled( fs, logFiles.getSpareLogFile() );
+    }
+
+    @Test
+    public void shouldNotRewriteSpareFileOfRotationSizeWhenRestarted() throws Exception
+    {
+        // GIVEN a spare file of the rotation size left behind by a previous run, marked so that rewrites show
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        LogFilePreallocator previous = preallocator( fs, logFiles );
+        previous.prepareAhead();
+        scheduler.runJob();
+        writeOnes( fs, logFiles.getSpareLogFile(), SIZE );
+
+        // WHEN
+        LogFilePreallocator preallocator = preallocator( fs, logFiles );
+        preallocator.prepareAhead();
+        scheduler.runJob();
+
+        // THEN
+        assertEquals( SIZE, fs.getFileSize( logFiles.getSpareLogFile() ) );
+        try ( StoreChannel channel = fs.open( logFiles.getSpareLogFile(), "r" ) )
+        {
+            ByteBuffer firstByte = ByteBuffer.allocate( 1 );
+            channel.read( firstByte, SIZE - 1 );
+            assertEquals( 1, firstByte.get( 0 ) );
+        }
+        assertTrue( preallocator.claim( logFiles.getLogFileForVersion( 3 ), 3, 5 ) );
+    }
+
+    @Test
+    public void shouldPrepareSpareFileOfOtherSizeWhenRestarted() throws Exception
+    {
+        // GIVEN
+        FileSystemAbstraction fs = fileSystemRule.get();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fs );
+        writeOnes( fs, logFiles.getSpareLogFile(), SIZE / 2 );
+
+        // WHEN
+        LogFilePreallocator preallocator = preallocator( fs, logFiles );
+        preallocator.prepareAhead();
+        scheduler.runJob();
+
+        // THEN
+        assertZeroFilled( fs, logFiles.getSpareLogFile() );
+    }
+
+    private LogFilePreallocator preallocator( FileSystemAbstraction fs, PhysicalLogFiles logFiles )
+    {
+        return new LogFilePreallocator( fs, logFiles, SIZE, scheduler, NullLog.getInstance() );
+    }
+
+    private PhysicalLogFile physicalLogFile( FileSystemAbstraction fs, PhysicalLogFiles logFiles,
+            LogFilePreallocator preallocator )
+    {
+        return new PhysicalLogFile( fs, logFiles, SIZE, transactionIdStore::getLastCommittedTransactionId,
+                logVersionRepository, new PhysicalLogFile.Monitor.Adapter(), new LogHeaderCache( 10 ), preallocator );
+    }
+
+    private static void writeOnes( FileSystemAbstraction fs, File file, long size ) throws IOException
+    {
+        try ( StoreChannel channel = fs.open( file, "rw" ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( (int) size );
+            while ( buffer.hasRemaining() )
+            {
+                buffer.put( (byte) 1 );
+            }
+            buffer.flip();
+            channel.writeAll( buffer );
+        }
+    }
+
+    private static void assertZeroFilled( FileSystemAbstraction fs, File file ) throws IOException
+    {
+        assertEquals( SIZE, fs.getFileSize( file ) );
+        try ( StoreChannel channel = fs.open( file, "r" ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( (int) SIZE );
+            while ( buffer.hasRemaining() && channel.read( buffer ) != -1 )
+            {
+                // read all of it
+            }
+            buffer.flip();
+            while ( buffer.hasRemaining() )
+            {
+                assertEquals( 0, buffer.get() );
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadAheadTransactionCursorTest
+{
+    @Test
+    public void shouldReturnAllTransactionsWithTheirPositions() throws Exception
+    {
+        // GIVEN
+        CommittedTransactionRepresentation[] transactions = transactions( 100 );
+        SourceCursor source = new SourceCursor( transactions, null );
+
+        // WHEN
+        try ( ReadAheadTransactionCursor cursor = new ReadAheadTransactionCursor( source, 5 ) )
+        {
+            // THEN
+            for ( int i = 0; i < transactions.length; i++ )
+            {
+                assertTrue( cursor.next() );
+                assertSame( transactions[i], cursor.get() );
+                assertEquals( positionAfter( i ), cursor.position() );
+            }
+            assertFalse( cursor.next() );
+            assertEquals( positionAfter( transactions.length ), cursor.position() );
+            assertFalse( cursor.next() );
+        }
+        assertTrue( source.closed.get() );
+    }
+
+    @Test
+    public void shouldPropagateFailureAfterTransactionsReadBeforeIt() throws Exception
+    {
+        // GIVEN
+        CommittedTransactionRepresentation[] transactions = transactions( 3 );
+        IOException failure = new IOException( "Broken log" );
+
+        try ( ReadAheadTransactionCursor cursor =
+                new ReadAheadTransactionCursor( new SourceCursor( transactions, failure ), 10 ) )
+        {
+            for ( CommittedTransactionRepresentation transaction : transactions )
+            {
+                assertTrue( cursor.next() );
+                assertSame( transaction, cursor.get() );
+            }
+
+            // WHEN
+            try
+            {
+                cursor.next();
+                fail( "Should have failed" );
+            }
+            catch ( IOException e )
+            {
+                // THEN
+                assertSame( failure, e );
+            }
+        }
+    }
+
+    @Test( timeout = 10_000 )
+    public void shouldStopReadingAheadWhenClosedBeforeReachingTheEnd() throws Exception
+    {
+        // GIVEN
+        SourceCursor source = new SourceCursor( transactions( 1_000 ), null );
+        ReadAheadTransactionCursor cursor = new ReadAheadTransactionCursor( source, 2 );
+        assertTrue( cursor.next() );
+
+        // WHEN
+        cursor.close();
+
+        // THEN
+        assertTrue( source.closed.get() );
+        assertTrue( source.index < 1_000 );
+    }
+
+    private static CommittedTransactionRepresentation[] transactions( int count )
+    {
+        CommittedTransactionRepresentation[] transactions = new CommittedTransactionRepresentation[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            transactions[i] = new CommittedTransactionRepresentation( null, null, null );
+        }
+        return transactions;
+    }
+
+    private static LogPosition positionAfter( int transactions )
+    {
+        return new LogPosition( 0, 100 * (transactions + 1) );
+    }
+
+    private static class SourceCursor implements TransactionCursor
+    {
+        private final CommittedTransactionRepresentation[] transactions;
+        private final IOException failure;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile int index = -1;
+
+        SourceCursor( CommittedTransactionRepresentation[] transactions, IOException failure )
+        {
+            this.transactions = transactions;
+            this.failure = failure;
+        }
+
+        @Override
+        public boolean next() throws IOException
+        {
+            if ( index + 1 < transactions.length )
+            {
+                index++;
+                return true;
+            }
+            if ( failure != null )
+            {
+                throw failure;
+            }
+            index = transactions.length;
+            return false;
+        }
+
+        @Override
+        public CommittedTransactionRepresentation get()
+        {
+            return transactions[index];
+        }
+
+        @Override
+        public LogPosition position()
+        {
+            return positionAfter( index );
+        }
+
+        @Override
+        public void close()
+        {
+            closed.set( true );
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.command.Command;
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosablePositionAwareChannel;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LogEntryWriterTest
+{
+    private final LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader =
+            new VersionAwareLogEntryReader<>();
+
+    @Test
+    public void shouldWriteLargeCommandsCompressed() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+        LogEntryWriter writer = new LogEntryWriter( channel, true );
+        Command.NodeCommand command = nodeCommandWithLabelData( 10, 4_000 );
+
+        // when
+        writer.serialize( singletonList( command ) );
+
+        // then
+        assertTrue( "Expected entry to be smaller than the command itself",
+                channel.writerPosition() < serializedSize( command ) );
+        LogEntry entry = logEntryReader.readLogEntry( channel );
+        assertEquals( LogEntryVersion.COMPRESSED, entry.getVersion() );
+        assertSameCommand( command, entry );
+        assertNull( logEntryReader.readLogEntry( channel ) );
+    }
+
+    @Test
+    public void shouldWriteSmallCommandsUncompressed() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        LogEntryWriter writer = new LogEntryWriter( channel, true );
+        Command.NodeCommand command = new Command.NodeCommand( new NodeRecord( 11 ), new NodeRecord( 11 ) );
+
+        // when
+        writer.serialize( singletonList( command ) );
+
+        // then
+        assertEquals( 2 + serializedSize( command ), channel.writerPosition() );
+        LogEntry entry = logEntryReader.readLogEntry( channel );
+        assertEquals( LogEntryVersion.CURRENT, entry.getVersion() );
+        assertEquals( new LogEntryCommand( LogEntryVersion.CURRENT, command ), entry );
+    }
+
+    @Test
+    public void shouldWriteCommandsLargerThanScratchBuffer() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+        LogEntryWriter writer = new LogEntryWriter( channel, true );
+        List<StorageCommand> commands = new ArrayList<>();
+        commands.add( nodeCommandWithLabelData( 1, 200 ) );
+        commands.add( nodeCommandWithLabelData( 2, 20_000 ) );
+        commands.add( new Command.NodeCommand( new NodeRecord( 3 ), new NodeRecord( 3 ) ) );
+        commands.add( nodeCommandWithLabelData( 4, 2_000 ) );
+
+        // when
+        writer.serialize( commands );
+
+        // then
+        for ( StorageCommand command : commands )
+        {
+            assertSameCommand( (Command.NodeCommand) command, logEntryReader.readLogEntry( channel ) );
+        }
+        assertNull( logEntryReader.readLogEntry( channel ) );
+    }
+
+    @Test
+    public void shouldKeepWritingCommandsAfterCommandLargerThanRetainedScratchBuffer() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 1_000_000 );
+        LogEntryWriter writer = new LogEntryWriter( channel, true );
+        List<StorageCommand> commands = new ArrayList<>();
+        commands.add( nodeCommandWithLabelData( 1, LogEntryWriter.MAX_RETAINED_SCRATCH_SIZE * 2 ) );
+        commands.add( nodeCommandWithLabelData( 2, 2_000 ) );
+        commands.add( nodeCommandWithLabelData( 3, LogEntryWriter.MAX_RETAINED_SCRATCH_SIZE * 3 ) );
+        commands.add( new Command.NodeCommand( new NodeRecord( 4 ), new NodeRecord( 4 ) ) );
+
+        // when
+        for ( StorageCommand command : commands )
+        {
+            writer.serialize( singletonList( command ) );
+        }
+        writer.close();
+
+        // then
+        for ( StorageCommand command : commands )
+        {
+            assertSameCommand( (Command.NodeCommand) command, logEntryReader.readLogEntry( channel ) );
+        }
+        assertNull( logEntryReader.readLogEntry( channel ) );
+    }
+
+    @Test
+    public void shouldRejectCompressedCommandWithCorruptLengthsWithoutAllocatingForThem() throws IOException
+    {
+        // given a compressed command entry claiming a length no writer produces
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        channel.put( LogEntryVersion.COMPRESSED.byteCode() ).put( LogEntryByteCodes.COMPRESSED_COMMAND );
+        channel.putInt( Integer.MAX_VALUE ).putInt( 100 );
+
+        try
+        {
+            // when
+            logEntryReader.readLogEntry( channel );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // then
+            assertTrue( e.getMessage(), e.getMessage().contains( "Invalid compressed command lengths" ) );
+        }
+    }
+
+    private static Command.NodeCommand nodeCommandWithLabelData( long id, int dataSize )
+    {
+        byte[] data = new byte[dataSize];
+        for ( int i = 0; i < data.length; i++ )
+        {
+            data[i] = (byte) (i % 7);
+        }
+        DynamicRecord labels = new DynamicRecord( 42 );
+        labels.setInUse( true );
+        labels.setStartRecord( true );
+        labels.setData( data );
+        NodeRecord before = new NodeRecord( id );
+        NodeRecord after = new NodeRecord( id );
+        after.setInUse( true );
+        after.setLabelField( 0x8000000000L | 42, singletonList( labels ) );
+        return new Command.NodeCommand( before, after );
+    }
+
+    private static int serializedSize( StorageCommand command ) throws IOException
+    {
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+        command.serialize( channel );
+        return channel.writerPosition();
+    }
+
+    private static void assertSameCommand( Command.NodeCommand expected, LogEntry entry )
+    {
+        Command.NodeCommand actual = (Command.NodeCommand) ((LogEntryCommand) entry).getXaCommand();
+        assertEquals( expected.getKey(), actual.getKey() );
+        assertEquals( expected.getAfter().getLabelField(), actual.getAfter().getLabelField() );
+        List<DynamicRecord> expectedLabels = new ArrayList<>( expected.getAfter().getDynamicLabelRecords() );
+        List<DynamicRecord> actualLabels = new ArrayList<>( actual.getAfter().getDynamicLabelRecords() );
+        assertEquals( expectedLabels.size(), actualLabels.size() );
+        for ( int i = 0; i < expectedLabels.size(); i++ )
+        {
+            assertArrayEquals( expectedLabels.get( i ).getData(), actualLabels.get( i ).getData() );
+        }
+    }
+}
@@ -45,6 +45,7 @@ import org.neo4j.kernel.impl.store.StoreType;
 import org.neo4j.kernel.impl.storemigration.StoreFile;
 import org.neo4j.kernel.impl.storemigration.StoreFileType;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogFile;
+import org.neo4j.kernel.impl.transaction.log.PhysicalLogFiles;
 import org.neo4j.storageengine.api.StorageEngine;
 import org.neo4j.storageengine.api.StoreFileMetadata;
 import org.neo4j.test.rule.EmbeddedDatabaseRule;
@@ -168,6 +169,36 @@ public class NeoStoreFileListingTest
         assertFalse( Collections.disjoint( actual, countStoreFiles ) );
     }
 
+    @Test
+    public void shouldNotIncludeSpareTransactionLogFile() throws Exception
+    {
+        // Given
+        LabelScanStore labelScanStore = mock( LabelScanStore.class );
+        IndexingService indexingService = mock( IndexingService.class );
+        LegacyIndexProviderLookup legacyIndexes = mock( LegacyIndexProviderLookup.class );
+        when( legacyIndexes.all() ).thenReturn( Collections.emptyList() );
+        File storeDir = mock( File.class );
+        String spareLogFile = PhysicalLogFile.DEFAULT_NAME + PhysicalLogFile.DEFAULT_VERSION_SUFFIX +
+                              PhysicalLogFiles.SPARE_VERSION;
+        String[] storeDirFiles = Arrays.copyOf( STANDARD_STORE_DIR_FILES, STANDARD_STORE_DIR_FILES.length + 2 );
+        storeDirFiles[storeDirFiles.length - 2] = spareLogFile;
+        storeDirFiles[storeDirFiles.length - 1] = spareLogFile + ".preparing";
+        filesInStoreDirAre( storeDir, storeDirFiles, STANDARD_STORE_DIR_DIRECTORIES );
+        StorageEngine storageEngine = mock( StorageEngine.class );
+        NeoStoreFileListing fileListing = new NeoStoreFileListing(
+                storeDir, labelScanStore, indexingService, legacyIndexes, storageEngine );
+        scanStoreFilesAre( labelScanStore, new String[0] );
+        indexFilesAre( indexingService, new String[0] );
+
+        // When
+        Set<String> actual = asSetOfPaths( fileListing.listStoreFiles( true ) );
+
+        // Then
+        assertTrue( actual.contains( PhysicalLogFile.DEFAULT_NAME + PhysicalLogFile.DEFAULT_VERSION_SUFFIX + "0" ) );
+        assertFalse( actual.contains( spareLogFile ) );
+        assertFalse( actual.contains( spareLogFile + ".preparing" ) );
+    }
+
     @Test
     public void shouldCloseIndexAndLabelScanSnapshots() throws Exception
     {
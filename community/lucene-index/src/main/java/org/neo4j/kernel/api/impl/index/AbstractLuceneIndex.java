@@ -21,6 +21,7 @@ package org.neo4j.kernel.api.impl.index;
 
 import org.apache.lucene.index.CheckIndex;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.store.Directory;
 
 import java.io.File;
@@ -337,6 +338,67 @@ public abstract class AbstractLuceneIndex
         return indexPartition;
     }
 
+    /**
+     * Merge all partitions into the first one, given that all their documents fit into a single partition.
+     * Segments of the other partitions are added to the first partition, after which the other partitions are closed
+     * and removed. Meant for indexes populated into multiple partitions at the same time, must not be called while
+     * the index is written to or searched.
+     *
+     * @param maxPartitionSize the maximum number of documents in a partition.
+     * @return <code>true</code> if partitions were merged, <code>false</code> otherwise.
+     * @throws IOException
+     */
+    public boolean mergePartitions( int maxPartitionSize ) throws IOException
+    {
+        ensureOpen();
+        if ( partitions.size() < 2 )
+        {
+            return false;
+        }
+        long documents = 0;
+        for ( AbstractIndexPartition partition : partitions )
+        {
+            documents += partition.getIndexWriter().maxDoc();
+        }
+        if ( documents > maxPartitionSize )
+        {
+            return false;
+        }
+
+        AbstractIndexPartition target = partitions.get( 0 );
+        List<AbstractIndexPartition> sources = new ArrayList<>( partitions.subList( 1, partitions.size() ) );
+        List<File> sourceFolders = new ArrayList<>( sources.size() );
+        for ( AbstractIndexPartition source : sources )
+        {
+            source.getIndexWriter().commit();
+            sourceFolders.add( source.getPartitionFolder() );
+        }
+        // The source partitions have to let go of their directories, which are locked by their writers
+        partitions.removeAll( sources );
+        IOUtils.closeAll( sources );
+
+        List<Directory> sourceDirectories = new ArrayList<>( sourceFolders.size() );
+        try
+        {
+            for ( File sourceFolder : sourceFolders )
+            {
+                sourceDirectories.add( indexStorage.openDirectory( sourceFolder ) );
+            }
+            IndexWriter targetWriter = target.getIndexWriter();
+            targetWriter.addIndexes( sourceDirectories.toArray( new Directory[sourceDirectories.size()] ) );
+            targetWriter.commit();
+        }
+        finally
+        {
+            IOUtils.closeAll( sourceDirectories );
+        }
+        for ( File sourceFolder : sourceFolders )
+        {
+            indexStorage.cleanupPartitionFolder( sourceFolder );
+        }
+        return true;
+    }
+
     protected void ensureOpen()
     {
         if ( !open )
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.index;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Makes updates applied to writable lucene indexes visible to searchers.
+ * <p>
+ * With a max staleness of zero an index is refreshed right away by the thread that applied the updates, which means
+ * updates are visible to all transactions once the transaction that made them is closed. With a positive max
+ * staleness updated indexes are only marked as stale and a background job refreshes them at least that often,
+ * which takes refreshing of searchers off the commit path. Until then other transactions may not see the committed
+ * updates, although a transaction always sees its own updates through its transaction state.
+ * <p>
+ * Refreshing a {@link org.apache.lucene.search.SearcherManager} never blocks searchers, those keep using the searcher
+ * they acquired until they release it.
+ */
+public class IndexSearcherRefresher extends LifecycleAdapter
+{
+    public static final IndexSearcherRefresher SYNCHRONOUS = new IndexSearcherRefresher( null, 0, Monitor.NO_MONITOR );
+
+    public interface Monitor
+    {
+        Monitor NO_MONITOR = ( refreshTimeMillis, searcherAgeMillis ) -> {};
+
+        /**
+         * Called after the searchers of an index have been refreshed.
+         *
+         * @param refreshTimeMillis time spent refreshing.
+         * @param searcherAgeMillis time from the first update not visible to the replaced searcher until refreshed.
+         */
+        void refreshed( long refreshTimeMillis, long searcherAgeMillis );
+    }
+
+    private final JobScheduler scheduler;
+    private final long maxStalenessMillis;
+    private final Monitor monitor;
+    // stale indexes, mapped to System.nanoTime() of the first update making them stale
+    private final Map<DatabaseIndex,Long> staleIndexes = new ConcurrentHashMap<>();
+    private JobScheduler.JobHandle refreshJob;
+
+    public IndexSearcherRefresher( JobScheduler scheduler, long maxStalenessMillis, Monitor monitor )
+    {
+        this.scheduler = scheduler;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.monitor = monitor;
+    }
+
+    /**
+     * Called after updates have been applied to the given index, to make them visible to searchers either right away
+     * or within max staleness.
+     *
+     * @param index the updated index.
+     * @throws IOException if refreshing right away fails.
+     */
+    public void updated( DatabaseIndex index ) throws IOException
+    {
+        if ( maxStalenessMillis == 0 )
+        {
+            refresh( index, System.nanoTime() );
+        }
+        else
+        {
+            staleIndexes.putIfAbsent( index, System.nanoTime() );
+        }
+    }
+
+    /**
+     * Stop refreshing the given index, since it is about to be closed or dropped.
+     *
+     * @param index the index to forget.
+     */
+    public void forget( DatabaseIndex index )
+    {
+        staleIndexes.remove( index );
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        if ( maxStalenessMillis > 0 )
+        {
+            refreshJob = scheduler.scheduleRecurring( JobScheduler.Groups.indexSearcherRefresh, this::refreshStale,
+                    maxStalenessMillis, MILLISECONDS );
+        }
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        if ( refreshJob != null )
+        {
+            refreshJob.cancel( false );
+            refreshJob = null;
+        }
+        refreshStale();
+    }
+
+    void refreshStale()
+    {
+        for ( Map.Entry<DatabaseIndex,Long> entry : staleIndexes.entrySet() )
+        {
+            DatabaseIndex index = entry.getKey();
+            long staleSince = entry.getValue();
+            // Unmark before refreshing, so that updates racing with the refresh mark the index as stale again
+            if ( staleIndexes.remove( index, staleSince ) )
+            {
+                try
+                {
+                    refresh( index, staleSince );
+                }
+                catch ( IOException | RuntimeException e )
+                {
+                    // An index closed while refreshing is of no further interest, try again later for open ones
+                    if ( index.isOpen() )
+                    {
+                        staleIndexes.putIfAbsent( index, staleSince );
+                    }
+                }
+            }
+        }
+    }
+
+    private void refresh( DatabaseIndex index, long staleSince ) throws IOException
+    {
+        long startTime = System.nanoTime();
+        index.maybeRefreshBlocking();
+        long endTime = System.nanoTime();
+        monitor.refreshed( NANOSECONDS.toMillis( endTime - startTime ), NANOSECONDS.toMillis( endTime - staleSince ) );
+    }
+}
@@ -19,8 +19,12 @@
  */
 package org.neo4j.kernel.api.impl.index;
 
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.monitoring.Monitors;
 
 public class LuceneKernelExtensions
 {
@@ -30,4 +34,10 @@ public class LuceneKernelExtensions
                 clazz -> ephemeral ? new DirectoryFactory.InMemoryDirectoryFactory() : DirectoryFactory.PERSISTENT );
     }
 
+    public static IndexSearcherRefresher searcherRefresher( Config config, JobScheduler scheduler, Monitors monitors )
+    {
+        return new IndexSearcherRefresher( scheduler, config.get( GraphDatabaseSettings.index_searcher_max_staleness ),
+                monitors.newMonitor( IndexSearcherRefresher.Monitor.class ) );
+    }
+
 }
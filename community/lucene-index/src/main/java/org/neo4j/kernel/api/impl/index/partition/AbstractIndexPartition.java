@@ -54,6 +54,15 @@ public abstract class AbstractIndexPartition implements Closeable
         return directory;
     }
 
+    /**
+     * Retrieve index partition folder
+     * @return partition folder
+     */
+    public File getPartitionFolder()
+    {
+        return partitionFolder;
+    }
+
     /**
      * Retrieve index partition writer
      * @return partition writer
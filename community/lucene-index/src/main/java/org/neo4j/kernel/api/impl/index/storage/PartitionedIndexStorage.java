@@ -167,6 +167,18 @@ public class PartitionedIndexStorage
         cleanupFolder( folder, false );
     }
 
+    /**
+     * Removes the given partition folder together with the content of its {@link Directory lucene directory}.
+     *
+     * @param partitionFolder the partition folder to remove.
+     * @throws IOException if some removal operation fails.
+     */
+    public void cleanupPartitionFolder( File partitionFolder ) throws IOException
+    {
+        cleanupLuceneDirectory( partitionFolder, null, null );
+        fileSystem.deleteRecursively( partitionFolder );
+    }
+
     private void cleanupFolder( File folder, boolean archiveFailed ) throws IOException
     {
         List<File> partitionFolders = listFolders( folder );
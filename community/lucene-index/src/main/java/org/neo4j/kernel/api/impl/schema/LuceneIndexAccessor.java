@@ -26,6 +26,7 @@ import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.helpers.collection.BoundedIterable;
 import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.impl.index.IndexSearcherRefresher;
 import org.neo4j.kernel.api.impl.schema.reader.LuceneAllEntriesIndexAccessorReader;
 import org.neo4j.kernel.api.impl.schema.writer.LuceneIndexWriter;
 import org.neo4j.kernel.api.index.IndexAccessor;
@@ -37,11 +38,18 @@ import org.neo4j.storageengine.api.schema.IndexReader;
 public class LuceneIndexAccessor implements IndexAccessor
 {
     private final LuceneIndexWriter writer;
+    private final IndexSearcherRefresher searcherRefresher;
     private SchemaIndex luceneIndex;
 
     public LuceneIndexAccessor( SchemaIndex luceneIndex ) throws IOException
+    {
+        this( luceneIndex, IndexSearcherRefresher.SYNCHRONOUS );
+    }
+
+    public LuceneIndexAccessor( SchemaIndex luceneIndex, IndexSearcherRefresher searcherRefresher ) throws IOException
     {
         this.luceneIndex = luceneIndex;
+        this.searcherRefresher = searcherRefresher;
         this.writer = luceneIndex.isReadOnly() ? null : luceneIndex.getIndexWriter();
     }
 
@@ -68,6 +76,7 @@ public class LuceneIndexAccessor implements IndexAccessor
     @Override
     public void drop() throws IOException
     {
+        searcherRefresher.forget( luceneIndex );
         luceneIndex.drop();
     }
 
@@ -87,6 +96,7 @@ public class LuceneIndexAccessor implements IndexAccessor
     @Override
     public void close() throws IOException
     {
+        searcherRefresher.forget( luceneIndex );
         luceneIndex.close();
     }
 
@@ -155,7 +165,7 @@ public class LuceneIndexAccessor implements IndexAccessor
         @Override
         public void close() throws IOException, IndexEntryConflictException
         {
-            luceneIndex.maybeRefreshBlocking();
+            searcherRefresher.updated( luceneIndex );
         }
 
         @Override
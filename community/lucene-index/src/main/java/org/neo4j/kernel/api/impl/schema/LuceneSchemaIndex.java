@@ -42,6 +42,7 @@ import org.neo4j.kernel.api.impl.schema.verification.SimpleUniquenessVerifier;
 import org.neo4j.kernel.api.impl.schema.verification.UniquenessVerifier;
 import org.neo4j.kernel.api.impl.schema.writer.LuceneIndexWriter;
 import org.neo4j.kernel.api.impl.schema.writer.PartitionedIndexWriter;
+import org.neo4j.kernel.api.impl.schema.writer.ThreadPartitionedIndexWriter;
 import org.neo4j.kernel.api.index.IndexConfiguration;
 import org.neo4j.kernel.api.index.PropertyAccessor;
 import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
@@ -77,6 +78,12 @@ class LuceneSchemaIndex extends AbstractLuceneIndex
         return new PartitionedIndexWriter( writableLuceneSchemaIndex );
     }
 
+    public LuceneIndexWriter getPopulationIndexWriter( WritableDatabaseSchemaIndex writableLuceneSchemaIndex )
+    {
+        ensureOpen();
+        return new ThreadPartitionedIndexWriter( writableLuceneSchemaIndex );
+    }
+
     public IndexReader getIndexReader() throws IOException
     {
         ensureOpen();
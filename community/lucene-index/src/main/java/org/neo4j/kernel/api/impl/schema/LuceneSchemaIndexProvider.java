@@ -25,6 +25,7 @@ import java.io.IOException;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.impl.index.IndexSearcherRefresher;
 import org.neo4j.kernel.api.impl.index.IndexWriterConfigs;
 import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
 import org.neo4j.kernel.api.impl.index.storage.IndexStorageFactory;
@@ -50,6 +51,7 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
 {
     private final IndexStorageFactory indexStorageFactory;
     private final Log log;
+    private final IndexSearcherRefresher searcherRefresher;
     private Config config;
     private OperationalMode operationalMode;
     private FileSystemAbstraction fileSystem;
@@ -57,6 +59,14 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
     public LuceneSchemaIndexProvider( FileSystemAbstraction fileSystem, DirectoryFactory directoryFactory,
                                       File storeDir, LogProvider logging, Config config,
                                       OperationalMode operationalMode )
+    {
+        this( fileSystem, directoryFactory, storeDir, logging, config, operationalMode,
+                IndexSearcherRefresher.SYNCHRONOUS );
+    }
+
+    public LuceneSchemaIndexProvider( FileSystemAbstraction fileSystem, DirectoryFactory directoryFactory,
+                                      File storeDir, LogProvider logging, Config config,
+                                      OperationalMode operationalMode, IndexSearcherRefresher searcherRefresher )
     {
         super( LuceneSchemaIndexProviderFactory.PROVIDER_DESCRIPTOR, 1 );
         File schemaIndexStoreFolder = getSchemaIndexStoreDirectory( storeDir );
@@ -64,6 +74,7 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
         this.fileSystem = fileSystem;
         this.config = config;
         this.operationalMode = operationalMode;
+        this.searcherRefresher = searcherRefresher;
         this.log = logging.getLog( getClass() );
     }
 
@@ -116,7 +127,21 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
                                             .withIndexStorage( getIndexStorage( indexId ) )
                                             .build();
         luceneIndex.open();
-        return new LuceneIndexAccessor( luceneIndex );
+        // Uniqueness is verified against what index searchers see, so unique indexes can not lag behind
+        return new LuceneIndexAccessor( luceneIndex,
+                indexConfiguration.isUnique() ? IndexSearcherRefresher.SYNCHRONOUS : searcherRefresher );
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        searcherRefresher.start();
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        searcherRefresher.stop();
     }
 
     @Override
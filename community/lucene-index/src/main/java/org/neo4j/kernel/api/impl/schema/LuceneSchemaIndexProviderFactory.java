@@ -28,9 +28,12 @@ import org.neo4j.kernel.extension.KernelExtensionFactory;
 import org.neo4j.kernel.impl.factory.GraphDatabaseFacadeFactory;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.spi.KernelContext;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.monitoring.Monitors;
 import org.neo4j.logging.LogProvider;
 
 import static org.neo4j.kernel.api.impl.index.LuceneKernelExtensions.directoryFactory;
+import static org.neo4j.kernel.api.impl.index.LuceneKernelExtensions.searcherRefresher;
 
 @Service.Implementation(KernelExtensionFactory.class)
 public class LuceneSchemaIndexProviderFactory extends
@@ -46,6 +49,10 @@ public class LuceneSchemaIndexProviderFactory extends
         Config getConfig();
 
         LogService getLogging();
+
+        JobScheduler getJobScheduler();
+
+        Monitors getMonitors();
     }
 
     public LuceneSchemaIndexProviderFactory()
@@ -64,6 +71,7 @@ public class LuceneSchemaIndexProviderFactory extends
         DirectoryFactory directoryFactory = directoryFactory( ephemeral, fileSystem );
 
         return new LuceneSchemaIndexProvider( fileSystem, directoryFactory, context.storeDir(), logging, config,
-                context.databaseInfo().operationalMode );
+                context.databaseInfo().operationalMode,
+                searcherRefresher( config, dependencies.getJobScheduler(), dependencies.getMonitors() ) );
     }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.schema;
+
+import java.io.File;
+
+import org.neo4j.helpers.Service;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.impl.factory.GraphDatabaseFacadeFactory;
+import org.neo4j.kernel.impl.index.schema.NativeSchemaIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.spi.KernelContext;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.monitoring.Monitors;
+import org.neo4j.logging.LogProvider;
+
+import static org.neo4j.kernel.api.impl.index.LuceneKernelExtensions.directoryFactory;
+import static org.neo4j.kernel.api.impl.index.LuceneKernelExtensions.searcherRefresher;
+
+/**
+ * Provides schema indexes where numbers and short strings live in a native {@link NativeSchemaIndexProvider index}
+ * and all other values in a Lucene index. Has lower priority than {@link LuceneSchemaIndexProviderFactory} and so
+ * is used for new indexes only when selected using
+ * {@link org.neo4j.graphdb.factory.GraphDatabaseSettings#default_schema_provider}.
+ */
+@Service.Implementation(KernelExtensionFactory.class)
+public class NativeLuceneFusionSchemaIndexProviderFactory extends
+        KernelExtensionFactory<NativeLuceneFusionSchemaIndexProviderFactory.Dependencies>
+{
+    public static final String KEY = LuceneSchemaIndexProviderFactory.KEY + "+" + NativeSchemaIndexProvider.KEY;
+
+    public static final SchemaIndexProvider.Descriptor PROVIDER_DESCRIPTOR =
+            new SchemaIndexProvider.Descriptor( KEY, "1.0" );
+
+    public interface Dependencies
+    {
+        PageCache pageCache();
+
+        Config getConfig();
+
+        LogService getLogging();
+
+        JobScheduler getJobScheduler();
+
+        Monitors getMonitors();
+    }
+
+    public NativeLuceneFusionSchemaIndexProviderFactory()
+    {
+        super( KEY );
+    }
+
+    @Override
+    public FusionSchemaIndexProvider newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
+    {
+        Config config = dependencies.getConfig();
+        LogProvider logging = dependencies.getLogging().getInternalLogProvider();
+        boolean ephemeral = config.get( GraphDatabaseFacadeFactory.Configuration.ephemeral );
+
+        FileSystemAbstraction fileSystem = context.fileSystem();
+        DirectoryFactory directoryFactory = directoryFactory( ephemeral, fileSystem );
+        File storeDir = context.storeDir();
+
+        NativeSchemaIndexProvider nativeProvider =
+                new NativeSchemaIndexProvider( dependencies.pageCache(), fileSystem, storeDir );
+        LuceneSchemaIndexProvider luceneProvider = new LuceneSchemaIndexProvider( fileSystem, directoryFactory,
+                storeDir, logging, config, context.databaseInfo().operationalMode,
+                searcherRefresher( config, dependencies.getJobScheduler(), dependencies.getMonitors() ) );
+        return new FusionSchemaIndexProvider( nativeProvider, luceneProvider,
+                NativeSchemaIndexProvider::supportsValue, PROVIDER_DESCRIPTOR, 0 );
+    }
+}
@@ -49,6 +49,12 @@ public class ReadOnlyDatabaseSchemaIndex extends ReadOnlyAbstractDatabaseIndex<L
         throw new UnsupportedOperationException( "Can't get index writer for read only lucene index." );
     }
 
+    @Override
+    public LuceneIndexWriter getPopulationIndexWriter() throws IOException
+    {
+        throw new UnsupportedOperationException( "Can't get index writer for read only lucene index." );
+    }
+
     @Override
     public IndexReader getIndexReader() throws IOException
     {
@@ -93,6 +99,15 @@ public class ReadOnlyDatabaseSchemaIndex extends ReadOnlyAbstractDatabaseIndex<L
         throw new UnsupportedOperationException( "Can't mark read only index." );
     }
 
+    /**
+     * Unsupported operation in read only index.
+     */
+    @Override
+    public void mergePartitions() throws IOException
+    {
+        throw new UnsupportedOperationException( "Can't merge partitions of read only index." );
+    }
+
     /**
      * {@inheritDoc}
      */
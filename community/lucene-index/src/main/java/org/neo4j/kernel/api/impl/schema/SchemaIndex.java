@@ -36,6 +36,15 @@ public interface SchemaIndex extends DatabaseIndex
 {
     LuceneIndexWriter getIndexWriter() throws IOException;
 
+    /**
+     * Get a writer for populating this index, where each thread adding documents writes to a partition of its own.
+     *
+     * @return the population writer.
+     * @throws IOException
+     * @see org.neo4j.kernel.api.impl.schema.writer.ThreadPartitionedIndexWriter
+     */
+    LuceneIndexWriter getPopulationIndexWriter() throws IOException;
+
     IndexReader getIndexReader() throws IOException;
 
     /**
@@ -78,6 +87,14 @@ public interface SchemaIndex extends DatabaseIndex
      */
     void markAsOnline() throws IOException;
 
+    /**
+     * Merges all partitions of a populated index into a single one, if all documents fit into one partition.
+     * Must not be called while the index is being written to or searched.
+     *
+     * @throws IOException
+     */
+    void mergePartitions() throws IOException;
+
     /**
      * Writes the given failure message to the failure storage.
      *
@@ -28,6 +28,7 @@ import org.neo4j.kernel.api.impl.index.partition.AbstractIndexPartition;
 import org.neo4j.kernel.api.impl.index.partition.WritableIndexPartitionFactory;
 import org.neo4j.kernel.api.impl.index.storage.PartitionedIndexStorage;
 import org.neo4j.kernel.api.impl.schema.writer.LuceneIndexWriter;
+import org.neo4j.kernel.api.impl.schema.writer.PartitionedIndexWriter;
 import org.neo4j.kernel.api.index.IndexConfiguration;
 import org.neo4j.kernel.api.index.PropertyAccessor;
 import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
@@ -51,6 +52,12 @@ public class WritableDatabaseSchemaIndex extends WritableAbstractDatabaseIndex<L
         return luceneIndex.getIndexWriter( this );
     }
 
+    @Override
+    public LuceneIndexWriter getPopulationIndexWriter() throws IOException
+    {
+        return luceneIndex.getPopulationIndexWriter( this );
+    }
+
     @Override
     public IndexReader getIndexReader() throws IOException
     {
@@ -103,6 +110,23 @@ public class WritableDatabaseSchemaIndex extends WritableAbstractDatabaseIndex<L
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void mergePartitions() throws IOException
+    {
+        commitCloseLock.lock();
+        try
+        {
+            luceneIndex.mergePartitions( PartitionedIndexWriter.maximumPartitionSize() );
+        }
+        finally
+        {
+            commitCloseLock.unlock();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -34,6 +34,9 @@ import org.neo4j.kernel.api.index.NodePropertyUpdate;
 
 /**
  * An {@link IndexPopulator} used to create, populate and mark as online a Lucene schema index.
+ * <p>
+ * Batches of updates are added by multiple population threads, each into a partition of its own. The partitions
+ * are merged when population completes successfully.
  */
 public abstract class LuceneIndexPopulator implements IndexPopulator
 {
@@ -50,7 +53,7 @@ public abstract class LuceneIndexPopulator implements IndexPopulator
     {
         luceneIndex.create();
         luceneIndex.open();
-        writer = luceneIndex.getIndexWriter();
+        writer = luceneIndex.getPopulationIndexWriter();
     }
 
     @Override
@@ -76,6 +79,7 @@ public abstract class LuceneIndexPopulator implements IndexPopulator
         {
             if ( populationCompletedSuccessfully )
             {
+                luceneIndex.mergePartitions();
                 luceneIndex.markAsOnline();
             }
         }
@@ -42,10 +42,7 @@ public class PartitionedIndexWriter implements LuceneIndexWriter
 {
     private final WritableDatabaseSchemaIndex index;
 
-    // by default we still keep a spare of 10% to the maximum partition size: During concurrent updates
-    // it could happen that 2 threads reserve space in a partition (without claiming it by doing addDocument):
-    private final Integer MAXIMUM_PARTITION_SIZE = Integer.getInteger( "luceneSchemaIndex.maxPartitionSize",
-            IndexWriter.MAX_DOCS - (IndexWriter.MAX_DOCS / 10) );
+    private final Integer MAXIMUM_PARTITION_SIZE = maximumPartitionSize();
 
     public PartitionedIndexWriter( WritableDatabaseSchemaIndex index ) throws IOException
     {
@@ -133,5 +130,16 @@ public class PartitionedIndexWriter implements LuceneIndexWriter
     {
         return MAXIMUM_PARTITION_SIZE - partition.getIndexWriter().maxDoc() >= numDocs;
     }
+
+    /**
+     * @return the maximum number of documents of a single partition of a schema index.
+     */
+    public static int maximumPartitionSize()
+    {
+        // by default we still keep a spare of 10% to the maximum partition size: During concurrent updates
+        // it could happen that 2 threads reserve space in a partition (without claiming it by doing addDocument):
+        return Integer.getInteger( "luceneSchemaIndex.maxPartitionSize",
+                IndexWriter.MAX_DOCS - (IndexWriter.MAX_DOCS / 10) );
+    }
 }
 
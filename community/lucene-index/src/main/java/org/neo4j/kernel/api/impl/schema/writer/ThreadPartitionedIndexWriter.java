@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.schema.writer;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.neo4j.kernel.api.impl.index.partition.AbstractIndexPartition;
+import org.neo4j.kernel.api.impl.schema.WritableDatabaseSchemaIndex;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
+
+/**
+ * Schema Lucene index writer implementation used while populating an index, where batches of documents are added
+ * by multiple population threads at the same time.
+ * <p>
+ * Every adding thread claims a partition of its own, creating new partitions on-demand, so that the threads do not
+ * contend on the {@link IndexWriter} of a single partition. A thread claims another partition when its current
+ * one is full. Updates and deletes are applied to all partitions, since the affected documents can have been added
+ * by any of the threads.
+ * <p>
+ * Every partition buffers documents in memory up to the RAM buffer size of its writer, so at most
+ * {@code maxPartitions} partitions are written to at the same time, and the RAM buffer size the index was
+ * configured with is divided among them. Once that many partitions are claimed, further threads share the
+ * claimed partition with the fewest threads on it. The heap used by a population is therefore bounded by the
+ * configured RAM buffer size regardless of the number of population threads.
+ * <p>
+ * The populated partitions can be merged afterwards, see {@link WritableDatabaseSchemaIndex#mergePartitions()}.
+ */
+public class ThreadPartitionedIndexWriter implements LuceneIndexWriter
+{
+    private static final int MAX_PARTITIONS =
+            FeatureToggles.getInteger( ThreadPartitionedIndexWriter.class, "max_partitions", 4 );
+
+    private final WritableDatabaseSchemaIndex index;
+    private final Map<Thread,AbstractIndexPartition> claimedPartitions = new ConcurrentHashMap<>();
+    private final int maximumPartitionSize = PartitionedIndexWriter.maximumPartitionSize();
+    private final int maxPartitions;
+    private final double partitionRamBufferSizeMB;
+
+    public ThreadPartitionedIndexWriter( WritableDatabaseSchemaIndex index )
+    {
+        this( index, MAX_PARTITIONS );
+    }
+
+    ThreadPartitionedIndexWriter( WritableDatabaseSchemaIndex index, int maxPartitions )
+    {
+        this.index = index;
+        this.maxPartitions = Math.max( 1, maxPartitions );
+        double ramBufferSizeMB = index.getPartitions().get( 0 ).getIndexWriter().getConfig().getRAMBufferSizeMB();
+        this.partitionRamBufferSizeMB = ramBufferSizeMB / this.maxPartitions;
+    }
+
+    @Override
+    public void addDocument( Document doc ) throws IOException
+    {
+        getIndexWriter( 1 ).addDocument( doc );
+    }
+
+    @Override
+    public void addDocuments( int numDocs, Iterable<Document> documents ) throws IOException
+    {
+        getIndexWriter( numDocs ).addDocuments( documents );
+    }
+
+    @Override
+    public void updateDocument( Term term, Document doc ) throws IOException
+    {
+        deleteDocuments( term );
+        addDocument( doc );
+    }
+
+    @Override
+    public void deleteDocuments( Query query ) throws IOException
+    {
+        List<AbstractIndexPartition> partitions = index.getPartitions();
+        for ( AbstractIndexPartition partition : partitions )
+        {
+            partition.getIndexWriter().deleteDocuments( query );
+        }
+    }
+
+    @Override
+    public void deleteDocuments( Term term ) throws IOException
+    {
+        List<AbstractIndexPartition> partitions = index.getPartitions();
+        for ( AbstractIndexPartition partition : partitions )
+        {
+            partition.getIndexWriter().deleteDocuments( term );
+        }
+    }
+
+    private IndexWriter getIndexWriter( int numDocs ) throws IOException
+    {
+        AbstractIndexPartition partition = claimedPartitions.get( Thread.currentThread() );
+        if ( partition == null || !writablePartition( partition, numDocs ) )
+        {
+            partition = claimPartition( numDocs );
+        }
+        return partition.getIndexWriter();
+    }
+
+    private AbstractIndexPartition claimPartition( int numDocs ) throws IOException
+    {
+        synchronized ( index )
+        {
+            // We synchronise on the index to coordinate with all writers about which partitions are claimed,
+            // and when new ones are created.
+            claimedPartitions.remove( Thread.currentThread() );
+            AbstractIndexPartition partition = leastClaimedPartition( numDocs );
+            if ( partition == null )
+            {
+                partition = unclaimedPartition( numDocs );
+            }
+            if ( partition == null )
+            {
+                partition = index.addNewPartition();
+            }
+            partition.getIndexWriter().getConfig().setRAMBufferSizeMB( partitionRamBufferSizeMB );
+            claimedPartitions.put( Thread.currentThread(), partition );
+            return partition;
+        }
+    }
+
+    /**
+     * @return the writable claimed partition with the fewest threads on it, if {@code maxPartitions} writable
+     * partitions are claimed already, otherwise {@code null}.
+     */
+    private AbstractIndexPartition leastClaimedPartition( int numDocs )
+    {
+        Map<AbstractIndexPartition,Integer> claimingThreads = new IdentityHashMap<>();
+        for ( AbstractIndexPartition claimed : claimedPartitions.values() )
+        {
+            if ( writablePartition( claimed, numDocs ) )
+            {
+                claimingThreads.merge( claimed, 1, Integer::sum );
+            }
+        }
+        if ( claimingThreads.size() < maxPartitions )
+        {
+            return null;
+        }
+        AbstractIndexPartition partition = null;
+        int fewestThreads = Integer.MAX_VALUE;
+        for ( Map.Entry<AbstractIndexPartition,Integer> entry : claimingThreads.entrySet() )
+        {
+            if ( entry.getValue() < fewestThreads )
+            {
+                partition = entry.getKey();
+                fewestThreads = entry.getValue();
+            }
+        }
+        return partition;
+    }
+
+    private AbstractIndexPartition unclaimedPartition( int numDocs )
+    {
+        Collection<AbstractIndexPartition> claimed = claimedPartitions.values();
+        for ( AbstractIndexPartition candidate : index.getPartitions() )
+        {
+            if ( !claimed.contains( candidate ) && writablePartition( candidate, numDocs ) )
+            {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private boolean writablePartition( AbstractIndexPartition partition, int numDocs )
+    {
+        return maximumPartitionSize - partition.getIndexWriter().maxDoc() >= numDocs;
+    }
+}
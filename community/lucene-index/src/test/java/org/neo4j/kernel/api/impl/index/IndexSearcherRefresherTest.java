@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.index;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import org.neo4j.test.OnDemandJobScheduler;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexSearcherRefresherTest
+{
+    private final OnDemandJobScheduler scheduler = new OnDemandJobScheduler();
+    private final IndexSearcherRefresher.Monitor monitor = mock( IndexSearcherRefresher.Monitor.class );
+    private final DatabaseIndex index = mock( DatabaseIndex.class );
+
+    @Test
+    public void refreshRightAwayWithoutMaxStaleness() throws Throwable
+    {
+        IndexSearcherRefresher refresher = new IndexSearcherRefresher( scheduler, 0, monitor );
+        refresher.start();
+
+        refresher.updated( index );
+
+        verify( index ).maybeRefreshBlocking();
+        verify( monitor ).refreshed( anyLong(), anyLong() );
+        assertNull( scheduler.getJob() );
+    }
+
+    @Test
+    public void refreshStaleIndexesInBackgroundWithMaxStaleness() throws Throwable
+    {
+        IndexSearcherRefresher refresher = new IndexSearcherRefresher( scheduler, 100, monitor );
+        refresher.start();
+        assertNotNull( scheduler.getJob() );
+
+        refresher.updated( index );
+        refresher.updated( index );
+        verify( index, never() ).maybeRefreshBlocking();
+
+        scheduler.runJob();
+        verify( index ).maybeRefreshBlocking();
+        verify( monitor ).refreshed( anyLong(), anyLong() );
+
+        scheduler.runJob();
+        verify( index ).maybeRefreshBlocking();
+    }
+
+    @Test
+    public void refreshStaleIndexesOnStop() throws Throwable
+    {
+        IndexSearcherRefresher refresher = new IndexSearcherRefresher( scheduler, 100, monitor );
+        refresher.start();
+        refresher.updated( index );
+
+        refresher.stop();
+
+        verify( index ).maybeRefreshBlocking();
+        assertNull( scheduler.getJob() );
+    }
+
+    @Test
+    public void doNotRefreshForgottenIndexes() throws Throwable
+    {
+        IndexSearcherRefresher refresher = new IndexSearcherRefresher( scheduler, 100, monitor );
+        refresher.start();
+        refresher.updated( index );
+
+        refresher.forget( index );
+        scheduler.runJob();
+
+        verify( index, never() ).maybeRefreshBlocking();
+    }
+
+    @Test
+    public void retryFailedRefreshOfOpenIndex() throws Throwable
+    {
+        IndexSearcherRefresher refresher = new IndexSearcherRefresher( scheduler, 100, monitor );
+        refresher.start();
+        when( index.isOpen() ).thenReturn( true );
+        doThrow( new IOException( "Failed" ) ).doNothing().when( index ).maybeRefreshBlocking();
+        refresher.updated( index );
+
+        scheduler.runJob();
+        scheduler.runJob();
+        scheduler.runJob();
+
+        verify( index, times( 2 ) ).maybeRefreshBlocking();
+        verify( monitor ).refreshed( anyLong(), anyLong() );
+    }
+
+    @Test
+    public void doNotRetryFailedRefreshOfClosedIndex() throws Throwable
+    {
+        IndexSearcherRefresher refresher = new IndexSearcherRefresher( scheduler, 100, monitor );
+        refresher.start();
+        when( index.isOpen() ).thenReturn( false );
+        doThrow( new IOException( "Closed" ) ).when( index ).maybeRefreshBlocking();
+        refresher.updated( index );
+
+        scheduler.runJob();
+        scheduler.runJob();
+
+        verify( index ).maybeRefreshBlocking();
+    }
+}
@@ -28,6 +28,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.neo4j.collection.primitive.PrimitiveLongCollections;
 import org.neo4j.io.IOUtils;
@@ -45,6 +47,7 @@ import org.neo4j.test.rule.fs.DefaultFileSystemRule;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class NonUniqueDatabaseIndexPopulatorTest
 {
@@ -143,6 +146,43 @@ public class NonUniqueDatabaseIndexPopulatorTest
         }
     }
 
+    @Test
+    public void addUpdatesFromMultipleThreadsIntoSeparatePartitionsAndMergeThem() throws Exception
+    {
+        populator = newPopulator();
+
+        populator.add( Arrays.asList(
+                NodePropertyUpdate.add( 1, 1, "foo", new long[]{1} ),
+                NodePropertyUpdate.add( 2, 1, "bar", new long[]{1} ) ) );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            executor.submit( () ->
+            {
+                populator.add( Arrays.asList(
+                        NodePropertyUpdate.add( 3, 1, "baz", new long[]{1} ),
+                        NodePropertyUpdate.add( 42, 1, "bar", new long[]{1} ) ) );
+                return null;
+            } ).get();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals( 2, index.getPartitions().size() );
+
+        populator.close( true );
+        populator = null;
+
+        index.open();
+        assertEquals( 1, index.getPartitions().size() );
+        assertTrue( index.isOnline() );
+        try ( IndexReader reader = index.getIndexReader() )
+        {
+            assertArrayEquals( new long[]{1, 2, 3, 42}, PrimitiveLongCollections.asArray( reader.scan() ) );
+        }
+    }
+
     private NonUniqueLuceneIndexPopulator newPopulator() throws IOException
     {
         IndexSamplingConfig samplingConfig = new IndexSamplingConfig( Config.empty() );
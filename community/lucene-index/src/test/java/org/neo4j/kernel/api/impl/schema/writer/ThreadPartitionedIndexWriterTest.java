@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.schema.writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.neo4j.io.IOUtils;
+import org.neo4j.kernel.api.impl.index.IndexWriterConfigs;
+import org.neo4j.kernel.api.impl.index.partition.AbstractIndexPartition;
+import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
+import org.neo4j.kernel.api.impl.index.storage.PartitionedIndexStorage;
+import org.neo4j.kernel.api.impl.schema.LuceneDocumentStructure;
+import org.neo4j.kernel.api.impl.schema.LuceneSchemaIndexBuilder;
+import org.neo4j.kernel.api.impl.schema.WritableDatabaseSchemaIndex;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThreadPartitionedIndexWriterTest
+{
+    private static final int THREADS = 8;
+    private static final int DOCUMENTS_PER_THREAD = 100;
+
+    @Rule
+    public final TestDirectory testDir = TestDirectory.testDirectory();
+    @Rule
+    public final DefaultFileSystemRule fileSystemRule = new DefaultFileSystemRule();
+
+    private final DirectoryFactory dirFactory = new DirectoryFactory.InMemoryDirectoryFactory();
+
+    private WritableDatabaseSchemaIndex index;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        PartitionedIndexStorage indexStorage = new PartitionedIndexStorage( dirFactory, fileSystemRule.get(),
+                testDir.directory( "folder" ), "testIndex", false );
+        index = (WritableDatabaseSchemaIndex) LuceneSchemaIndexBuilder.create()
+                .withIndexStorage( indexStorage )
+                .withWriterConfig( IndexWriterConfigs::population )
+                .build();
+        index.create();
+        index.open();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        IOUtils.closeAll( index, dirFactory );
+    }
+
+    @Test
+    public void shouldGiveEveryThreadItsOwnPartitionBelowMaximumPartitions() throws Exception
+    {
+        double ramBufferSizeMB = configuredRamBufferSizeMB();
+        ThreadPartitionedIndexWriter writer = new ThreadPartitionedIndexWriter( index, THREADS );
+
+        addDocumentsConcurrently( writer );
+
+        assertEquals( THREADS, index.getPartitions().size() );
+        assertEquals( THREADS * DOCUMENTS_PER_THREAD, documentsInPartitions() );
+        assertEquals( ramBufferSizeMB, ramBufferSizeMBOfPartitions(), 0.001 );
+    }
+
+    @Test
+    public void shouldShareClaimedPartitionsBetweenThreadsAboveMaximumPartitions() throws Exception
+    {
+        double ramBufferSizeMB = configuredRamBufferSizeMB();
+        ThreadPartitionedIndexWriter writer = new ThreadPartitionedIndexWriter( index, 2 );
+
+        addDocumentsConcurrently( writer );
+
+        // Heap used by the population stays within the configured RAM buffer size, however many threads add to it
+        assertEquals( 2, index.getPartitions().size() );
+        assertEquals( THREADS * DOCUMENTS_PER_THREAD, documentsInPartitions() );
+        assertEquals( ramBufferSizeMB, ramBufferSizeMBOfPartitions(), 0.001 );
+        for ( AbstractIndexPartition partition : index.getPartitions() )
+        {
+            assertEquals( THREADS / 2 * DOCUMENTS_PER_THREAD, partition.getIndexWriter().maxDoc() );
+        }
+    }
+
+    private void addDocumentsConcurrently( ThreadPartitionedIndexWriter writer ) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+        try
+        {
+            // All threads claim their partition before any of them adds documents
+            CyclicBarrier barrier = new CyclicBarrier( THREADS );
+            List<Future<Void>> futures = new ArrayList<>();
+            for ( int thread = 0; thread < THREADS; thread++ )
+            {
+                long firstNodeId = thread * DOCUMENTS_PER_THREAD;
+                futures.add( executor.submit( () ->
+                {
+                    barrier.await();
+                    for ( long nodeId = firstNodeId; nodeId < firstNodeId + DOCUMENTS_PER_THREAD; nodeId++ )
+                    {
+                        writer.addDocument( LuceneDocumentStructure.documentRepresentingProperty( nodeId, nodeId ) );
+                    }
+                    return null;
+                } ) );
+            }
+            for ( Future<Void> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private double configuredRamBufferSizeMB()
+    {
+        return index.getPartitions().get( 0 ).getIndexWriter().getConfig().getRAMBufferSizeMB();
+    }
+
+    private double ramBufferSizeMBOfPartitions()
+    {
+        double ramBufferSizeMB = 0;
+        for ( AbstractIndexPartition partition : index.getPartitions() )
+        {
+            ramBufferSizeMB += partition.getIndexWriter().getConfig().getRAMBufferSizeMB();
+        }
+        return ramBufferSizeMB;
+    }
+
+    private int documentsInPartitions()
+    {
+        int documents = 0;
+        for ( AbstractIndexPartition partition : index.getPartitions() )
+        {
+            documents += partition.getIndexWriter().maxDoc();
+        }
+        return documents;
+    }
+}
@@ -34,11 +34,26 @@ public final class MemoryManager
      */
     private static final long GRAB_SIZE = FeatureToggles.getInteger( MemoryManager.class, "GRAB_SIZE", 512 * 1024 ); // 512 KiB
 
+    /**
+     * The size of a transparent huge page, which is what the slabs are aligned to when huge page alignment is asked for.
+     */
+    private static final long HUGE_PAGE_SIZE =
+            FeatureToggles.getLong( MemoryManager.class, "HUGE_PAGE_SIZE", 2 * 1024 * 1024 ); // 2 MiB
+
+    /**
+     * The amount of memory, in bytes, to grab in each huge page aligned Slab. This is larger than the normal grab size,
+     * to amortise the huge page of alignment padding that each of these slabs can waste.
+     */
+    private static final long HUGE_PAGE_GRAB_SIZE =
+            FeatureToggles.getLong( MemoryManager.class, "HUGE_PAGE_GRAB_SIZE", 256 * 1024 * 1024 ); // 256 MiB
+
     /**
      * The amount of memory that this memory manager can still allocate.
      */
     private long memoryReserve;
     private final long alignment;
+    private final boolean hugePageAligned;
+    private volatile long allocatedMemory;
 
     private Slab slabs;
 
@@ -50,9 +65,37 @@ public final class MemoryManager
      * @param alignment The byte multiple that the allocated pointers have to be aligned at.
      */
     public MemoryManager( long expectedMaxMemory, long alignment )
+    {
+        this( expectedMaxMemory, alignment, false );
+    }
+
+    /**
+     * Create a new MemoryManager that will allocate the given amount of memory, to pointers that are aligned to the
+     * given alignment size.
+     * <p>
+     * If huge page alignment is asked for, then the memory is grabbed in large slabs that start at huge page boundaries
+     * and span a whole number of huge pages. This way, the operating system can back all of the memory with
+     * transparent huge pages, if it is configured to do so, which relieves the TLB when the memory is accessed
+     * randomly. Memory that is not huge page aligned can only be partially backed by huge pages.
+     * @param expectedMaxMemory The maximum amount of memory that this memory manager is expected to allocate. The
+     * actual amount of memory used can end up greater than this value, if some of it gets wasted on alignment padding.
+     * @param alignment The byte multiple that the allocated pointers have to be aligned at.
+     * @param hugePageAligned {@code true} if the memory should be grabbed in huge page aligned slabs.
+     */
+    public MemoryManager( long expectedMaxMemory, long alignment, boolean hugePageAligned )
     {
         this.memoryReserve = expectedMaxMemory;
         this.alignment = alignment;
+        this.hugePageAligned = hugePageAligned;
+    }
+
+    /**
+     * @return The number of bytes of memory that has been grabbed from the operating system so far, including any
+     * alignment padding. The memory is not necessarily touched yet.
+     */
+    public long allocatedMemory()
+    {
+        return allocatedMemory;
     }
 
     /**
@@ -64,6 +107,10 @@ public final class MemoryManager
     {
         if ( slabs == null || !slabs.canAllocate( bytes ) )
         {
+            if ( hugePageAligned )
+            {
+                return allocateInHugePageAlignedSlab( bytes );
+            }
             long slabGrab = Math.min( GRAB_SIZE, memoryReserve );
             if ( slabGrab < bytes )
             {
@@ -72,6 +119,7 @@ public final class MemoryManager
                 if ( slab.canAllocate( bytes ) )
                 {
                     memoryReserve -= slabGrab;
+                    allocatedMemory += slabGrab;
                     slabs = slab;
                     return slabs.allocate( bytes );
                 }
@@ -79,11 +127,25 @@ public final class MemoryManager
                 slabGrab = bytes + alignment;
             }
             memoryReserve -= slabGrab;
+            allocatedMemory += slabGrab;
             slabs = new Slab( slabs, slabGrab, alignment );
         }
         return slabs.allocate( bytes );
     }
 
+    private long allocateInHugePageAlignedSlab( long bytes )
+    {
+        long slabGrab = Math.max( Math.min( HUGE_PAGE_GRAB_SIZE, memoryReserve ), bytes );
+        slabGrab = ((slabGrab + HUGE_PAGE_SIZE - 1) / HUGE_PAGE_SIZE) * HUGE_PAGE_SIZE;
+        memoryReserve -= slabGrab;
+        // We grab one extra huge page, so we can align the start of the slab at a huge page boundary.
+        long slabAlignment = Math.max( alignment, HUGE_PAGE_SIZE );
+        slabGrab += slabAlignment;
+        allocatedMemory += slabGrab;
+        slabs = new Slab( slabs, slabGrab, alignment, slabAlignment );
+        return slabs.allocate( bytes );
+    }
+
     @Override
     protected synchronized void finalize() throws Throwable
     {
@@ -106,13 +168,19 @@ public final class MemoryManager
         private long nextAlignedPointer;
 
         public Slab( Slab next, long size, long alignment )
+        {
+            this( next, size, alignment, alignment );
+        }
+
+        public Slab( Slab next, long size, long alignment, long slabAlignment )
         {
             this.next = next;
             this.address = UnsafeUtil.allocateMemory( size );
             this.limit = address + size;
             this.alignMask = alignment - 1;
 
-            nextAlignedPointer = nextAligned( address );
+            long slabAlignMask = slabAlignment - 1;
+            nextAlignedPointer = nextAligned( (address + slabAlignMask) & ~slabAlignMask );
         }
 
         private long nextAligned( long pointer )
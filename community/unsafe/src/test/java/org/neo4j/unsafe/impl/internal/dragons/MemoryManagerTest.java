@@ -53,4 +53,24 @@ public class MemoryManagerTest
         }
         // Also asserts that no OutOfMemoryError is thrown.
     }
+
+    @Test
+    public void hugePageAlignedSlabsMustStartAtHugePageBoundaries() throws Exception
+    {
+        long hugePageSize = 2 * 1024 * 1024;
+        MemoryManager mman = new MemoryManager( 16 * 4096, UnsafeUtil.pageSize(), true );
+        long address = mman.allocateAligned( 8192 );
+        assertThat( address % hugePageSize, is( 0L ) );
+        assertThat( mman.allocateAligned( 8192 ), is( address + 8192 ) );
+        assertThat( mman.allocatedMemory() % hugePageSize, is( 0L ) );
+    }
+
+    @Test
+    public void mustTrackAllocatedMemory() throws Exception
+    {
+        MemoryManager mman = new MemoryManager( 16 * 4096, 8 );
+        assertThat( mman.allocatedMemory(), is( 0L ) );
+        mman.allocateAligned( 8192 );
+        assertThat( mman.allocatedMemory(), is( 16 * 4096L ) );
+    }
 }
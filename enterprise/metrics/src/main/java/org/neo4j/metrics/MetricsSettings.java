@@ -76,6 +76,14 @@ public class MetricsSettings implements LoadableConfig
                   + "complete." )
     public static Setting<Boolean> neoLogRotationEnabled = setting(
             "metrics.neo4j.logrotation.enabled", Settings.BOOLEAN, neoEnabled );
+    @Description( "Enable reporting metrics about refreshing of schema index searchers; how long it takes and how " +
+                  "stale the searchers were." )
+    public static Setting<Boolean> neoSchemaIndexEnabled = setting(
+            "metrics.neo4j.schema_index.enabled", Settings.BOOLEAN, neoEnabled );
+    @Description( "Enable reporting metrics about the commit pipeline; how many commits are appending to the " +
+                  "transaction log, waiting for it to be forced or applying to the store, and how long each takes." )
+    public static Setting<Boolean> neoCommitPipelineEnabled = setting(
+            "metrics.neo4j.commit_pipeline.enabled", Settings.BOOLEAN, neoEnabled );
     @Description( "Enable reporting metrics about HA cluster info." )
     public static Setting<Boolean> neoClusterEnabled = setting(
             "metrics.neo4j.cluster.enabled", Settings.BOOLEAN, neoEnabled );
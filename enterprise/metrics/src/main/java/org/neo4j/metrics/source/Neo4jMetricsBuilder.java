@@ -21,15 +21,21 @@ package org.neo4j.metrics.source;
 
 import com.codahale.metrics.MetricRegistry;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.function.Supplier;
 
 import org.neo4j.causalclustering.core.consensus.CoreMetaData;
+import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.monitoring.PageCacheCounters;
+import org.neo4j.io.pagecache.monitoring.PageCacheOccupancy;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.ha.cluster.member.ClusterMembers;
+import org.neo4j.kernel.impl.api.CommitPipelineMonitor;
 import org.neo4j.kernel.impl.api.LogRotationMonitor;
 import org.neo4j.kernel.impl.factory.OperationalMode;
 import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.pagecache.PageCacheReservations;
 import org.neo4j.kernel.impl.spi.KernelContext;
 import org.neo4j.kernel.impl.store.stats.StoreEntityCounters;
 import org.neo4j.kernel.impl.transaction.TransactionCounters;
@@ -45,10 +51,12 @@ import org.neo4j.metrics.source.cluster.ClusterMetrics;
 import org.neo4j.metrics.source.cluster.NetworkMetrics;
 import org.neo4j.metrics.source.db.BoltMetrics;
 import org.neo4j.metrics.source.db.CheckPointingMetrics;
+import org.neo4j.metrics.source.db.CommitPipelineMetrics;
 import org.neo4j.metrics.source.db.CypherMetrics;
 import org.neo4j.metrics.source.db.EntityCountMetrics;
 import org.neo4j.metrics.source.db.LogRotationMetrics;
 import org.neo4j.metrics.source.db.PageCacheMetrics;
+import org.neo4j.metrics.source.db.SchemaIndexMetrics;
 import org.neo4j.metrics.source.db.TransactionMetrics;
 import org.neo4j.metrics.source.jvm.GCMetrics;
 import org.neo4j.metrics.source.jvm.MemoryBuffersMetrics;
@@ -74,10 +82,14 @@ public class Neo4jMetricsBuilder
 
         PageCacheCounters pageCacheCounters();
 
+        PageCache pageCache();
+
         CheckPointerMonitor checkPointerMonitor();
 
         LogRotationMonitor logRotationMonitor();
 
+        CommitPipelineMonitor commitPipelineMonitor();
+
         StoreEntityCounters entityCountStats();
 
         Supplier<ClusterMembers> clusterMembers();
@@ -111,7 +123,17 @@ public class Neo4jMetricsBuilder
 
         if ( config.get( MetricsSettings.neoPageCacheEnabled ) )
         {
-            life.add( new PageCacheMetrics( registry, dependencies.pageCacheCounters() ) );
+            // The page cache occupancy is only known when the page cache is not wrapped, e.g. by an externally
+            // managed page cache
+            PageCache pageCache = dependencies.pageCache();
+            PageCacheOccupancy occupancy = null;
+            Collection<String> reservedFiles = Collections.emptySet();
+            if ( pageCache instanceof PageCacheOccupancy )
+            {
+                occupancy = (PageCacheOccupancy) pageCache;
+                reservedFiles = PageCacheReservations.reservations( config ).keySet();
+            }
+            life.add( new PageCacheMetrics( registry, dependencies.pageCacheCounters(), occupancy, reservedFiles ) );
             result = true;
         }
 
@@ -129,6 +151,18 @@ public class Neo4jMetricsBuilder
             result = true;
         }
 
+        if ( config.get( MetricsSettings.neoCommitPipelineEnabled ) )
+        {
+            life.add( new CommitPipelineMetrics( registry, dependencies.commitPipelineMonitor() ) );
+            result = true;
+        }
+
+        if ( config.get( MetricsSettings.neoSchemaIndexEnabled ) )
+        {
+            life.add( new SchemaIndexMetrics( registry, dependencies.monitors() ) );
+            result = true;
+        }
+
         if ( config.get( MetricsSettings.neoCountsEnabled ) )
         {
             life.add( new EntityCountMetrics( registry, dependencies.entityCountStats() ) );
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.metrics.source.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.impl.api.CommitPipelineMonitor;
+import org.neo4j.kernel.impl.api.CommitPipelineMonitor.Stage;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+@Documented( ".Database Commit Pipeline Metrics" )
+public class CommitPipelineMetrics extends LifecycleAdapter
+{
+    private static final String COMMIT_PREFIX = "neo4j.commit";
+    private static final String LOG_APPEND_PREFIX = name( COMMIT_PREFIX, "log_append" );
+    private static final String LOG_FORCE_PREFIX = name( COMMIT_PREFIX, "log_force" );
+    private static final String STORE_APPLY_PREFIX = name( COMMIT_PREFIX, "store_apply" );
+
+    @Documented( "The number of commits currently appending to the transaction log" )
+    public static final String LOG_APPEND_QUEUE_DEPTH = name( LOG_APPEND_PREFIX, "queue_depth" );
+    @Documented( "The total number of commits appended to the transaction log so far" )
+    public static final String LOG_APPEND_EVENTS = name( LOG_APPEND_PREFIX, "events" );
+    @Documented( "The total time spent appending to the transaction log so far" )
+    public static final String LOG_APPEND_TOTAL_TIME = name( LOG_APPEND_PREFIX, "total_time" );
+
+    @Documented( "The number of commits currently waiting for the transaction log to be forced" )
+    public static final String LOG_FORCE_QUEUE_DEPTH = name( LOG_FORCE_PREFIX, "queue_depth" );
+    @Documented( "The total number of commits forced to the transaction log so far" )
+    public static final String LOG_FORCE_EVENTS = name( LOG_FORCE_PREFIX, "events" );
+    @Documented( "The total time spent waiting for the transaction log to be forced so far" )
+    public static final String LOG_FORCE_TOTAL_TIME = name( LOG_FORCE_PREFIX, "total_time" );
+
+    @Documented( "The number of commits currently being applied to the store" )
+    public static final String STORE_APPLY_QUEUE_DEPTH = name( STORE_APPLY_PREFIX, "queue_depth" );
+    @Documented( "The total number of commits applied to the store so far" )
+    public static final String STORE_APPLY_EVENTS = name( STORE_APPLY_PREFIX, "events" );
+    @Documented( "The total time spent applying commits to the store so far" )
+    public static final String STORE_APPLY_TOTAL_TIME = name( STORE_APPLY_PREFIX, "total_time" );
+
+    private final MetricRegistry registry;
+    private final CommitPipelineMonitor commitPipelineMonitor;
+
+    public CommitPipelineMetrics( MetricRegistry registry, CommitPipelineMonitor commitPipelineMonitor )
+    {
+        this.registry = registry;
+        this.commitPipelineMonitor = commitPipelineMonitor;
+    }
+
+    @Override
+    public void start()
+    {
+        register( Stage.LOG_APPEND, LOG_APPEND_QUEUE_DEPTH, LOG_APPEND_EVENTS, LOG_APPEND_TOTAL_TIME );
+        register( Stage.LOG_FORCE, LOG_FORCE_QUEUE_DEPTH, LOG_FORCE_EVENTS, LOG_FORCE_TOTAL_TIME );
+        register( Stage.STORE_APPLY, STORE_APPLY_QUEUE_DEPTH, STORE_APPLY_EVENTS, STORE_APPLY_TOTAL_TIME );
+    }
+
+    @Override
+    public void stop()
+    {
+        registry.removeMatching( ( name, metric ) -> name.startsWith( COMMIT_PREFIX ) );
+    }
+
+    private void register( Stage stage, String queueDepth, String events, String totalTime )
+    {
+        registry.register( queueDepth, (Gauge<Long>) () -> commitPipelineMonitor.queueDepth( stage ) );
+        registry.register( events, (Gauge<Long>) () -> commitPipelineMonitor.numberOfStageEvents( stage ) );
+        registry.register( totalTime,
+                (Gauge<Long>) () -> commitPipelineMonitor.stageAccumulatedTotalTimeMillis( stage ) );
+    }
+}
@@ -22,7 +22,10 @@ package org.neo4j.metrics.source.db;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 
+import java.util.Collection;
+
 import org.neo4j.io.pagecache.monitoring.PageCacheCounters;
+import org.neo4j.io.pagecache.monitoring.PageCacheOccupancy;
 import org.neo4j.kernel.impl.annotations.Documented;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 
@@ -45,14 +48,36 @@ public class PageCacheMetrics extends LifecycleAdapter
     public static final String PC_EVICTIONS = name( PAGE_CACHE_PREFIX, "evictions" );
     @Documented( "The total number of page faults happened in the page cache" )
     public static final String PC_PAGE_FAULTS = name( PAGE_CACHE_PREFIX, "page_faults" );
+    @Documented( "The total number of page pins that found their page already in the page cache" )
+    public static final String PC_HITS = name( PAGE_CACHE_PREFIX, "hits" );
+    @Documented( "The ratio of page pins that found their page already in the page cache, " +
+                 "to the total number of page hits and faults" )
+    public static final String PC_HIT_RATIO = name( PAGE_CACHE_PREFIX, "hit_ratio" );
+    @Documented( "The number of bytes of memory allocated for the pages of the page cache so far" )
+    public static final String PC_ALLOCATED_MEMORY = name( PAGE_CACHE_PREFIX, "allocated_memory" );
+    @Documented( "An estimate of the number of pages in the page cache that hold changes not yet written out" )
+    public static final String PC_DIRTY_PAGES = name( PAGE_CACHE_PREFIX, "dirty_pages" );
+    @Documented( "The total number of dirty pages written out by the background page cleaner" )
+    public static final String PC_CLEANED_PAGES = name( PAGE_CACHE_PREFIX, "cleaned_pages" );
+    @Documented( "The number of pages in the page cache that hold, and that are reserved for, pages of a file with a " +
+                 "page cache reservation, reported as `<prefix>.<file name>.resident_pages` and " +
+                 "`<prefix>.<file name>.reserved_pages`" )
+    public static final String PC_PARTITION = name( PAGE_CACHE_PREFIX, "partition" );
+    private static final String RESIDENT_PAGES = "resident_pages";
+    private static final String RESERVED_PAGES = "reserved_pages";
 
     private final MetricRegistry registry;
     private final PageCacheCounters pageCacheCounters;
+    private final PageCacheOccupancy pageCacheOccupancy;
+    private final Collection<String> reservedFiles;
 
-    public PageCacheMetrics( MetricRegistry registry, PageCacheCounters pageCacheCounters )
+    public PageCacheMetrics( MetricRegistry registry, PageCacheCounters pageCacheCounters,
+            PageCacheOccupancy pageCacheOccupancy, Collection<String> reservedFiles )
     {
         this.registry = registry;
         this.pageCacheCounters = pageCacheCounters;
+        this.pageCacheOccupancy = pageCacheOccupancy;
+        this.reservedFiles = reservedFiles;
     }
 
     @Override
@@ -64,6 +89,21 @@ public class PageCacheMetrics extends LifecycleAdapter
         registry.register( PC_UNPINS, (Gauge<Long>) pageCacheCounters::unpins );
         registry.register( PC_FLUSHES, (Gauge<Long>) pageCacheCounters::flushes );
         registry.register( PC_EVICTION_EXCEPTIONS, (Gauge<Long>) pageCacheCounters::evictionExceptions );
+        registry.register( PC_HITS, (Gauge<Long>) pageCacheCounters::hits );
+        registry.register( PC_HIT_RATIO, (Gauge<Double>) pageCacheCounters::hitRatio );
+        if ( pageCacheOccupancy != null )
+        {
+            registry.register( PC_ALLOCATED_MEMORY, (Gauge<Long>) pageCacheOccupancy::allocatedMemory );
+            registry.register( PC_DIRTY_PAGES, (Gauge<Long>) pageCacheOccupancy::dirtyPages );
+            registry.register( PC_CLEANED_PAGES, (Gauge<Long>) pageCacheOccupancy::cleanedPages );
+        }
+        for ( String file : reservedFiles )
+        {
+            registry.register( name( PC_PARTITION, file, RESIDENT_PAGES ),
+                    (Gauge<Long>) () -> pageCacheOccupancy.residentPages( file ) );
+            registry.register( name( PC_PARTITION, file, RESERVED_PAGES ),
+                    (Gauge<Long>) () -> pageCacheOccupancy.reservedPages( file ) );
+        }
     }
 
     @Override
@@ -75,5 +115,15 @@ public class PageCacheMetrics extends LifecycleAdapter
         registry.remove( PC_UNPINS );
         registry.remove( PC_FLUSHES );
         registry.remove( PC_EVICTION_EXCEPTIONS );
+        registry.remove( PC_HITS );
+        registry.remove( PC_HIT_RATIO );
+        registry.remove( PC_ALLOCATED_MEMORY );
+        registry.remove( PC_DIRTY_PAGES );
+        registry.remove( PC_CLEANED_PAGES );
+        for ( String file : reservedFiles )
+        {
+            registry.remove( name( PC_PARTITION, file, RESIDENT_PAGES ) );
+            registry.remove( name( PC_PARTITION, file, RESERVED_PAGES ) );
+        }
     }
 }
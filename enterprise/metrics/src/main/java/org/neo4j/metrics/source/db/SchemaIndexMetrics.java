@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.metrics.source.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.kernel.api.impl.index.IndexSearcherRefresher;
+import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.kernel.monitoring.Monitors;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+@Documented( ".Schema Index Metrics" )
+public class SchemaIndexMetrics extends LifecycleAdapter
+{
+    private static final String SCHEMA_INDEX_PREFIX = "neo4j.schema_index";
+
+    @Documented( "The total number of schema index searcher refreshes executed so far" )
+    public static final String REFRESH_EVENTS = name( SCHEMA_INDEX_PREFIX, "refresh_events" );
+    @Documented( "The total time spent in refreshing schema index searchers so far" )
+    public static final String REFRESH_TOTAL_TIME = name( SCHEMA_INDEX_PREFIX, "refresh_total_time" );
+    @Documented( "The age of the most recently replaced schema index searcher, i.e. for how long updates were not " +
+                 "visible to other transactions" )
+    public static final String SEARCHER_AGE = name( SCHEMA_INDEX_PREFIX, "searcher_age" );
+
+    private final MetricRegistry registry;
+    private final Monitors monitors;
+    private final RefreshMonitor refreshMonitor = new RefreshMonitor();
+
+    public SchemaIndexMetrics( MetricRegistry registry, Monitors monitors )
+    {
+        this.registry = registry;
+        this.monitors = monitors;
+    }
+
+    @Override
+    public void start()
+    {
+        monitors.addMonitorListener( refreshMonitor );
+        registry.register( REFRESH_EVENTS, (Gauge<Long>) refreshMonitor.events::get );
+        registry.register( REFRESH_TOTAL_TIME, (Gauge<Long>) refreshMonitor.totalTimeMillis::get );
+        registry.register( SEARCHER_AGE, (Gauge<Long>) refreshMonitor.searcherAgeMillis::get );
+    }
+
+    @Override
+    public void stop()
+    {
+        registry.remove( REFRESH_EVENTS );
+        registry.remove( REFRESH_TOTAL_TIME );
+        registry.remove( SEARCHER_AGE );
+        monitors.removeMonitorListener( refreshMonitor );
+    }
+
+    private static class RefreshMonitor implements IndexSearcherRefresher.Monitor
+    {
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong totalTimeMillis = new AtomicLong();
+        private final AtomicLong searcherAgeMillis = new AtomicLong();
+
+        @Override
+        public void refreshed( long refreshTimeMillis, long searcherAgeMillis )
+        {
+            events.incrementAndGet();
+            totalTimeMillis.addAndGet( refreshTimeMillis );
+            this.searcherAgeMillis.set( searcherAgeMillis );
+        }
+    }
+}